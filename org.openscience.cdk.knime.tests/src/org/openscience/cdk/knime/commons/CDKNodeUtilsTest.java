@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Tests the explicit hydrogen clones of {@link CDKNodeUtils}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class CDKNodeUtilsTest {
+
+	private static final String[] SMILES = { "CC(=O)Oc1ccccc1C(=O)O", "CN1C=NC2=C1C(=O)N(C(=O)N2C)C",
+			"C[C@H](N)C(=O)O", "O=S(=O)(O)c1ccc(N)cc1", "[NH4+].[Cl-]", "C1CC2CCC1C2", "OP(=O)(O)OCC#N",
+			"Brc1ccc(cc1)C=CC(=O)[O-]" };
+
+	/**
+	 * Lists the symbol, atom type and hydrogen count of every atom.
+	 */
+	private static String describe(final IAtomContainer molecule) {
+
+		StringBuilder sb = new StringBuilder();
+		for (IAtom atom : molecule.atoms()) {
+			sb.append(atom.getSymbol()).append(':').append(atom.getAtomTypeName()).append(':')
+					.append(atom.getImplicitHydrogenCount()).append(' ');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The clone holds every hydrogen as an atom and leaves the input molecule unchanged.
+	 */
+	@Test
+	public void testExplicitClone() throws Exception {
+
+		IAtomContainer molecule = CDKNodeUtils.getFullMolecule("CCO");
+		String before = describe(molecule);
+		IAtomContainer clone = CDKNodeUtils.getExplicitClone(molecule);
+
+		assertNotSame(molecule, clone);
+		assertEquals(9, clone.getAtomCount());
+		for (IAtom atom : clone.atoms()) {
+			assertEquals(Integer.valueOf(0), atom.getImplicitHydrogenCount());
+		}
+		assertEquals(before, describe(molecule));
+	}
+
+	/**
+	 * Concurrent clones of shared molecules are identical to the clones made by a single thread.
+	 */
+	@Test
+	public void testConcurrentExplicitClones() throws Exception {
+
+		final List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+		final List<String> expected = new ArrayList<String>();
+		for (String smiles : SMILES) {
+			IAtomContainer molecule = CDKNodeUtils.getFullMolecule(smiles);
+			molecules.add(molecule);
+			expected.add(describe(CDKNodeUtils.getExplicitClone(molecule)));
+		}
+		final List<String> inputs = new ArrayList<String>();
+		for (IAtomContainer molecule : molecules) {
+			inputs.add(describe(molecule));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+			for (int t = 0; t < 8; t++) {
+				final int offset = t;
+				results.add(executor.submit(new Callable<List<String>>() {
+
+					@Override
+					public List<String> call() throws Exception {
+
+						List<String> clones = new ArrayList<String>();
+						for (int i = 0; i < 50 * molecules.size(); i++) {
+							IAtomContainer molecule = molecules.get((i + offset) % molecules.size());
+							clones.add(describe(CDKNodeUtils.getExplicitClone(molecule)));
+						}
+						return clones;
+					}
+				}));
+			}
+			for (int t = 0; t < results.size(); t++) {
+				List<String> clones = results.get(t).get();
+				for (int i = 0; i < clones.size(); i++) {
+					int k = (i + t) % molecules.size();
+					assertEquals(SMILES[k], expected.get(k), clones.get(i));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		for (int k = 0; k < molecules.size(); k++) {
+			assertEquals(SMILES[k], inputs.get(k), describe(molecules.get(k)));
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.knime.nodes.coord3d.Coord3dGenerator;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Tests the conformers of the {@link ConformerSampler}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ConformerSamplerTest {
+
+	private static final String FLEXIBLE = "CCCCCCCO";
+	private static final double RMSD = 0.5;
+
+	private static Coord3dGenerator generator;
+
+	@BeforeClass
+	public static void setUp() {
+		generator = new Coord3dGenerator(1);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		generator.shutdown();
+	}
+
+	private static IAtomContainer build(final String smiles) throws Exception {
+
+		IAtomContainer molecule = new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles(smiles);
+		return generator.generate(molecule, 60000);
+	}
+
+	private static double[] coordinates(final IAtomContainer molecule) {
+
+		double[] coords = new double[3 * molecule.getAtomCount()];
+		for (int i = 0; i < molecule.getAtomCount(); i++) {
+			Point3d p = molecule.getAtom(i).getPoint3d();
+			coords[3 * i] = p.x;
+			coords[3 * i + 1] = p.y;
+			coords[3 * i + 2] = p.z;
+		}
+		return coords;
+	}
+
+	private static double distance(final IAtom a, final IAtom b) {
+		return a.getPoint3d().distance(b.getPoint3d());
+	}
+
+	/**
+	 * Only acyclic single bonds between two atoms with further heavy atom neighbours are rotatable.
+	 */
+	@Test
+	public void testRotatableBonds() throws Exception {
+
+		assertEquals(0, new ConformerSampler(build("CC")).rotatableBonds());
+		assertEquals(1, new ConformerSampler(build("CCCC")).rotatableBonds());
+		assertEquals(0, new ConformerSampler(build("c1ccccc1")).rotatableBonds());
+		assertEquals(5, new ConformerSampler(build(FLEXIBLE)).rotatableBonds());
+	}
+
+	/**
+	 * The input geometry is the first conformer and the torsions leave the bond lengths unchanged.
+	 */
+	@Test
+	public void testConformerGeometry() throws Exception {
+
+		IAtomContainer molecule = build(FLEXIBLE);
+		List<IAtomContainer> conformers = new ConformerSampler(molecule).sample(10, RMSD, Long.MAX_VALUE);
+		assertTrue(conformers.size() > 1);
+
+		IAtomContainer first = conformers.get(0);
+		for (int i = 0; i < molecule.getAtomCount(); i++) {
+			assertEquals(0, distance(molecule.getAtom(i), first.getAtom(i)), 1e-9);
+		}
+		for (IAtomContainer conformer : conformers) {
+			for (int i = 0; i < molecule.getBondCount(); i++) {
+				IBond expected = molecule.getBond(i);
+				IBond actual = conformer.getBond(i);
+				assertEquals(distance(expected.getAtom(0), expected.getAtom(1)),
+						distance(actual.getAtom(0), actual.getAtom(1)), 1e-6);
+			}
+		}
+	}
+
+	/**
+	 * The conformers differ by at least the RMSD threshold and sampling is reproducible.
+	 */
+	@Test
+	public void testDistinctConformers() throws Exception {
+
+		IAtomContainer molecule = build(FLEXIBLE);
+		ConformerSampler sampler = new ConformerSampler(molecule);
+		List<IAtomContainer> conformers = sampler.sample(10, RMSD, Long.MAX_VALUE);
+		for (int i = 0; i < conformers.size(); i++) {
+			for (int j = i + 1; j < conformers.size(); j++) {
+				double rmsd = sampler.rmsd(coordinates(conformers.get(i)), coordinates(conformers.get(j)));
+				assertTrue(rmsd >= RMSD);
+			}
+		}
+
+		List<IAtomContainer> again = new ConformerSampler(molecule).sample(10, RMSD, Long.MAX_VALUE);
+		assertEquals(conformers.size(), again.size());
+		for (int i = 0; i < conformers.size(); i++) {
+			assertEquals(0, sampler.rmsd(coordinates(conformers.get(i)), coordinates(again.get(i))), 1e-6);
+		}
+	}
+
+	/**
+	 * The RMSD does not change under rotation and translation of one of the geometries.
+	 */
+	@Test
+	public void testSuperposition() throws Exception {
+
+		IAtomContainer molecule = build(FLEXIBLE);
+		ConformerSampler sampler = new ConformerSampler(molecule);
+		double[] coords = coordinates(molecule);
+		double[] moved = new double[coords.length];
+		double cos = Math.cos(1.1);
+		double sin = Math.sin(1.1);
+		for (int i = 0; i < coords.length; i += 3) {
+			moved[i] = cos * coords[i] - sin * coords[i + 1] + 3.5;
+			moved[i + 1] = sin * coords[i] + cos * coords[i + 1] - 2.0;
+			moved[i + 2] = coords[i + 2] + 7.25;
+		}
+		assertEquals(0, sampler.rmsd(coords, coords), 1e-6);
+		assertEquals(0, sampler.rmsd(coords, moved), 1e-6);
+	}
+
+	/**
+	 * Molecules without rotatable bonds and expired deadlines yield the input geometry only.
+	 */
+	@Test
+	public void testInputGeometryOnly() throws Exception {
+
+		assertEquals(1, new ConformerSampler(build("c1ccccc1")).sample(10, RMSD, Long.MAX_VALUE).size());
+		assertEquals(1, new ConformerSampler(build(FLEXIBLE)).sample(10, RMSD, 0).size());
+	}
+}
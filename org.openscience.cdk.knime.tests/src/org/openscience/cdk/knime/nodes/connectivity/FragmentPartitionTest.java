@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.connectivity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IStereoElement;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Tests the {@link FragmentPartition} against the fragments of the {@link ConnectivityChecker}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class FragmentPartitionTest {
+
+	private static final String[] SMILES = { "CCO", "CCO.O", "[Na+].[Cl-]", "O.CCO.[Na+].c1ccccc1",
+			"C[C@H](N)C(=O)O.Cl", "F/C=C/F.Br[C@@H](Cl)I.CC=[C@]=CC", "CC(=O)[O-].CC(=O)[O-].[Ca+2]",
+			"C1CC1.C1CCC1.C1CC1", "[CH2]C.[O]O", "c1ccc2ccccc2c1.C1CCNCC1.OC(=O)C(O)=O" };
+
+	private static IAtomContainer parse(final String smiles) throws Exception {
+		return new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles(smiles);
+	}
+
+	private static List<IStereoElement> stereoElements(final IAtomContainer container) {
+
+		List<IStereoElement> elements = new ArrayList<IStereoElement>();
+		for (IStereoElement element : container.stereoElements()) {
+			elements.add(element);
+		}
+		return elements;
+	}
+
+	private static void assertSameFragment(final String smiles, final IAtomContainer expected,
+			final IAtomContainer actual) {
+
+		assertEquals(smiles, expected.getAtomCount(), actual.getAtomCount());
+		for (int i = 0; i < expected.getAtomCount(); i++) {
+			assertSame(smiles, expected.getAtom(i), actual.getAtom(i));
+		}
+		assertEquals(smiles, expected.getBondCount(), actual.getBondCount());
+		for (int i = 0; i < expected.getBondCount(); i++) {
+			assertSame(smiles, expected.getBond(i), actual.getBond(i));
+		}
+		assertEquals(smiles, expected.getSingleElectronCount(), actual.getSingleElectronCount());
+		assertEquals(smiles, expected.getLonePairCount(), actual.getLonePairCount());
+		assertEquals(smiles, stereoElements(expected), stereoElements(actual));
+	}
+
+	/**
+	 * The fragments hold the same atoms, bonds, electrons and stereo elements in the same order as the fragments of
+	 * the connectivity checker.
+	 */
+	@Test
+	public void testFragments() throws Exception {
+
+		for (String smiles : SMILES) {
+			IAtomContainer molecule = parse(smiles);
+			IAtomContainerSet expected = ConnectivityChecker.partitionIntoMolecules(molecule);
+			FragmentPartition partition = new FragmentPartition(molecule);
+
+			assertEquals(smiles, expected.getAtomContainerCount(), partition.count());
+			List<IAtomContainer> fragments = partition.getFragments();
+			for (int i = 0; i < partition.count(); i++) {
+				assertSameFragment(smiles, expected.getAtomContainer(i), fragments.get(i));
+				assertSameFragment(smiles, expected.getAtomContainer(i), partition.getFragment(i));
+			}
+		}
+	}
+
+	/**
+	 * The biggest fragment is the first fragment with the most bonds.
+	 */
+	@Test
+	public void testBiggest() throws Exception {
+
+		for (String smiles : SMILES) {
+			IAtomContainer molecule = parse(smiles);
+			IAtomContainerSet fragments = ConnectivityChecker.partitionIntoMolecules(molecule);
+			int biggest = 0;
+			for (int i = 1; i < fragments.getAtomContainerCount(); i++) {
+				if (fragments.getAtomContainer(i).getBondCount() > fragments.getAtomContainer(biggest).getBondCount()) {
+					biggest = i;
+				}
+			}
+			assertEquals(smiles, biggest, new FragmentPartition(molecule).biggest());
+		}
+	}
+
+	/**
+	 * Connected molecules form a single fragment.
+	 */
+	@Test
+	public void testConnected() throws Exception {
+
+		for (String smiles : SMILES) {
+			IAtomContainer molecule = parse(smiles);
+			boolean connected = new FragmentPartition(molecule).count() == 1;
+			assertEquals(smiles, ConnectivityChecker.isConnected(molecule), connected);
+		}
+	}
+}
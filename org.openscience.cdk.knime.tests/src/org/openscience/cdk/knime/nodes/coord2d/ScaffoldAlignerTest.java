@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.coord2d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.vecmath.Point2d;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.isomorphism.Pattern;
+import org.openscience.cdk.knime.commons.CDKNodeUtils;
+
+/**
+ * Tests the alignment of 2D layouts onto a reference scaffold.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ScaffoldAlignerTest {
+
+	private static final String SCAFFOLD = "c1ccc2c(c1)cccn2";
+	private static final String[] ANALOGUES = { "Cc1ccc2ncccc2c1", "OC(=O)c1ccnc2ccccc12",
+			"CCN(CC)CCCC(C)Nc1ccnc2cc(Cl)ccc12", "c1ccc(cc1)-c1ccc2ccccc2n1" };
+	private static final String CHAIN = "NCCc1ccccc1";
+	private static final String[] CHAIN_ANALOGUES = { "CNCCc1ccc(O)c(O)c1", "NC(C)Cc1ccccc1", "OCC(N)Cc1ccccc1",
+			"NCCc1ccc2ccccc2c1" };
+
+	private static IAtomContainer layout(final String smiles) throws CDKException {
+		return CDKNodeUtils.calculateCoordinates(CDKNodeUtils.getFullMolecule(smiles), true, false);
+	}
+
+	private static Map<IBond, Double> bondLengths(final IAtomContainer molecule) {
+
+		Map<IBond, Double> lengths = new HashMap<IBond, Double>();
+		for (IBond bond : molecule.bonds()) {
+			lengths.put(bond, bond.getAtom(0).getPoint2d().distance(bond.getAtom(1).getPoint2d()));
+		}
+		return lengths;
+	}
+
+	private static void assertScaffoldCoordinates(final String smiles, final String... analogues) throws Exception {
+
+		ScaffoldAligner aligner = new ScaffoldAligner(smiles);
+		IAtomContainer scaffold = layout(smiles);
+		Pattern pattern = Pattern.findSubstructure(scaffold);
+
+		for (String analogue : analogues) {
+			IAtomContainer molecule = layout(analogue);
+			assertTrue(aligner.align(molecule));
+			int[] match = pattern.match(molecule);
+			for (int i = 0; i < match.length; i++) {
+				Point2d expected = scaffold.getAtom(i).getPoint2d();
+				Point2d actual = molecule.getAtom(match[i]).getPoint2d();
+				assertEquals(analogue, 0, expected.distance(actual), 1e-6);
+			}
+		}
+	}
+
+	private static void assertSubstituentBonds(final String smiles, final String... analogues) throws Exception {
+
+		ScaffoldAligner aligner = new ScaffoldAligner(smiles);
+		Pattern pattern = Pattern.findSubstructure(layout(smiles));
+
+		for (String analogue : analogues) {
+			IAtomContainer molecule = layout(analogue);
+			Map<IBond, Double> before = bondLengths(molecule);
+			assertTrue(aligner.align(molecule));
+
+			boolean[] scaffold = new boolean[molecule.getAtomCount()];
+			for (int i : pattern.match(molecule)) {
+				scaffold[i] = true;
+			}
+			for (IBond bond : molecule.bonds()) {
+				boolean first = scaffold[molecule.getAtomNumber(bond.getAtom(0))];
+				boolean second = scaffold[molecule.getAtomNumber(bond.getAtom(1))];
+				if (first && second) {
+					continue;
+				}
+				double length = bond.getAtom(0).getPoint2d().distance(bond.getAtom(1).getPoint2d());
+				assertEquals(analogue, before.get(bond), length, 0.05);
+			}
+		}
+	}
+
+	/**
+	 * Every scaffold atom takes the coordinates of the scaffold layout.
+	 */
+	@Test
+	public void testScaffoldCoordinates() throws Exception {
+		assertScaffoldCoordinates(SCAFFOLD, ANALOGUES);
+	}
+
+	/**
+	 * Scaffold atoms are moved onto the scaffold layout even if the molecule lays out the scaffold differently.
+	 */
+	@Test
+	public void testChainScaffoldCoordinates() throws Exception {
+		assertScaffoldCoordinates(CHAIN, CHAIN_ANALOGUES);
+	}
+
+	/**
+	 * The substituents keep their shape and stay attached to the scaffold with their original bond lengths.
+	 */
+	@Test
+	public void testSubstituentsFollowScaffold() throws Exception {
+
+		assertSubstituentBonds(SCAFFOLD, ANALOGUES);
+		assertSubstituentBonds(CHAIN, CHAIN_ANALOGUES);
+	}
+
+	/**
+	 * Rings closed outside the scaffold are not stretched.
+	 */
+	@Test
+	public void testRingThroughScaffold() throws Exception {
+		assertSubstituentBonds(CHAIN, "c1ccc2CNCCc2c1");
+	}
+
+	/**
+	 * Molecules without the scaffold keep their layout.
+	 */
+	@Test
+	public void testMissingScaffold() throws Exception {
+
+		ScaffoldAligner aligner = new ScaffoldAligner(SCAFFOLD);
+		IAtomContainer molecule = layout("CCOc1ccccc1");
+		Point2d[] before = new Point2d[molecule.getAtomCount()];
+		for (int i = 0; i < before.length; i++) {
+			before[i] = new Point2d(molecule.getAtom(i).getPoint2d());
+		}
+
+		assertFalse(aligner.align(molecule));
+		for (int i = 0; i < before.length; i++) {
+			IAtom atom = molecule.getAtom(i);
+			assertEquals(0, before[i].distance(atom.getPoint2d()), 0);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.coord3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.geometry.GeometryTools;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.modeling.builder3d.TemplateHandler3D;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Tests the timeout handling of the {@link Coord3dGenerator}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class Coord3dGeneratorTest {
+
+	private static final String SMILES = "CC(C)Cc1ccc(cc1)C(C)C(=O)O";
+	private static final String LARGE = "C1CCC2(CC1)CCC1(CC2)CCC2(CC1)CCC1(CC2)CCC2(CC1)CCC1(CC2)CCC(CC1)C1CCCCC1";
+
+	private static IAtomContainer parse(final String smiles) throws CDKException {
+		return new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles(smiles);
+	}
+
+	/**
+	 * The templates are loaded when the generator is created, before any timed job.
+	 */
+	@Test
+	public void testTemplatesLoaded() throws Exception {
+
+		Coord3dGenerator generator = new Coord3dGenerator(1);
+		try {
+			assertTrue(TemplateHandler3D.getInstance().getTemplateCount() > 0);
+		} finally {
+			generator.shutdown();
+		}
+	}
+
+	/**
+	 * Builds queued behind the builds of other generators do not time out, the timeout starts with the build.
+	 */
+	@Test
+	public void testQueuedTimeNotCounted() throws Exception {
+
+		final Coord3dGenerator first = new Coord3dGenerator(1);
+		final Coord3dGenerator second = new Coord3dGenerator(1);
+		ExecutorService callers = Executors.newFixedThreadPool(6);
+		try {
+			long start = System.currentTimeMillis();
+			assertNotNull(first.generate(parse(SMILES), 60000));
+			final long timeout = 3 * Math.max(50, System.currentTimeMillis() - start);
+
+			// six builds take twice the timeout when serialized
+			List<Future<IAtomContainer>> results = new ArrayList<Future<IAtomContainer>>();
+			for (int i = 0; i < 6; i++) {
+				final Coord3dGenerator generator = i % 2 == 0 ? first : second;
+				results.add(callers.submit(new Callable<IAtomContainer>() {
+
+					@Override
+					public IAtomContainer call() throws Exception {
+						return generator.generate(parse(SMILES), timeout);
+					}
+				}));
+			}
+			for (Future<IAtomContainer> result : results) {
+				IAtomContainer molecule = result.get();
+				assertNotNull(molecule);
+				assertTrue(GeometryTools.has3DCoordinates(molecule));
+			}
+		} finally {
+			callers.shutdownNow();
+			first.shutdown();
+			second.shutdown();
+		}
+	}
+
+	/**
+	 * A timed out build is abandoned, not stopped, and later builds still work with consistent templates.
+	 */
+	@Test
+	public void testTimeoutAbandonsBuild() throws Exception {
+
+		Coord3dGenerator generator = new Coord3dGenerator(1);
+		try {
+			int templates = TemplateHandler3D.getInstance().getTemplateCount();
+			try {
+				generator.generate(parse(LARGE), 1);
+				fail("The build should time out.");
+			} catch (TimeoutException exception) {
+				// expected
+			}
+
+			IAtomContainer molecule = generator.generate(parse(SMILES), 60000);
+			assertNotNull(molecule);
+			assertTrue(GeometryTools.has3DCoordinates(molecule));
+			assertEquals(templates, TemplateHandler3D.getInstance().getTemplateCount());
+			assertTrue(generator.lastBuildStart() <= System.currentTimeMillis());
+		} finally {
+			generator.shutdown();
+		}
+	}
+}
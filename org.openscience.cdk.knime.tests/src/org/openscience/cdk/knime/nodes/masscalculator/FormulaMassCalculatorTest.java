@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.masscalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Tests the {@link FormulaMassCalculator} against the masses calculated by the CDK.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class FormulaMassCalculatorTest {
+
+	private static final String[] PLAIN = { "C", "H2O", "C6H12O6", "C9H8O4", "C8H10N4O2", "CH3CH2OH", "NaCl",
+			"C17H19NO3", "C2H6OS", "UF6", "C20H25BrN2O", "Fe2O3", "C60", "C123456H1" };
+	private static final String[] FALLBACK = { "[C6H5O7]3-", "C2H6O.H2O", "[NH4]+", "C6H5Xx" };
+
+	private static double cdkMass(final String formula, final boolean majorIsotope) {
+
+		IMolecularFormula sumFormula = MolecularFormulaManipulator.getMolecularFormula(formula,
+				SilentChemObjectBuilder.getInstance());
+		return majorIsotope ? MolecularFormulaManipulator.getMajorIsotopeMass(sumFormula)
+				: MolecularFormulaManipulator.getNaturalExactMass(sumFormula);
+	}
+
+	private static void assertCdkMasses(final String[] formulas) {
+
+		for (boolean majorIsotope : new boolean[] { true, false }) {
+			FormulaMassCalculator calculator = new FormulaMassCalculator(majorIsotope);
+			for (String formula : formulas) {
+				double expected = cdkMass(formula, majorIsotope);
+				// twice, the second call of the fallback formulas is served by the cache
+				assertEquals(formula, expected, calculator.getMass(formula), Math.abs(expected) * 1e-12);
+				assertEquals(formula, expected, calculator.getMass(formula), Math.abs(expected) * 1e-12);
+			}
+		}
+	}
+
+	/**
+	 * Plain formulas are summed to the masses of the CDK.
+	 */
+	@Test
+	public void testPlainFormulas() {
+		assertCdkMasses(PLAIN);
+	}
+
+	/**
+	 * Charged, bracketed, dotted and unknown formulas are calculated by the CDK.
+	 */
+	@Test
+	public void testFallbackFormulas() {
+		assertCdkMasses(FALLBACK);
+	}
+
+	/**
+	 * As in the CDK, a count of zero is read as one.
+	 */
+	@Test
+	public void testZeroCount() {
+
+		FormulaMassCalculator calculator = new FormulaMassCalculator(true);
+		assertEquals(calculator.getMass("CO"), calculator.getMass("C0O"), 0);
+		assertEquals(cdkMass("C0O", true), calculator.getMass("C0O"), 1e-12);
+	}
+}
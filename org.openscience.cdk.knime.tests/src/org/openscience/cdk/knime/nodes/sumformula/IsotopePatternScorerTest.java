@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.sumformula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Tests the theoretical patterns and the scores of the {@link IsotopePatternScorer}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class IsotopePatternScorerTest {
+
+	private static final double TOLERANCE = 0.01;
+
+	private static IMolecularFormula formula(final String formula) {
+		return MolecularFormulaManipulator.getMolecularFormula(formula, SilentChemObjectBuilder.getInstance());
+	}
+
+	private static double abundance(final IsotopeFactory factory, final String symbol, final int massNumber) {
+
+		for (IIsotope isotope : factory.getIsotopes(symbol)) {
+			if (isotope.getMassNumber() == massNumber) {
+				return isotope.getNaturalAbundance();
+			}
+		}
+		throw new IllegalArgumentException(symbol + massNumber);
+	}
+
+	/**
+	 * The pattern of a single element follows the binomial distribution of its two isotopes.
+	 */
+	@Test
+	public void testBinomialPatterns() throws Exception {
+
+		IsotopeFactory factory = Isotopes.getInstance();
+		IsotopePatternScorer scorer = new IsotopePatternScorer(factory, TOLERANCE);
+
+		// C20: M+1 = 20 p/q, M+2 = 190 (p/q)^2
+		double carbon = abundance(factory, "C", 13) / abundance(factory, "C", 12);
+		double[][] pattern = scorer.getPattern(formula("C20"));
+		assertEquals(240.0, pattern[0][0], 1e-6);
+		assertEquals(1.0, pattern[1][0], 1e-9);
+		assertEquals(20 * carbon, pattern[1][1], 1e-6);
+		assertEquals(190 * carbon * carbon, pattern[1][2], 1e-6);
+
+		// Cl2: 1 : 2 p/q : (p/q)^2, two mass units apart
+		double chlorine = abundance(factory, "Cl", 37) / abundance(factory, "Cl", 35);
+		pattern = scorer.getPattern(formula("Cl2"));
+		assertEquals(3, pattern[0].length);
+		assertEquals(2 * chlorine, pattern[1][1], 1e-6);
+		assertEquals(chlorine * chlorine, pattern[1][2], 1e-6);
+		assertEquals(2 * 1.997, pattern[0][2] - pattern[0][0], 0.01);
+	}
+
+	/**
+	 * A measured pattern identical to the theoretical pattern scores one, also after a constant shift of the masses
+	 * by the ionisation and at a different intensity scale.
+	 */
+	@Test
+	public void testMatchingPattern() throws Exception {
+
+		IsotopePatternScorer scorer = new IsotopePatternScorer(Isotopes.getInstance(), TOLERANCE);
+		IMolecularFormula formula = formula("C9H8O4");
+		double[][] pattern = scorer.getPattern(formula);
+
+		double[] mz = new double[pattern[0].length];
+		double[] intensities = new double[pattern[1].length];
+		for (int i = 0; i < mz.length; i++) {
+			mz[i] = pattern[0][i] + 1.00728;
+			intensities[i] = pattern[1][i] * 5000;
+		}
+		assertEquals(1.0, scorer.score(formula, "C9H8O4", mz, intensities), 1e-9);
+	}
+
+	/**
+	 * The measured pattern of a chlorinated compound scores higher for the chlorinated formula than for a formula of
+	 * similar mass without chlorine.
+	 */
+	@Test
+	public void testRanking() throws Exception {
+
+		IsotopePatternScorer scorer = new IsotopePatternScorer(Isotopes.getInstance(), TOLERANCE);
+		IMolecularFormula chlorinated = formula("C6H4Cl2");
+		double[][] pattern = scorer.getPattern(chlorinated);
+
+		double chlorine = scorer.score(chlorinated, "C6H4Cl2", pattern[0], pattern[1]);
+		double other = scorer.score(formula("C7H8O4"), "C7H8O4", pattern[0], pattern[1]);
+		assertTrue(chlorine > 0.99);
+		assertTrue(other < chlorine - 0.1);
+	}
+
+	/**
+	 * An empty measured pattern scores zero.
+	 */
+	@Test
+	public void testEmptyPattern() throws Exception {
+
+		IsotopePatternScorer scorer = new IsotopePatternScorer(Isotopes.getInstance(), TOLERANCE);
+		assertEquals(0, scorer.score(formula("CH4"), "CH4", new double[0], new double[0]), 0);
+	}
+}
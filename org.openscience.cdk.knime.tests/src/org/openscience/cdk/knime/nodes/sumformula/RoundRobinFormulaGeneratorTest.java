@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.sumformula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.formula.rules.ElementRatioRule;
+import org.openscience.cdk.formula.rules.IRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Tests the {@link RoundRobinFormulaGenerator} against a brute-force enumeration of the element counts.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class RoundRobinFormulaGeneratorTest {
+
+	private static final String[] SYMBOLS = { "C", "H", "N", "O", "S" };
+	private static final int[] MAX_COUNTS = { 10, 24, 4, 6, 2 };
+	private static final double TOLERANCE = 0.05;
+
+	/**
+	 * Enumerates every combination of element counts and keeps the formulas within the tolerance that pass all rules.
+	 */
+	private static Set<String> enumerate(final IIsotope[] isotopes, final double mass, final List<IRule> rules)
+			throws Exception {
+
+		Set<String> formulas = new TreeSet<String>();
+		int[] counts = new int[isotopes.length];
+		while (true) {
+			double sum = 0;
+			for (int i = 0; i < counts.length; i++) {
+				sum += counts[i] * isotopes[i].getExactMass();
+			}
+			if (Math.abs(sum - mass) < TOLERANCE) {
+				IMolecularFormula formula = SilentChemObjectBuilder.getInstance().newInstance(IMolecularFormula.class);
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] > 0) {
+						formula.addIsotope(isotopes[i], counts[i]);
+					}
+				}
+				boolean valid = true;
+				for (IRule rule : rules) {
+					valid &= rule.validate(formula) == 1;
+				}
+				if (valid) {
+					formulas.add(MolecularFormulaManipulator.getString(formula));
+				}
+			}
+			int i = 0;
+			while (i < counts.length && counts[i] == MAX_COUNTS[i]) {
+				counts[i++] = 0;
+			}
+			if (i == counts.length) {
+				return formulas;
+			}
+			counts[i]++;
+		}
+	}
+
+	private static void assertMatchesEnumeration(final String name, final List<IRule> rules) throws Exception {
+
+		IsotopeFactory factory = Isotopes.getInstance();
+		IIsotope[] isotopes = new IIsotope[SYMBOLS.length];
+		MolecularFormulaRange range = new MolecularFormulaRange();
+		for (int i = 0; i < SYMBOLS.length; i++) {
+			isotopes[i] = factory.getMajorIsotope(SYMBOLS[i]);
+			range.addIsotope(isotopes[i], 0, MAX_COUNTS[i]);
+		}
+		RoundRobinFormulaGenerator generator = new RoundRobinFormulaGenerator(range, TOLERANCE, rules,
+				SilentChemObjectBuilder.getInstance());
+
+		Random random = new Random(42);
+		for (int k = 0; k < 10; k++) {
+			double mass = 20 + random.nextDouble() * 230;
+			Set<String> actual = new TreeSet<String>();
+			for (IMolecularFormula formula : generator.generate(mass).molecularFormulas()) {
+				actual.add(MolecularFormulaManipulator.getString(formula));
+			}
+			assertEquals(name + " at " + mass, enumerate(isotopes, mass, rules), actual);
+		}
+	}
+
+	/**
+	 * Without rules every formula within the tolerance is generated.
+	 */
+	@Test
+	public void testWithoutRules() throws Exception {
+		assertMatchesEnumeration("no rules", new ArrayList<IRule>());
+	}
+
+	/**
+	 * The nitrogen rule is evaluated on the element counts exactly as by the rule.
+	 */
+	@Test
+	public void testNitrogenRule() throws Exception {
+
+		List<IRule> rules = new ArrayList<IRule>();
+		rules.add(new NitrogenRule());
+		assertMatchesEnumeration("nitrogen rule", rules);
+	}
+
+	/**
+	 * The element ratio rule accepts the same formulas as the rule itself for every ratio type and range.
+	 */
+	@Test
+	public void testElementRatioRule() throws Exception {
+
+		for (ElementRatioRule.RatioType type : ElementRatioRule.RatioType.values()) {
+			for (ElementRatioRule.RatioRange range : ElementRatioRule.RatioRange.values()) {
+				List<IRule> rules = new ArrayList<IRule>();
+				rules.add(new ElementRatioRule(new Object[] { type, range }));
+				assertMatchesEnumeration(type + " " + range, rules);
+			}
+		}
+	}
+
+	/**
+	 * Formulas are ordered by ascending mass error.
+	 */
+	@Test
+	public void testOrderedByMassError() throws Exception {
+
+		IsotopeFactory factory = Isotopes.getInstance();
+		MolecularFormulaRange range = new MolecularFormulaRange();
+		for (int i = 0; i < SYMBOLS.length; i++) {
+			range.addIsotope(factory.getMajorIsotope(SYMBOLS[i]), 0, MAX_COUNTS[i]);
+		}
+		RoundRobinFormulaGenerator generator = new RoundRobinFormulaGenerator(range, 0.5, new ArrayList<IRule>(),
+				SilentChemObjectBuilder.getInstance());
+
+		double mass = 180.0634;
+		double previous = 0;
+		int count = 0;
+		for (IMolecularFormula formula : generator.generate(mass).molecularFormulas()) {
+			double error = Math.abs(MolecularFormulaManipulator.getTotalExactMass(formula) - mass);
+			assertTrue(error + 1e-9 >= previous);
+			previous = error;
+			count++;
+		}
+		assertTrue(count > 1);
+	}
+}
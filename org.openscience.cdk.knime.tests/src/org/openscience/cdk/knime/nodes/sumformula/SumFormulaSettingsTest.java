@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.sumformula;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.knime.core.node.NodeSettings;
+
+/**
+ * Tests the {@link SumFormulaSettings}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class SumFormulaSettingsTest {
+
+	/**
+	 * New nodes use the original formula generator.
+	 */
+	@Test
+	public void testOriginalGeneratorByDefault() {
+		assertFalse(new SumFormulaSettings().roundRobin());
+	}
+
+	/**
+	 * The round-robin option survives saving and loading.
+	 */
+	@Test
+	public void testRoundRobinSaved() throws Exception {
+
+		SumFormulaSettings settings = new SumFormulaSettings();
+		settings.roundRobin(true);
+		NodeSettings saved = new NodeSettings("test");
+		settings.saveSettings(saved);
+
+		SumFormulaSettings loaded = new SumFormulaSettings();
+		loaded.loadSettings(saved);
+		assertTrue(loaded.roundRobin());
+	}
+}
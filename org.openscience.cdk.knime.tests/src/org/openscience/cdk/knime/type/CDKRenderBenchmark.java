@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.type;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.knime.preferences.CDKPreferencePage.NUMBERING;
+import org.openscience.cdk.layout.LayoutHelper;
+import org.openscience.cdk.layout.StructureDiagramGenerator;
+import org.openscience.cdk.renderer.AtomContainerRenderer;
+import org.openscience.cdk.renderer.visitor.AWTDrawVisitor;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Benchmark of the {@link CDKValueRenderer} renderer pool, as used when many table cells are rendered for an image
+ * export.
+ * <p>
+ * Renders the same number of cells with a single renderer shared by all threads and with the pool, each on one thread
+ * and on the given number of threads. The shared renderer is the baseline as before the pool: the molecule is
+ * prepared unlocked and painted while holding the renderer's lock. Every 97th bitmap is compared pixel by pixel to the
+ * serial rendering. The shared renderer serializes painting, so only the pool gains from more cores. All
+ * configurations are measured in turn for several rounds and the best round of each is reported.
+ * <p>
+ * Usage: <code>CDKRenderBenchmark [cells] [threads]</code>, by default 100000 cells and one thread per processor.
+ * Run with the test fragment on the plugin class path.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class CDKRenderBenchmark {
+
+	/** Connected structures, the baseline does not lay out fragments side by side. */
+	private static final String[] SMILES = { "CCO", "c1ccccc1C(=O)O", "CC(=O)Oc1ccccc1C(=O)O",
+			"CN1C=NC2=C1C(=O)N(C(=O)N2C)C", "C1CCC2CCCCC2C1", "OCC(O)C(O)C(O)C(O)CO", "c1ccc2ccccc2c1",
+			"CC(C)Cc1ccc(cc1)C(C)C(=O)O" };
+
+	private static final int SIZE = 100;
+	private static final int ROUNDS = 3;
+
+	private final CDKValue[] values;
+	private final BufferedImage[] reference;
+
+	private CDKRenderBenchmark() throws Exception {
+
+		SmilesParser parser = new SmilesParser(SilentChemObjectBuilder.getInstance());
+		StructureDiagramGenerator sdg = new StructureDiagramGenerator();
+		values = new CDKValue[SMILES.length];
+		reference = new BufferedImage[SMILES.length];
+		for (int i = 0; i < SMILES.length; i++) {
+			final IAtomContainer mol = parser.parseSmiles(SMILES[i]);
+			sdg.setMolecule(mol, false);
+			sdg.generateCoordinates();
+			// a copy per cell, rendering prepares the molecule
+			values[i] = new CDKValue() {
+
+				@Override
+				public IAtomContainer getAtomContainer() {
+					try {
+						return mol.clone();
+					} catch (CloneNotSupportedException exception) {
+						throw new IllegalStateException(exception);
+					}
+				}
+			};
+			reference[i] = CDKValueRenderer.render(values[i], SIZE, SIZE, NUMBERING.NONE).image;
+		}
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the number of cells and threads, optional
+	 * @throws Exception if rendering failed
+	 */
+	public static void main(final String[] args) throws Exception {
+
+		int cells = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		CDKRenderBenchmark benchmark = new CDKRenderBenchmark();
+		AtomContainerRenderer shared = CDKValueRenderer.createRenderer();
+
+		// the first rounds also warm up the JIT and the heap, so the best round of each configuration is reported
+		System.out.println("processors: " + Runtime.getRuntime().availableProcessors() + ", cells: " + cells
+				+ ", cell size: " + SIZE + " x " + SIZE);
+		int[] counts = { 1, threads, 1, threads };
+		AtomContainerRenderer[] renderers = { shared, shared, null, null };
+		double[] best = new double[counts.length];
+		for (int round = 1; round <= ROUNDS; round++) {
+			for (int c = 0; c < counts.length; c++) {
+				long start = System.nanoTime();
+				int mismatches = benchmark.run(cells, counts[c], renderers[c]);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				best[c] = Math.max(best[c], cells / seconds);
+				System.out.println(String.format("round %d, %-15s %2d threads: %7.1f s, %8.0f cells/s, "
+						+ "%d mismatches", round, renderers[c] == null ? "renderer pool" : "shared renderer",
+						counts[c], seconds, cells / seconds, mismatches));
+			}
+		}
+		System.out.println(String.format("best cells/s: shared renderer %.0f on 1 thread, %.0f on %d threads; "
+				+ "renderer pool %.0f on 1 thread, %.0f on %d threads", best[0], best[1], threads, best[2], best[3],
+				threads));
+		System.out.println(String.format("speedup on %d threads: shared renderer %.2fx, renderer pool %.2fx, "
+				+ "pool over shared %.2fx", threads, best[1] / best[0], best[3] / best[2], best[3] / best[1]));
+	}
+
+	/**
+	 * Renders the cells on the given number of threads and returns the number of sampled bitmaps that differ from
+	 * the serial rendering.
+	 */
+	private int run(final int cells, final int threads, final AtomContainerRenderer shared) throws Exception {
+
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger mismatches = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						int i;
+						while ((i = next.getAndIncrement()) < cells) {
+							int k = i % values.length;
+							BufferedImage image = shared == null ? CDKValueRenderer.render(values[k], SIZE, SIZE,
+									NUMBERING.NONE).image : renderShared(values[k], shared);
+							if (i % 97 == 0 && !samePixels(image, reference[k])) {
+								mismatches.incrementAndGet();
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return mismatches.get();
+	}
+
+	/**
+	 * Renders a structure with the renderer shared by all threads.
+	 */
+	private static BufferedImage renderShared(final CDKValue value, final AtomContainerRenderer shared) {
+
+		IAtomContainer mol = value.getAtomContainer();
+		try {
+			LayoutHelper.adjustStereo(mol);
+		} catch (IllegalArgumentException exception) {
+			// keep the wedges as they are
+		}
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = image.createGraphics();
+		try {
+			synchronized (shared) {
+				shared.paint(mol, new AWTDrawVisitor(g2), new Rectangle(0, 0, SIZE, SIZE), true);
+			}
+		} finally {
+			g2.dispose();
+		}
+		return image;
+	}
+
+	private static boolean samePixels(final BufferedImage a, final BufferedImage b) {
+
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				if (a.getRGB(x, y) != b.getRGB(x, y)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.qsar.descriptors.molecular;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.result.DoubleResult;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+/**
+ * Tests the {@link SmartXLogPDescriptor} against the {@link ReferenceXLogPDescriptor} on the molecules in xlogp.smi,
+ * with implicit and explicit hydrogens.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class SmartXLogPDescriptorTest {
+
+	private static final List<String> SMILES = new ArrayList<String>();
+	private static final List<IAtomContainer> MOLECULES = new ArrayList<IAtomContainer>();
+	private static final List<IRingSet> RINGS = new ArrayList<IRingSet>();
+
+	@BeforeClass
+	public static void load() throws Exception {
+
+		SmilesParser parser = new SmilesParser(SilentChemObjectBuilder.getInstance());
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				SmartXLogPDescriptorTest.class.getResourceAsStream("xlogp.smi"), "US-ASCII"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				for (boolean explicit : new boolean[] { false, true }) {
+					IAtomContainer molecule = parser.parseSmiles(line.trim());
+					if (explicit) {
+						AtomContainerManipulator.convertImplicitToExplicitHydrogens(molecule);
+					}
+					AtomContainerManipulator.percieveAtomTypesAndConfigureUnsetProperties(molecule);
+					SMILES.add(line.trim());
+					MOLECULES.add(molecule);
+					RINGS.add(new SSSRFinder(molecule).findSSSR());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		assertTrue(MOLECULES.size() > 100);
+	}
+
+	private static double xlogP(final IMolecularDescriptor descriptor, final int index) {
+
+		IAtomContainer molecule = MOLECULES.get(index);
+		if (descriptor instanceof SmartXLogPDescriptor) {
+			return ((DoubleResult) ((SmartXLogPDescriptor) descriptor).calculate(molecule, RINGS.get(index))
+					.getValue()).doubleValue();
+		}
+		return ((DoubleResult) ((ReferenceXLogPDescriptor) descriptor).calculate(molecule, RINGS.get(index))
+				.getValue()).doubleValue();
+	}
+
+	private static void assertMatchesReference(final boolean salicylFlag) throws Exception {
+
+		SmartXLogPDescriptor descriptor = new SmartXLogPDescriptor();
+		descriptor.setParameters(new Object[] { salicylFlag });
+		ReferenceXLogPDescriptor reference = new ReferenceXLogPDescriptor();
+		reference.setParameters(new Object[] { salicylFlag });
+
+		for (int i = 0; i < MOLECULES.size(); i++) {
+			assertEquals(SMILES.get(i), xlogP(reference, i), xlogP(descriptor, i), 0);
+		}
+	}
+
+	/**
+	 * The XLogP is identical to the reference implementation.
+	 */
+	@Test
+	public void testMatchesReference() throws Exception {
+		assertMatchesReference(false);
+	}
+
+	/**
+	 * The XLogP with the salicylic acid correction is identical to the reference implementation.
+	 */
+	@Test
+	public void testMatchesReferenceSalicylic() throws Exception {
+		assertMatchesReference(true);
+	}
+
+	/**
+	 * A descriptor shared between threads gives the same results as the reference implementation.
+	 */
+	@Test
+	public void testSharedDescriptor() throws Exception {
+
+		final double[] expected = new double[MOLECULES.size()];
+		ReferenceXLogPDescriptor reference = new ReferenceXLogPDescriptor();
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = xlogP(reference, i);
+		}
+
+		final SmartXLogPDescriptor descriptor = new SmartXLogPDescriptor();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<double[]>> results = new ArrayList<Future<double[]>>();
+			for (int t = 0; t < 4; t++) {
+				final int offset = t;
+				results.add(executor.submit(new Callable<double[]>() {
+
+					@Override
+					public double[] call() throws Exception {
+						// every thread starts at a different molecule, so calculations on different molecules overlap
+						double[] actual = new double[expected.length];
+						for (int repeat = 0; repeat < 5; repeat++) {
+							for (int k = 0; k < actual.length; k++) {
+								int i = (k + offset * actual.length / 4) % actual.length;
+								actual[i] = xlogP(descriptor, i);
+							}
+						}
+						return actual;
+					}
+				}));
+			}
+			for (Future<double[]> result : results) {
+				double[] actual = result.get();
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(SMILES.get(i), expected[i], actual[i], 0);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -101,6 +101,36 @@ public class ElementRatioRule implements IRule {
         return new Object[] { ratioType, ratioRange };
     }
 
+    /**
+     * Returns the element to carbon ratio limits of the configured range. The last value is the upper limit.
+     *
+     * @param symbol the element symbol
+     * @return a copy of the limits or null if the element is not covered by the range
+     */
+    public double[] getLimits(String symbol) {
+        double[] limits = range.get(symbol);
+        return limits == null ? null : limits.clone();
+    }
+
+    /**
+     * Checks an element to carbon ratio against the configured range. Extreme ranges are open intervals for the
+     * hydrogen and all element ratio types, as in {@link #validate(IMolecularFormula)}.
+     *
+     * @param symbol the element symbol
+     * @param ratio the element to carbon ratio
+     * @return true if the ratio is within the range or the element is not covered by the range
+     */
+    public boolean isWithin(String symbol, double ratio) {
+        double[] limits = range.get(symbol);
+        if (limits == null) {
+            return true;
+        }
+        if (ratioRange == RatioRange.EXTREME && ratioType != RatioType.HETERATOMS_CARBON) {
+            return !(ratio < limits[0] || ratio >= limits[1] && !(ratio > limits[2] && ratio <= limits[3]));
+        }
+        return !(ratio < limits[0] || ratio > limits[1]);
+    }
+
     @Override
     public double validate(IMolecularFormula formula) throws CDKException {
         double score = 1d;
@@ -113,47 +143,18 @@ public class ElementRatioRule implements IRule {
                 score = 1d;
             } else if (ratioType == RatioType.HYDROGEN_CARBON) {
                 double nHydrogen = MolecularFormulaManipulator.getElementCount(formula, "H");
-                double ratio = nHydrogen / nCarbon;
-                if (ratioRange == RatioRange.EXTREME) {
-                    double[] limits = range.get("H");
-                    if (ratio < limits[0] || ratio >= limits[1] &&
-                            !(ratio > limits[2] && ratio <= limits[3])) {
-                        score = 0d;
-                    }
-                } else if (ratio < range.get("H")[0] || ratio > range.get("H")[1]) {
+                if (!isWithin("H", nHydrogen / nCarbon)) {
                     score = 0d;
                 }
-            } else if (ratioType == RatioType.HETERATOMS_CARBON) {
+            } else if (ratioType == RatioType.HETERATOMS_CARBON || ratioType == RatioType.ALL) {
                 for (IElement element : MolecularFormulaManipulator.elements(formula)) {
-                    if (element.getSymbol().equals("H") || element.getSymbol().equals("C")) {
+                    if (element.getSymbol().equals("C")
+                            || ratioType == RatioType.HETERATOMS_CARBON && element.getSymbol().equals("H")) {
                         continue;
                     }
-                    if (range.containsKey(element.getSymbol())) {
-                        double nElement = MolecularFormulaManipulator.getElementCount(formula, element);
-                        double ratio = nElement / nCarbon;
-                        double[] limits = range.get(element.getSymbol());
-                        if (ratio < limits[0] || ratio > limits[1]) {
-                            score = 0d;
-                        }
-                    }
-                }
-            } else if (ratioType == RatioType.ALL) {
-                for (IElement element : MolecularFormulaManipulator.elements(formula)) {
-                    if (element.getSymbol().equals("C")) {
-                        continue;
-                    }
-                    if (range.containsKey(element.getSymbol())) {
-                        double nElement = MolecularFormulaManipulator.getElementCount(formula, element);
-                        double ratio = nElement / nCarbon;
-                        double[] limits = range.get(element.getSymbol());
-                        if (ratioRange == RatioRange.EXTREME) {
-                            if (ratio < limits[0] || ratio >= limits[1] &&
-                                    !(ratio > limits[2] && ratio <= limits[3])) {
-                                score = 0d;
-                            }
-                        } else if (ratio < limits[0] || ratio > limits[1]) {
-                            score = 0d;
-                        }
+                    double nElement = MolecularFormulaManipulator.getElementCount(formula, element);
+                    if (!isWithin(element.getSymbol(), nElement / nCarbon)) {
+                        score = 0d;
                     }
                 }
             } else {
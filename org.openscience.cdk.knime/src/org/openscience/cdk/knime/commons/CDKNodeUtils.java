@@ -33,7 +33,6 @@ import org.openscience.cdk.aromaticity.Aromaticity;
 import org.openscience.cdk.aromaticity.ElectronDonation;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.geometry.GeometryTools;
-import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.graph.Cycles;
 import org.openscience.cdk.hash.BasicAtomEncoder;
 import org.openscience.cdk.hash.HashGeneratorMaker;
@@ -42,11 +41,9 @@ import org.openscience.cdk.inchi.InChIGenerator;
 import org.openscience.cdk.inchi.InChIGeneratorFactory;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.interfaces.IAtomContainerSet;
 import org.openscience.cdk.interfaces.IPseudoAtom;
 import org.openscience.cdk.io.MDLV2000Reader;
 import org.openscience.cdk.knime.type.CDKValue;
-import org.openscience.cdk.layout.StructureDiagramGenerator;
 import org.openscience.cdk.silent.AtomContainer;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.smiles.FixBondOrdersTool;
@@ -69,6 +66,13 @@ public class CDKNodeUtils {
 	private static final SmilesGenerator SG = SmilesGenerator.isomeric().aromatic();
 	private static final SmilesParser SR = new SmilesParser(SilentChemObjectBuilder.getInstance());
 	private static final FixBondOrdersTool BONDFIXTOOL = new FixBondOrdersTool();
+	private static final ThreadLocal<LayoutGenerator> LAYOUT = new ThreadLocal<LayoutGenerator>() {
+
+		@Override
+		protected LayoutGenerator initialValue() {
+			return new LayoutGenerator();
+		}
+	};
 
 	private static final MoleculeHashGenerator GENERATOR = new HashGeneratorMaker().depth(8).charged().molecular();
 	private static final MoleculeHashGenerator GENERATOR_FULL = new HashGeneratorMaker().depth(8).charged()
@@ -146,7 +150,8 @@ public class CDKNodeUtils {
 
 	/**
 	 * Gets the clone of the CDK KNIME input molecule with all hydrogens set as
-	 * explicit hydrogens.
+	 * explicit hydrogens. The atom types are perceived with CDK's shared atom
+	 * type matcher and factories, hence calls are serialized.
 	 * 
 	 * @param molecule the input CDK molecule
 	 * @return the CDK molecule clone with explicit hydrogens
@@ -170,7 +175,7 @@ public class CDKNodeUtils {
 	/**
 	 * Calculates 2D coordinates for the CDK molecule. If 'forced', the
 	 * coordinates will be generated even if the molecule has 2D coordinates
-	 * already.
+	 * already. Each thread reuses its own {@link LayoutGenerator}.
 	 * 
 	 * @param molecule the CDK molecule
 	 * @param force whether to force the calculation of 2D coordinates
@@ -181,22 +186,7 @@ public class CDKNodeUtils {
 			throws CDKException {
 
 		if (force || !(GeometryTools.has2DCoordinates(molecule))) {
-
-			StructureDiagramGenerator sdg = new StructureDiagramGenerator();
-			sdg.setUseIdentityTemplates(true);
-			if (!ConnectivityChecker.isConnected(molecule)) {
-				IAtomContainerSet set = ConnectivityChecker.partitionIntoMolecules(molecule);
-				molecule = SilentChemObjectBuilder.getInstance().newInstance(IAtomContainer.class);
-				for (int i = 0; i < set.getAtomContainerCount(); i++) {
-					sdg.setMolecule(set.getAtomContainer(i), clone);
-					sdg.generateCoordinates();
-					molecule.add(sdg.getMolecule());
-				}
-			} else {
-				sdg.setMolecule(molecule, clone);
-				sdg.generateCoordinates();
-				molecule = sdg.getMolecule();
-			}
+			molecule = LAYOUT.get().layout(molecule, clone);
 		}
 
 		return molecule;
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.vecmath.Point2d;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.layout.StructureDiagramGenerator;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+/**
+ * Generates 2D coordinates fragment by fragment with a reused structure diagram generator.
+ * <p>
+ * The layouts of small fragments, such as counter-ions, solvents and small molecules that recur throughout a table,
+ * are cached by their canonical SMILES. A cached layout is assigned through the canonical atom order, the same way the
+ * identity templates of the structure diagram generator are assigned. Fragments with stereo elements are always laid
+ * out, since their layout depends on the configuration and also assigns the wedge bonds.
+ * <p>
+ * Instances are not thread-safe; use one generator per thread.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class LayoutGenerator {
+
+	/** Number of layouts kept by the cache. */
+	private static final int CACHE_SIZE = 1024;
+	/** Largest fragment whose layout is cached, larger fragments rarely recur. */
+	private static final int MAX_CACHED_ATOMS = 40;
+
+	private final StructureDiagramGenerator sdg = new StructureDiagramGenerator();
+	private final SmilesGenerator smilesGenerator = SmilesGenerator.unique();
+	private final Map<String, Point2d[]> cache = new LinkedHashMap<String, Point2d[]>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Point2d[]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Constructs a new generator.
+	 */
+	public LayoutGenerator() {
+		sdg.setUseIdentityTemplates(true);
+	}
+
+	/**
+	 * Generates 2D coordinates for the molecule. Disconnected molecules are laid out fragment by fragment.
+	 *
+	 * @param molecule the CDK molecule
+	 * @param clone whether to clone the CDK molecule
+	 * @return the molecule with 2D coordinates
+	 * @throws CDKException if the layout failed
+	 */
+	public IAtomContainer layout(final IAtomContainer molecule, final boolean clone) throws CDKException {
+
+		if (ConnectivityChecker.isConnected(molecule)) {
+			return layoutFragment(molecule, clone);
+		}
+
+		IAtomContainerSet set = ConnectivityChecker.partitionIntoMolecules(molecule);
+		IAtomContainer result = SilentChemObjectBuilder.getInstance().newInstance(IAtomContainer.class);
+		for (int i = 0; i < set.getAtomContainerCount(); i++) {
+			result.add(layoutFragment(set.getAtomContainer(i), clone));
+		}
+		return result;
+	}
+
+	private IAtomContainer layoutFragment(final IAtomContainer fragment, final boolean clone) throws CDKException {
+
+		int n = fragment.getAtomCount();
+		if (n <= 2 || n > MAX_CACHED_ATOMS || fragment.stereoElements().iterator().hasNext()) {
+			return generate(fragment, clone);
+		}
+
+		int[] ordering = new int[n];
+		String key;
+		try {
+			key = smilesGenerator.create(fragment, ordering);
+		} catch (Exception exception) {
+			// e.g. unset hydrogen counts, lay out without the cache
+			return generate(fragment, clone);
+		}
+
+		Point2d[] points = cache.get(key);
+		if (points != null) {
+			IAtomContainer result = fragment;
+			if (clone) {
+				try {
+					result = fragment.clone();
+				} catch (CloneNotSupportedException exception) {
+					throw new CDKException("Failed to clone the molecule.", exception);
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				result.getAtom(i).setPoint2d(new Point2d(points[ordering[i]]));
+			}
+			return result;
+		}
+
+		IAtomContainer result = generate(fragment, clone);
+		points = new Point2d[n];
+		for (int i = 0; i < n; i++) {
+			Point2d point = result.getAtom(i).getPoint2d();
+			if (point == null) {
+				return result;
+			}
+			points[ordering[i]] = new Point2d(point);
+		}
+		cache.put(key, points);
+		return result;
+	}
+
+	private IAtomContainer generate(final IAtomContainer fragment, final boolean clone) throws CDKException {
+
+		sdg.setMolecule(fragment, clone);
+		sdg.generateCoordinates();
+		return sdg.getMolecule();
+	}
+}
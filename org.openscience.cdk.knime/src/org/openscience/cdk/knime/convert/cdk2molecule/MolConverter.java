@@ -17,6 +17,8 @@
  */
 package org.openscience.cdk.knime.convert.cdk2molecule;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.StringWriter;
 
 import org.knime.base.node.parallel.appender.AppendColumn;
@@ -31,6 +33,7 @@ import org.knime.chem.types.SdfCell;
 import org.knime.chem.types.SdfCellFactory;
 import org.knime.chem.types.SmilesCell;
 import org.knime.chem.types.SmilesCellFactory;
+import org.knime.core.data.AdapterValue;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -45,6 +48,7 @@ import org.openscience.cdk.io.CMLWriter;
 import org.openscience.cdk.io.MDLV2000Writer;
 import org.openscience.cdk.io.Mol2Writer;
 import org.openscience.cdk.knime.convert.cdk2molecule.CDK2MoleculeSettings.Format;
+import org.openscience.cdk.knime.type.CDKCell3;
 import org.openscience.cdk.knime.type.CDKValue;
 import org.openscience.cdk.layout.LayoutHelper;
 import org.openscience.cdk.smiles.SmilesGenerator;
@@ -62,49 +66,106 @@ class MolConverter implements ExtendedCellFactory {
 	private interface Conv {
 
 		/**
-		 * Converts the CDK molecules and returns a data cell.
+		 * Converts the CDK molecule and returns a data cell.
 		 * 
-		 * @param mol the CDK molecule
+		 * @param value the CDK molecule
 		 * @return a data cell with the string representation
 		 * @throws Exception if an exception occurs
 		 */
-		DataCell conv(IAtomContainer mol) throws Exception;
+		DataCell conv(CDKValue value) throws Exception;
+	}
+
+	/**
+	 * Output of a writer, reused for every molecule converted by the same thread. The writer is never closed, the
+	 * buffer is flushed and cleared for each molecule.
+	 */
+	private static final class Output<T> {
+
+		/** Buffers grown larger by a big molecule are trimmed again. */
+		private static final int MAX_CAPACITY = 1 << 20;
+
+		private final StringWriter buffer = new StringWriter(1024);
+		private final BufferedWriter out = new BufferedWriter(buffer);
+		private T writer;
+
+		/**
+		 * Discards anything left over by a failed conversion.
+		 */
+		private void reset() throws IOException {
+			out.flush();
+			buffer.getBuffer().setLength(0);
+		}
+
+		/**
+		 * Returns the written string and clears the buffer.
+		 */
+		private String text() throws IOException {
+
+			out.flush();
+			StringBuffer sb = buffer.getBuffer();
+			String text = sb.toString();
+			sb.setLength(0);
+			if (sb.capacity() > MAX_CAPACITY) {
+				sb.trimToSize();
+			}
+			return text;
+		}
 	}
 
 	private class SdfConv implements Conv {
 
+		private final ThreadLocal<Output<MDLV2000Writer>> outputs = new ThreadLocal<Output<MDLV2000Writer>>() {
+
+			@Override
+			protected Output<MDLV2000Writer> initialValue() {
+				Output<MDLV2000Writer> output = new Output<MDLV2000Writer>();
+				output.writer = new MDLV2000Writer(output.out);
+				return output;
+			}
+		};
+
 		/**
 		 * {@inheritDoc}
 		 */
 		@Override
-		public DataCell conv(final IAtomContainer mol) throws Exception {
+		public DataCell conv(final CDKValue value) throws Exception {
+
+			IAtomContainer mol = value.getAtomContainer();
+			Output<MDLV2000Writer> output = outputs.get();
+			output.reset();
 
 			// removes configuration and valence annotation
-			StringWriter out = new StringWriter(1024);
-			MDLV2000Writer writer = new MDLV2000Writer(out);
 			if (mol != null && GeometryTools.has2DCoordinates(mol)) {
 				LayoutHelper.adjustStereo(mol);
 			}
-			writer.writeMolecule(mol);
-			writer.close();
-			out.append("$$$$");
-			return SdfCellFactory.create(out.toString());
+			output.writer.writeMolecule(mol);
+			output.out.write("$$$$");
+			return SdfCellFactory.create(output.text());
 		}
 	}
 
 	private class Mol2Conv implements Conv {
 
+		private final ThreadLocal<Output<Mol2Writer>> outputs = new ThreadLocal<Output<Mol2Writer>>() {
+
+			@Override
+			protected Output<Mol2Writer> initialValue() {
+				Output<Mol2Writer> output = new Output<Mol2Writer>();
+				output.writer = new Mol2Writer(output.out);
+				return output;
+			}
+		};
+
 		/**
 		 * {@inheritDoc}
 		 */
 		@Override
-		public DataCell conv(final IAtomContainer mol) throws Exception {
+		public DataCell conv(final CDKValue value) throws Exception {
 
-			StringWriter out = new StringWriter(1024);
-			Mol2Writer writer = new Mol2Writer(out);
-			writer.writeMolecule(mol);
-			writer.close();
-			return Mol2CellFactory.create(out.toString());
+			Output<Mol2Writer> output = outputs.get();
+			output.reset();
+			output.writer.writeMolecule(value.getAtomContainer());
+			return Mol2CellFactory.create(output.text());
 		}
 	}
 
@@ -116,15 +177,56 @@ class MolConverter implements ExtendedCellFactory {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public DataCell conv(final IAtomContainer mol) throws Exception {
-			
-			String smiles = SG.create(mol);
+		public DataCell conv(final CDKValue value) throws Exception {
+
+			// CDK cells store the isomeric aromatic SMILES, pass it through without parsing the molecule if its
+			// aromaticity was perceived, parsing would perceive it and might change the SMILES otherwise
+			CDKValue cdk = value instanceof AdapterValue ? ((AdapterValue) value).getAdapter(CDKValue.class) : value;
+			if (cdk instanceof CDKCell3) {
+				String smiles = ((CDKCell3) cdk).getSmilesValue();
+				if (smiles != null && !smiles.isEmpty() && isAromatised(smiles)) {
+					return SmilesCellFactory.create(smiles);
+				}
+			}
+
+			String smiles = SG.create(value.getAtomContainer());
 			if (smiles == null || smiles.isEmpty()) {
 				throw new CDKException("Smiles generation failed.");
 			}
 			
 			return SmilesCellFactory.create(smiles);
 		}
+
+		/**
+		 * Whether the SMILES is known to be written from a molecule with perceived aromaticity: it has aromatic
+		 * atoms or no double bonds, which could be aromatic.
+		 */
+		private boolean isAromatised(final String smiles) {
+
+			if (smiles.indexOf('=') < 0) {
+				return true;
+			}
+			boolean bracket = false;
+			for (int i = 0; i < smiles.length(); i++) {
+				char c = smiles.charAt(i);
+				if (c == '[') {
+					// the element symbol follows the isotope
+					int j = i + 1;
+					while (j < smiles.length() && Character.isDigit(smiles.charAt(j))) {
+						j++;
+					}
+					if (j < smiles.length() && Character.isLowerCase(smiles.charAt(j))) {
+						return true;
+					}
+					bracket = true;
+				} else if (c == ']') {
+					bracket = false;
+				} else if (!bracket && (c == 'b' || c == 'c' || c == 'n' || c == 'o' || c == 'p' || c == 's')) {
+					return true;
+				}
+			}
+			return false;
+		}
 	}
 
 	private class CMLConv implements Conv {
@@ -133,11 +235,11 @@ class MolConverter implements ExtendedCellFactory {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public DataCell conv(final IAtomContainer mol) throws Exception {
+		public DataCell conv(final CDKValue value) throws Exception {
 
 			StringWriter out = new StringWriter(1024);
 			CMLWriter writer = new CMLWriter(out);
-			writer.write(mol);
+			writer.write(value.getAtomContainer());
 			writer.close();
 			return CMLCellFactory.create(out.toString());
 		}
@@ -198,7 +300,7 @@ class MolConverter implements ExtendedCellFactory {
 		
 		DataCell retCell;
 		try {
-			retCell = m_converter.conv(((CDKValue) cell).getAtomContainer());
+			retCell = m_converter.conv((CDKValue) cell);
 		} catch (Exception ex) {
 			LOGGER.error("Could not convert molecules: " + ex.getMessage(), ex);
 			retCell = DataType.getMissingCell();
@@ -19,8 +19,11 @@ package org.openscience.cdk.knime.core;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
+import org.knime.base.data.replace.ReplacedColumnsDataRow;
 import org.knime.chem.types.InchiValue;
 import org.knime.chem.types.SdfValue;
 import org.knime.chem.types.SmartsCell;
@@ -49,6 +52,7 @@ import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.streamable.RowInput;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.type.CDKTypeConverter;
 import org.openscience.cdk.knime.type.CDKValue;
@@ -213,6 +217,105 @@ public abstract class CDKAdapterNodeModel extends NodeModel {
 		return convertedTables;
 	}
 
+	/**
+	 * Creates the converter for the molecule column of a single table, for streaming implementations that convert
+	 * row by row.
+	 * 
+	 * @param spec the original input spec
+	 * @return the converter or null if the column does not need conversion
+	 */
+	protected DataCellTypeConverter createConverter(final DataTableSpec spec) {
+
+		if (spec == null || spec.getNumColumns() == 0 || !needsConversion(spec)) {
+			return null;
+		}
+		return CDKTypeConverter.createConverter(spec, columnIndex);
+	}
+
+	/**
+	 * Converts the molecule cell of a single row. Cells that fail to convert are replaced by missing cells, as in the
+	 * table conversion.
+	 * 
+	 * @param row the original row
+	 * @param converter the converter from {@link #createConverter(DataTableSpec)}, may be null
+	 * @return the converted row
+	 */
+	protected DataRow convertRow(final DataRow row, final DataCellTypeConverter converter) {
+
+		DataCell cell = row.getCell(columnIndex);
+		if (converter == null || cell.isMissing()) {
+			return row;
+		}
+
+		DataCell converted;
+		try {
+			converted = converter.convert(cell);
+		} catch (Exception exception) {
+			LOGGER.warn("Auto conversion in row '" + row.getKey().getString() + "' failed - Using empty cell.");
+			converted = new MissingCell(exception.getMessage());
+		}
+		return new ReplacedColumnsDataRow(row, converted, columnIndex);
+	}
+
+	/**
+	 * Iterates over the converted rows of a streamed input. Iteration ends if the thread is interrupted while waiting
+	 * for input, the interrupt flag is set again.
+	 * 
+	 * @param in the row input
+	 * @param converter the converter from {@link #createConverter(DataTableSpec)}, may be null
+	 * @return the converted rows
+	 */
+	protected Iterable<DataRow> rows(final RowInput in, final DataCellTypeConverter converter) {
+
+		return new Iterable<DataRow>() {
+
+			@Override
+			public Iterator<DataRow> iterator() {
+
+				return new Iterator<DataRow>() {
+
+					private DataRow next;
+					private boolean done;
+
+					@Override
+					public boolean hasNext() {
+
+						if (next == null && !done) {
+							try {
+								DataRow row = in.poll();
+								if (row == null) {
+									done = true;
+								} else {
+									next = convertRow(row, converter);
+								}
+							} catch (InterruptedException exception) {
+								Thread.currentThread().interrupt();
+								done = true;
+							}
+						}
+						return next != null;
+					}
+
+					@Override
+					public DataRow next() {
+
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						DataRow row = next;
+						next = null;
+						return row;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
 	/**
 	 * Checks if the selected molecule type needs conversion to a CDK type.
 	 * 
@@ -31,6 +31,7 @@ import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.port.PortType;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.type.CDKValue;
 
@@ -58,6 +59,18 @@ public abstract class CDKNodeModel extends NodeModel {
 		this.settings = settings;
 	}
 
+	/**
+	 * Constructor for the CDK node model with explicit port types, e.g. for optional input ports.
+	 * 
+	 * @param inPortTypes the input port types
+	 * @param outPortTypes the output port types
+	 * @param settings the CDK specific settings object
+	 */
+	public CDKNodeModel(PortType[] inPortTypes, PortType[] outPortTypes, CDKSettings settings) {
+		super(inPortTypes, outPortTypes);
+		this.settings = settings;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.border.Border;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.NotConfigurableException;
+import org.knime.core.node.util.ColumnSelectionComboxBox;
+import org.openscience.cdk.knime.commons.CDKNodeUtils;
+
+/**
+ * This class provides the dialog for the conformer node.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ConformerNodeDialog extends NodeDialogPane {
+
+	@SuppressWarnings("unchecked")
+	private final ColumnSelectionComboxBox m_molColumn = new ColumnSelectionComboxBox((Border) null,
+			CDKNodeUtils.ACCEPTED_VALUE_CLASSES);
+	private final JSpinner m_conformers = new JSpinner(new SpinnerNumberModel(10, 1, 1000, 1));
+	private final JSpinner m_rmsd = new JSpinner(new SpinnerNumberModel(0.5, 0.0, 10.0, 0.1));
+	private final JSpinner m_timeout = new JSpinner(new SpinnerNumberModel(10000, 0, Integer.MAX_VALUE, 10));
+	private final JCheckBox m_listColumn = new JCheckBox();
+
+	private final ConformerSettings m_settings = new ConformerSettings();
+
+	/**
+	 * Creates a new dialog.
+	 */
+	public ConformerNodeDialog() {
+
+		JPanel p = new JPanel(new GridBagLayout());
+
+		GridBagConstraints c = new GridBagConstraints();
+		c.insets = new Insets(2, 2, 2, 2);
+
+		c.gridx = 0;
+		c.gridy = 0;
+		c.anchor = GridBagConstraints.NORTHWEST;
+
+		p.add(new JLabel("Column with molecules   "), c);
+		c.gridx++;
+		p.add(m_molColumn, c);
+
+		c.gridx = 0;
+		c.gridy++;
+		p.add(new JLabel("Maximum number of conformers   "), c);
+		c.gridx++;
+		p.add(m_conformers, c);
+
+		c.gridx = 0;
+		c.gridy++;
+		p.add(new JLabel("Minimum RMSD (\u00C5)   "), c);
+		c.gridx++;
+		p.add(m_rmsd, c);
+
+		c.gridx = 0;
+		c.gridy++;
+		p.add(new JLabel("Timeout per molecule (ms)   "), c);
+		c.gridx++;
+		p.add(m_timeout, c);
+
+		c.gridx = 0;
+		c.gridy++;
+		p.add(new JLabel("Collect conformers in a list column   "), c);
+		c.gridx++;
+		p.add(m_listColumn, c);
+
+		addTab("Default settings", p);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSpec[] specs)
+			throws NotConfigurableException {
+
+		try {
+			m_settings.loadSettings(settings);
+		} catch (InvalidSettingsException ex) {
+			// ignore it
+		}
+
+		m_molColumn.update(specs[0], m_settings.targetColumn());
+		m_conformers.setValue(m_settings.conformers());
+		m_rmsd.setValue(m_settings.rmsd());
+		m_timeout.setValue(m_settings.timeout());
+		m_listColumn.setSelected(m_settings.listColumn());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSettingsException {
+
+		m_settings.targetColumn(m_molColumn.getSelectedColumn());
+		m_settings.conformers(((Number) m_conformers.getValue()).intValue());
+		m_settings.rmsd(((Number) m_rmsd.getValue()).doubleValue());
+		m_settings.timeout(((Number) m_timeout.getValue()).intValue());
+		m_settings.listColumn(m_listColumn.isSelected());
+		m_settings.saveSettings(settings);
+	}
+}
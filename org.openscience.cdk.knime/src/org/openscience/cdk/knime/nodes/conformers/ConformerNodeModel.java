@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.openscience.cdk.knime.core.CDKAdapterNodeModel;
+import org.openscience.cdk.knime.nodes.coord3d.Coord3dGenerator;
+import org.openscience.cdk.knime.type.CDKAdapterCell;
+
+/**
+ * This is the model implementation of the conformer node. Generates a set of diverse conformers per molecule, either
+ * as one row per conformer or as a list column.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ConformerNodeModel extends CDKAdapterNodeModel {
+
+	private Coord3dGenerator generator;
+
+	/**
+	 * Creates a new model having one input and one output node.
+	 */
+	public ConformerNodeModel() {
+		super(1, 1, new ConformerSettings());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+
+		autoConfigure(inSpecs);
+		DataTableSpec outSpec = convertTables(inSpecs)[0];
+
+		return new DataTableSpec[] { appendSpec(outSpec) };
+	}
+
+	private DataTableSpec appendSpec(final DataTableSpec spec) {
+
+		if (settings(ConformerSettings.class).listColumn()) {
+			String name = DataTableSpec.getUniqueColumnName(spec, "Conformers");
+			DataColumnSpec cs = new DataColumnSpecCreator(name, ListCell.getCollectionType(CDKAdapterCell.RAW_TYPE))
+					.createSpec();
+			return new DataTableSpec(spec, new DataTableSpec(cs));
+		}
+
+		DataColumnSpec[] dcs = new DataColumnSpec[spec.getNumColumns()];
+		int i = 0;
+		for (DataColumnSpec s : spec) {
+			if (i == columnIndex) {
+				String name = spec.getColumnNames()[columnIndex];
+				dcs[i] = new DataColumnSpecCreator(name, CDKAdapterCell.RAW_TYPE).createSpec();
+			} else {
+				dcs[i] = s;
+			}
+			i++;
+		}
+		String name = DataTableSpec.getUniqueColumnName(spec, "Conformer");
+		DataColumnSpec cs = new DataColumnSpecCreator(name, IntCell.TYPE).createSpec();
+		return new DataTableSpec(new DataTableSpec(dcs), new DataTableSpec(cs));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+
+		ConformerSettings s = new ConformerSettings();
+		s.loadSettings(settings);
+		if ((s.targetColumn() == null) || (s.targetColumn().length() == 0)) {
+			throw new InvalidSettingsException("No molecule column chosen");
+		}
+		if (s.conformers() < 1) {
+			throw new InvalidSettingsException("At least one conformer is required");
+		}
+		if (s.rmsd() < 0) {
+			throw new InvalidSettingsException("The RMSD threshold must not be negative");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] process(BufferedDataTable[] convertedTables, ExecutionContext exec) throws Exception {
+
+		BufferedDataContainer outputTable = exec.createDataContainer(appendSpec(convertedTables[0].getDataTableSpec()));
+		BufferedDataTableRowOutput out = new BufferedDataTableRowOutput(outputTable);
+
+		ConformerWorker worker = new ConformerWorker(maxQueueSize, maxParallelWorkers, columnIndex,
+				exec.createSubProgress(1), convertedTables[0].size(), out, settings(ConformerSettings.class),
+				generator());
+
+		try {
+			worker.run(convertedTables[0]);
+		} catch (InterruptedException e) {
+			CanceledExecutionException cee = new CanceledExecutionException(e.getMessage());
+			cee.initCause(e);
+			throw cee;
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		} finally {
+			out.close();
+		}
+
+		return new BufferedDataTable[] { out.getDataTable() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+
+				int workers = (int) Math.ceil(1.5 * Runtime.getRuntime().availableProcessors());
+				RowInput in = (RowInput) inputs[0];
+				RowOutput out = (RowOutput) outputs[0];
+
+				ConformerWorker worker = new ConformerWorker(10 * workers, workers, columnIndex, exec, -1, out,
+						settings(ConformerSettings.class), generator());
+				try {
+					worker.run(rows(in, createConverter(in.getDataTableSpec())));
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				} catch (ExecutionException e) {
+					throw unwrap(e);
+				}
+
+				in.close();
+				out.close();
+			}
+		};
+	}
+
+	private synchronized Coord3dGenerator generator() {
+
+		if (generator == null) {
+			// the CDK shares a single model builder, more threads would only wait
+			generator = new Coord3dGenerator(1);
+		}
+		return generator;
+	}
+
+	private static RuntimeException unwrap(final ExecutionException e) {
+
+		Throwable cause = e.getCause();
+		if (cause == null) {
+			cause = e;
+		}
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		return new RuntimeException(cause);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+		shutdown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onDispose() {
+		shutdown();
+	}
+
+	private synchronized void shutdown() {
+
+		if (generator != null) {
+			generator.shutdown();
+			generator = null;
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.ringsearch.RingSearch;
+
+/**
+ * Samples conformers of a molecule with 3D coordinates by rotating its rotatable bonds.
+ * <p>
+ * A bond is rotatable if it is a single bond outside of rings and both of its atoms have another heavy atom
+ * neighbour. Each sample sets random torsions in steps of 30 degrees, moving the smaller side of the bond. Samples
+ * with heavy atoms closer than 2.5 &Aring; that are more than three bonds apart are rejected, as are samples within
+ * the RMSD threshold of an accepted conformer. The RMSD is calculated over the heavy atoms after optimal superposition
+ * (Horn's quaternion method).
+ * <p>
+ * The input geometry is the first conformer. Sampling uses a fixed seed, so a molecule always yields the same
+ * conformers. Instances are not thread-safe.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class ConformerSampler {
+
+	/** Number of torsion steps per full rotation. */
+	private static final int STEPS = 12;
+	/** Shortest accepted distance in &Aring; between heavy atoms more than three bonds apart. */
+	private static final double CLASH_DISTANCE = 2.5;
+	/** Samples drawn per requested conformer before giving up. */
+	private static final int ATTEMPTS = 50;
+	private static final long SEED = 42;
+
+	private final IAtomContainer molecule;
+	private final int atomCount;
+	private final int[] heavy;
+	private final double[] base;
+	private final int[] axisBegin;
+	private final int[] axisEnd;
+	private final int[][] moving;
+	private final int[][] clashPairs;
+
+	/**
+	 * Constructs a sampler for the molecule. All atoms must have 3D coordinates.
+	 *
+	 * @param molecule the molecule
+	 */
+	ConformerSampler(final IAtomContainer molecule) {
+
+		this.molecule = molecule;
+		this.atomCount = molecule.getAtomCount();
+
+		base = new double[3 * atomCount];
+		int heavyCount = 0;
+		for (int i = 0; i < atomCount; i++) {
+			IAtom atom = molecule.getAtom(i);
+			Point3d p = atom.getPoint3d();
+			if (p == null) {
+				throw new IllegalArgumentException("Atom " + (i + 1) + " has no 3D coordinates.");
+			}
+			base[3 * i] = p.x;
+			base[3 * i + 1] = p.y;
+			base[3 * i + 2] = p.z;
+			if (!isHydrogen(atom)) {
+				heavyCount++;
+			}
+		}
+		heavy = new int[heavyCount];
+		for (int i = 0, j = 0; i < atomCount; i++) {
+			if (!isHydrogen(molecule.getAtom(i))) {
+				heavy[j++] = i;
+			}
+		}
+
+		int[][] graph = GraphUtil.toAdjList(molecule);
+		RingSearch ringSearch = new RingSearch(molecule, graph);
+
+		List<int[]> rotors = new ArrayList<int[]>();
+		List<int[]> sides = new ArrayList<int[]>();
+		for (IBond bond : molecule.bonds()) {
+			if (bond.getOrder() != IBond.Order.SINGLE || bond.getAtomCount() != 2) {
+				continue;
+			}
+			int u = molecule.getAtomNumber(bond.getAtom(0));
+			int v = molecule.getAtomNumber(bond.getAtom(1));
+			if (ringSearch.cyclic(u, v) || !hasHeavyNeighbour(graph, u, v) || !hasHeavyNeighbour(graph, v, u)) {
+				continue;
+			}
+			int[] sideV = side(graph, v, u);
+			int[] sideU = side(graph, u, v);
+			if (sideU.length < sideV.length) {
+				rotors.add(new int[] { v, u });
+				sides.add(sideU);
+			} else {
+				rotors.add(new int[] { u, v });
+				sides.add(sideV);
+			}
+		}
+		axisBegin = new int[rotors.size()];
+		axisEnd = new int[rotors.size()];
+		moving = new int[rotors.size()][];
+		for (int i = 0; i < rotors.size(); i++) {
+			axisBegin[i] = rotors.get(i)[0];
+			axisEnd[i] = rotors.get(i)[1];
+			moving[i] = sides.get(i);
+		}
+
+		clashPairs = clashPairs(graph);
+	}
+
+	/**
+	 * Returns the number of rotatable bonds.
+	 *
+	 * @return the number of rotatable bonds
+	 */
+	int rotatableBonds() {
+		return moving.length;
+	}
+
+	/**
+	 * Samples up to the given number of conformers. Sampling stops early at the deadline or if no further distinct
+	 * conformers are found.
+	 *
+	 * @param count the number of conformers
+	 * @param rmsd the minimum heavy atom RMSD in &Aring; between two conformers
+	 * @param deadline the deadline as returned by {@link System#currentTimeMillis()}
+	 * @return the conformers, starting with the input geometry
+	 * @throws InterruptedException if the thread was interrupted
+	 */
+	List<IAtomContainer> sample(final int count, final double rmsd, final long deadline)
+			throws InterruptedException {
+
+		List<double[]> accepted = new ArrayList<double[]>();
+		accepted.add(base);
+
+		if (moving.length > 0) {
+			Random random = new Random(SEED);
+			double[] coords = new double[base.length];
+			long attempts = (long) ATTEMPTS * count;
+			for (long attempt = 0; attempt < attempts && accepted.size() < count; attempt++) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				if (System.currentTimeMillis() > deadline) {
+					break;
+				}
+
+				System.arraycopy(base, 0, coords, 0, base.length);
+				for (int i = 0; i < moving.length; i++) {
+					rotate(coords, i, random.nextInt(STEPS) * 2 * Math.PI / STEPS);
+				}
+				if (clashes(coords) || !isDistinct(coords, accepted, rmsd)) {
+					continue;
+				}
+				accepted.add(coords.clone());
+			}
+		}
+
+		List<IAtomContainer> conformers = new ArrayList<IAtomContainer>(accepted.size());
+		for (double[] coords : accepted) {
+			conformers.add(toContainer(coords));
+		}
+		return conformers;
+	}
+
+	/**
+	 * Rotates the moving side of a rotatable bond around the bond axis (Rodrigues' rotation formula).
+	 */
+	private void rotate(final double[] coords, final int rotor, final double angle) {
+
+		if (angle == 0) {
+			return;
+		}
+		int a = 3 * axisBegin[rotor];
+		int b = 3 * axisEnd[rotor];
+		double kx = coords[b] - coords[a];
+		double ky = coords[b + 1] - coords[a + 1];
+		double kz = coords[b + 2] - coords[a + 2];
+		double norm = Math.sqrt(kx * kx + ky * ky + kz * kz);
+		if (norm == 0) {
+			return;
+		}
+		kx /= norm;
+		ky /= norm;
+		kz /= norm;
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+
+		for (int atom : moving[rotor]) {
+			int i = 3 * atom;
+			double x = coords[i] - coords[b];
+			double y = coords[i + 1] - coords[b + 1];
+			double z = coords[i + 2] - coords[b + 2];
+			double dot = (kx * x + ky * y + kz * z) * (1 - cos);
+			coords[i] = coords[b] + x * cos + (ky * z - kz * y) * sin + kx * dot;
+			coords[i + 1] = coords[b + 1] + y * cos + (kz * x - kx * z) * sin + ky * dot;
+			coords[i + 2] = coords[b + 2] + z * cos + (kx * y - ky * x) * sin + kz * dot;
+		}
+	}
+
+	private boolean clashes(final double[] coords) {
+
+		double limit = CLASH_DISTANCE * CLASH_DISTANCE;
+		for (int[] pair : clashPairs) {
+			int i = 3 * pair[0];
+			int j = 3 * pair[1];
+			double dx = coords[i] - coords[j];
+			double dy = coords[i + 1] - coords[j + 1];
+			double dz = coords[i + 2] - coords[j + 2];
+			if (dx * dx + dy * dy + dz * dz < limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isDistinct(final double[] coords, final List<double[]> accepted, final double rmsd) {
+
+		for (double[] other : accepted) {
+			if (rmsd(coords, other) < rmsd) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates the heavy atom RMSD after optimal superposition from the largest eigenvalue of Horn's key matrix.
+	 */
+	double rmsd(final double[] a, final double[] b) {
+
+		int n = heavy.length;
+		if (n == 0) {
+			return 0;
+		}
+		double[] ca = centroid(a);
+		double[] cb = centroid(b);
+
+		double g = 0;
+		double[] m = new double[9];
+		for (int atom : heavy) {
+			int i = 3 * atom;
+			double ax = a[i] - ca[0], ay = a[i + 1] - ca[1], az = a[i + 2] - ca[2];
+			double bx = b[i] - cb[0], by = b[i + 1] - cb[1], bz = b[i + 2] - cb[2];
+			g += ax * ax + ay * ay + az * az + bx * bx + by * by + bz * bz;
+			m[0] += ax * bx;
+			m[1] += ax * by;
+			m[2] += ax * bz;
+			m[3] += ay * bx;
+			m[4] += ay * by;
+			m[5] += ay * bz;
+			m[6] += az * bx;
+			m[7] += az * by;
+			m[8] += az * bz;
+		}
+
+		double[][] k = new double[4][4];
+		k[0][0] = m[0] + m[4] + m[8];
+		k[1][1] = m[0] - m[4] - m[8];
+		k[2][2] = -m[0] + m[4] - m[8];
+		k[3][3] = -m[0] - m[4] + m[8];
+		k[0][1] = k[1][0] = m[5] - m[7];
+		k[0][2] = k[2][0] = m[6] - m[2];
+		k[0][3] = k[3][0] = m[1] - m[3];
+		k[1][2] = k[2][1] = m[1] + m[3];
+		k[1][3] = k[3][1] = m[6] + m[2];
+		k[2][3] = k[3][2] = m[5] + m[7];
+
+		double lambda = largestEigenvalue(k);
+		return Math.sqrt(Math.max(0, (g - 2 * lambda) / n));
+	}
+
+	private double[] centroid(final double[] coords) {
+
+		double[] c = new double[3];
+		for (int atom : heavy) {
+			c[0] += coords[3 * atom];
+			c[1] += coords[3 * atom + 1];
+			c[2] += coords[3 * atom + 2];
+		}
+		c[0] /= heavy.length;
+		c[1] /= heavy.length;
+		c[2] /= heavy.length;
+		return c;
+	}
+
+	/**
+	 * Returns the largest eigenvalue of a symmetric matrix using cyclic Jacobi rotations. The matrix is modified.
+	 */
+	private static double largestEigenvalue(final double[][] a) {
+
+		int n = a.length;
+		for (int sweep = 0; sweep < 50; sweep++) {
+			double off = 0;
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					off += a[p][q] * a[p][q];
+				}
+			}
+			if (off < 1e-22) {
+				break;
+			}
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					if (a[p][q] == 0) {
+						continue;
+					}
+					double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					if (theta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(t * t + 1);
+					double s = t * c;
+					for (int r = 0; r < n; r++) {
+						double arp = a[r][p];
+						double arq = a[r][q];
+						a[r][p] = c * arp - s * arq;
+						a[r][q] = s * arp + c * arq;
+					}
+					for (int r = 0; r < n; r++) {
+						double apr = a[p][r];
+						double aqr = a[q][r];
+						a[p][r] = c * apr - s * aqr;
+						a[q][r] = s * apr + c * aqr;
+					}
+				}
+			}
+		}
+		double max = a[0][0];
+		for (int i = 1; i < n; i++) {
+			max = Math.max(max, a[i][i]);
+		}
+		return max;
+	}
+
+	private IAtomContainer toContainer(final double[] coords) {
+
+		IAtomContainer conformer;
+		try {
+			conformer = molecule.clone();
+		} catch (CloneNotSupportedException exception) {
+			throw new IllegalStateException(exception);
+		}
+		for (int i = 0; i < atomCount; i++) {
+			conformer.getAtom(i).setPoint3d(new Point3d(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2]));
+		}
+		return conformer;
+	}
+
+	/**
+	 * Collects the heavy atom pairs that are more than three bonds apart.
+	 */
+	private int[][] clashPairs(final int[][] graph) {
+
+		boolean[] isHeavy = new boolean[atomCount];
+		for (int atom : heavy) {
+			isHeavy[atom] = true;
+		}
+
+		List<int[]> pairs = new ArrayList<int[]>();
+		int[] depth = new int[atomCount];
+		int[] queue = new int[atomCount];
+		for (int source : heavy) {
+			Arrays.fill(depth, -1);
+			depth[source] = 0;
+			int head = 0, tail = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				int atom = queue[head++];
+				if (depth[atom] == 3) {
+					continue;
+				}
+				for (int neighbour : graph[atom]) {
+					if (depth[neighbour] < 0) {
+						depth[neighbour] = depth[atom] + 1;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+			for (int target : heavy) {
+				if (target > source && depth[target] < 0) {
+					pairs.add(new int[] { source, target });
+				}
+			}
+		}
+		return pairs.toArray(new int[pairs.size()][]);
+	}
+
+	/**
+	 * Returns the atoms on the side of the bond from <code>from</code> to <code>atom</code>, excluding
+	 * <code>atom</code> which lies on the axis.
+	 */
+	private int[] side(final int[][] graph, final int atom, final int from) {
+
+		boolean[] visited = new boolean[atomCount];
+		visited[atom] = true;
+		visited[from] = true;
+		int[] queue = new int[atomCount];
+		int head = 0, tail = 0;
+		for (int neighbour : graph[atom]) {
+			if (!visited[neighbour]) {
+				visited[neighbour] = true;
+				queue[tail++] = neighbour;
+			}
+		}
+		while (head < tail) {
+			for (int neighbour : graph[queue[head++]]) {
+				if (!visited[neighbour]) {
+					visited[neighbour] = true;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+		return Arrays.copyOf(queue, tail);
+	}
+
+	private boolean hasHeavyNeighbour(final int[][] graph, final int atom, final int exclude) {
+
+		for (int neighbour : graph[atom]) {
+			if (neighbour != exclude && !isHydrogen(molecule.getAtom(neighbour))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isHydrogen(final IAtom atom) {
+		return "H".equals(atom.getSymbol());
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.openscience.cdk.knime.core.CDKSettings;
+
+/**
+ * This class stores the settings for the conformer node.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ConformerSettings implements CDKSettings {
+
+	private String m_molColumnName;
+	private int m_conformers = 10;
+	private double m_rmsd = 0.5;
+	private int m_timeout = 10000;
+	private boolean m_listColumn = false;
+
+	/**
+	 * Returns the name of the column containing the molecules.
+	 *
+	 * @return the molecules' column name
+	 */
+	@Override
+	public String targetColumn() {
+		return m_molColumnName;
+	}
+
+	/**
+	 * Sets the name of the column containing the molecules.
+	 *
+	 * @param colName the molecules' column name
+	 */
+	@Override
+	public void targetColumn(final String colName) {
+		m_molColumnName = colName;
+	}
+
+	/**
+	 * Returns the maximum number of conformers per molecule.
+	 *
+	 * @return the number of conformers
+	 */
+	public int conformers() {
+		return m_conformers;
+	}
+
+	/**
+	 * Sets the maximum number of conformers per molecule.
+	 *
+	 * @param conformers the number of conformers
+	 */
+	public void conformers(final int conformers) {
+		m_conformers = conformers;
+	}
+
+	/**
+	 * Returns the minimum heavy atom RMSD in &Aring; between two conformers of a molecule.
+	 *
+	 * @return the RMSD threshold
+	 */
+	public double rmsd() {
+		return m_rmsd;
+	}
+
+	/**
+	 * Sets the minimum heavy atom RMSD in &Aring; between two conformers of a molecule.
+	 *
+	 * @param rmsd the RMSD threshold
+	 */
+	public void rmsd(final double rmsd) {
+		m_rmsd = rmsd;
+	}
+
+	/**
+	 * Returns the time budget per molecule in ms.
+	 *
+	 * @return the timeout
+	 */
+	public int timeout() {
+		return m_timeout;
+	}
+
+	/**
+	 * Sets the time budget per molecule in ms.
+	 *
+	 * @param timeout the timeout
+	 */
+	public void timeout(final int timeout) {
+		m_timeout = timeout;
+	}
+
+	/**
+	 * Returns if the conformers are collected in a list column instead of one row per conformer.
+	 *
+	 * @return <code>true</code> for a list column, <code>false</code> for one row per conformer
+	 */
+	public boolean listColumn() {
+		return m_listColumn;
+	}
+
+	/**
+	 * Sets if the conformers are collected in a list column instead of one row per conformer.
+	 *
+	 * @param listColumn <code>true</code> for a list column, <code>false</code> for one row per conformer
+	 */
+	public void listColumn(final boolean listColumn) {
+		m_listColumn = listColumn;
+	}
+
+	/**
+	 * Saves the settings into the given node settings object.
+	 *
+	 * @param settings a node settings object
+	 */
+	@Override
+	public void saveSettings(final NodeSettingsWO settings) {
+
+		settings.addString("molColumn", m_molColumnName);
+		settings.addInt("conformers", m_conformers);
+		settings.addDouble("rmsd", m_rmsd);
+		settings.addInt("timeout", m_timeout);
+		settings.addBoolean("listColumn", m_listColumn);
+	}
+
+	/**
+	 * Loads the settings from the given node settings object.
+	 *
+	 * @param settings a node settings object
+	 * @throws InvalidSettingsException if not all required settings are available
+	 */
+	@Override
+	public void loadSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+
+		m_molColumnName = settings.getString("molColumn");
+		m_conformers = settings.getInt("conformers", 10);
+		m_rmsd = settings.getDouble("rmsd", 0.5);
+		m_timeout = settings.getInt("timeout", 10000);
+		m_listColumn = settings.getBoolean("listColumn", false);
+	}
+}
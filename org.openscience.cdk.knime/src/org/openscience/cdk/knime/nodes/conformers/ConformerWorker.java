@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.conformers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.knime.base.data.replace.ReplacedColumnsDataRow;
+import org.knime.core.data.AdapterValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.util.MultiThreadWorker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.knime.nodes.coord3d.Coord3dGenerator;
+import org.openscience.cdk.knime.type.CDKCell3;
+import org.openscience.cdk.knime.type.CDKValue;
+
+/**
+ * Multi threaded worker implementation for the Conformer Node. Rows are pushed to the output as soon as they and all
+ * preceding rows are finished.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class ConformerWorker extends MultiThreadWorker<DataRow, List<DataRow>> {
+
+	private final static NodeLogger LOGGER = NodeLogger.getLogger(ConformerWorker.class);
+
+	private final ExecutionMonitor exec;
+	private final int columnIndex;
+	private final RowOutput out;
+	private final double max;
+	private final ConformerSettings settings;
+	private final Coord3dGenerator generator;
+
+	/**
+	 * Constructs a new worker.
+	 *
+	 * @param maxQueueSize the maximum number of queued rows
+	 * @param maxActiveInstanceSize the maximum number of rows processed in parallel
+	 * @param columnIndex the index of the molecule column
+	 * @param exec the execution monitor
+	 * @param max the number of input rows or -1 if unknown
+	 * @param out the row output
+	 * @param settings the node settings
+	 * @param generator the generator of the initial geometries
+	 */
+	public ConformerWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
+			final ExecutionMonitor exec, final long max, final RowOutput out, final ConformerSettings settings,
+			final Coord3dGenerator generator) {
+
+		super(maxQueueSize, maxActiveInstanceSize);
+		this.exec = exec;
+		this.columnIndex = columnIndex;
+		this.max = max;
+		this.out = out;
+		this.settings = settings;
+		this.generator = generator;
+	}
+
+	@Override
+	protected List<DataRow> compute(DataRow row, long index) throws Exception {
+
+		List<IAtomContainer> conformers = Collections.emptyList();
+		if (!row.getCell(columnIndex).isMissing()
+				&& (((AdapterValue) row.getCell(columnIndex)).getAdapterError(CDKValue.class) == null)) {
+
+			CDKValue cdkCell = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
+			try {
+				conformers = conformers(cdkCell.getAtomContainer());
+			} catch (InterruptedException ie) {
+				throw ie;
+			} catch (Exception ex) {
+				if (ex.getMessage() == null) {
+					LOGGER.error(row.getKey() + " : " + ex.getClass().getName(), ex);
+				} else {
+					LOGGER.error(row.getKey() + " : " + ex.getMessage(), ex);
+				}
+			}
+		}
+
+		List<DataRow> outRows = new ArrayList<DataRow>(Math.max(1, conformers.size()));
+		if (settings.listColumn()) {
+			List<DataCell> cells = new ArrayList<DataCell>(conformers.size());
+			for (IAtomContainer conformer : conformers) {
+				cells.add(CDKCell3.createCDKCell(conformer));
+			}
+			DataCell list = cells.isEmpty() ? DataType.getMissingCell() : CollectionCellFactory.createListCell(cells);
+			outRows.add(new AppendedColumnRow(row, list));
+		} else {
+			int count = 1;
+			for (IAtomContainer conformer : conformers) {
+				DataRow replaced = new ReplacedColumnsDataRow(row, CDKCell3.createCDKCell(conformer), columnIndex);
+				outRows.add(new AppendedColumnRow(new RowKey(row.getKey().getString() + "_" + count), replaced,
+						new IntCell(count)));
+				count++;
+			}
+		}
+		return outRows;
+	}
+
+	/**
+	 * Builds the initial geometry and samples the conformers within the time budget.
+	 */
+	private List<IAtomContainer> conformers(final IAtomContainer molecule) throws InterruptedException,
+			ExecutionException {
+
+		IAtomContainer initial;
+		try {
+			initial = generator.generate(molecule, settings.timeout());
+		} catch (TimeoutException exception) {
+			LOGGER.debug("3D coord generation timed out.");
+			return Collections.emptyList();
+		}
+		if (initial == null) {
+			return Collections.emptyList();
+		}
+		// the budget starts with the build, waiting for the shared model builder does not count
+		long deadline = generator.lastBuildStart() + settings.timeout();
+		return new ConformerSampler(initial).sample(settings.conformers(), settings.rmsd(), deadline);
+	}
+
+	@Override
+	protected void processFinished(ComputationTask task) throws ExecutionException, CancellationException,
+			InterruptedException {
+
+		for (DataRow row : task.get()) {
+			out.push(row);
+		}
+
+		if (max > 0) {
+			exec.setProgress(this.getFinishedCount() / max, this.getFinishedCount() + " (active/submitted: "
+					+ this.getActiveCount() + "/" + (this.getSubmittedCount() - this.getFinishedCount()) + ")");
+		} else {
+			exec.setMessage(this.getFinishedCount() + " (active/submitted: " + this.getActiveCount() + "/"
+					+ (this.getSubmittedCount() - this.getFinishedCount()) + ")");
+		}
+
+		try {
+			exec.checkCanceled();
+		} catch (CanceledExecutionException cee) {
+			throw new CancellationException();
+		}
+	}
+}
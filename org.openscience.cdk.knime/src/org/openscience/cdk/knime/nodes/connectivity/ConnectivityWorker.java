@@ -33,9 +33,8 @@ import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.util.MultiThreadWorker;
-import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.knime.type.CDKAdapterCell;
 import org.openscience.cdk.knime.type.CDKCell3;
 import org.openscience.cdk.knime.type.CDKValue;
 
@@ -86,8 +85,12 @@ public class ConnectivityWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private DataCell removeRows(final DataRow inRow) {
 
 		CDKValue cdkCell = ((AdapterValue) inRow.getCell(columnIndex)).getAdapter(CDKValue.class);
+		if (isConnected(cdkCell)) {
+			return copyCell(cdkCell);
+		}
+
 		IAtomContainer mol = cdkCell.getAtomContainer();
-		if (mol == null || !ConnectivityChecker.isConnected(mol)) {
+		if (mol == null || new FragmentPartition(mol).count() > 1) {
 			return DataType.getMissingCell();
 		}
 
@@ -97,17 +100,14 @@ public class ConnectivityWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private DataCell retainBiggest(final DataRow inRow) {
 
 		CDKValue cdkCell = ((AdapterValue) inRow.getCell(columnIndex)).getAdapter(CDKValue.class);
-		IAtomContainer mol = cdkCell.getAtomContainer();
+		if (isConnected(cdkCell)) {
+			return copyCell(cdkCell);
+		}
 
-		if (!ConnectivityChecker.isConnected(mol)) {
-			IAtomContainerSet molSet = ConnectivityChecker.partitionIntoMolecules(mol);
-			IAtomContainer biggest = molSet.getAtomContainer(0);
-			for (int i = 1; i < molSet.getAtomContainerCount(); i++) {
-				if (molSet.getAtomContainer(i).getBondCount() > biggest.getBondCount()) {
-					biggest = molSet.getAtomContainer(i);
-				}
-			}
-			return CDKCell3.createCDKCell(biggest);
+		IAtomContainer mol = cdkCell.getAtomContainer();
+		FragmentPartition partition = new FragmentPartition(mol);
+		if (partition.count() > 1) {
+			return CDKCell3.createCDKCell(partition.getFragment(partition.biggest()));
 		} else {
 			return CDKCell3.createCDKCell(mol);
 		}
@@ -116,15 +116,15 @@ public class ConnectivityWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private DataCell addFragments(final DataRow inRow) {
 
 		CDKValue cdkCell = ((AdapterValue) inRow.getCell(columnIndex)).getAdapter(CDKValue.class);
-		IAtomContainer mol = cdkCell.getAtomContainer();
-
-		if (!ConnectivityChecker.isConnected(mol)) {
-			IAtomContainerSet molSet = ConnectivityChecker.partitionIntoMolecules(mol);
-			List<DataCell> cells = new ArrayList<DataCell>(molSet.getAtomContainerCount());
+		if (isConnected(cdkCell)) {
+			return CollectionCellFactory.createListCell(Collections.singleton(copyCell(cdkCell)));
+		}
 
-			IAtomContainer singleMol;
-			for (int i = 0; i < molSet.getAtomContainerCount(); i++) {
-				singleMol = molSet.getAtomContainer(i);
+		IAtomContainer mol = cdkCell.getAtomContainer();
+		FragmentPartition partition = new FragmentPartition(mol);
+		if (partition.count() > 1) {
+			List<DataCell> cells = new ArrayList<DataCell>(partition.count());
+			for (IAtomContainer singleMol : partition.getFragments()) {
 				cells.add(CDKCell3.createCDKCell(singleMol));
 			}
 			return CollectionCellFactory.createListCell(cells);
@@ -133,6 +133,25 @@ public class ConnectivityWorker extends MultiThreadWorker<DataRow, DataRow> {
 		}
 	}
 
+	/**
+	 * A SMILES without a dot describes a single connected molecule, so the molecule does not need to be parsed.
+	 */
+	private boolean isConnected(final CDKValue cdkCell) {
+
+		if (!(cdkCell instanceof CDKCell3)) {
+			return false;
+		}
+		String smiles = cdkCell.getSmilesValue();
+		return smiles != null && smiles.length() > 0 && smiles.indexOf('.') < 0;
+	}
+
+	/**
+	 * Wraps the unchanged molecule in a new cell without regenerating its SMILES.
+	 */
+	private DataCell copyCell(final CDKValue cdkCell) {
+		return new CDKAdapterCell((CDKCell3) cdkCell);
+	}
+
 	@Override
 	protected void processFinished(ComputationTask task) throws ExecutionException, CancellationException,
 			InterruptedException {
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.connectivity;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IDoubleBondStereochemistry;
+import org.openscience.cdk.interfaces.ILonePair;
+import org.openscience.cdk.interfaces.ISingleElectron;
+import org.openscience.cdk.interfaces.IStereoElement;
+import org.openscience.cdk.interfaces.ITetrahedralChirality;
+import org.openscience.cdk.stereo.ExtendedTetrahedral;
+
+/**
+ * Partitions a molecule into its connected fragments.
+ * <p>
+ * The fragments are found by a single union-find pass over the bond index arrays. Fragment containers are only built
+ * on request, so callers interested in a single fragment do not pay for the others. Fragments are numbered in the
+ * order of their first atom and are built like
+ * {@link org.openscience.cdk.graph.ConnectivityChecker#partitionIntoMolecules(IAtomContainer)} builds them.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class FragmentPartition {
+
+	private final IAtomContainer container;
+	private final Map<IAtom, Integer> atomIndex;
+	private final int[] fragments;
+	private final int[] bondCounts;
+	private final int count;
+
+	/**
+	 * Constructs the partition of the molecule.
+	 *
+	 * @param container the molecule
+	 */
+	FragmentPartition(final IAtomContainer container) {
+
+		this.container = container;
+
+		int atomCount = container.getAtomCount();
+		atomIndex = new IdentityHashMap<IAtom, Integer>(2 * atomCount);
+		for (int i = 0; i < atomCount; i++) {
+			atomIndex.put(container.getAtom(i), i);
+		}
+
+		int bondCount = container.getBondCount();
+		int[] begin = new int[bondCount];
+		int[] end = new int[bondCount];
+		for (int i = 0; i < bondCount; i++) {
+			IBond bond = container.getBond(i);
+			begin[i] = atomIndex.get(bond.getAtom(0));
+			end[i] = atomIndex.get(bond.getAtom(1));
+		}
+
+		int[] parent = new int[atomCount];
+		for (int i = 0; i < atomCount; i++) {
+			parent[i] = i;
+		}
+		for (int i = 0; i < bondCount; i++) {
+			int u = find(parent, begin[i]);
+			int v = find(parent, end[i]);
+			// the smaller index stays root, so roots are the first atoms of their fragment
+			if (u < v) {
+				parent[v] = u;
+			} else if (v < u) {
+				parent[u] = v;
+			}
+		}
+
+		fragments = new int[atomCount];
+		int n = 0;
+		for (int i = 0; i < atomCount; i++) {
+			int root = find(parent, i);
+			fragments[i] = root == i ? n++ : fragments[root];
+		}
+		count = n;
+
+		bondCounts = new int[count];
+		for (int i = 0; i < bondCount; i++) {
+			bondCounts[fragments[begin[i]]]++;
+		}
+	}
+
+	private static int find(final int[] parent, int i) {
+
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the number of fragments.
+	 *
+	 * @return the number of fragments
+	 */
+	int count() {
+		return count;
+	}
+
+	/**
+	 * Returns the first fragment with the largest number of bonds.
+	 *
+	 * @return the fragment index
+	 */
+	int biggest() {
+
+		int biggest = 0;
+		for (int i = 1; i < count; i++) {
+			if (bondCounts[i] > bondCounts[biggest]) {
+				biggest = i;
+			}
+		}
+		return biggest;
+	}
+
+	/**
+	 * Builds the container of a single fragment.
+	 *
+	 * @param fragment the fragment index
+	 * @return the fragment container
+	 */
+	IAtomContainer getFragment(final int fragment) {
+
+		IAtomContainer[] containers = new IAtomContainer[count];
+		containers[fragment] = container.getBuilder().newInstance(IAtomContainer.class);
+		fill(containers);
+		return containers[fragment];
+	}
+
+	/**
+	 * Builds the containers of all fragments.
+	 *
+	 * @return the fragment containers in fragment order
+	 */
+	List<IAtomContainer> getFragments() {
+
+		IAtomContainer[] containers = new IAtomContainer[count];
+		for (int i = 0; i < count; i++) {
+			containers[i] = container.getBuilder().newInstance(IAtomContainer.class);
+		}
+		fill(containers);
+
+		List<IAtomContainer> list = new ArrayList<IAtomContainer>(count);
+		for (IAtomContainer fragment : containers) {
+			list.add(fragment);
+		}
+		return list;
+	}
+
+	/**
+	 * Adds the atoms, bonds, electrons and stereo elements to the fragment containers that are not null.
+	 */
+	private void fill(final IAtomContainer[] containers) {
+
+		for (int i = 0; i < fragments.length; i++) {
+			IAtomContainer fragment = containers[fragments[i]];
+			if (fragment != null) {
+				fragment.addAtom(container.getAtom(i));
+			}
+		}
+		for (IBond bond : container.bonds()) {
+			IAtomContainer fragment = get(containers, bond.getAtom(0));
+			if (fragment != null) {
+				fragment.addBond(bond);
+			}
+		}
+		for (ISingleElectron electron : container.singleElectrons()) {
+			IAtomContainer fragment = get(containers, electron.getAtom());
+			if (fragment != null) {
+				fragment.addSingleElectron(electron);
+			}
+		}
+		for (ILonePair lonePair : container.lonePairs()) {
+			IAtomContainer fragment = get(containers, lonePair.getAtom());
+			if (fragment != null) {
+				fragment.addLonePair(lonePair);
+			}
+		}
+		for (IStereoElement stereo : container.stereoElements()) {
+			IAtomContainer fragment = null;
+			if (stereo instanceof ITetrahedralChirality) {
+				fragment = get(containers, ((ITetrahedralChirality) stereo).getChiralAtom());
+			} else if (stereo instanceof IDoubleBondStereochemistry) {
+				fragment = get(containers, ((IDoubleBondStereochemistry) stereo).getStereoBond().getAtom(0));
+			} else if (stereo instanceof ExtendedTetrahedral) {
+				fragment = get(containers, ((ExtendedTetrahedral) stereo).focus());
+			}
+			if (fragment != null) {
+				fragment.addStereoElement(stereo);
+			}
+		}
+	}
+
+	private IAtomContainer get(final IAtomContainer[] containers, final IAtom atom) {
+
+		Integer index = atomIndex.get(atom);
+		return index == null ? null : containers[fragments[index]];
+	}
+}
@@ -23,6 +23,7 @@ import java.awt.GridBagLayout;
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 import javax.swing.border.Border;
 
 import org.knime.core.data.DataTableSpec;
@@ -47,6 +48,8 @@ public class Coord2DNodeDialog extends NodeDialogPane {
 
 	private final JCheckBox m_force = new JCheckBox();
 
+	private final JTextField m_scaffold = new JTextField(20);
+
 	/**
 	 * Creates a new dialog.
 	 */
@@ -70,6 +73,12 @@ public class Coord2DNodeDialog extends NodeDialogPane {
 		c.gridx++;
 		p.add(m_force, c);
 
+		c.gridx = 0;
+		c.gridy++;
+		p.add(new JLabel("Align to scaffold (SMILES)   "), c);
+		c.gridx++;
+		p.add(m_scaffold, c);
+
 		addTab("Default settings", p);
 	}
 
@@ -89,6 +98,7 @@ public class Coord2DNodeDialog extends NodeDialogPane {
 
 		m_molColumn.update(specs[0], colName);
 		m_force.setSelected(settings.getBoolean(Coord2DNodeModel.FORCE, false));
+		m_scaffold.setText(settings.getString(Coord2DNodeModel.SCAFFOLD, ""));
 	}
 
 	/**
@@ -99,5 +109,6 @@ public class Coord2DNodeDialog extends NodeDialogPane {
 
 		settings.addString(Coord2DNodeModel.CFG_COLNAME, m_molColumn.getSelectedColumn());
 		settings.addBoolean(Coord2DNodeModel.FORCE, m_force.isSelected());
+		settings.addString(Coord2DNodeModel.SCAFFOLD, m_scaffold.getText().trim());
 	}
 }
@@ -29,6 +29,7 @@ import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.core.CDKAdapterNodeModel;
 import org.openscience.cdk.knime.type.CDKAdapterCell;
@@ -38,7 +39,8 @@ import org.openscience.cdk.knime.type.CDKCell;
  * This class is the model for the CDK 2D-generation node. It takes the input molecules (if there are any), checks if
  * they already have 2D coordinates assigned and if not creates a new copy of the molecule and computes 2D coordinates
  * for it. The columns with molecules will have a property afterwards, that indicates that 3D coordinates are available
- * ( {@link CDKCell#COORD2D_AVAILABLE}).
+ * ( {@link CDKCell#COORD2D_AVAILABLE}). If a scaffold is given, all molecules containing it are aligned onto its
+ * layout.
  * 
  * @author Thorsten Meinl, University of Konstanz
  */
@@ -47,9 +49,11 @@ public class Coord2DNodeModel extends CDKAdapterNodeModel {
 	/** Config key for column name. */
 	static final String CFG_COLNAME = "colName";
 	static final String FORCE = "force";
+	static final String SCAFFOLD = "scaffold";
 
 	private String m_colName;
 	private boolean m_force;
+	private String m_scaffold = "";
 
 	/**
 	 * Creates a new model for 2D coordinate generation.
@@ -94,6 +98,7 @@ public class Coord2DNodeModel extends CDKAdapterNodeModel {
 
 		m_colName = settings.getString(CFG_COLNAME);
 		m_force = settings.getBoolean(FORCE, false);
+		m_scaffold = settings.getString(SCAFFOLD, "");
 	}
 
 	/**
@@ -106,6 +111,7 @@ public class Coord2DNodeModel extends CDKAdapterNodeModel {
 			settings.addString(CFG_COLNAME, m_colName);
 		}
 		settings.addBoolean(FORCE, m_force);
+		settings.addString(SCAFFOLD, m_scaffold);
 	}
 
 	/**
@@ -118,6 +124,14 @@ public class Coord2DNodeModel extends CDKAdapterNodeModel {
 		if ((colName == null) || (colName.length() < 1)) {
 			throw new InvalidSettingsException("No column choosen");
 		}
+		String scaffold = settings.getString(SCAFFOLD, "");
+		if (scaffold != null && scaffold.trim().length() > 0) {
+			try {
+				new ScaffoldAligner(scaffold.trim());
+			} catch (CDKException exception) {
+				throw new InvalidSettingsException(exception.getMessage());
+			}
+		}
 	}
 
 	/**
@@ -128,8 +142,13 @@ public class Coord2DNodeModel extends CDKAdapterNodeModel {
 
 		BufferedDataContainer outputTable = exec.createDataContainer(appendSpec(convertedTables[0].getDataTableSpec()));
 
+		ScaffoldAligner aligner = null;
+		if (m_scaffold != null && m_scaffold.trim().length() > 0) {
+			aligner = new ScaffoldAligner(m_scaffold.trim());
+		}
+
 		Coord2DWorker worker = new Coord2DWorker(maxQueueSize, maxParallelWorkers, columnIndex, exec.createSubProgress(1),
-				convertedTables[0].size(), outputTable, m_force);
+				convertedTables[0].size(), outputTable, m_force, aligner);
 
 		try {
 			worker.run(convertedTables[0]);
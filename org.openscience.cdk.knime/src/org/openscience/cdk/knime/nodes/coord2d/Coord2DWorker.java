@@ -48,15 +48,18 @@ public class Coord2DWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private final double max;
 	private final BufferedDataContainer bdc;
 	private final boolean force;
+	private final ScaffoldAligner aligner;
 
 	public Coord2DWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
-			final ExecutionMonitor exec, final long max, final BufferedDataContainer bdc, final boolean force) {
+			final ExecutionMonitor exec, final long max, final BufferedDataContainer bdc, final boolean force,
+			final ScaffoldAligner aligner) {
 
 		super(maxQueueSize, maxActiveInstanceSize);
 		this.exec = exec;
 		this.bdc = bdc;
 		this.max = max;
 		this.force = force;
+		this.aligner = aligner;
 		this.columnIndex = columnIndex;
 	}
 
@@ -73,6 +76,9 @@ public class Coord2DWorker extends MultiThreadWorker<DataRow, DataRow> {
 
 			try {
 				m = CDKNodeUtils.calculateCoordinates(m, force, false);
+				if (aligner != null) {
+					aligner.align(m);
+				}
 			} catch (ThreadDeath d) {
 				LOGGER.debug("2D coord generation" + " timed out for row \"" + row.getKey() + "\"");
 				throw d;
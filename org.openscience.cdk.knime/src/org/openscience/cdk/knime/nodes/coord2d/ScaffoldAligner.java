@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.coord2d;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.vecmath.Point2d;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.isomorphism.Pattern;
+import org.openscience.cdk.knime.commons.CDKNodeUtils;
+
+/**
+ * Aligns 2D layouts onto the layout of a reference scaffold, so that a series of analogues is depicted in the same
+ * orientation.
+ * <p>
+ * The scaffold is laid out once. The scaffold atoms of a molecule are found with a precompiled substructure pattern and
+ * the molecule is rotated, translated and, if that fits better, mirrored onto the scaffold layout. Each scaffold atom
+ * is then moved onto its position in the scaffold layout, so all molecules share the exact scaffold depiction, and
+ * every substituent is laid out again by moving it rigidly with the scaffold atoms it is attached to. Molecules that
+ * close rings through the scaffold, whose bonds would be stretched by this, keep the fitted layout.
+ * <p>
+ * The structure diagram generator of CDK 1.5 cannot be seeded with fixed coordinates, hence the layout is adjusted
+ * after the fact.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class ScaffoldAligner {
+
+	/**
+	 * Largest change in &Aring; of the distance between two scaffold atoms that are bonded or bridged by a substituent,
+	 * beyond it the scaffold atoms are not moved onto the scaffold layout.
+	 */
+	private static final double MAX_DISTORTION = 0.15;
+
+	private final Pattern pattern;
+	private final Point2d[] reference;
+
+	/**
+	 * Constructs a new aligner.
+	 *
+	 * @param smiles the SMILES of the scaffold
+	 * @throws CDKException if the SMILES cannot be parsed or laid out
+	 */
+	ScaffoldAligner(final String smiles) throws CDKException {
+
+		IAtomContainer scaffold = CDKNodeUtils.getFullMolecule(smiles);
+		if (scaffold == null || scaffold.getAtomCount() == 0) {
+			throw new CDKException("Invalid scaffold SMILES: " + smiles);
+		}
+		scaffold = CDKNodeUtils.calculateCoordinates(scaffold, true, false);
+
+		reference = new Point2d[scaffold.getAtomCount()];
+		for (int i = 0; i < reference.length; i++) {
+			reference[i] = new Point2d(scaffold.getAtom(i).getPoint2d());
+		}
+		pattern = Pattern.findSubstructure(scaffold);
+	}
+
+	/**
+	 * Aligns the 2D coordinates of the molecule onto the scaffold layout.
+	 *
+	 * @param molecule the molecule with 2D coordinates
+	 * @return false if the molecule does not contain the scaffold or lacks coordinates, the molecule is unchanged
+	 */
+	boolean align(final IAtomContainer molecule) {
+
+		for (IAtom atom : molecule.atoms()) {
+			if (atom.getPoint2d() == null) {
+				return false;
+			}
+		}
+		int[] match = pattern.match(molecule);
+		if (match.length == 0) {
+			return false;
+		}
+
+		int n = match.length;
+		double px = 0, py = 0, qx = 0, qy = 0;
+		for (int i = 0; i < n; i++) {
+			Point2d p = molecule.getAtom(match[i]).getPoint2d();
+			px += p.x;
+			py += p.y;
+			qx += reference[i].x;
+			qy += reference[i].y;
+		}
+		px /= n;
+		py /= n;
+		qx /= n;
+		qy /= n;
+
+		double sxx = 0, sxy = 0, syx = 0, syy = 0;
+		for (int i = 0; i < n; i++) {
+			Point2d p = molecule.getAtom(match[i]).getPoint2d();
+			double x = p.x - px;
+			double y = p.y - py;
+			double rx = reference[i].x - qx;
+			double ry = reference[i].y - qy;
+			sxx += x * rx;
+			sxy += x * ry;
+			syx += y * rx;
+			syy += y * ry;
+		}
+
+		// best rotation with and without mirroring the molecule at the x axis first
+		double rotated = Math.hypot(sxx + syy, sxy - syx);
+		double mirrored = Math.hypot(sxx - syy, sxy + syx);
+		boolean mirror = mirrored > rotated + 1e-9;
+		double angle = mirror ? Math.atan2(sxy + syx, sxx - syy) : Math.atan2(sxy - syx, sxx + syy);
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+
+		for (IAtom atom : molecule.atoms()) {
+			Point2d p = atom.getPoint2d();
+			double x = p.x - px;
+			double y = mirror ? py - p.y : p.y - py;
+			atom.setPoint2d(new Point2d(qx + x * cos - y * sin, qy + x * sin + y * cos));
+		}
+		if (mirror) {
+			invertWedges(molecule);
+		}
+
+		int[] scaffold = new int[molecule.getAtomCount()];
+		Arrays.fill(scaffold, -1);
+		for (int i = 0; i < n; i++) {
+			scaffold[match[i]] = i;
+		}
+		int[][] graph = GraphUtil.toAdjList(molecule);
+
+		List<List<Integer>> substituents = new ArrayList<List<Integer>>();
+		List<Set<Integer>> attachments = new ArrayList<Set<Integer>>();
+		boolean[] visited = new boolean[graph.length];
+		for (int start = 0; start < graph.length; start++) {
+			if (scaffold[start] >= 0 || visited[start]) {
+				continue;
+			}
+			List<Integer> substituent = new ArrayList<Integer>();
+			Set<Integer> attached = new TreeSet<Integer>();
+			Deque<Integer> queue = new ArrayDeque<Integer>();
+			queue.add(start);
+			visited[start] = true;
+			while (!queue.isEmpty()) {
+				int v = queue.poll();
+				substituent.add(v);
+				for (int w : graph[v]) {
+					if (scaffold[w] >= 0) {
+						attached.add(w);
+					} else if (!visited[w]) {
+						visited[w] = true;
+						queue.add(w);
+					}
+				}
+			}
+			substituents.add(substituent);
+			attachments.add(attached);
+		}
+
+		// rings closed outside the scaffold would be torn apart, such molecules keep the fitted layout
+		for (int v = 0; v < graph.length; v++) {
+			for (int w : graph[v]) {
+				if (scaffold[v] >= 0 && scaffold[w] >= 0 && distorted(molecule, scaffold, v, w)) {
+					return true;
+				}
+			}
+		}
+		for (Set<Integer> attached : attachments) {
+			for (int v : attached) {
+				for (int w : attached) {
+					if (v < w && distorted(molecule, scaffold, v, w)) {
+						return true;
+					}
+				}
+			}
+		}
+
+		// the substituents follow their attachment atoms before these are moved onto the scaffold layout
+		for (int i = 0; i < substituents.size(); i++) {
+			relayout(molecule, graph, scaffold, substituents.get(i), attachments.get(i));
+		}
+		for (int i = 0; i < n; i++) {
+			molecule.getAtom(match[i]).setPoint2d(new Point2d(reference[i]));
+		}
+		return true;
+	}
+
+	/**
+	 * Whether moving the two scaffold atoms onto the scaffold layout changes their distance noticeably.
+	 */
+	private boolean distorted(final IAtomContainer molecule, final int[] scaffold, final int v, final int w) {
+
+		double distance = molecule.getAtom(v).getPoint2d().distance(molecule.getAtom(w).getPoint2d());
+		return Math.abs(distance - reference[scaffold[v]].distance(reference[scaffold[w]])) > MAX_DISTORTION;
+	}
+
+	/**
+	 * Moves a substituent rigidly with the scaffold atoms it is attached to. The rotation is fitted to the attachment
+	 * atoms and their scaffold neighbours, a substituent with a single attachment atom is rotated about that atom.
+	 * Fragments without attachment atoms keep the aligned coordinates.
+	 */
+	private void relayout(final IAtomContainer molecule, final int[][] graph, final int[] scaffold,
+			final List<Integer> substituent, final Set<Integer> attachments) {
+
+		if (attachments.isEmpty()) {
+			return;
+		}
+		Set<Integer> anchors = new TreeSet<Integer>(attachments);
+		for (int v : attachments) {
+			for (int w : graph[v]) {
+				if (scaffold[w] >= 0) {
+					anchors.add(w);
+				}
+			}
+		}
+
+		double px = 0, py = 0, qx = 0, qy = 0;
+		for (int v : anchors) {
+			Point2d p = molecule.getAtom(v).getPoint2d();
+			px += p.x;
+			py += p.y;
+			qx += reference[scaffold[v]].x;
+			qy += reference[scaffold[v]].y;
+		}
+		px /= anchors.size();
+		py /= anchors.size();
+		qx /= anchors.size();
+		qy /= anchors.size();
+
+		double dot = 0, cross = 0;
+		for (int v : anchors) {
+			Point2d p = molecule.getAtom(v).getPoint2d();
+			double x = p.x - px;
+			double y = p.y - py;
+			double rx = reference[scaffold[v]].x - qx;
+			double ry = reference[scaffold[v]].y - qy;
+			dot += x * rx + y * ry;
+			cross += x * ry - y * rx;
+		}
+		double angle = Math.atan2(cross, dot);
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+
+		if (attachments.size() == 1) {
+			int v = attachments.iterator().next();
+			Point2d p = molecule.getAtom(v).getPoint2d();
+			px = p.x;
+			py = p.y;
+			qx = reference[scaffold[v]].x;
+			qy = reference[scaffold[v]].y;
+		}
+		for (int v : substituent) {
+			IAtom atom = molecule.getAtom(v);
+			Point2d p = atom.getPoint2d();
+			double x = p.x - px;
+			double y = p.y - py;
+			atom.setPoint2d(new Point2d(qx + x * cos - y * sin, qy + x * sin + y * cos));
+		}
+	}
+
+	/**
+	 * Inverts the wedge bonds, which keeps the configuration of a mirrored depiction.
+	 */
+	private static void invertWedges(final IAtomContainer molecule) {
+
+		for (IBond bond : molecule.bonds()) {
+			IBond.Stereo stereo = bond.getStereo();
+			if (stereo == IBond.Stereo.UP) {
+				bond.setStereo(IBond.Stereo.DOWN);
+			} else if (stereo == IBond.Stereo.DOWN) {
+				bond.setStereo(IBond.Stereo.UP);
+			} else if (stereo == IBond.Stereo.UP_INVERTED) {
+				bond.setStereo(IBond.Stereo.DOWN_INVERTED);
+			} else if (stereo == IBond.Stereo.DOWN_INVERTED) {
+				bond.setStereo(IBond.Stereo.UP_INVERTED);
+			}
+		}
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.coord3d;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.node.NodeLogger;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.modeling.builder3d.ModelBuilder3D;
+import org.openscience.cdk.modeling.builder3d.TemplateHandler3D;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+import org.openscience.cdk.tools.manipulator.SmartAtomContainerManipulator;
+
+/**
+ * Generates 3D coordinates on a bounded pool of threads with a timeout.
+ * <p>
+ * The CDK returns the same model builder to all threads, so builds of all generators are serialized on a lock and the
+ * timeout of a molecule only starts once its job holds the lock. Time queued behind other builds does not count.
+ * Each pool thread looks up its model builder once and reuses it for all molecules.
+ * <p>
+ * The model builder does not react to interrupts. A job that exceeds the timeout is interrupted and abandoned, it
+ * finishes on its thread and its result is discarded. The thread is never stopped, stopping it would leave the shared
+ * model builder half updated for all later builds. The ring templates are loaded by an untimed build before the
+ * first job, so the first timed job does not pay for loading them.
+ * <p>
+ * The pool must be released with {@link #shutdown()}.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class Coord3dGenerator {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(Coord3dGenerator.class);
+
+	/** Interval in ms to check whether a job that waits for the builder is still pending. */
+	private static final long POLL_INTERVAL = 100;
+
+	/** Guards the shared model builder instance. */
+	private static final Object BUILDER_LOCK = new Object();
+	/** Whether the ring templates of the shared model builder were loaded, guarded by {@link #BUILDER_LOCK}. */
+	private static boolean templatesLoaded = false;
+
+	private final ExecutorService executor;
+	/** The start of the last build requested by the calling thread. */
+	private final ThreadLocal<Long> buildStarts = new ThreadLocal<Long>();
+	private final ThreadLocal<ModelBuilder3D> builders = new ThreadLocal<ModelBuilder3D>() {
+
+		@Override
+		protected ModelBuilder3D initialValue() {
+			try {
+				return ModelBuilder3D.getInstance(SilentChemObjectBuilder.getInstance());
+			} catch (CDKException exception) {
+				throw new IllegalStateException("Failed to load the 3D model builder.", exception);
+			}
+		}
+	};
+
+	/**
+	 * Constructs a new generator.
+	 *
+	 * @param threads the number of pool threads
+	 */
+	public Coord3dGenerator(final int threads) {
+
+		loadTemplates();
+
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						Thread thread = new Thread(r, "CDK 3D Coordinates-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Generates 3D coordinates for the molecule. Disconnected molecules are built fragment by fragment.
+	 *
+	 * @param molecule the molecule
+	 * @param timeout the timeout in ms, counted from the start of the build
+	 * @return the molecule with coordinates or null if no coordinates could be generated
+	 * @throws TimeoutException if the generation exceeded the timeout and was abandoned
+	 * @throws InterruptedException if the calling thread was interrupted, the generation is abandoned
+	 * @throws ExecutionException if the generation failed
+	 */
+	public IAtomContainer generate(final IAtomContainer molecule, final long timeout) throws TimeoutException,
+			InterruptedException, ExecutionException {
+
+		Job job = new Job(molecule);
+		Future<IAtomContainer> future = executor.submit(job);
+		try {
+			while (!job.started.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				if (future.isDone()) {
+					break;
+				}
+			}
+			buildStarts.set(System.currentTimeMillis());
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException exception) {
+			job.abandon(future);
+			throw exception;
+		} catch (InterruptedException exception) {
+			job.abandon(future);
+			throw exception;
+		}
+	}
+
+	/**
+	 * The time the last build requested by the calling thread started, after it waited for the shared model builder.
+	 *
+	 * @return the start time in ms, or the current time if the thread did not request a build
+	 */
+	public long lastBuildStart() {
+
+		Long start = buildStarts.get();
+		return start == null ? System.currentTimeMillis() : start;
+	}
+
+	/**
+	 * Stops all pool threads. Running jobs are interrupted.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Loads the ring templates of the shared model builder, so no timed job has to load them. A failed load is
+	 * retried by the next generator, until then the builds load the templates themselves.
+	 */
+	private static void loadTemplates() {
+
+		synchronized (BUILDER_LOCK) {
+			if (templatesLoaded) {
+				return;
+			}
+			try {
+				IAtomContainer ring = new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles("C1CCCCC1");
+				TemplateHandler3D templates = TemplateHandler3D.getInstance();
+				templates.mapTemplates(ring, ring.getAtomCount());
+				templatesLoaded = templates.getTemplateCount() > 0;
+			} catch (Exception exception) {
+				LOGGER.error("Failed to load the 3D model builder templates.", exception);
+			}
+		}
+	}
+
+	private static IAtomContainer build(final ModelBuilder3D builder, final IAtomContainer m) {
+
+		IAtomContainer result = null;
+		try {
+			if (!ConnectivityChecker.isConnected(m)) {
+				IAtomContainerSet mSet = ConnectivityChecker.partitionIntoMolecules(m);
+				IAtomContainer col = new AtomContainer();
+				for (IAtomContainer fm : mSet.atomContainers()) {
+					AtomContainerManipulator.convertImplicitToExplicitHydrogens(fm);
+					fm = builder.generate3DCoordinates(fm, false);
+					col.add(fm);
+					result = col;
+				}
+			} else {
+				IAtomContainer mc = m;
+				// silly, but required to circumvent a n/a bug in the ModelBuilder3D
+				mc = SmartAtomContainerManipulator.suppressNonChiralHydrogens(mc);
+				AtomContainerManipulator.convertImplicitToExplicitHydrogens(mc);
+				result = builder.generate3DCoordinates(mc, false);
+			}
+		} catch (Throwable t) {
+			LOGGER.error(t.getMessage(), t);
+		}
+		return result;
+	}
+
+	/**
+	 * A single generation job. It signals when it holds the model builder, so the timeout excludes the time queued
+	 * behind other builds, and it can be abandoned before or while it runs.
+	 */
+	private final class Job implements Callable<IAtomContainer> {
+
+		private final IAtomContainer molecule;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private volatile boolean abandoned;
+
+		Job(final IAtomContainer molecule) {
+			this.molecule = molecule;
+		}
+
+		@Override
+		public IAtomContainer call() throws Exception {
+
+			synchronized (BUILDER_LOCK) {
+				started.countDown();
+				if (abandoned) {
+					return null;
+				}
+				IAtomContainer result = build(builders.get(), molecule);
+				if (abandoned) {
+					LOGGER.debug("3D coord generation finished after the timeout, the result is discarded.");
+				}
+				return result;
+			}
+		}
+
+		/**
+		 * Abandons the job. A job that has not started is skipped, a running job is interrupted and left to
+		 * finish on its thread.
+		 */
+		void abandon(final Future<IAtomContainer> future) {
+			abandoned = true;
+			future.cancel(true);
+		}
+	}
+}
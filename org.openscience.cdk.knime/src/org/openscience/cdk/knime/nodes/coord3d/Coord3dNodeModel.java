@@ -44,9 +44,17 @@ public class Coord3dNodeModel extends CDKAdapterNodeModel {
 	static final String CFG_COLNAME = "colName";
 	static final String TIMEOUT = "timeout";
 
+	/**
+	 * Number of molecules processed in parallel. The CDK shares a single model builder per force field, so molecules
+	 * are built one at a time.
+	 */
+	private static final int WORKERS = 1;
+
 	private String m_colName;
 	private int timeout = 10000;
 
+	private Coord3dGenerator generator;
+
 	/**
 	 * Creates a new model for 3D coordinate generation.
 	 */
@@ -124,8 +132,11 @@ public class Coord3dNodeModel extends CDKAdapterNodeModel {
 
 		BufferedDataContainer outputTable = exec.createDataContainer(appendSpec(convertedTables[0].getDataTableSpec()));
 
-		Coord3dWorker worker = new Coord3dWorker(1, 1, columnIndex, exec.createSubProgress(1),
-				convertedTables[0].size(), outputTable, timeout);
+		if (generator == null) {
+			generator = new Coord3dGenerator(WORKERS);
+		}
+		Coord3dWorker worker = new Coord3dWorker(WORKERS, WORKERS, columnIndex, exec.createSubProgress(1),
+				convertedTables[0].size(), outputTable, timeout, generator);
 
 		try {
 			worker.run(convertedTables[0]);
@@ -148,4 +159,28 @@ public class Coord3dNodeModel extends CDKAdapterNodeModel {
 
 		return new BufferedDataTable[] { outputTable.getTable() };
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+		shutdown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onDispose() {
+		shutdown();
+	}
+
+	private void shutdown() {
+
+		if (generator != null) {
+			generator.shutdown();
+			generator = null;
+		}
+	}
 }
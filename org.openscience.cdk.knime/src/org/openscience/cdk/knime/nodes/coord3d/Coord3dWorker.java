@@ -16,13 +16,8 @@
  */
 package org.openscience.cdk.knime.nodes.coord3d;
 
-import java.util.Iterator;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 import org.knime.base.data.replace.ReplacedColumnsDataRow;
 import org.knime.core.data.AdapterValue;
@@ -34,17 +29,9 @@ import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.util.MultiThreadWorker;
-import org.knime.core.util.Pointer;
-import org.openscience.cdk.AtomContainer;
-import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.interfaces.IAtomContainerSet;
 import org.openscience.cdk.knime.type.CDKCell3;
 import org.openscience.cdk.knime.type.CDKValue;
-import org.openscience.cdk.modeling.builder3d.ModelBuilder3D;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
-import org.openscience.cdk.tools.manipulator.SmartAtomContainerManipulator;
 
 /**
  * Multi threaded worker implementation for the Coord3d Worker Node.
@@ -60,10 +47,11 @@ public class Coord3dWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private final BufferedDataContainer bdc;
 	private final int timeout;
 	private final double max;
-	private final ExecutorService executor;
+	private final Coord3dGenerator generator;
 
 	public Coord3dWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
-			final ExecutionMonitor exec, final long max, final BufferedDataContainer bdc, final int timeout) {
+			final ExecutionMonitor exec, final long max, final BufferedDataContainer bdc, final int timeout,
+			final Coord3dGenerator generator) {
 
 		super(maxQueueSize, maxActiveInstanceSize);
 		this.exec = exec;
@@ -71,8 +59,7 @@ public class Coord3dWorker extends MultiThreadWorker<DataRow, DataRow> {
 		this.max = max;
 		this.timeout = timeout;
 		this.columnIndex = columnIndex;
-
-		executor = Executors.newCachedThreadPool();
+		this.generator = generator;
 	}
 
 	@Override
@@ -88,47 +75,14 @@ public class Coord3dWorker extends MultiThreadWorker<DataRow, DataRow> {
 			final IAtomContainer m = cdkCell.getAtomContainer();
 
 			try {
-				final Pointer<IAtomContainer> pClone = new Pointer<IAtomContainer>();
-				Runnable r = new Runnable() {
-
-					@Override
-					public void run() {
-
-						try {
-							if (!ConnectivityChecker.isConnected(m)) {
-								IAtomContainerSet mSet = ConnectivityChecker.partitionIntoMolecules(m);
-								Iterator<IAtomContainer> it = mSet.atomContainers().iterator();
-								IAtomContainer col = new AtomContainer();
-								while (it.hasNext()) {
-									IAtomContainer fm = (IAtomContainer) it.next();
-									AtomContainerManipulator.convertImplicitToExplicitHydrogens(fm);
-									fm = ModelBuilder3D.getInstance(SilentChemObjectBuilder.getInstance()).generate3DCoordinates(fm, false);
-									col.add(fm);
-									pClone.set(col);
-								}
-							} else {
-								IAtomContainer mc = m;
-								// silly,  but required to circumvent a n/a bug in the ModelBuilder3D
-								mc = SmartAtomContainerManipulator.suppressNonChiralHydrogens(mc);
-								AtomContainerManipulator.convertImplicitToExplicitHydrogens(mc);
-								mc = ModelBuilder3D.getInstance(SilentChemObjectBuilder.getInstance()).generate3DCoordinates(mc, false);
-								pClone.set(mc);
-							}
-						} catch (ThreadDeath d) {
-							LOGGER.debug("3D coord generation timed out.");
-							throw d;
-						} catch (Throwable t) {
-							LOGGER.error(t.getMessage(), t);
-						}
-					}
-				};
-				Future<?> future = executor.submit(r);
-				future.get(timeout, TimeUnit.MILLISECONDS);
-				if (pClone.get() != null) {
-					outCell = CDKCell3.createCDKCell(pClone.get());
+				IAtomContainer mc = generator.generate(m, timeout);
+				if (mc != null) {
+					outCell = CDKCell3.createCDKCell(mc);
 				} else {
 					outCell = DataType.getMissingCell();
 				}
+			} catch (InterruptedException ie) {
+				throw ie;
 			} catch (Exception ex) {
 				if (ex.getMessage() == null) {
 					LOGGER.error(row.getKey() + " : " + ex.getClass().getName(), ex);
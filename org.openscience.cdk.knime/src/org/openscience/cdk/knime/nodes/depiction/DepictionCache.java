@@ -0,0 +1,231 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.NodeLogger;
+import org.openscience.cdk.CDK;
+import org.openscience.cdk.knime.type.CDKCell3;
+
+/**
+ * Content-addressed cache of encoded depictions.
+ * <p>
+ * Images are keyed by a SHA-256 digest of the structure (the 64-bit hash, SMILES and coordinates of the cell), the
+ * highlighted atoms and bonds and a fingerprint of the rendering settings. The in-memory tier is an LRU shared by all
+ * depiction nodes and bounded by the total image size, so re-executions with identical settings are served from
+ * memory. The optional on-disk tier stores one file per digest and survives restarts.
+ * <p>
+ * The cache is thread-safe.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class DepictionCache
+{
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(DepictionCache.class);
+
+	/** Upper bound of the summed image sizes held in memory. */
+	private static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+	private static final Map<String, byte[]> MEMORY = new LinkedHashMap<String, byte[]>(1024, 0.75f, true);
+	private static long memoryBytes = 0;
+
+	private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<MessageDigest>()
+	{
+
+		@Override
+		protected MessageDigest initialValue()
+		{
+			try
+			{
+				return MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e)
+			{
+				throw new IllegalStateException("SHA-256 not available", e);
+			}
+		}
+	};
+
+	private final String fingerprint;
+	private final File directory;
+
+	/**
+	 * Creates a cache view for one set of rendering settings.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of all settings that affect the image
+	 * @param directory
+	 *            the directory of the on-disk tier or null to keep images in
+	 *            memory only
+	 */
+	DepictionCache(String fingerprint, File directory)
+	{
+		// images may differ between CDK releases
+		this.fingerprint = CDK.getVersion() + "|" + fingerprint;
+		this.directory = directory;
+	}
+
+	/**
+	 * Computes the key of a depiction.
+	 *
+	 * @param cell
+	 *            the structure
+	 * @param atoms
+	 *            the highlighted atom indices, may be null
+	 * @param bonds
+	 *            the highlighted bond indices, may be null
+	 * @return the hex encoded digest
+	 */
+	String key(CDKCell3 cell, List<Integer> atoms, List<Integer> bonds)
+	{
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+		update(digest, cell.hashCode64());
+		digest.update(cell.getSmilesValue().getBytes(StandardCharsets.UTF_8));
+		byte[] coordinates = cell.auxBytes();
+		update(digest, coordinates.length);
+		digest.update(coordinates);
+		update(digest, atoms);
+		update(digest, bonds);
+
+		byte[] hash = digest.digest();
+		char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++)
+		{
+			hex[2 * i] = Character.forDigit((hash[i] >> 4) & 0xF, 16);
+			hex[2 * i + 1] = Character.forDigit(hash[i] & 0xF, 16);
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Looks up an image, first in memory then on disk.
+	 *
+	 * @param key
+	 *            the key from {@link #key(CDKCell3, List, List)}
+	 * @return the encoded image or null if not cached
+	 */
+	byte[] get(String key)
+	{
+		synchronized (MEMORY)
+		{
+			byte[] image = MEMORY.get(key);
+			if (image != null)
+			{
+				return image;
+			}
+		}
+
+		if (directory != null)
+		{
+			File file = file(key);
+			if (file.isFile())
+			{
+				try
+				{
+					byte[] image = Files.readAllBytes(file.toPath());
+					remember(key, image);
+					return image;
+				} catch (IOException e)
+				{
+					LOGGER.debug("Could not read cached depiction " + file, e);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores an image in memory and, if enabled, on disk.
+	 *
+	 * @param key
+	 *            the key from {@link #key(CDKCell3, List, List)}
+	 * @param image
+	 *            the encoded image
+	 */
+	void put(String key, byte[] image)
+	{
+		remember(key, image);
+
+		if (directory != null)
+		{
+			File file = file(key);
+			if (!file.isFile())
+			{
+				try
+				{
+					File parent = file.getParentFile();
+					if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+					{
+						throw new IOException("Could not create " + parent);
+					}
+					// write to a temporary file first, so readers never see a partial image
+					File tmp = File.createTempFile(key, ".tmp", parent);
+					Files.write(tmp.toPath(), image);
+					Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e)
+				{
+					LOGGER.debug("Could not write cached depiction " + file, e);
+				}
+			}
+		}
+	}
+
+	private static void remember(String key, byte[] image)
+	{
+		synchronized (MEMORY)
+		{
+			byte[] previous = MEMORY.put(key, image);
+			if (previous != null)
+			{
+				memoryBytes -= previous.length;
+			}
+			memoryBytes += image.length;
+
+			Iterator<byte[]> eldest = MEMORY.values().iterator();
+			while (memoryBytes > MAX_MEMORY_BYTES && eldest.hasNext())
+			{
+				memoryBytes -= eldest.next().length;
+				eldest.remove();
+			}
+		}
+	}
+
+	private File file(String key)
+	{
+		return new File(new File(directory, key.substring(0, 2)), key);
+	}
+
+	private static void update(MessageDigest digest, long value)
+	{
+		for (int i = 0; i < 8; i++)
+		{
+			digest.update((byte) (value >>> (8 * i)));
+		}
+	}
+
+	private static void update(MessageDigest digest, List<Integer> positions)
+	{
+		if (positions == null)
+		{
+			update(digest, -1L);
+			return;
+		}
+		update(digest, positions.size());
+		for (int position : positions)
+		{
+			update(digest, position);
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.openscience.cdk.knime.nodes.depiction;
 
 import java.util.Arrays;
 
+import javax.swing.JFileChooser;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -12,6 +13,7 @@ import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColorChooser;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
@@ -35,7 +37,7 @@ import org.knime.core.node.defaultnodesettings.SettingsModelString;
 public class DepictionNodeDialog extends DefaultNodeSettingsPane
 {
 
-	DepictionSettings settings = new DepictionSettings();
+	DepictionSettings settings;
 
 	SettingsModelBoolean atomHighlightSetting;
 	SettingsModelColumnName atomHighlights;
@@ -48,6 +50,23 @@ public class DepictionNodeDialog extends DefaultNodeSettingsPane
 	 */
 	protected DepictionNodeDialog()
 	{
+		this(new DepictionSettings());
+
+		///////////////////
+		///// Cache
+		createCacheOptions();
+	}
+
+	/**
+	 * New pane for the image, general and highlighting settings, shared with
+	 * the Grid Depiction node.
+	 * 
+	 * @param settings
+	 */
+	protected DepictionNodeDialog(DepictionSettings settings)
+	{
+		this.settings = settings;
+
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				settings.getSetting(DepictionSettings.CONFIG_STRUCTURE_COLUMN, SettingsModelColumnName.class),
 				"Structure column", 0, DataValue.class));
@@ -56,7 +75,7 @@ public class DepictionNodeDialog extends DefaultNodeSettingsPane
 		setHorizontalPlacement(true);
 		addDialogComponent(new DialogComponentStringSelection(
 				settings.getSetting(DepictionSettings.CONFIG_IMAGE_FORMAT, SettingsModelString.class), "Format",
-				Arrays.asList(new String[] { "PNG", "SVG" })));
+				Arrays.asList(new String[] { "PNG", "SVG", "SVG text" })));
 
 		addDialogComponent(new DialogComponentNumber(
 				settings.getSetting(DepictionSettings.CONFIG_IMAGE_WIDTH, SettingsModelInteger.class), "Width", 10));
@@ -78,6 +97,15 @@ public class DepictionNodeDialog extends DefaultNodeSettingsPane
 
 	}
 
+	private void createCacheOptions()
+	{
+		createNewGroup("Cache");
+		setHorizontalPlacement(false);
+		addDialogComponent(new DialogComponentFileChooser(
+				settings.getSetting(DepictionSettings.CONFIG_CACHE_DIRECTORY, SettingsModelString.class),
+				"cdkDepictionCache", JFileChooser.OPEN_DIALOG, true));
+	}
+
 	private void createGeneralSettingsOptions()
 	{
 		createNewGroup("General");
@@ -2,13 +2,12 @@ package org.openscience.cdk.knime.nodes.depiction;
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.imageio.ImageIO;
-
 import org.knime.base.data.xml.SvgCellFactory;
 import org.knime.core.data.AdapterValue;
 import org.knime.core.data.DataCell;
@@ -22,6 +21,7 @@ import org.knime.core.data.MissingCell;
 import org.knime.core.data.collection.ListDataValue;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.StringCell;
 import org.knime.core.data.image.png.PNGImageCellFactory;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
@@ -30,6 +30,7 @@ import org.openscience.cdk.depict.DepictionGenerator;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.nodes.depiction.util.CdkSimpleStreamableFunctionNodeModel;
+import org.openscience.cdk.knime.type.CDKCell3;
 import org.openscience.cdk.knime.type.CDKValue;
 import org.openscience.cdk.renderer.generators.standard.StandardGenerator;
 
@@ -50,10 +51,15 @@ public class DepictionNodeModel extends CdkSimpleStreamableFunctionNodeModel
 		localSettings = new DepictionSettings();
 	}
 
-	private DepictionGenerator createDepictor()
+	/**
+	 * Creates the depiction generator for the given settings, shared with the
+	 * {@link GridDepictionNodeModel}
+	 * 
+	 * @param setup
+	 * @return
+	 */
+	static DepictionGenerator createDepictor(DepictionSettings setup)
 	{
-		DepictionSettings setup = ((DepictionSettings) localSettings);
-
 		// Image
 
 		int width = setup.getWidth();
@@ -91,14 +97,15 @@ public class DepictionNodeModel extends CdkSimpleStreamableFunctionNodeModel
 	@Override
 	protected AbstractCellFactory createCellFactory(final DataTableSpec spec)
 	{
-		final DepictionGenerator dg = createDepictor();
+		final DepictionGenerator dg = createDepictor((DepictionSettings) localSettings);
 
-		final DataType type = localSettings.getSetting(DepictionSettings.CONFIG_IMAGE_FORMAT, SettingsModelString.class)
-				.getStringValue().equals("PNG") ? PNGImageCellFactory.TYPE : SvgCellFactory.TYPE;
+		final DataType type = getImageType((DepictionSettings) localSettings);
 
 		String colName = localSettings.getSetting(DepictionSettings.CONFIG_STRUCTURE_COLUMN, SettingsModelString.class)
 				.getStringValue();
 
+		final DepictionCache cache = createCache(type);
+
 		DataColumnSpec imageColumnSpec = new DataColumnSpecCreator(
 				DataTableSpec.getUniqueColumnName(spec, colName + " depiction"), type).createSpec();
 
@@ -113,68 +120,41 @@ public class DepictionNodeModel extends CdkSimpleStreamableFunctionNodeModel
 				try
 				{
 					CDKValue mol = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
-					IAtomContainer con = CDKNodeUtils.getFullMolecule(mol.getAtomContainer());
 
-					if (((DepictionSettings) localSettings).getClearHighlight())
-					{
-						for (int i = 0; i < con.getAtomCount(); i++)
-						{
-							con.getAtom(i).removeProperty(StandardGenerator.HIGHLIGHT_COLOR);
-						}
-
-						for (int i = 0; i < con.getBondCount(); i++)
-						{
-							con.getBond(i).removeProperty(StandardGenerator.HIGHLIGHT_COLOR);
-						}
-					}
+					List<Integer> atomPositions = getAtomPositions(spec, row, (DepictionSettings) localSettings);
+					List<Integer> bondPositions = getBondPositions(spec, row, (DepictionSettings) localSettings);
 
-					if (localSettings.getSetting(DepictionSettings.CONFIG_HIGHIGHT_ATOMS, SettingsModelBoolean.class)
-							.getBooleanValue())
+					// only CDK cells carry the hash and coordinates the cache is keyed by
+					String key = null;
+					if (mol instanceof CDKCell3)
 					{
-						int colIndex = spec
-								.findColumnIndex(((DepictionSettings) localSettings).getAtomIndexColumnName());
-						List<Integer> positions = getPositions(spec, row, colIndex);
-
-						for (int position : positions)
+						key = cache.key((CDKCell3) mol, atomPositions, bondPositions);
+						byte[] image = cache.get(key);
+						if (image != null)
 						{
-							try
-							{
-								con.getAtom(position).setProperty(StandardGenerator.HIGHLIGHT_COLOR, ((DepictionSettings) localSettings).getAtomColour());
-							} catch (Exception e)
-							{
-								LOGGER.warn("Error highlighting structure for: " + row.getKey());
-								throw new Exception("Problem with atom highlighting", e);
-							}
+							return createCell(image, type);
 						}
-
 					}
 
-					if (localSettings.getSetting(DepictionSettings.CONFIG_HIGHLIGHT_BONDS, SettingsModelBoolean.class)
-							.getBooleanValue())
-					{
-						int colIndex = spec
-								.findColumnIndex(((DepictionSettings) localSettings).getBondIndexColumnName());
-						List<Integer> positions = getPositions(spec, row, colIndex);
-
-						for (int position : positions)
-						{
-							try
-							{
-								con.getBond(position).setProperty(StandardGenerator.HIGHLIGHT_COLOR, ((DepictionSettings) localSettings).getBondColour());
-							} catch (Exception e)
-							{
-								LOGGER.warn("Error highlighting structure for: " + row.getKey());
-								throw new Exception("Problem with bond highlighting", e);
-							}
-						}
-					}
+					IAtomContainer con = prepareMolecule(row, mol, (DepictionSettings) localSettings, atomPositions,
+							bondPositions);
 
 					if (type.equals(PNGImageCellFactory.TYPE))
 					{
-						cell = createImageCell(dg.depict(con).toImg());
+						byte[] image = getImageAsBytes(dg.depict(con).toImg());
+						cell = PNGImageCellFactory.create(image);
+						if (key != null)
+						{
+							cache.put(key, image);
+						}
 					} else
 					{
-						cell = new SvgCellFactory().createCell(dg.depict(con).toSvgStr());
+						String svg = SvgCompactor.compact(dg.depict(con).toSvgStr(), "");
+						cell = createSvgCell(svg, type);
+						if (key != null)
+						{
+							cache.put(key, svg.getBytes(StandardCharsets.UTF_8));
+						}
 					}
 
 				} catch (Exception e)
@@ -203,64 +183,227 @@ public class DepictionNodeModel extends CdkSimpleStreamableFunctionNodeModel
 
 				return cell;
 			}
+		};
+	}
+
+	/**
+	 * The type of the image cells: PNG, SVG or, for SVG text, plain string
+	 * cells of the markup
+	 * 
+	 * @param setup
+	 * @return
+	 */
+	static DataType getImageType(DepictionSettings setup)
+	{
+		String format = setup.getSetting(DepictionSettings.CONFIG_IMAGE_FORMAT, SettingsModelString.class)
+				.getStringValue();
+		if (format.equals("PNG"))
+		{
+			return PNGImageCellFactory.TYPE;
+		}
+		return format.equals("SVG text") ? StringCell.TYPE : SvgCellFactory.TYPE;
+	}
+
+	/**
+	 * Creates an SVG cell, or a string cell for SVG text which spares parsing
+	 * the markup into a document
+	 * 
+	 * @param svg
+	 * @param type
+	 * @return
+	 * @throws IOException
+	 */
+	static DataCell createSvgCell(String svg, DataType type) throws IOException
+	{
+		if (type.equals(StringCell.TYPE))
+		{
+			return new StringCell(svg);
+		}
+		return new SvgCellFactory().createCell(svg);
+	}
+
+	/**
+	 * Get the atom positions to highlight, null if atoms are not highlighted
+	 * 
+	 * @param spec
+	 * @param row
+	 * @param setup
+	 * @return
+	 */
+	static List<Integer> getAtomPositions(DataTableSpec spec, DataRow row, DepictionSettings setup)
+	{
+		if (!setup.getSetting(DepictionSettings.CONFIG_HIGHIGHT_ATOMS, SettingsModelBoolean.class).getBooleanValue())
+		{
+			return null;
+		}
+		return getPositions(spec, row, spec.findColumnIndex(setup.getAtomIndexColumnName()));
+	}
+
+	/**
+	 * Get the bond positions to highlight, null if bonds are not highlighted
+	 * 
+	 * @param spec
+	 * @param row
+	 * @param setup
+	 * @return
+	 */
+	static List<Integer> getBondPositions(DataTableSpec spec, DataRow row, DepictionSettings setup)
+	{
+		if (!setup.getSetting(DepictionSettings.CONFIG_HIGHLIGHT_BONDS, SettingsModelBoolean.class).getBooleanValue())
+		{
+			return null;
+		}
+		return getPositions(spec, row, spec.findColumnIndex(setup.getBondIndexColumnName()));
+	}
 
-			/**
-			 * Get the highlighting positions, this could be from a normal
-			 * IntValue or a ListCell containing multiple IntValue's to
-			 * highlight
-			 * 
-			 * @param spec
-			 * @param row
-			 * @param colIndex
-			 * @return
-			 */
-			private List<Integer> getPositions(DataTableSpec spec, DataRow row, int colIndex)
+	/**
+	 * Get the highlighting positions, this could be from a normal
+	 * IntValue or a ListCell containing multiple IntValue's to
+	 * highlight
+	 * 
+	 * @param spec
+	 * @param row
+	 * @param colIndex
+	 * @return
+	 */
+	private static List<Integer> getPositions(DataTableSpec spec, DataRow row, int colIndex)
+	{
+		List<Integer> positions = new ArrayList<Integer>();
+		
+		if (row.getCell(colIndex).isMissing())
+		{
+			// Nothing to add
+		}
+		else if (spec.getColumnSpec(colIndex).getType().isCompatible(IntValue.class))
+		{
+			positions.add(((IntValue) row.getCell(colIndex)).getIntValue());
+		} else if (spec.getColumnSpec(colIndex).getType().isCompatible(ListDataValue.class))
+		{
+			ListDataValue cell = (ListDataValue) row.getCell(colIndex);
+
+			for (int i = 0; i < cell.size(); i++)
 			{
-				List<Integer> positions = new ArrayList<Integer>();
-				
-				if (row.getCell(colIndex).isMissing())
-				{
-					// Nothing to add
-				}
-				else if (spec.getColumnSpec(colIndex).getType().isCompatible(IntValue.class))
+				if (!cell.get(i).isMissing())
+					positions.add(((IntValue) cell.get(i)).getIntValue());
+			}
+
+		} else
+		{
+			ListDataValue cell = (ListDataValue) row.getCell(colIndex);
+			for (int i = 0; i < cell.size(); i++)
+			{
+				if (!cell.get(i).isMissing())
+					positions.add(((IntValue) cell.get(i)).getIntValue());
+			}
+
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Get the molecule to depict with existing highlights cleared (if
+	 * selected) and the given atoms and bonds highlighted
+	 * 
+	 * @param row
+	 * @param mol
+	 * @param setup
+	 * @param atomPositions
+	 *            atoms to highlight, may be null
+	 * @param bondPositions
+	 *            bonds to highlight, may be null
+	 * @return
+	 * @throws Exception
+	 */
+	static IAtomContainer prepareMolecule(DataRow row, CDKValue mol, DepictionSettings setup,
+			List<Integer> atomPositions, List<Integer> bondPositions) throws Exception
+	{
+		// CDK cells are already perceived by getAtomContainer
+		IAtomContainer con = mol instanceof CDKCell3 ? mol.getAtomContainer()
+				: CDKNodeUtils.getFullMolecule(mol.getAtomContainer());
+		if (con == null)
+		{
+			throw new Exception("Structure could not be parsed");
+		}
+
+		if (setup.getClearHighlight())
+		{
+			for (int i = 0; i < con.getAtomCount(); i++)
+			{
+				con.getAtom(i).removeProperty(StandardGenerator.HIGHLIGHT_COLOR);
+			}
+
+			for (int i = 0; i < con.getBondCount(); i++)
+			{
+				con.getBond(i).removeProperty(StandardGenerator.HIGHLIGHT_COLOR);
+			}
+		}
+
+		if (atomPositions != null)
+		{
+			for (int position : atomPositions)
+			{
+				try
 				{
-					positions.add(((IntValue) row.getCell(colIndex)).getIntValue());
-				} else if (spec.getColumnSpec(colIndex).getType().isCompatible(ListDataValue.class))
+					con.getAtom(position).setProperty(StandardGenerator.HIGHLIGHT_COLOR, setup.getAtomColour());
+				} catch (Exception e)
 				{
-					ListDataValue cell = (ListDataValue) row.getCell(colIndex);
+					LOGGER.warn("Error highlighting structure for: " + row.getKey());
+					throw new Exception("Problem with atom highlighting", e);
+				}
+			}
 
-					for (int i = 0; i < cell.size(); i++)
-					{
-						if (!cell.get(i).isMissing())
-							positions.add(((IntValue) cell.get(i)).getIntValue());
-					}
+		}
 
-				} else
+		if (bondPositions != null)
+		{
+			for (int position : bondPositions)
+			{
+				try
 				{
-					ListDataValue cell = (ListDataValue) row.getCell(colIndex);
-					for (int i = 0; i < cell.size(); i++)
-					{
-						if (!cell.get(i).isMissing())
-							positions.add(((IntValue) cell.get(i)).getIntValue());
-					}
-
+					con.getBond(position).setProperty(StandardGenerator.HIGHLIGHT_COLOR, setup.getBondColour());
+				} catch (Exception e)
+				{
+					LOGGER.warn("Error highlighting structure for: " + row.getKey());
+					throw new Exception("Problem with bond highlighting", e);
 				}
-
-				return positions;
 			}
-		};
+		}
+
+		return con;
 	}
 
 	/**
-	 * Creates an PNG cell from the given image
+	 * Creates the image cache for the current settings
 	 * 
-	 * @param img
+	 * @param type
+	 *            the image cell type
+	 * @return
+	 */
+	private DepictionCache createCache(DataType type)
+	{
+		DepictionSettings setup = ((DepictionSettings) localSettings);
+		String directory = setup.getCacheDirectory();
+
+		return new DepictionCache(type.getCellClass().getName() + "|" + setup.getFingerprint(),
+				directory.isEmpty() ? null : new File(directory));
+	}
+
+	/**
+	 * Creates an PNG or SVG cell from the given encoded image
+	 * 
+	 * @param image
+	 * @param type
 	 * @return
 	 * @throws IOException
 	 */
-	private DataCell createImageCell(Image img) throws IOException
+	private DataCell createCell(byte[] image, DataType type) throws IOException
 	{
-		return PNGImageCellFactory.create(getImageAsBytes(img));
+		if (type.equals(PNGImageCellFactory.TYPE))
+		{
+			return PNGImageCellFactory.create(image);
+		}
+		return createSvgCell(new String(image, StandardCharsets.UTF_8), type);
 	}
 
 	/**
@@ -273,12 +416,7 @@ public class DepictionNodeModel extends CdkSimpleStreamableFunctionNodeModel
 	 */
 	private byte[] getImageAsBytes(Image image) throws IOException
 	{
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(1000);
-		ImageIO.write((RenderedImage) image, "png", baos);
-		baos.flush();
-		baos.close();
-
-		return baos.toByteArray();
+		return PngEncoder.encode((RenderedImage) image);
 	}
 
 }
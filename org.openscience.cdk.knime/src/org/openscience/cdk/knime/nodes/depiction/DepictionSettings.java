@@ -55,6 +55,9 @@ public class DepictionSettings extends NodeSettingCollection
 	public static String CONFIG_WITH_ATOM_MAP_NUMBERS = "cfgWithAtomMapNumbers";
 	public static String CONFIG_WITH_REACTION_TITLE = "cfgWithReactionTitle";
 	
+	// Cache
+	public static String CONFIG_CACHE_DIRECTORY = "cfgCacheDirectory";
+	
 	public DepictionSettings()
 	{
 		super();
@@ -103,6 +106,10 @@ public class DepictionSettings extends NodeSettingCollection
 		molTitle.setEnabled(false);
 		settingMap.put(CONFIG_WITH_MOL_TITLE, molTitle);
 		settingMap.put(CONFIG_WITH_TERMINAL_CARBONS, new SettingsModelBoolean(CONFIG_WITH_TERMINAL_CARBONS, false));
+		
+		// Cache, added later so older workflows lack it
+		settingMap.put(CONFIG_CACHE_DIRECTORY, new SettingsModelString(CONFIG_CACHE_DIRECTORY, ""));
+		optionalSettings.add(CONFIG_CACHE_DIRECTORY);
 	}
 	
 	protected Color getAtomColour()
@@ -193,4 +200,38 @@ public class DepictionSettings extends NodeSettingCollection
 	}
 
 
+	/**
+	 * The directory of the on-disk image cache, empty if images are only cached in memory
+	 * 
+	 * @return
+	 */
+	public String getCacheDirectory()
+	{
+		return getSetting(CONFIG_CACHE_DIRECTORY, SettingsModelString.class).getStringValue().trim();
+	}
+
+
+	/**
+	 * Fingerprint of all settings that change the rendered image, used to key
+	 * the {@link DepictionCache}
+	 * 
+	 * @return
+	 */
+	public String getFingerprint()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(getWidth()).append('x').append(getHeight());
+		sb.append('|').append(withFillToFit());
+		sb.append('|').append(withOuterGlow()).append(':').append(getOuterGlowWidth());
+		sb.append('|').append(withAtomColours());
+		sb.append('|').append(withAtomNumbers());
+		sb.append('|').append(withCarbonSymbols());
+		sb.append('|').append(withMoleculeTitle());
+		sb.append('|').append(withTerminalCarbons());
+		sb.append('|').append(getClearHighlight());
+		sb.append('|').append(getAtomColour().getRGB());
+		sb.append('|').append(getBondColour().getRGB());
+		return sb.toString();
+	}
+
 }
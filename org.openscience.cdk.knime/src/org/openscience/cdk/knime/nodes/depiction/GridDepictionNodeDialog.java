@@ -0,0 +1,35 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+
+/**
+ * <code>NodeDialog</code> for the "Grid Depiction" Node. Adds the grid layout
+ * to the settings of the {@link DepictionNodeDialog}.
+ * 
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components.
+ * 
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class GridDepictionNodeDialog extends DepictionNodeDialog
+{
+
+	/**
+	 * New pane for configuring the Grid Depiction node.
+	 */
+	protected GridDepictionNodeDialog()
+	{
+		super(new GridDepictionSettings());
+
+		createNewGroup("Grid");
+		setHorizontalPlacement(true);
+		addDialogComponent(new DialogComponentNumber(
+				settings.getSetting(GridDepictionSettings.CONFIG_GRID_COLUMNS, SettingsModelIntegerBounded.class),
+				"Columns", 1));
+		addDialogComponent(new DialogComponentNumber(
+				settings.getSetting(GridDepictionSettings.CONFIG_GRID_ROWS, SettingsModelIntegerBounded.class),
+				"Rows per sheet", 1));
+	}
+}
@@ -0,0 +1,57 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "Grid Depiction" Node.
+ * Depict CDK structures onto grid image sheets
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class GridDepictionNodeFactory 
+        extends NodeFactory<GridDepictionNodeModel> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GridDepictionNodeModel createNodeModel() {
+        return new GridDepictionNodeModel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNrNodeViews() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeView<GridDepictionNodeModel> createNodeView(final int viewIndex,
+            final GridDepictionNodeModel nodeModel) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasDialog() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeDialogPane createNodeDialogPane() {
+        return new GridDepictionNodeDialog();
+    }
+
+}
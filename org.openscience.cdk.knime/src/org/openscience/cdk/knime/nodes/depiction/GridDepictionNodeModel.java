@@ -0,0 +1,260 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.image.png.PNGImageCellFactory;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.openscience.cdk.knime.commons.CDKNodeUtils;
+import org.openscience.cdk.knime.core.CDKAdapterNodeModel;
+
+/**
+ * This is the model implementation of Grid Depiction. Depicts CDK structures
+ * onto grid image sheets, with the row IDs and offsets of the molecules on
+ * each sheet.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class GridDepictionNodeModel extends CDKAdapterNodeModel
+{
+
+	/** Maximum width or height of a PNG sheet in pixels. */
+	private static final int MAX_SHEET_SIDE = 32767;
+	/** Maximum number of pixels of a PNG sheet, the sheet is held as an ARGB image of four bytes per pixel. */
+	private static final long MAX_SHEET_PIXELS = 25000000L;
+
+	/**
+	 * Creates a new model having one input and one output node.
+	 */
+	public GridDepictionNodeModel()
+	{
+		super(1, 1, new GridDepictionSettings());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException
+	{
+		autoConfigure(inSpecs);
+		if (columnIndex < 0)
+		{
+			throw new InvalidSettingsException("Structure column not found: " + settings.targetColumn());
+		}
+		checkStructureColumn(inSpecs[0].getColumnSpec(columnIndex));
+		checkSheetSize(settings(GridDepictionSettings.class));
+		return new DataTableSpec[] { createSpec() };
+	}
+
+	private DataTableSpec createSpec()
+	{
+		DataType type = DepictionNodeModel.getImageType(settings(GridDepictionSettings.class));
+
+		DataColumnSpec[] specs = new DataColumnSpec[6];
+		specs[0] = new DataColumnSpecCreator("Sheet", type).createSpec();
+		specs[1] = new DataColumnSpecCreator("Row IDs", ListCell.getCollectionType(StringCell.TYPE)).createSpec();
+		specs[2] = new DataColumnSpecCreator("X", ListCell.getCollectionType(IntCell.TYPE)).createSpec();
+		specs[3] = new DataColumnSpecCreator("Y", ListCell.getCollectionType(IntCell.TYPE)).createSpec();
+		specs[4] = new DataColumnSpecCreator("Cell width", IntCell.TYPE).createSpec();
+		specs[5] = new DataColumnSpecCreator("Cell height", IntCell.TYPE).createSpec();
+		return new DataTableSpec(specs);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException
+	{
+		GridDepictionSettings s = new GridDepictionSettings();
+		s.loadSettings(settings);
+		if (s.getWidth() < 1 || s.getHeight() < 1)
+		{
+			throw new InvalidSettingsException("The cell width and height must be positive");
+		}
+		checkSheetSize(s);
+	}
+
+	/**
+	 * Rejects a selected structure column that holds no CDK compatible type.
+	 */
+	private static void checkStructureColumn(final DataColumnSpec spec) throws InvalidSettingsException
+	{
+		DataType type = spec.getType();
+		if (type.isAdaptableToAny(CDKNodeUtils.ACCEPTED_VALUE_CLASSES))
+		{
+			return;
+		}
+		for (Class<? extends DataValue> cl : CDKNodeUtils.ACCEPTED_VALUE_CLASSES)
+		{
+			if (type.isCompatible(cl))
+			{
+				return;
+			}
+		}
+		throw new InvalidSettingsException("Structure column \"" + spec.getName() + "\" holds no molecules");
+	}
+
+	/**
+	 * Rejects PNG sheets that cannot be allocated as a single image.
+	 */
+	private static void checkSheetSize(final GridDepictionSettings s) throws InvalidSettingsException
+	{
+		if (!DepictionNodeModel.getImageType(s).equals(PNGImageCellFactory.TYPE))
+		{
+			return;
+		}
+		long sheetWidth = (long) s.getGridColumns() * s.getWidth();
+		long sheetHeight = (long) s.getGridRows() * s.getHeight();
+		if (sheetWidth > MAX_SHEET_SIDE || sheetHeight > MAX_SHEET_SIDE)
+		{
+			throw new InvalidSettingsException("The PNG sheet of " + sheetWidth + " x " + sheetHeight
+					+ " pixels is too large, width and height are limited to " + MAX_SHEET_SIDE
+					+ " pixels. Reduce the columns, rows per sheet or cell size.");
+		}
+		if (sheetWidth * sheetHeight > MAX_SHEET_PIXELS)
+		{
+			throw new InvalidSettingsException("The PNG sheet of " + sheetWidth + " x " + sheetHeight
+					+ " pixels is too large, it is limited to " + MAX_SHEET_PIXELS
+					+ " pixels. Reduce the columns, rows per sheet or cell size.");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] process(BufferedDataTable[] convertedTables, ExecutionContext exec)
+			throws Exception
+	{
+		BufferedDataContainer outputTable = exec.createDataContainer(createSpec());
+		BufferedDataTableRowOutput out = new BufferedDataTableRowOutput(outputTable);
+
+		GridDepictionWorker worker = new GridDepictionWorker(maxQueueSize, maxParallelWorkers, columnIndex,
+				convertedTables[0].getDataTableSpec(), exec.createSubProgress(1), convertedTables[0].size(), out,
+				settings(GridDepictionSettings.class));
+
+		try
+		{
+			worker.run(convertedTables[0]);
+			worker.finish();
+		} catch (InterruptedException e)
+		{
+			CanceledExecutionException cee = new CanceledExecutionException(e.getMessage());
+			cee.initCause(e);
+			throw cee;
+		} catch (ExecutionException e)
+		{
+			throw unwrap(e);
+		} finally
+		{
+			out.close();
+		}
+
+		warnSkipped(worker);
+		return new BufferedDataTable[] { out.getDataTable() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles()
+	{
+		return new InputPortRole[] { InputPortRole.NONDISTRIBUTED_STREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles()
+	{
+		return new OutputPortRole[] { OutputPortRole.NONDISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException
+	{
+		return new StreamableOperator()
+		{
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception
+			{
+				int workers = (int) Math.ceil(1.5 * Runtime.getRuntime().availableProcessors());
+				RowInput in = (RowInput) inputs[0];
+				RowOutput out = (RowOutput) outputs[0];
+
+				GridDepictionWorker worker = new GridDepictionWorker(10 * workers, workers, columnIndex,
+						in.getDataTableSpec(), exec, -1, out, settings(GridDepictionSettings.class));
+				try
+				{
+					worker.run(rows(in, createConverter(in.getDataTableSpec())));
+					if (Thread.interrupted())
+					{
+						throw new InterruptedException();
+					}
+					worker.finish();
+				} catch (ExecutionException e)
+				{
+					throw unwrap(e);
+				}
+
+				warnSkipped(worker);
+				in.close();
+				out.close();
+			}
+		};
+	}
+
+	private void warnSkipped(final GridDepictionWorker worker)
+	{
+		if (worker.getSkipped() > 0)
+		{
+			setWarningMessage(worker.getSkipped() + " missing or failed structures were not depicted");
+		}
+	}
+
+	private static RuntimeException unwrap(final ExecutionException e)
+	{
+		Throwable cause = e.getCause();
+		if (cause == null)
+		{
+			cause = e;
+		}
+		if (cause instanceof RuntimeException)
+		{
+			return (RuntimeException) cause;
+		}
+		return new RuntimeException(cause);
+	}
+}
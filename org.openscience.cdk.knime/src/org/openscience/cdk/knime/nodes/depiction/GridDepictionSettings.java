@@ -0,0 +1,53 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+
+/**
+ * Node specific settings for {@link GridDepictionNodeModel}
+ * <br></br>
+ * Extends the {@link DepictionSettings} by the grid layout of a sheet, the
+ * image width and height are the size of a single grid cell.
+ * 
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class GridDepictionSettings extends DepictionSettings
+{
+
+	// Grid
+	public static String CONFIG_GRID_COLUMNS = "cfgGridColumns";
+	public static String CONFIG_GRID_ROWS = "cfgGridRows";
+
+	public GridDepictionSettings()
+	{
+		super();
+	}
+
+	@Override
+	protected void addSettings()
+	{
+		super.addSettings();
+
+		settingMap.put(CONFIG_GRID_COLUMNS, new SettingsModelIntegerBounded(CONFIG_GRID_COLUMNS, 5, 1, 1000));
+		settingMap.put(CONFIG_GRID_ROWS, new SettingsModelIntegerBounded(CONFIG_GRID_ROWS, 20, 1, 1000));
+	}
+
+	/**
+	 * The number of molecules per sheet row
+	 * 
+	 * @return
+	 */
+	public int getGridColumns()
+	{
+		return getSetting(CONFIG_GRID_COLUMNS, SettingsModelIntegerBounded.class).getIntValue();
+	}
+
+	/**
+	 * The maximum number of rows per sheet
+	 * 
+	 * @return
+	 */
+	public int getGridRows()
+	{
+		return getSetting(CONFIG_GRID_ROWS, SettingsModelIntegerBounded.class).getIntValue();
+	}
+}
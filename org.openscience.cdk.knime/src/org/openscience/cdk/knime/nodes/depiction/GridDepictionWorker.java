@@ -0,0 +1,205 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.AdapterValue;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.image.png.PNGImageCellFactory;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.util.MultiThreadWorker;
+import org.openscience.cdk.depict.Depiction;
+import org.openscience.cdk.depict.DepictionGenerator;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.knime.type.CDKValue;
+import org.openscience.cdk.renderer.elements.MarkedElement;
+
+/**
+ * Multi threaded worker implementation for the Grid Depiction Node. Molecules
+ * are depicted in parallel and placed on the sheet in input order, a sheet is
+ * pushed to the output as soon as it is full.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public class GridDepictionWorker extends MultiThreadWorker<DataRow, GridSheet.Cell>
+{
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(GridDepictionWorker.class);
+
+	private final ExecutionMonitor exec;
+	private final int columnIndex;
+	private final DataTableSpec spec;
+	private final double max;
+	private final RowOutput out;
+	private final GridDepictionSettings settings;
+	private final DepictionGenerator dg;
+	private final boolean png;
+	private final GridSheet sheet;
+
+	private long sheetCount = 0;
+	private long skipped = 0;
+
+	/**
+	 * Constructs a new worker.
+	 *
+	 * @param maxQueueSize
+	 *            the maximum number of queued rows
+	 * @param maxActiveInstanceSize
+	 *            the maximum number of rows processed in parallel
+	 * @param columnIndex
+	 *            the index of the molecule column
+	 * @param spec
+	 *            the spec of the converted input, used to find the highlight
+	 *            columns
+	 * @param exec
+	 *            the execution monitor
+	 * @param max
+	 *            the number of input rows or -1 if unknown
+	 * @param out
+	 *            the row output
+	 * @param settings
+	 *            the node settings
+	 */
+	public GridDepictionWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
+			final DataTableSpec spec, final ExecutionMonitor exec, final long max, final RowOutput out,
+			final GridDepictionSettings settings)
+	{
+		super(maxQueueSize, maxActiveInstanceSize);
+		this.exec = exec;
+		this.columnIndex = columnIndex;
+		this.spec = spec;
+		this.max = max;
+		this.out = out;
+		this.settings = settings;
+		this.dg = DepictionNodeModel.createDepictor(settings);
+		DataType type = DepictionNodeModel.getImageType(settings);
+		this.png = type.equals(PNGImageCellFactory.TYPE);
+		this.sheet = new GridSheet(settings.getGridColumns(), settings.getGridRows(), settings.getWidth(),
+				settings.getHeight(), type);
+	}
+
+	@Override
+	protected GridSheet.Cell compute(DataRow row, long index) throws Exception
+	{
+		if (row.getCell(columnIndex).isMissing()
+				|| (((AdapterValue) row.getCell(columnIndex)).getAdapterError(CDKValue.class) != null))
+		{
+			return new GridSheet.Cell(row.getKey(), null, null);
+		}
+
+		try
+		{
+			CDKValue mol = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
+			List<Integer> atomPositions = DepictionNodeModel.getAtomPositions(spec, row, settings);
+			List<Integer> bondPositions = DepictionNodeModel.getBondPositions(spec, row, settings);
+			IAtomContainer con = DepictionNodeModel.prepareMolecule(row, mol, settings, atomPositions,
+					bondPositions);
+
+			// element IDs must be unique within a SVG sheet
+			String id = "mol" + (index + 1);
+			con.setProperty(MarkedElement.ID_KEY, id);
+
+			Depiction depiction = dg.depict(con);
+			return png ? new GridSheet.Cell(row.getKey(), depiction.toImg(), null)
+					: new GridSheet.Cell(row.getKey(), null, SvgCompactor.compact(depiction.toSvgStr(), id + "-"));
+		} catch (Exception ex)
+		{
+			if (ex.getMessage() == null)
+			{
+				LOGGER.error(row.getKey() + " : " + ex.getClass().getName(), ex);
+			} else
+			{
+				LOGGER.error(row.getKey() + " : " + ex.getMessage(), ex);
+			}
+			return new GridSheet.Cell(row.getKey(), null, null);
+		}
+	}
+
+	@Override
+	protected void processFinished(ComputationTask task) throws ExecutionException, CancellationException,
+			InterruptedException
+	{
+		GridSheet.Cell cell = task.get();
+		if (cell.isEmpty())
+		{
+			skipped++;
+		} else
+		{
+			sheet.add(cell);
+			if (sheet.isFull())
+			{
+				try
+				{
+					pushSheet();
+				} catch (IOException e)
+				{
+					throw new ExecutionException(e);
+				}
+			}
+		}
+
+		if (max > 0)
+		{
+			exec.setProgress(this.getFinishedCount() / max, this.getFinishedCount() + " (active/submitted: "
+					+ this.getActiveCount() + "/" + (this.getSubmittedCount() - this.getFinishedCount()) + ")");
+		} else
+		{
+			exec.setMessage(this.getFinishedCount() + " (active/submitted: " + this.getActiveCount() + "/"
+					+ (this.getSubmittedCount() - this.getFinishedCount()) + ")");
+		}
+
+		try
+		{
+			exec.checkCanceled();
+		} catch (CanceledExecutionException cee)
+		{
+			throw new CancellationException();
+		}
+	}
+
+	/**
+	 * Pushes the last, partially filled sheet and releases the sheet image.
+	 * Call after {@link #run(Iterable)} returned.
+	 *
+	 * @throws IOException
+	 *             if the sheet could not be encoded
+	 * @throws InterruptedException
+	 *             if interrupted while pushing the sheet
+	 */
+	public void finish() throws IOException, InterruptedException
+	{
+		try
+		{
+			if (!sheet.isEmpty())
+			{
+				pushSheet();
+			}
+		} finally
+		{
+			sheet.dispose();
+		}
+	}
+
+	/**
+	 * The number of molecules that were missing or could not be depicted.
+	 *
+	 * @return the number of skipped molecules
+	 */
+	public long getSkipped()
+	{
+		return skipped;
+	}
+
+	private void pushSheet() throws IOException, InterruptedException
+	{
+		out.push(sheet.toRow(new RowKey("Sheet" + sheetCount++)));
+	}
+}
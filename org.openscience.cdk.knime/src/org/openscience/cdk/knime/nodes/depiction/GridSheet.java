@@ -0,0 +1,204 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.image.png.PNGImageCellFactory;
+
+/**
+ * A sheet of depictions laid out on a regular grid, filled row by row.
+ * <br></br>
+ * Every molecule is depicted into a cell of the configured image width and
+ * height, so the offset of each molecule on the sheet is exact: column times
+ * width and row times height. A finished sheet is encoded once, as a single
+ * PNG or SVG image, and the sheet is cleared for reuse.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class GridSheet
+{
+
+	private static final Pattern VIEW_BOX = Pattern.compile("viewBox='([^']*)'");
+
+	private final int columns;
+	private final int rows;
+	private final int width;
+	private final int height;
+	private final DataType type;
+	private final boolean png;
+
+	private final List<DataCell> keys = new ArrayList<DataCell>();
+	private final List<DataCell> xs = new ArrayList<DataCell>();
+	private final List<DataCell> ys = new ArrayList<DataCell>();
+
+	private BufferedImage image;
+	private Graphics2D graphics;
+	private final StringBuilder svg = new StringBuilder();
+
+	/**
+	 * Creates an empty sheet.
+	 *
+	 * @param columns
+	 *            molecules per sheet row
+	 * @param rows
+	 *            maximum number of sheet rows
+	 * @param width
+	 *            width of a cell
+	 * @param height
+	 *            height of a cell
+	 * @param type
+	 *            the type of the sheet cells, PNG, SVG or string for SVG text
+	 */
+	GridSheet(int columns, int rows, int width, int height, DataType type)
+	{
+		this.columns = columns;
+		this.rows = rows;
+		this.width = width;
+		this.height = height;
+		this.type = type;
+		this.png = type.equals(PNGImageCellFactory.TYPE);
+	}
+
+	boolean isEmpty()
+	{
+		return keys.isEmpty();
+	}
+
+	boolean isFull()
+	{
+		return keys.size() >= columns * rows;
+	}
+
+	/**
+	 * Adds a depiction into the next free cell.
+	 *
+	 * @param cell
+	 *            the depiction
+	 */
+	void add(Cell cell)
+	{
+		int x = (keys.size() % columns) * width;
+		int y = (keys.size() / columns) * height;
+
+		if (png)
+		{
+			if (image == null)
+			{
+				image = new BufferedImage(columns * width, rows * height, BufferedImage.TYPE_INT_ARGB);
+				graphics = image.createGraphics();
+				graphics.setBackground(new Color(0, 0, 0, 0));
+			}
+			graphics.drawImage(cell.image, x, y, null);
+		} else
+		{
+			// nest the depiction as a positioned SVG element
+			String depiction = cell.svg;
+			int start = depiction.indexOf('>', depiction.indexOf("<svg")) + 1;
+			int end = depiction.lastIndexOf("</svg>");
+			Matcher viewBox = VIEW_BOX.matcher(depiction);
+			svg.append("<svg x='").append(x).append("' y='").append(y).append("' width='").append(width)
+					.append("' height='").append(height).append("' viewBox='")
+					.append(viewBox.find() ? viewBox.group(1) : "0 0 " + width + " " + height).append("'>");
+			svg.append(depiction, start, end);
+			svg.append("</svg>\n");
+		}
+
+		keys.add(new StringCell(cell.key.getString()));
+		xs.add(new IntCell(x));
+		ys.add(new IntCell(y));
+	}
+
+	/**
+	 * Encodes the sheet into an output row and clears the sheet. The sheet is
+	 * cropped to the rows in use.
+	 *
+	 * @param key
+	 *            the row key of the sheet
+	 * @return the row of sheet image, row IDs, offsets and cell size
+	 * @throws IOException
+	 *             if the sheet could not be encoded
+	 */
+	DataRow toRow(RowKey key) throws IOException
+	{
+		int sheetWidth = columns * width;
+		int sheetHeight = ((keys.size() + columns - 1) / columns) * height;
+
+		DataCell sheet;
+		if (png)
+		{
+			sheet = PNGImageCellFactory.create(PngEncoder.encode(image.getSubimage(0, 0, sheetWidth, sheetHeight)));
+			graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+		} else
+		{
+			StringBuilder document = new StringBuilder(svg.length() + 512);
+			document.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+			document.append("<svg version='1.2' xmlns='http://www.w3.org/2000/svg'");
+			document.append(" xmlns:xlink='http://www.w3.org/1999/xlink'");
+			document.append(" width='").append(sheetWidth).append("mm' height='").append(sheetHeight).append("mm'");
+			document.append(" viewBox='0 0 ").append(sheetWidth).append(' ').append(sheetHeight).append("'>\n");
+			document.append(svg);
+			document.append("</svg>\n");
+			sheet = DepictionNodeModel.createSvgCell(document.toString(), type);
+			svg.setLength(0);
+		}
+
+		DataRow row = new DefaultRow(key, sheet, CollectionCellFactory.createListCell(keys),
+				CollectionCellFactory.createListCell(xs), CollectionCellFactory.createListCell(ys),
+				new IntCell(width), new IntCell(height));
+		keys.clear();
+		xs.clear();
+		ys.clear();
+		return row;
+	}
+
+	/**
+	 * Releases the sheet image.
+	 */
+	void dispose()
+	{
+		if (graphics != null)
+		{
+			graphics.dispose();
+			graphics = null;
+			image = null;
+		}
+	}
+
+	/**
+	 * A depiction of one molecule, either a raster image or an SVG document.
+	 * Both are null if the molecule could not be depicted.
+	 */
+	static final class Cell
+	{
+
+		final RowKey key;
+		final BufferedImage image;
+		final String svg;
+
+		Cell(RowKey key, BufferedImage image, String svg)
+		{
+			this.key = key;
+			this.image = image;
+			this.svg = svg;
+		}
+
+		boolean isEmpty()
+		{
+			return image == null && svg == null;
+		}
+	}
+}
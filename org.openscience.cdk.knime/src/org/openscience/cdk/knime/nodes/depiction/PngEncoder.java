@@ -0,0 +1,98 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * PNG encoder for depictions.
+ * <p>
+ * {@link ImageIO#write(RenderedImage, String, java.io.OutputStream)} looks up
+ * the PNG writer on every call and, by default, buffers the output in a
+ * temporary file. This encoder keeps one writer and one growing output buffer
+ * per thread, writes through an in-memory stream and uses a fast compression
+ * level, depictions are mostly flat colour and compress well regardless.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class PngEncoder
+{
+
+	/** Initial buffer size, large enough for typical depictions. */
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	/**
+	 * Compression quality of the PNG writer, 1 is the fastest and 0 the best
+	 * compression. Ignored by writers without compression control.
+	 */
+	private static final float COMPRESSION_QUALITY = 0.75f;
+
+	private static final ThreadLocal<PngEncoder> ENCODERS = new ThreadLocal<PngEncoder>()
+	{
+
+		@Override
+		protected PngEncoder initialValue()
+		{
+			return new PngEncoder();
+		}
+	};
+
+	private final ImageWriter writer;
+	private final ImageWriteParam param;
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+
+	private PngEncoder()
+	{
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		if (!writers.hasNext())
+		{
+			throw new IllegalStateException("No PNG image writer available");
+		}
+		writer = writers.next();
+		param = writer.getDefaultWriteParam();
+		if (param.canWriteCompressed())
+		{
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(COMPRESSION_QUALITY);
+		}
+	}
+
+	/**
+	 * Encodes the image as PNG with the encoder of the calling thread.
+	 *
+	 * @param image
+	 *            the image
+	 * @return the PNG bytes
+	 * @throws IOException
+	 *             if the image could not be encoded
+	 */
+	static byte[] encode(RenderedImage image) throws IOException
+	{
+		return ENCODERS.get().write(image);
+	}
+
+	private byte[] write(RenderedImage image) throws IOException
+	{
+		// reset keeps the capacity of the largest image written so far
+		buffer.reset();
+		ImageOutputStream out = new MemoryCacheImageOutputStream(buffer);
+		try
+		{
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally
+		{
+			writer.setOutput(null);
+			out.close();
+		}
+		return buffer.toByteArray();
+	}
+}
@@ -0,0 +1,304 @@
+package org.openscience.cdk.knime.nodes.depiction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compacts the SVG written by the CDK depiction generator in a single pass
+ * over the markup, without building a DOM.
+ * <br></br>
+ * The doctype, description and indentation are dropped and absolute
+ * coordinates are rounded to one decimal. Atom symbols are drawn as glyph
+ * outlines, usually twice (outer glow and symbol) and once per atom of the
+ * same element, so every outline occurring more than once is written a
+ * single time into shared defs and referenced by a translated use element.
+ * Path data is relative after the first point and is kept as it is, rounding
+ * relative coordinates would accumulate along the outline.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class SvgCompactor
+{
+
+	/** Attributes with absolute coordinates or lengths. */
+	private static final Set<String> COORDINATES = new HashSet<String>(Arrays.asList("x", "y", "x1", "y1", "x2",
+			"y2", "cx", "cy", "r", "rx", "ry", "width", "height"));
+
+	private SvgCompactor()
+	{
+		// utility class
+	}
+
+	/**
+	 * Compacts a CDK SVG document.
+	 *
+	 * @param svg
+	 *            the SVG document
+	 * @param idPrefix
+	 *            prefix of the IDs of the shared outlines, must make them
+	 *            unique if several documents are nested into one
+	 * @return the compacted SVG document
+	 */
+	static String compact(String svg, String idPrefix)
+	{
+		List<String> tags = new ArrayList<String>();
+		Map<String, String> outlines = new LinkedHashMap<String, String>();
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+		// collect the tags and count the outlines
+		int i = 0;
+		while (i < svg.length())
+		{
+			int start = svg.indexOf('<', i);
+			if (start < 0)
+			{
+				break;
+			}
+			if (start > i && !svg.substring(i, start).trim().isEmpty())
+			{
+				tags.add(svg.substring(i, start));
+			}
+			int end = svg.indexOf('>', start) + 1;
+			if (end == 0)
+			{
+				throw new IllegalArgumentException("Unterminated SVG tag");
+			}
+			i = end;
+
+			if (svg.startsWith("<!", start))
+			{
+				continue;
+			}
+			if (svg.startsWith("<desc", start))
+			{
+				int close = svg.indexOf("</desc>", end);
+				i = close < 0 ? end : close + 7;
+				continue;
+			}
+
+			String tag = svg.substring(start, end);
+			tags.add(tag);
+			String shape = outline(tag);
+			if (shape != null)
+			{
+				Integer count = counts.get(shape);
+				counts.put(shape, count == null ? 1 : count + 1);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(svg.length());
+		StringBuilder defs = new StringBuilder();
+		for (Map.Entry<String, Integer> entry : counts.entrySet())
+		{
+			if (entry.getValue() > 1)
+			{
+				String id = idPrefix + "s" + (outlines.size() + 1);
+				outlines.put(entry.getKey(), id);
+				defs.append("<path id='").append(id).append("' d='M0 0").append(entry.getKey()).append("'/>");
+			}
+		}
+
+		boolean root = true;
+		for (String tag : tags)
+		{
+			if (tag.charAt(0) != '<')
+			{
+				sb.append(tag);
+				continue;
+			}
+			if (tag.startsWith("<svg") && root)
+			{
+				appendRounded(sb, tag);
+				if (defs.length() > 0)
+				{
+					sb.append("<defs>").append(defs).append("</defs>");
+				}
+				root = false;
+				continue;
+			}
+			String shape = outline(tag);
+			String id = shape == null ? null : outlines.get(shape);
+			if (id != null)
+			{
+				appendUse(sb, tag, id);
+			} else if (tag.startsWith("<path") || tag.startsWith("<?"))
+			{
+				sb.append(tag);
+			} else
+			{
+				appendRounded(sb, tag);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The outline of a path, its data translated to start at the origin, or
+	 * null if the path cannot be shared.
+	 */
+	private static String outline(String tag)
+	{
+		if (!tag.startsWith("<path"))
+		{
+			return null;
+		}
+		String d = attribute(tag, "d");
+		if (d == null || !d.startsWith("M"))
+		{
+			return null;
+		}
+
+		int[] end = new int[1];
+		long x0 = hundredths(d, 1, ' ', end);
+		long y0 = hundredths(d, end[0] + 1, '\0', end);
+
+		// later moves are absolute, shift them by the start point
+		StringBuilder shape = new StringBuilder(d.length());
+		int i = end[0];
+		while (i < d.length())
+		{
+			char c = d.charAt(i);
+			if (c == 'M')
+			{
+				long x = hundredths(d, i + 1, ' ', end);
+				long y = hundredths(d, end[0] + 1, '\0', end);
+				shape.append('M');
+				appendHundredths(shape, x - x0);
+				shape.append(' ');
+				appendHundredths(shape, y - y0);
+				i = end[0];
+			} else if (Character.isUpperCase(c) && c != 'Z')
+			{
+				return null;
+			} else
+			{
+				shape.append(c);
+				i++;
+			}
+		}
+		return shape.toString();
+	}
+
+	/**
+	 * Writes a path as a use element of the shared outline at the start point
+	 * of the path, the other attributes of the path are kept.
+	 */
+	private static void appendUse(StringBuilder sb, String tag, String id)
+	{
+		String d = attribute(tag, "d");
+		int[] end = new int[1];
+		long x = hundredths(d, 1, ' ', end);
+		long y = hundredths(d, end[0] + 1, '\0', end);
+
+		int start = tag.indexOf(" d='");
+		int stop = tag.indexOf('\'', start + 4) + 1;
+
+		sb.append("<use").append(tag, 5, start).append(" xlink:href='#").append(id).append("' x='");
+		appendRounded(sb, x / 100d);
+		sb.append("' y='");
+		appendRounded(sb, y / 100d);
+		sb.append('\'').append(tag, stop, tag.length());
+	}
+
+	/**
+	 * Copies a tag with the coordinate attributes rounded to one decimal.
+	 */
+	private static void appendRounded(StringBuilder sb, String tag)
+	{
+		int i = 0;
+		int eq;
+		while ((eq = tag.indexOf("='", i)) >= 0)
+		{
+			int close = tag.indexOf('\'', eq + 2);
+			int name = tag.lastIndexOf(' ', eq) + 1;
+			sb.append(tag, i, eq + 2);
+			String value = tag.substring(eq + 2, close);
+			if (COORDINATES.contains(tag.substring(name, eq)) && isNumber(value))
+			{
+				appendRounded(sb, Double.parseDouble(value));
+			} else
+			{
+				sb.append(value);
+			}
+			i = close;
+		}
+		sb.append(tag, i, tag.length());
+	}
+
+	private static void appendRounded(StringBuilder sb, double value)
+	{
+		long tenths = Math.round(value * 10);
+		if (tenths < 0)
+		{
+			sb.append('-');
+			tenths = -tenths;
+		}
+		sb.append(tenths / 10);
+		if (tenths % 10 != 0)
+		{
+			sb.append('.').append(tenths % 10);
+		}
+	}
+
+	private static void appendHundredths(StringBuilder sb, long hundredths)
+	{
+		if (hundredths < 0)
+		{
+			sb.append('-');
+			hundredths = -hundredths;
+		}
+		sb.append(hundredths / 100);
+		if (hundredths % 100 != 0)
+		{
+			sb.append('.').append(hundredths % 100 < 10 ? "0" : "").append(hundredths % 100);
+		}
+	}
+
+	/**
+	 * Parses a number of the path data from the given index up to the
+	 * separator or the next command letter. The end index is stored in end[0].
+	 */
+	private static long hundredths(String d, int from, char separator, int[] end)
+	{
+		int i = from;
+		while (i < d.length() && d.charAt(i) != separator && !Character.isLetter(d.charAt(i)))
+		{
+			i++;
+		}
+		end[0] = i;
+		return Math.round(Double.parseDouble(d.substring(from, i)) * 100);
+	}
+
+	private static String attribute(String tag, String name)
+	{
+		int start = tag.indexOf(" " + name + "='");
+		if (start < 0)
+		{
+			return null;
+		}
+		start += name.length() + 3;
+		return tag.substring(start, tag.indexOf('\'', start));
+	}
+
+	private static boolean isNumber(String value)
+	{
+		if (value.isEmpty())
+		{
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (!(c >= '0' && c <= '9') && c != '.' && c != '-')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
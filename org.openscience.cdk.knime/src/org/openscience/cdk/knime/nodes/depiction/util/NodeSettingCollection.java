@@ -3,8 +3,10 @@ package org.openscience.cdk.knime.nodes.depiction.util;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
@@ -34,12 +36,19 @@ public abstract class NodeSettingCollection implements CDKSettings
 
 	protected Map<String, SettingsModel> settingMap;
 
+	/**
+	 * Keys of settings that may be missing, e.g. settings added after a node
+	 * was released. Missing optional settings keep their defaults.
+	 */
+	protected Set<String> optionalSettings;
+
 	protected abstract void addSettings();
 
 	public NodeSettingCollection()
 	{
 		super();
 		settingMap = new HashMap<String, SettingsModel>();
+		optionalSettings = new HashSet<String>();
 		addSettings();
 	}
 
@@ -64,6 +73,18 @@ public abstract class NodeSettingCollection implements CDKSettings
 		m_molColumn = columnName;
 	}
 
+	/**
+	 * Returns the column selected in the structure column model. The empty
+	 * default selection is returned as null, so the column is auto-configured.
+	 * 
+	 * @return a column name or null
+	 */
+	private String selectedColumn()
+	{
+		String name = getSetting(CONFIG_STRUCTURE_COLUMN, SettingsModelColumnName.class).getColumnName();
+		return name == null || name.isEmpty() ? null : name;
+	}
+
 	/**
 	 * Loads the settings from the given node settings object.
 	 * 
@@ -75,18 +96,21 @@ public abstract class NodeSettingCollection implements CDKSettings
 	public void loadSettings(final NodeSettingsRO settings) throws InvalidSettingsException
 	{
 
-		for (SettingsModel setting : settingMap.values())
+		for (Map.Entry<String, SettingsModel> setting : settingMap.entrySet())
 		{
 			try
 			{
-				setting.loadSettingsFrom(settings);
+				setting.getValue().loadSettingsFrom(settings);
 			} catch (Exception e)
 			{
-				throw new InvalidSettingsException(e);
+				if (!optionalSettings.contains(setting.getKey()))
+				{
+					throw new InvalidSettingsException(e);
+				}
 			}
 		}
 
-		targetColumn(((SettingsModelColumnName) getSetting(CONFIG_STRUCTURE_COLUMN, null)).getColumnName());
+		targetColumn(selectedColumn());
 	}
 
 	/**
@@ -120,7 +144,7 @@ public abstract class NodeSettingCollection implements CDKSettings
 			e.printStackTrace();
 		}
 
-		targetColumn(((SettingsModelColumnName) getSetting(CONFIG_STRUCTURE_COLUMN, null)).getColumnName());
+		targetColumn(selectedColumn());
 	}
 
 	/**
@@ -149,41 +173,47 @@ public abstract class NodeSettingCollection implements CDKSettings
 
 	public void validateSettings(NodeSettingsRO settings)
 	{
-		for (SettingsModel s : settingMap.values())
+		for (Map.Entry<String, SettingsModel> s : settingMap.entrySet())
 		{
 
 			try
 			{
-				s.validateSettings(settings);
+				s.getValue().validateSettings(settings);
 			} catch (InvalidSettingsException e)
 			{
-				e.printStackTrace();
+				if (!optionalSettings.contains(s.getKey()))
+				{
+					e.printStackTrace();
+				}
 			}
 
 		}
 
-		targetColumn(getSetting(CONFIG_STRUCTURE_COLUMN, SettingsModelColumnName.class).getColumnName());
+		targetColumn(selectedColumn());
 	}
 
 	public void loadValidatedSettingsFrom(NodeSettingsRO settings)
 	{
-		for (SettingsModel s : settingMap.values())
+		for (Map.Entry<String, SettingsModel> s : settingMap.entrySet())
 		{
 			try
 			{
-				s.loadSettingsFrom(settings);
+				s.getValue().loadSettingsFrom(settings);
 			} catch (InvalidSettingsException e)
 			{
-				e.printStackTrace();
+				if (!optionalSettings.contains(s.getKey()))
+				{
+					e.printStackTrace();
+				}
 			}
 		}
 
-		targetColumn(getSetting(CONFIG_STRUCTURE_COLUMN, SettingsModelColumnName.class).getColumnName());
+		targetColumn(selectedColumn());
 	}
 
 	public void saveSettingsTo(NodeSettingsWO settings)
 	{
-		targetColumn(getSetting(CONFIG_STRUCTURE_COLUMN, SettingsModelColumnName.class).getColumnName());
+		targetColumn(selectedColumn());
 
 		for (SettingsModel model : settingMap.values())
 		{
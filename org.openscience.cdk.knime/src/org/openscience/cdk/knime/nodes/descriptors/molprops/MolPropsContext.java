@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2003 - 2016 University of Konstanz, Germany and KNIME GmbH, Konstanz, Germany Website:
+ * http://www.knime.org; Email: contact@knime.org
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.descriptors.molprops;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.graph.PathTools;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Per-molecule perception results shared by all descriptors calculated for one row. Every value is computed lazily on
+ * first request and reused afterwards.
+ * <p>
+ * The adjacency and distance matrices cover the hydrogen-depleted graph, i.e. they are indexed by the position of an
+ * atom in {@link #getHeavyAtoms()}.
+ * <p>
+ * Instances are not thread-safe and are meant to live for the duration of a single row.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class MolPropsContext {
+
+	private final IAtomContainer molecule;
+
+	private IMolecularFormula formula;
+	private List<IAtom> heavyAtoms;
+	private IRingSet ringSet;
+	private int[][] adjacencyMatrix;
+	private int[][] distanceMatrix;
+
+	/**
+	 * Constructs a new context for the molecule.
+	 *
+	 * @param molecule the CDK molecule with explicit hydrogens
+	 */
+	public MolPropsContext(final IAtomContainer molecule) {
+		this.molecule = molecule;
+	}
+
+	/**
+	 * Returns the molecule of this context.
+	 *
+	 * @return the CDK molecule
+	 */
+	public IAtomContainer getMolecule() {
+		return molecule;
+	}
+
+	/**
+	 * Returns the molecular formula.
+	 *
+	 * @return the molecular formula
+	 */
+	public IMolecularFormula getFormula() {
+
+		if (formula == null) {
+			formula = MolecularFormulaManipulator.getMolecularFormula(molecule);
+		}
+		return formula;
+	}
+
+	/**
+	 * Returns all non-hydrogen atoms in container order.
+	 *
+	 * @return the heavy atoms
+	 */
+	public List<IAtom> getHeavyAtoms() {
+
+		if (heavyAtoms == null) {
+			heavyAtoms = new ArrayList<IAtom>(molecule.getAtomCount());
+			for (IAtom atom : molecule.atoms()) {
+				if (!"H".equals(atom.getSymbol())) {
+					heavyAtoms.add(atom);
+				}
+			}
+		}
+		return heavyAtoms;
+	}
+
+	/**
+	 * Returns the smallest set of smallest rings.
+	 *
+	 * @return the SSSR
+	 */
+	@SuppressWarnings("deprecation")
+	public IRingSet getRingSet() {
+
+		if (ringSet == null) {
+			ringSet = new SSSRFinder(molecule).findSSSR();
+		}
+		return ringSet;
+	}
+
+	/**
+	 * Returns the adjacency matrix of the hydrogen-depleted graph.
+	 *
+	 * @return the adjacency matrix
+	 */
+	public int[][] getAdjacencyMatrix() {
+
+		if (adjacencyMatrix == null) {
+			List<IAtom> atoms = getHeavyAtoms();
+			Map<IAtom, Integer> index = new IdentityHashMap<IAtom, Integer>(atoms.size());
+			for (int i = 0; i < atoms.size(); i++) {
+				index.put(atoms.get(i), i);
+			}
+			adjacencyMatrix = new int[atoms.size()][atoms.size()];
+			for (IBond bond : molecule.bonds()) {
+				Integer u = index.get(bond.getAtom(0));
+				Integer v = index.get(bond.getAtom(1));
+				if (u != null && v != null) {
+					adjacencyMatrix[u][v] = 1;
+					adjacencyMatrix[v][u] = 1;
+				}
+			}
+		}
+		return adjacencyMatrix;
+	}
+
+	/**
+	 * Returns the topological distance matrix of the hydrogen-depleted graph.
+	 *
+	 * @return the distance matrix
+	 */
+	public int[][] getDistanceMatrix() {
+
+		if (distanceMatrix == null) {
+			distanceMatrix = PathTools.computeFloydAPSP(getAdjacencyMatrix());
+		}
+		return distanceMatrix;
+	}
+}
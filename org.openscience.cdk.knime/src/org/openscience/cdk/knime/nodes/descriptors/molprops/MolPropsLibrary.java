@@ -21,11 +21,14 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -46,6 +49,9 @@ import org.openscience.cdk.qsar.DescriptorEngine;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IDescriptor;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.SmartRotatableBondsCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.SmartRuleOfFiveDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.SmartXLogPDescriptor;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.DoubleResult;
@@ -69,10 +75,57 @@ public final class MolPropsLibrary {
 	/** The package name where all CDK molecular descriptor classes reside. */
 	public static final String CDK_DESCRIPTOR_PACKAGE = "org.openscience.cdk.qsar.descriptors.molecular";
 
+	private static final String ECCENTRIC_DESCRIPTOR = CDK_DESCRIPTOR_PACKAGE + ".EccentricConnectivityIndexDescriptor";
+	private static final String PETITJEAN_DESCRIPTOR = CDK_DESCRIPTOR_PACKAGE + ".PetitjeanNumberDescriptor";
+
 	/**
-	 * Hashes the class name of the IMolecularDescriptor to the actual object that performs the calculation.
+	 * Hashes the class name of the IMolecularDescriptor to its implementing class and resolved result type. Instances
+	 * performing the calculation are created per thread from this metadata.
 	 */
-	private static final LinkedHashMap<String, IMolecularDescriptor> DESCRIPTOR_HASH = new LinkedHashMap<String, IMolecularDescriptor>();
+	private static final LinkedHashMap<String, DescriptorType> DESCRIPTOR_HASH = new LinkedHashMap<String, DescriptorType>();
+
+	/**
+	 * Per-thread descriptor instances hashed by class name. Avoids any locking on shared descriptor objects.
+	 */
+	private static final ThreadLocal<Map<String, DescriptorInstance>> THREAD_DESCRIPTORS = new ThreadLocal<Map<String, DescriptorInstance>>() {
+
+		@Override
+		protected Map<String, DescriptorInstance> initialValue() {
+			return new HashMap<String, DescriptorInstance>();
+		}
+	};
+
+	/** The kind of result a descriptor delivers and its column type, resolved once when the library is loaded. */
+	private enum ResultKind {
+		INTEGER(IntCell.TYPE), DOUBLE(DoubleCell.TYPE), DOUBLE_ARRAY(ListCell.getCollectionType(DoubleCell.TYPE)),
+		INTEGER_ARRAY(ListCell.getCollectionType(IntCell.TYPE));
+
+		private final DataType type;
+
+		private ResultKind(final DataType type) {
+			this.type = type;
+		}
+
+		/**
+		 * Resolves the kind of the given descriptor result type.
+		 * 
+		 * @param resultClass the result type of a descriptor
+		 * @return the result kind or <code>null</code> if the result type is not supported
+		 */
+		private static ResultKind of(final IDescriptorResult resultClass) {
+
+			if (resultClass instanceof IntegerResult || resultClass instanceof IntegerResultType) {
+				return INTEGER;
+			} else if (resultClass instanceof DoubleResult || resultClass instanceof DoubleResultType) {
+				return DOUBLE;
+			} else if (resultClass instanceof DoubleArrayResultType) {
+				return DOUBLE_ARRAY;
+			} else if (resultClass instanceof IntegerArrayResultType) {
+				return INTEGER_ARRAY;
+			}
+			return null;
+		}
+	}
 
 	/**
 	 * Hashes the class name of the IMolecularDescriptor to a column spec oject suitable to be put into a DataTableSpec.
@@ -143,24 +196,14 @@ public final class MolPropsLibrary {
 					LOGGER.debug("Unknown descriptor type for: " + className);
 					continue;
 				}
-				DataColumnSpec colSpec;
-				if (resultClass instanceof IntegerResult || resultClass instanceof IntegerResultType) {
-					colSpec = new DataColumnSpecCreator(humanReadable, IntCell.TYPE).createSpec();
-				} else if (resultClass instanceof DoubleResult || resultClass instanceof DoubleResultType) {
-					colSpec = new DataColumnSpecCreator(humanReadable, DoubleCell.TYPE).createSpec();
-				} else if (resultClass instanceof DoubleArrayResultType) {
-					colSpec = new DataColumnSpecCreator(humanReadable, ListCell.getCollectionType(DoubleCell.TYPE))
-							.createSpec();
-				} else if (resultClass instanceof IntegerArrayResultType) {
-					colSpec = new DataColumnSpecCreator(humanReadable, ListCell.getCollectionType(IntCell.TYPE))
-							.createSpec();
-				} else {
+				ResultKind kind = ResultKind.of(resultClass);
+				if (kind == null) {
 					LOGGER.debug("Descriptor result (\"" + resultClass + "\") unkown, " + "skipping descriptor "
 							+ humanReadable);
 					continue;
 				}
-				DESCRIPTOR_COLSPEC_HASH.put(className, colSpec);
-				DESCRIPTOR_HASH.put(className, descriptor);
+				DESCRIPTOR_COLSPEC_HASH.put(className, new DataColumnSpecCreator(humanReadable, kind.type).createSpec());
+				DESCRIPTOR_HASH.put(className, new DescriptorType(descriptor.getClass(), kind));
 			} catch (Throwable e) {
 				LOGGER.debug("(" + e.getClass().getSimpleName() + ") Failed to load descriptor " + className, e);
 			}
@@ -215,6 +258,19 @@ public final class MolPropsLibrary {
 	 * @return a <code>DataCell</code> with the property or a missing cell if something goes wrong
 	 */
 	public static DataCell getProperty(final String rowKey, final IAtomContainer mol, final String descriptorClassName, Object[] params) {
+		return getProperty(rowKey, new MolPropsContext(mol), descriptorClassName, params);
+	}
+
+	/**
+	 * Get property for molecule, reusing the perception results of the descriptor context.
+	 * 
+	 * @param rowKey Name of row - used error message.
+	 * @param context The context of the input molecule
+	 * @param descriptorClassName class name of the descriptor
+	 * @return a <code>DataCell</code> with the property or a missing cell if something goes wrong
+	 */
+	public static DataCell getProperty(final String rowKey, final MolPropsContext context,
+			final String descriptorClassName, Object[] params) {
 
 		if (descriptorClassName == null) {
 			throw new NullPointerException("Description must not be null.");
@@ -223,23 +279,11 @@ public final class MolPropsLibrary {
 			LOGGER.warn("No such CDK descriptor: \"" + descriptorClassName + "\", assigning missing cell.");
 			return DataType.getMissingCell();
 		}
-		IMolecularDescriptor engine = DESCRIPTOR_HASH.get(descriptorClassName);
-		boolean isInt = engine.getDescriptorResultType() instanceof IntegerResult;
-		boolean isIntType = engine.getDescriptorResultType() instanceof IntegerResultType;
-		boolean isDouble = engine.getDescriptorResultType() instanceof DoubleResult;
-		boolean isDoubleType = engine.getDescriptorResultType() instanceof DoubleResultType;
-		boolean isDoubleArray = engine.getDescriptorResultType() instanceof DoubleArrayResult;
-		boolean isDoubleArrayType = engine.getDescriptorResultType() instanceof DoubleArrayResultType;
+		DescriptorType type = DESCRIPTOR_HASH.get(descriptorClassName);
+		IAtomContainer mol = context.getMolecule();
 		try {
-			DescriptorValue val;
-			synchronized (engine) {
-				if (params.length > 0) {
-					engine.setParameters(params);
-				}
-				val = engine.calculate(mol);
-			}
-			IDescriptorResult d = val.getValue();
-			if (isInt || isIntType) {
+			IDescriptorResult d = calculate(context, descriptorClassName, type, params);
+			if (type.kind == ResultKind.INTEGER) {
 				int i;
 				if (d instanceof IntegerResult) {
 					i = ((IntegerResult) d).intValue();
@@ -254,7 +298,7 @@ public final class MolPropsLibrary {
 					LOGGER.debug("Unable to handle descriptor result \"" + d.getClass().getSimpleName()
 							+ "\", returning missing cell");
 				}
-			} else if (isDouble || isDoubleType) {
+			} else if (type.kind == ResultKind.DOUBLE) {
 				double i;
 				if (d instanceof IntegerResult) {
 					i = ((IntegerResult) d).intValue();
@@ -266,7 +310,7 @@ public final class MolPropsLibrary {
 					LOGGER.debug("Unable to handle descriptor result \"" + d.getClass().getSimpleName()
 							+ "\", returning missing cell");
 				}
-			} else if (isDoubleArray || isDoubleArrayType) {
+			} else if (type.kind == ResultKind.DOUBLE_ARRAY) {
 				DoubleArrayResult dr = (DoubleArrayResult) d;
 				Collection<DoubleCell> resultCol = new ArrayList<DoubleCell>();
 				for (int i = 0; i < dr.length(); i++) {
@@ -286,6 +330,185 @@ public final class MolPropsLibrary {
 		return DataType.getMissingCell();
 	}
 
+	/**
+	 * Get a numeric property for molecule without creating an intermediate cell. Only applicable to descriptors for
+	 * which {@link #isScalar(String)} returns <code>true</code>.
+	 * 
+	 * @param rowKey Name of row - used error message.
+	 * @param context The context of the input molecule
+	 * @param descriptorClassName class name of the descriptor
+	 * @return the property value or {@link Double#NaN} if something goes wrong
+	 */
+	public static double getDoubleProperty(final String rowKey, final MolPropsContext context,
+			final String descriptorClassName, Object[] params) {
+
+		DescriptorType type = DESCRIPTOR_HASH.get(descriptorClassName);
+		if (type == null) {
+			LOGGER.warn("No such CDK descriptor: \"" + descriptorClassName + "\", assigning NaN.");
+			return Double.NaN;
+		}
+		try {
+			IDescriptorResult d = calculate(context, descriptorClassName, type, params);
+			if (d instanceof IntegerResult) {
+				return ((IntegerResult) d).intValue();
+			} else if (d instanceof DoubleResult) {
+				double dbl = ((DoubleResult) d).doubleValue();
+				return type.kind == ResultKind.INTEGER ? Math.round(dbl) : dbl;
+			} else {
+				LOGGER.debug("Unable to handle descriptor result \"" + d.getClass().getSimpleName()
+						+ "\", returning NaN");
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Exception (" + e.getClass().getSimpleName() + ") while computing descriptor \""
+					+ descriptorClassName + "\" for molecule in row \"" + rowKey + "\": " + e.getMessage(), e);
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Checks whether a descriptor delivers a single integer or double value.
+	 * 
+	 * @param descriptorClassName class name of the descriptor
+	 * @return if the descriptor result is scalar
+	 */
+	public static boolean isScalar(final String descriptorClassName) {
+
+		DescriptorType type = DESCRIPTOR_HASH.get(descriptorClassName);
+		return type != null && (type.kind == ResultKind.INTEGER || type.kind == ResultKind.DOUBLE);
+	}
+
+	/**
+	 * Calculates the raw descriptor result with the thread-local descriptor instance.
+	 */
+	private static IDescriptorResult calculate(final MolPropsContext context, final String descriptorClassName,
+			final DescriptorType type, final Object[] params) throws Exception {
+
+		if (descriptorClassName.equals(ECCENTRIC_DESCRIPTOR)) {
+			return new IntegerResult(getEccentricConnectivityIndex(context));
+		} else if (descriptorClassName.equals(PETITJEAN_DESCRIPTOR)) {
+			return new DoubleResult(getPetitjeanNumber(context));
+		}
+		IAtomContainer mol = context.getMolecule();
+		IMolecularDescriptor engine = getThreadInstance(descriptorClassName, type, params);
+		DescriptorValue val;
+		if (engine instanceof SmartXLogPDescriptor) {
+			val = ((SmartXLogPDescriptor) engine).calculate(mol, context.getRingSet());
+		} else if (engine instanceof SmartRotatableBondsCountDescriptor) {
+			val = ((SmartRotatableBondsCountDescriptor) engine).calculate(mol, context.getRingSet());
+		} else if (engine instanceof SmartRuleOfFiveDescriptor) {
+			val = ((SmartRuleOfFiveDescriptor) engine).calculate(mol, context.getRingSet());
+		} else {
+			val = engine.calculate(mol);
+		}
+		return val.getValue();
+	}
+
+	/**
+	 * Calculates the eccentric connectivity index from the shared distance matrix of the hydrogen-depleted graph.
+	 * Equivalent to the CDK EccentricConnectivityIndexDescriptor.
+	 * 
+	 * @param context the descriptor context
+	 * @return the eccentric connectivity index
+	 */
+	private static int getEccentricConnectivityIndex(final MolPropsContext context) {
+
+		int[][] admat = context.getAdjacencyMatrix();
+		int[][] distmat = context.getDistanceMatrix();
+		int eccenindex = 0;
+		for (int i = 0; i < distmat.length; i++) {
+			int max = -1;
+			int degree = 0;
+			for (int j = 0; j < distmat.length; j++) {
+				if (distmat[i][j] > max) {
+					max = distmat[i][j];
+				}
+				degree += admat[i][j];
+			}
+			eccenindex += max * degree;
+		}
+		return eccenindex;
+	}
+
+	/**
+	 * Calculates the Petitjean number from the shared distance matrix of the hydrogen-depleted graph. Equivalent to
+	 * the CDK PetitjeanNumberDescriptor.
+	 * 
+	 * @param context the descriptor context
+	 * @return the Petitjean number
+	 */
+	private static double getPetitjeanNumber(final MolPropsContext context) {
+
+		int[][] distmat = context.getDistanceMatrix();
+		int diameter = 0;
+		int radius = Integer.MAX_VALUE;
+		for (int i = 0; i < distmat.length; i++) {
+			int eccentricity = 0;
+			for (int j = 0; j < distmat.length; j++) {
+				if (distmat[i][j] > eccentricity) {
+					eccentricity = distmat[i][j];
+				}
+			}
+			diameter = Math.max(diameter, eccentricity);
+			radius = Math.min(radius, eccentricity);
+		}
+		return diameter == 0 ? 0 : (diameter - radius) / (double) diameter;
+	}
+
+	/**
+	 * Gets the descriptor instance owned by the calling thread, creating it on first use. Parameters are applied when
+	 * the instance is created and only re-applied if they differ from the previous call.
+	 * 
+	 * @param descriptorClassName class name of the descriptor
+	 * @param type the resolved descriptor type
+	 * @param params the descriptor parameters
+	 * @return the thread-local descriptor
+	 * @throws Exception if the descriptor cannot be instantiated or does not accept the parameters
+	 */
+	private static IMolecularDescriptor getThreadInstance(final String descriptorClassName,
+			final DescriptorType type, final Object[] params) throws Exception {
+
+		Map<String, DescriptorInstance> instances = THREAD_DESCRIPTORS.get();
+		DescriptorInstance instance = instances.get(descriptorClassName);
+		if (instance == null) {
+			IMolecularDescriptor descriptor = type.clazz.newInstance();
+			descriptor.initialise(SilentChemObjectBuilder.getInstance());
+			instance = new DescriptorInstance(descriptor);
+			instances.put(descriptorClassName, instance);
+		}
+		if (params.length > 0 && !Arrays.equals(params, instance.params)) {
+			instance.descriptor.setParameters(params);
+			instance.params = params.clone();
+		}
+		return instance.descriptor;
+	}
+
+	/**
+	 * Descriptor class and result type resolved once per descriptor.
+	 */
+	private static final class DescriptorType {
+
+		private final Class<? extends IMolecularDescriptor> clazz;
+		private final ResultKind kind;
+
+		private DescriptorType(final Class<? extends IMolecularDescriptor> clazz, final ResultKind kind) {
+			this.clazz = clazz;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * Thread-confined descriptor together with the parameters last applied to it.
+	 */
+	private static final class DescriptorInstance {
+
+		private final IMolecularDescriptor descriptor;
+		private Object[] params;
+
+		private DescriptorInstance(final IMolecularDescriptor descriptor) {
+			this.descriptor = descriptor;
+		}
+	}
+
 	private MolPropsLibrary() {
 		// nothing to do
 	}
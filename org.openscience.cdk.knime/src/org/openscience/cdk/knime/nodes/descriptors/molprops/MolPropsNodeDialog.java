@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.swing.JCheckBox;
 import javax.swing.JPanel;
 
 import org.knime.core.data.DataColumnSpec;
@@ -45,6 +46,7 @@ public class MolPropsNodeDialog extends NodeDialogPane {
 
 	private final ColumnSelectionPanel m_selPanel;
 	private final NameFilterPanel<String> m_filterPanel;
+	private final JCheckBox m_packedBox;
 
 	/**
 	 * Inits GUI.
@@ -54,9 +56,11 @@ public class MolPropsNodeDialog extends NodeDialogPane {
 
 		m_selPanel = new ColumnSelectionPanel(CDKNodeUtils.ACCEPTED_VALUE_CLASSES);
 		m_filterPanel = new StringFilterPanel(false);
+		m_packedBox = new JCheckBox("Pack numeric properties into a single double vector column");
 		JPanel panel = new JPanel(new BorderLayout(5, 5));
 		panel.add(m_selPanel, BorderLayout.NORTH);
 		panel.add(m_filterPanel, BorderLayout.CENTER);
+		panel.add(m_packedBox, BorderLayout.SOUTH);
 		addTab("Properties and target column", panel);
 	}
 
@@ -79,6 +83,7 @@ public class MolPropsNodeDialog extends NodeDialogPane {
 			if (!incl.contains(dcs.getName())) excl.add(dcs.getName());
 		}
 		m_filterPanel.update(incl, excl, all.toArray(new String[0]));
+		m_packedBox.setSelected(settings.getBoolean(MolPropsNodeModel.CFGKEY_PACKED, false));
 	}
 
 	/**
@@ -91,5 +96,6 @@ public class MolPropsNodeDialog extends NodeDialogPane {
 		settings.addString(MolPropsNodeModel.CFGKEY_SMILES, smilesCell);
 		String[] selProps = m_filterPanel.getIncludedNamesAsSet().toArray(new String[0]);
 		settings.addStringArray(MolPropsNodeModel.CFGKEY_PROPS, selProps);
+		settings.addBoolean(MolPropsNodeModel.CFGKEY_PACKED, m_packedBox.isSelected());
 	}
 }
@@ -39,11 +39,13 @@ import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.data.vector.doublevector.DoubleVectorCellFactory;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
@@ -54,7 +56,6 @@ import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomType;
-import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.core.CDKNodeModel;
 import org.openscience.cdk.knime.type.CDKTypeConverter;
@@ -83,10 +84,18 @@ public class MolPropsNodeModel extends CDKNodeModel {
 	/** NodeSettings key to store smiles column header. */
 	protected static final String CFGKEY_SMILES = "smilesIndex";
 
+	/** NodeSettings key to store whether numeric properties are packed into a single vector column. */
+	protected static final String CFGKEY_PACKED = "packedVector";
+
+	/** Name of the packed double vector column. */
+	private static final String PACKED_COLUMN_NAME = "Molecular Properties";
+
 	private final ArrayList<String> m_propDescriptions;
 
 	private String m_cdkColumn;
 
+	private boolean m_packed;
+
 	static {
 		// available properties for this node
 		LinkedHashSet<String> descResultSet = new LinkedHashSet<String>();
@@ -149,6 +158,7 @@ public class MolPropsNodeModel extends CDKNodeModel {
 		settings.addString(CFGKEY_SMILES, m_cdkColumn);
 		String[] props = m_propDescriptions.toArray(new String[0]);
 		settings.addStringArray(CFGKEY_PROPS, props);
+		settings.addBoolean(CFGKEY_PACKED, m_packed);
 	}
 
 	/**
@@ -171,10 +181,16 @@ public class MolPropsNodeModel extends CDKNodeModel {
 		String[] props = settings.getStringArray(CFGKEY_PROPS);
 		m_propDescriptions.clear();
 		m_propDescriptions.addAll(Arrays.asList(props));
+		// backwards compatible: one column per property
+		m_packed = settings.getBoolean(CFGKEY_PACKED, false);
 	}
 
 	private String[] propsClassNames;
 	private DataColumnSpec[] propsSpec;
+	// output position of each property: cell column or element of the packed vector, -1 if not applicable
+	private int[] cellIndex;
+	private int[] vectorIndex;
+	private int packedCount;
 
 	/**
 	 * {@inheritDoc}
@@ -210,22 +226,31 @@ public class MolPropsNodeModel extends CDKNodeModel {
 					LOGGER.debug("Unable to parse molecule in row \"" + row.getKey() + "\"", exception);
 				}
 
+				// perception results shared across all selected descriptors
+				MolPropsContext context = new MolPropsContext(mol);
+				String rowKey = row.getKey().toString();
+				double[] vector = m_packed ? new double[packedCount] : null;
+
 				for (int i = 0; i < propsClassNames.length; i++) {
 					String prop = propsClassNames[i];
+					if (vectorIndex[i] >= 0 && isDescriptor(prop)) {
+						vector[vectorIndex[i]] = MolPropsLibrary.getDoubleProperty(rowKey, context, prop,
+								getParameters(prop, context));
+						continue;
+					}
+					DataCell cell;
 					if (prop.equals("molecularformula")) {
-						IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(mol);
-						newCells[i] = new StringCell(MolecularFormulaManipulator.getString(formula));
+						cell = new StringCell(MolecularFormulaManipulator.getString(context.getFormula()));
 					} else if (prop.equals("formalcharge")) {
-						newCells[i] = new IntCell(AtomContainerManipulator.getTotalFormalCharge(mol));
+						cell = new IntCell(AtomContainerManipulator.getTotalFormalCharge(mol));
 					} else if (prop.equals("formalchargepos")) {
-						newCells[i] = new IntCell(AtomContainerManipulator.getTotalPositiveFormalCharge(mol));
+						cell = new IntCell(AtomContainerManipulator.getTotalPositiveFormalCharge(mol));
 					} else if (prop.equals("formalchargeneg")) {
-						newCells[i] = new IntCell(AtomContainerManipulator.getTotalNegativeFormalCharge(mol));
+						cell = new IntCell(AtomContainerManipulator.getTotalNegativeFormalCharge(mol));
 					} else if (prop.equals("heavyatoms")) {
-						newCells[i] = new IntCell(AtomContainerManipulator.getHeavyAtoms(mol).size());
+						cell = new IntCell(context.getHeavyAtoms().size());
 					} else if (prop.equals("molarmass")) {
-						IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(mol);
-						newCells[i] = new DoubleCell(MolecularFormulaManipulator.getNaturalExactMass(formula));
+						cell = new DoubleCell(MolecularFormulaManipulator.getNaturalExactMass(context.getFormula()));
 					} else if (prop.equals("nrotbonds")) {
 						SmartRotatableBondsCountDescriptor rot = new SmartRotatableBondsCountDescriptor();
 						try {
@@ -233,34 +258,47 @@ public class MolPropsNodeModel extends CDKNodeModel {
 						} catch (CDKException e) {
 							// fall through
 						}
-						newCells[i] = new IntCell(Integer.parseInt(rot.calculate(mol).getValue().toString()));
+						cell = new IntCell(Integer.parseInt(rot.calculate(mol, context.getRingSet()).getValue()
+								.toString()));
 					} else if (prop.equals("spthreechar")) {
 						double character = getSp3Character(mol);
-						newCells[i] = character == -1 ? DataType.getMissingCell() : new DoubleCell(character);
+						cell = character == -1 ? DataType.getMissingCell() : new DoubleCell(character);
 					} else {
-						Object[] params = new Object[0];
-						if (prop.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.SmartXLogPDescriptor")) {
-							params = new Object[] { new Boolean(false) };
-						} else if (prop
-								.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.AcidicGroupCountDescriptor")) {
-							params = new Object[] { new Boolean(false) };
-						} else if (prop
-								.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.BCUTDescriptor")) {
-							int heavyAtomCount = AtomContainerManipulator.getHeavyAtoms(mol).size();
-							params = new Object[] { heavyAtomCount, 0, new Boolean(false) };
-						} else if (prop
-								.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.HBondDonorCountDescriptor")) {
-							params = new Object[] { new Boolean(false) };
-						} else if (prop
-								.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.LargestChainDescriptor")) {
-							params = new Object[] { new Boolean(false), new Boolean(true) };
-						}
-						newCells[i] = MolPropsLibrary.getProperty(row.getKey().toString(), mol, prop, params);
+						cell = MolPropsLibrary.getProperty(rowKey, context, prop, getParameters(prop, context));
+					}
+					if (vectorIndex[i] >= 0) {
+						vector[vectorIndex[i]] = cell.isMissing() ? Double.NaN : ((DoubleValue) cell).getDoubleValue();
+					} else {
+						newCells[cellIndex[i]] = cell;
 					}
 				}
+				if (vector != null) {
+					newCells[newCells.length - 1] = DoubleVectorCellFactory.createCell(vector);
+				}
 				return newCells;
 			}
 
+			private Object[] getParameters(String prop, MolPropsContext context) {
+
+				Object[] params = new Object[0];
+				if (prop.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.SmartXLogPDescriptor")) {
+					params = new Object[] { new Boolean(false) };
+				} else if (prop
+						.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.AcidicGroupCountDescriptor")) {
+					params = new Object[] { new Boolean(false) };
+				} else if (prop.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.BCUTDescriptor")) {
+					int heavyAtomCount = context.getHeavyAtoms().size();
+					params = new Object[] { heavyAtomCount, 0, new Boolean(false) };
+				} else if (prop
+						.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.HBondDonorCountDescriptor")) {
+					params = new Object[] { new Boolean(false) };
+				} else if (prop
+						.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.LargestChainDescriptor")) {
+					params = new Object[] { new Boolean(false), new Boolean(true) };
+				}
+				return params;
+			}
+
 			private double getSp3Character(IAtomContainer mol) {
 
 				double sp3 = 0;
@@ -313,19 +351,52 @@ public class MolPropsNodeModel extends CDKNodeModel {
 		assert index == propsClassNames.length;
 		// MolPropsGenerator needs the column specs of the new columns, we need
 		// to generate that
-		propsSpec = new DataColumnSpec[propsClassNames.length];
+		cellIndex = new int[propsClassNames.length];
+		vectorIndex = new int[propsClassNames.length];
+		List<DataColumnSpec> cellSpecs = new ArrayList<DataColumnSpec>();
+		List<String> elementNames = new ArrayList<String>();
 		for (int i = 0; i < propsClassNames.length; i++) {
 			String s = propsClassNames[i];
 			DataColumnSpec colSpec = MolPropsLibrary.getColumnSpec(s);
+			if (m_packed && isScalar(s)) {
+				cellIndex[i] = -1;
+				vectorIndex[i] = elementNames.size();
+				elementNames.add(colSpec.getName());
+				continue;
+			}
 			String name = DataTableSpec.getUniqueColumnName(spec, colSpec.getName());
 			DataColumnSpecCreator c = new DataColumnSpecCreator(colSpec);
 			c.setName(name);
 			colSpec = c.createSpec();
-			propsSpec[i] = colSpec;
+			cellIndex[i] = cellSpecs.size();
+			vectorIndex[i] = -1;
+			cellSpecs.add(colSpec);
+		}
+		packedCount = elementNames.size();
+		if (m_packed) {
+			String name = DataTableSpec.getUniqueColumnName(spec, PACKED_COLUMN_NAME);
+			DataColumnSpecCreator c = new DataColumnSpecCreator(name, DoubleVectorCellFactory.TYPE);
+			c.setElementNames(elementNames.toArray(new String[elementNames.size()]));
+			cellSpecs.add(c.createSpec());
 		}
+		propsSpec = cellSpecs.toArray(new DataColumnSpec[cellSpecs.size()]);
 		return propsSpec;
 	}
 
+	/**
+	 * Checks whether the property is calculated by a CDK descriptor of the property library.
+	 */
+	private static boolean isDescriptor(final String prop) {
+		return prop.startsWith(MolPropsLibrary.CDK_DESCRIPTOR_PACKAGE);
+	}
+
+	/**
+	 * Checks whether the property delivers a single numeric value and can be packed into the vector column.
+	 */
+	private static boolean isScalar(final String prop) {
+		return isDescriptor(prop) ? MolPropsLibrary.isScalar(prop) : !prop.equals("molecularformula");
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -51,8 +51,11 @@ public class SinglePropertyNodeModel extends CDKNodeModel {
 	/** Config key for cdk column. */
 	static final String CFG_CDK_COL = "cdkColumn";
 
+	private static final String XLOGP_DESCRIPTOR = "org.openscience.cdk.qsar.descriptors.molecular.SmartXLogPDescriptor";
+
 	private final SettingsModelString m_cdkColSelModel;
 	private final String m_descriptorClassName;
+	private final Object[] m_params;
 
 	/**
 	 * Inits super with one input, one output.
@@ -64,6 +67,8 @@ public class SinglePropertyNodeModel extends CDKNodeModel {
 		super(1, 1, null);
 		m_cdkColSelModel = createColSelectorSettingsModel();
 		m_descriptorClassName = descriptorClassName;
+		m_params = descriptorClassName.equalsIgnoreCase(XLOGP_DESCRIPTOR) ? new Object[] { Boolean.FALSE }
+				: new Object[0];
 	}
 
 	private DataColumnSpec[] generateOutputColSpec(final DataTableSpec spec) throws InvalidSettingsException {
@@ -107,12 +112,9 @@ public class SinglePropertyNodeModel extends CDKNodeModel {
 					LOGGER.debug("Unable to parse molecule in row \"" + row.getKey() + "\"", exception);
 				}
 
-				Object[] params = new Object[0];
-				if (m_descriptorClassName
-						.equalsIgnoreCase("org.openscience.cdk.qsar.descriptors.molecular.SmartXLogPDescriptor")) {
-					params = new Object[] { new Boolean(false) };
-				}
-				newCells[0] = MolPropsLibrary.getProperty(row.getKey().toString(), mol, m_descriptorClassName, params);
+				// the ring perception of the context is shared by xlogP and the rule of five sub-descriptors
+				newCells[0] = MolPropsLibrary.getProperty(row.getKey().toString(), new MolPropsContext(mol),
+						m_descriptorClassName, m_params);
 				return newCells;
 			}
 		};
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.descriptors.whim3d;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.geometry.GeometryUtil;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+
+/**
+ * Batched calculation of the WHIM descriptors for several weighting schemes.
+ * <p>
+ * The coordinates are read and centred once per molecule. Each weighting scheme then only needs its weighted
+ * covariance matrix, a 3x3 eigen decomposition and the projection of the atoms onto the principal axes. All
+ * intermediate values live in primitive arrays that are reused between molecules. The arithmetic follows the CDK
+ * {@code WHIMDescriptor} operation by operation, so the results are identical.
+ * <p>
+ * Instances are not thread-safe; use one engine per thread.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class Whim3dEngine {
+
+	/** Number of values calculated per weighting scheme. */
+	public static final int VALUE_COUNT = 17;
+
+	// atomic weights relative to carbon: mass, van der Waals volume, electronegativity, polarizability
+	private static final Map<String, double[]> WEIGHTS = new HashMap<String, double[]>();
+
+	static {
+		WEIGHTS.put("H", new double[] { 0.084, 0.299, 0.944, 0.379 });
+		WEIGHTS.put("B", new double[] { 0.9, 0.796, 0.828, 1.722 });
+		WEIGHTS.put("C", new double[] { 1.0, 1.0, 1.0, 1.0 });
+		WEIGHTS.put("N", new double[] { 1.166, 0.695, 1.163, 0.625 });
+		WEIGHTS.put("O", new double[] { 1.332, 0.512, 1.331, 0.456 });
+		WEIGHTS.put("F", new double[] { 1.582, 0.41, 1.457, 0.316 });
+		WEIGHTS.put("Al", new double[] { 2.246, 1.626, 0.624, 3.864 });
+		WEIGHTS.put("Si", new double[] { 2.339, 1.424, 0.779, 3.057 });
+		WEIGHTS.put("P", new double[] { 2.579, 1.181, 0.916, 2.063 });
+		WEIGHTS.put("S", new double[] { 2.67, 1.088, 1.077, 1.648 });
+		WEIGHTS.put("Cl", new double[] { 2.952, 1.035, 1.265, 1.239 });
+		WEIGHTS.put("Fe", new double[] { 4.65, 1.829, 0.728, 4.773 });
+		WEIGHTS.put("Co", new double[] { 4.907, 1.561, 0.728, 4.261 });
+		WEIGHTS.put("Ni", new double[] { 4.887, 0.764, 0.728, 3.864 });
+		WEIGHTS.put("Cu", new double[] { 5.291, 0.512, 0.74, 3.466 });
+		WEIGHTS.put("Zn", new double[] { 5.445, 1.708, 0.81, 4.034 });
+		WEIGHTS.put("Br", new double[] { 6.653, 1.384, 1.172, 1.733 });
+		WEIGHTS.put("Sn", new double[] { 9.884, 2.042, 0.837, 4.375 });
+		WEIGHTS.put("I", new double[] { 10.566, 1.728, 1.012, 3.04 });
+	}
+
+	private final Whim3dSchemes[] schemes;
+
+	// reusable buffers, grown on demand
+	private double[][] centered = new double[0][];
+	private double[][] atomWeights = new double[0][];
+	private double[] weights = new double[0];
+	private double[] scores = new double[0];
+	private double[] sorted = new double[0];
+
+	private final double[] columnMean = new double[3];
+	private final double[][] covariance = new double[3][3];
+	private final double[] gamma = new double[3];
+	private final double[] nu = new double[3];
+	private final double[] eta = new double[3];
+
+	/**
+	 * Constructs an engine for the weighting schemes.
+	 *
+	 * @param schemes the weighting schemes in output order
+	 */
+	public Whim3dEngine(final Whim3dSchemes[] schemes) {
+		this.schemes = schemes.clone();
+	}
+
+	/**
+	 * Calculates the WHIM values of all weighting schemes. The values of scheme <code>i</code> are written to
+	 * <code>values[i * VALUE_COUNT]</code> to <code>values[(i + 1) * VALUE_COUNT - 1]</code>. Molecules without 3D
+	 * coordinates yield NaN for all values.
+	 *
+	 * @param molecule the CDK molecule with 3D coordinates
+	 * @param values the output array of length <code>schemes * VALUE_COUNT</code>
+	 * @return per scheme whether it could be calculated, i.e. weights are defined for all elements
+	 */
+	public boolean[] calculate(final IAtomContainer molecule, final double[] values) {
+
+		boolean[] calculated = new boolean[schemes.length];
+		if (!GeometryUtil.has3DCoordinates(molecule)) {
+			Arrays.fill(values, 0, schemes.length * VALUE_COUNT, Double.NaN);
+			Arrays.fill(calculated, true);
+			return calculated;
+		}
+
+		int n = molecule.getAtomCount();
+		ensureCapacity(n);
+		boolean weighted = initGeometry(molecule, n);
+
+		for (int s = 0; s < schemes.length; s++) {
+			int offset = s * VALUE_COUNT;
+			if (!initWeights(schemes[s], weighted, n)) {
+				Arrays.fill(values, offset, offset + VALUE_COUNT, Double.NaN);
+				continue;
+			}
+			calculateScheme(n, values, offset);
+			calculated[s] = true;
+		}
+
+		return calculated;
+	}
+
+	/**
+	 * Reads and centres the coordinates and looks up the atomic weights of all atoms.
+	 *
+	 * @return if weights are available for all atoms
+	 */
+	private boolean initGeometry(final IAtomContainer molecule, final int n) {
+
+		boolean weighted = true;
+		for (int i = 0; i < n; i++) {
+			Point3d point = molecule.getAtom(i).getPoint3d();
+			centered[i][0] = point.x;
+			centered[i][1] = point.y;
+			centered[i][2] = point.z;
+			atomWeights[i] = WEIGHTS.get(molecule.getAtom(i).getSymbol());
+			weighted &= atomWeights[i] != null;
+		}
+		for (int c = 0; c < 3; c++) {
+			double mean = 0.0;
+			for (int i = 0; i < n; i++) {
+				mean += centered[i][c];
+			}
+			mean /= (double) n;
+			for (int i = 0; i < n; i++) {
+				centered[i][c] = centered[i][c] - mean;
+			}
+		}
+		// mean of the centred coordinates, not exactly zero in floating point
+		for (int c = 0; c < 3; c++) {
+			double mean = 0.0;
+			for (int i = 0; i < n; i++) {
+				mean += centered[i][c];
+			}
+			columnMean[c] = mean / (double) n;
+		}
+		return weighted;
+	}
+
+	/**
+	 * Fills the weight buffer for the scheme.
+	 *
+	 * @return if the weights are defined for all atoms
+	 */
+	private boolean initWeights(final Whim3dSchemes scheme, final boolean weighted, final int n) {
+
+		if (scheme == Whim3dSchemes.UNITY_WEIGHTS) {
+			Arrays.fill(weights, 0, n, 1.0);
+			return true;
+		}
+		if (!weighted) {
+			return false;
+		}
+		int column;
+		switch (scheme) {
+		case ATOMIC_MASSES:
+			column = 0;
+			break;
+		case VdW_VOLUMES:
+			column = 1;
+			break;
+		case ATOMIC_ELECTRONEGATIVITIES:
+			column = 2;
+			break;
+		default:
+			column = 3;
+			break;
+		}
+		for (int i = 0; i < n; i++) {
+			weights[i] = atomWeights[i][column];
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates the 17 WHIM values for the current weights.
+	 */
+	private void calculateScheme(final int n, final double[] values, final int offset) {
+
+		double sumwt = 0.0;
+		for (int i = 0; i < n; i++) {
+			sumwt += weights[i];
+		}
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				double sum = 0.0;
+				for (int k = 0; k < n; k++) {
+					sum += weights[k] * (centered[k][i] - columnMean[i]) * (centered[k][j] - columnMean[j]);
+				}
+				covariance[i][j] = sum / sumwt;
+			}
+		}
+
+		EigenvalueDecomposition ed = new Matrix(covariance).eig();
+		double[] lambda = ed.getRealEigenvalues();
+		double[][] evec = ed.getV().getArray();
+
+		// scores: projection of the centred coordinates onto the eigenvectors, stored column-wise
+		for (int j = 0; j < 3; j++) {
+			for (int i = 0; i < n; i++) {
+				double s = 0;
+				for (int k = 0; k < 3; k++) {
+					s += centered[i][k] * evec[k][j];
+				}
+				scores[j * n + i] = s;
+			}
+		}
+
+		double sum = 0.0;
+		for (int i = 0; i < 3; i++) {
+			sum += lambda[i];
+		}
+		for (int i = 0; i < 3; i++) {
+			nu[i] = lambda[i] / sum;
+		}
+		for (int i = 0; i < 3; i++) {
+			double kurtosis = 0.0;
+			for (int j = 0; j < n; j++) {
+				double score = scores[i * n + j];
+				kurtosis += score * score * score * score;
+			}
+			kurtosis /= lambda[i] * lambda[i] * (double) n;
+			eta[i] = 1.0 / kurtosis;
+		}
+		for (int i = 0; i < 3; i++) {
+			double ns = countSymmetric(i, n);
+			double na = n - ns;
+			double dn = n;
+			gamma[i] = -1.0 * (ns / dn * Math.log(ns / dn) / Math.log(2.0) + na / dn * Math.log(1.0 / dn)
+					/ Math.log(2.0));
+			gamma[i] = 1.0 / (1.0 + gamma[i]);
+		}
+
+		double t = lambda[0] + lambda[1] + lambda[2];
+		double a = lambda[0] * lambda[1] + lambda[0] * lambda[2] + lambda[1] * lambda[2];
+		double v = t + a + lambda[0] * lambda[1] * lambda[2];
+		// as in the CDK, K only accounts for the last eigenvalue
+		double k = lambda[2] / sum - 1.0 / 3.0;
+		k /= 4.0 / 3.0;
+		double g = Math.pow(gamma[0] * gamma[1] * gamma[2], 1.0 / 3.0);
+		double d = eta[0] + eta[1] + eta[2];
+
+		values[offset] = lambda[0];
+		values[offset + 1] = lambda[1];
+		values[offset + 2] = lambda[2];
+		values[offset + 3] = nu[0];
+		values[offset + 4] = nu[1];
+		values[offset + 5] = gamma[0];
+		values[offset + 6] = gamma[1];
+		values[offset + 7] = gamma[2];
+		values[offset + 8] = eta[0];
+		values[offset + 9] = eta[1];
+		values[offset + 10] = eta[2];
+		values[offset + 11] = t;
+		values[offset + 12] = a;
+		values[offset + 13] = v;
+		values[offset + 14] = k;
+		values[offset + 15] = g;
+		values[offset + 16] = d;
+	}
+
+	/**
+	 * Counts the atoms whose score on the axis has an exact negated counterpart on another atom. Uses a sorted copy of
+	 * the scores instead of comparing all pairs.
+	 */
+	private int countSymmetric(final int axis, final int n) {
+
+		for (int j = 0; j < n; j++) {
+			// adding 0.0 maps -0.0 to 0.0, both compare equal with ==
+			sorted[j] = scores[axis * n + j] + 0.0;
+		}
+		Arrays.sort(sorted, 0, n);
+
+		int ns = 0;
+		for (int j = 0; j < n; j++) {
+			double score = scores[axis * n + j] + 0.0;
+			double target = -1.0 * score + 0.0;
+			if (Double.isNaN(target)) {
+				continue;
+			}
+			int count = count(target, n);
+			// an atom on the centre plane must not match itself
+			if (count > (target == score ? 1 : 0)) {
+				ns++;
+			}
+		}
+		return ns;
+	}
+
+	/**
+	 * Counts the occurrences of the value in the sorted buffer.
+	 */
+	private int count(final double value, final int n) {
+
+		int low = 0;
+		int high = n;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int count = 0;
+		while (low + count < n && sorted[low + count] == value) {
+			count++;
+		}
+		return count;
+	}
+
+	private void ensureCapacity(final int n) {
+
+		if (centered.length < n) {
+			centered = new double[n][3];
+			atomWeights = new double[n][];
+			weights = new double[n];
+			scores = new double[3 * n];
+			sorted = new double[n];
+		}
+	}
+}
@@ -56,6 +56,7 @@ public class Whim3dNodeDialog extends NodeDialogPane {
 	private final JCheckBox schemeVdWVolumes = new JCheckBox();
 	private final JCheckBox schemeAtomicElectronneg = new JCheckBox();
 	private final JCheckBox schemeAtomicPolariz = new JCheckBox();
+	private final JCheckBox packedVector = new JCheckBox();
 
 	private Whim3dSettings settings = new Whim3dSettings();
 
@@ -149,6 +150,12 @@ public class Whim3dNodeDialog extends NodeDialogPane {
 		c.gridy++;
 		c.gridx = 0;
 
+		parameterPanel.add(new JLabel("Single double vector column   "), c);
+		c.gridx++;
+		parameterPanel.add(packedVector, c);
+		c.gridy++;
+		c.gridx = 0;
+
 		return parameterPanel;
 	}
 
@@ -168,6 +175,7 @@ public class Whim3dNodeDialog extends NodeDialogPane {
 		schemeVdWVolumes.setSelected(this.settings.isSchemeVdWVolumes());
 		schemeAtomicElectronneg.setSelected(this.settings.isSchemeAtomicElectronneg());
 		schemeAtomicPolariz.setSelected(this.settings.isSchemeAtomicPolariz());
+		packedVector.setSelected(this.settings.isPackedVector());
 	}
 
 	/**
@@ -195,6 +203,7 @@ public class Whim3dNodeDialog extends NodeDialogPane {
 		this.settings.setSchemeVdWVolumes(schemeVdWVolumes.isSelected());
 		this.settings.setSchemeAtomicElectronneg(schemeAtomicElectronneg.isSelected());
 		this.settings.setSchemeAtomicPolariz(schemeAtomicPolariz.isSelected());
+		this.settings.setPackedVector(packedVector.isSelected());
 
 		this.settings.saveSettings(settings);
 	}
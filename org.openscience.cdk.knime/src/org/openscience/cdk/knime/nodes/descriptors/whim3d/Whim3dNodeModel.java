@@ -30,6 +30,7 @@ import org.knime.core.data.DataType;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.vector.doublevector.DoubleVectorCellFactory;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
 import org.openscience.cdk.graph.ConnectivityChecker;
@@ -37,10 +38,6 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.knime.core.CDKNodeModel;
 import org.openscience.cdk.knime.type.CDKTypeConverter;
 import org.openscience.cdk.knime.type.CDKValue;
-import org.openscience.cdk.qsar.DescriptorValue;
-import org.openscience.cdk.qsar.IMolecularDescriptor;
-import org.openscience.cdk.qsar.descriptors.molecular.WHIMDescriptor;
-import org.openscience.cdk.qsar.result.DoubleArrayResult;
 
 /**
  * This is the model implementation of Whim3d. Holistic descriptors described by
@@ -66,6 +63,7 @@ public class Whim3dNodeModel extends CDKNodeModel {
 
 		final List<Whim3dSchemes> weightingSchemes = new ArrayList<Whim3dSchemes>();
 		final DataColumnSpec[] dataColSpec = createSpec(spec);
+		final boolean packed = settings(Whim3dSettings.class).isPackedVector();
 
 		if (settings(Whim3dSettings.class).isSchemeUnitWeights())
 			weightingSchemes.add(Whim3dSchemes.UNITY_WEIGHTS);
@@ -78,6 +76,16 @@ public class Whim3dNodeModel extends CDKNodeModel {
 		if (settings(Whim3dSettings.class).isSchemeAtomicElectronneg())
 			weightingSchemes.add(Whim3dSchemes.ATOMIC_ELECTRONEGATIVITIES);
 
+		final Whim3dSchemes[] schemes = weightingSchemes.toArray(new Whim3dSchemes[weightingSchemes.size()]);
+		// one engine per worker thread, all selected schemes are evaluated in a single pass
+		final ThreadLocal<Whim3dEngine> engines = new ThreadLocal<Whim3dEngine>() {
+
+			@Override
+			protected Whim3dEngine initialValue() {
+				return new Whim3dEngine(schemes);
+			}
+		};
+
 		AbstractCellFactory cf = new AbstractCellFactory(true, dataColSpec) {
 
 			@Override
@@ -98,51 +106,17 @@ public class Whim3dNodeModel extends CDKNodeModel {
 					molecule = ConnectivityChecker.partitionIntoMolecules(molecule).getAtomContainer(0);
 				}
 
-				return calculateWhimValues(molecule).toArray(new DataCell[] {});
-			}
-
-			private List<DataCell> calculateWhimValues(IAtomContainer molecule) {
+				double[] whimValues = new double[weightingSchemes.size() * values.length];
+				boolean[] calculated = engines.get().calculate(molecule, whimValues);
 
-				List<DataCell> whimValueCells = new ArrayList<DataCell>();
-
-				for (Whim3dSchemes weightingScheme : weightingSchemes) {
-					whimValueCells.addAll(calculateValueForScheme(weightingScheme, molecule));
+				if (packed) {
+					return new DataCell[] { DoubleVectorCellFactory.createCell(whimValues) };
 				}
-
-				return whimValueCells;
-			}
-
-			private List<DataCell> calculateValueForScheme(Whim3dSchemes scheme, IAtomContainer molecule) {
-
-				try {
-					IMolecularDescriptor whimDescriptor = new WHIMDescriptor();
-					Object[] whimParameter = new String[] { scheme.getParameterName() };
-					whimDescriptor.setParameters(whimParameter);
-
-					// try catch because WHIM works for certain elements only
-					DescriptorValue whimValue = whimDescriptor.calculate(molecule);
-					DoubleArrayResult whimResultArray = (DoubleArrayResult) whimValue.getValue();
-
-					return getDataCells(whimResultArray);
-
-				} catch (Exception exception) {
-					List<DataCell> missings = new ArrayList<DataCell>();
-					for (int i = 0; i < values.length; i++) {
-						missings.add(DataType.getMissingCell());
-					}
-					return missings;
-				}
-			}
-
-			private List<DataCell> getDataCells(DoubleArrayResult whimResultArray) {
-
-				List<DataCell> resultCol = new ArrayList<DataCell>();
-				for (int i = 0; i < whimResultArray.length(); i++) {
-					double res = whimResultArray.get(i);
-					resultCol.add(new DoubleCell(res));
+				for (int i = 0; i < whimValues.length; i++) {
+					whimValueCells[i] = calculated[i / values.length] ? new DoubleCell(whimValues[i]) : DataType
+							.getMissingCell();
 				}
-
-				return resultCol;
+				return whimValueCells;
 			}
 		};
 
@@ -172,6 +146,17 @@ public class Whim3dNodeModel extends CDKNodeModel {
 			createSchemeList(dataColumnSpecs,
 					DataTableSpec.getUniqueColumnName(spec, Whim3dSchemes.ATOMIC_ELECTRONEGATIVITIES.getTitle()));
 
+		if (settings(Whim3dSettings.class).isPackedVector()) {
+			String[] elementNames = new String[dataColumnSpecs.size()];
+			for (int i = 0; i < elementNames.length; i++) {
+				elementNames[i] = dataColumnSpecs.get(i).getName();
+			}
+			DataColumnSpecCreator creator = new DataColumnSpecCreator(DataTableSpec.getUniqueColumnName(spec,
+					"WHIM"), DoubleVectorCellFactory.TYPE);
+			creator.setElementNames(elementNames);
+			return new DataColumnSpec[] { creator.createSpec() };
+		}
+
 		return dataColumnSpecs.toArray(new DataColumnSpec[] {});
 	}
 
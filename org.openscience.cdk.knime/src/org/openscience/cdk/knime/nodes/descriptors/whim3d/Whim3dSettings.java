@@ -36,6 +36,8 @@ public class Whim3dSettings implements CDKSettings {
 	private boolean schemeAtomicElectronneg;
 	private boolean schemeAtomicPolariz;
 
+	private boolean packedVector;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -132,6 +134,22 @@ public class Whim3dSettings implements CDKSettings {
 		this.schemeAtomicPolariz = schemeAtomicPolariz;
 	}
 
+	/**
+	 * @return if all values are written into a single double vector column
+	 */
+	public boolean isPackedVector() {
+
+		return packedVector;
+	}
+
+	/**
+	 * @param packedVector if all values are written into a single double vector column
+	 */
+	public void setPackedVector(boolean packedVector) {
+
+		this.packedVector = packedVector;
+	}
+
 	/**
 	 * Saves the settings into the given node settings object.
 	 * 
@@ -145,6 +163,7 @@ public class Whim3dSettings implements CDKSettings {
 		settings.addBoolean("schemeVdWVolumes", schemeVdWVolumes);
 		settings.addBoolean("schemeAtomicElectronneg", schemeAtomicElectronneg);
 		settings.addBoolean("schemeAtomicPolariz", schemeAtomicPolariz);
+		settings.addBoolean("packedVector", packedVector);
 	}
 
 	/**
@@ -161,5 +180,6 @@ public class Whim3dSettings implements CDKSettings {
 		schemeVdWVolumes = settings.getBoolean("schemeVdWVolumes");
 		schemeAtomicElectronneg = settings.getBoolean("schemeAtomicElectronneg");
 		schemeAtomicPolariz = settings.getBoolean("schemeAtomicPolariz");
+		packedVector = settings.getBoolean("packedVector", false);
 	}
 }
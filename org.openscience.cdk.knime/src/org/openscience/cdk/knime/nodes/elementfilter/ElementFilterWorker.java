@@ -47,6 +47,7 @@ public class ElementFilterWorker extends MultiThreadWorker<DataRow, DataRow> {
 	private final Set<Long> matchedRows;
 	private final BufferedDataContainer[] bdcs;
 	private final Set<String> elementSet;
+	private final long[] elementMask;
 	private final boolean keep;
 
 	public ElementFilterWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
@@ -59,6 +60,7 @@ public class ElementFilterWorker extends MultiThreadWorker<DataRow, DataRow> {
 		for (String element : elements) {
 			elementSet.add(element);
 		}
+		elementMask = SmilesElementScanner.mask(elementSet);
 		this.keep = settings.getKeep();
 
 		this.exec = exec;
@@ -75,40 +77,53 @@ public class ElementFilterWorker extends MultiThreadWorker<DataRow, DataRow> {
 			// fall through
 		} else {
 			CDKValue cdkCell = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
-			IAtomContainer mol = cdkCell.getAtomContainer();
-			IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(mol);
-			List<IElement> sumElements = MolecularFormulaManipulator.getHeavyElements(formula);
-			
-			// keep CHNOPS
-			if (keep) {
-				boolean isValid = true;
-				for (IElement element : sumElements) {
-					String symbol = element.getSymbol();
-					if (!elementSet.contains(symbol)) {
-						isValid = false;
-						break;
-					}
-				}
-				if (isValid) {
-					matchedRows.add(index);
+			String smiles = cdkCell.getSmilesValue();
+
+			long[] mask = new long[2];
+			boolean isValid;
+			if (smiles != null && SmilesElementScanner.scan(smiles, mask)) {
+				// heavy elements only
+				mask[0] &= ~(1L << 1);
+				if (keep) {
+					isValid = (mask[0] & ~elementMask[0]) == 0 && (mask[1] & ~elementMask[1]) == 0;
+				} else {
+					isValid = (mask[0] & elementMask[0]) == 0 && (mask[1] & elementMask[1]) == 0;
 				}
-		    // remove everything else
 			} else {
-				boolean isValid = true;
-				for (IElement element : sumElements) {
-					String symbol = element.getSymbol();
-					if (elementSet.contains(symbol)) {
-						isValid = false;
-						break;
-					}
+				isValid = isValid(cdkCell.getAtomContainer());
+			}
+			if (isValid) {
+				matchedRows.add(index);
+			}
+		}
+
+		return row;
+	}
+
+	/**
+	 * Checks the heavy elements of the molecule against the element set.
+	 */
+	private boolean isValid(final IAtomContainer mol) {
+
+		IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(mol);
+		List<IElement> sumElements = MolecularFormulaManipulator.getHeavyElements(formula);
+
+		// keep CHNOPS
+		if (keep) {
+			for (IElement element : sumElements) {
+				if (!elementSet.contains(element.getSymbol())) {
+					return false;
 				}
-				if (isValid) {
-					matchedRows.add(index);
+			}
+			// remove everything else
+		} else {
+			for (IElement element : sumElements) {
+				if (elementSet.contains(element.getSymbol())) {
+					return false;
 				}
 			}
 		}
-		
-		return row;
+		return true;
 	}
 
 	@Override
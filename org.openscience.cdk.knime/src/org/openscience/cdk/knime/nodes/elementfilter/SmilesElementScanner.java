@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.elementfilter;
+
+import java.util.Collection;
+
+import org.openscience.cdk.config.Elements;
+
+/**
+ * Collects the elements of a SMILES string as a bitmask of atomic numbers without parsing the molecule.
+ * <p>
+ * The mask spans two longs: bit <i>z</i> of <code>mask[z / 64]</code> is set if an atom with atomic number <i>z</i>
+ * occurs. Implicit hydrogens are not written as atoms and never set the hydrogen bit.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class SmilesElementScanner {
+
+	/** Atomic numbers indexed by the symbol, zero if the symbol is not an element. */
+	private static final int[] NUMBERS = new int[26 * 27];
+
+	static {
+		for (Elements element : Elements.values()) {
+			int index = index(element.symbol());
+			if (index >= 0 && element.number() > 0) {
+				NUMBERS[index] = element.number();
+			}
+		}
+	}
+
+	private SmilesElementScanner() {
+		// utility class
+	}
+
+	/**
+	 * Creates the mask of the element symbols. Symbols that are not elements are ignored.
+	 *
+	 * @param symbols the element symbols
+	 * @return the mask
+	 */
+	static long[] mask(final Collection<String> symbols) {
+
+		long[] mask = new long[2];
+		for (String symbol : symbols) {
+			int index = index(symbol);
+			if (index >= 0 && NUMBERS[index] > 0) {
+				set(mask, NUMBERS[index]);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Sets the bits of all elements in the SMILES.
+	 *
+	 * @param smiles the SMILES
+	 * @param mask the mask to fill, cleared first
+	 * @return false if the SMILES contains atoms the scanner does not cover, e.g. pseudo atoms, in which case the mask
+	 *         is undefined
+	 */
+	static boolean scan(final String smiles, final long[] mask) {
+
+		mask[0] = 0;
+		mask[1] = 0;
+
+		int length = smiles.length();
+		int i = 0;
+		while (i < length) {
+			char c = smiles.charAt(i++);
+			switch (c) {
+			// organic subset
+			case 'B':
+				if (i < length && smiles.charAt(i) == 'r') {
+					i++;
+					set(mask, 35);
+				} else {
+					set(mask, 5);
+				}
+				break;
+			case 'C':
+				if (i < length && smiles.charAt(i) == 'l') {
+					i++;
+					set(mask, 17);
+				} else {
+					set(mask, 6);
+				}
+				break;
+			case 'N':
+			case 'n':
+				set(mask, 7);
+				break;
+			case 'O':
+			case 'o':
+				set(mask, 8);
+				break;
+			case 'F':
+				set(mask, 9);
+				break;
+			case 'P':
+			case 'p':
+				set(mask, 15);
+				break;
+			case 'S':
+			case 's':
+				set(mask, 16);
+				break;
+			case 'I':
+				set(mask, 53);
+				break;
+			case 'b':
+				set(mask, 5);
+				break;
+			case 'c':
+				set(mask, 6);
+				break;
+			case '[':
+				i = scanBracketAtom(smiles, i, mask);
+				if (i < 0) {
+					return false;
+				}
+				break;
+			// bonds, branches and ring closures
+			case '-':
+			case '=':
+			case '#':
+			case '$':
+			case ':':
+			case '/':
+			case '\\':
+			case '.':
+			case '(':
+			case ')':
+			case '%':
+			case '0':
+			case '1':
+			case '2':
+			case '3':
+			case '4':
+			case '5':
+			case '6':
+			case '7':
+			case '8':
+			case '9':
+				break;
+			case ' ':
+			case '\t':
+				// title or extensions follow
+				return true;
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the element of a bracket atom starting after the opening bracket.
+	 *
+	 * @return the position after the closing bracket or -1 if the atom is not covered
+	 */
+	private static int scanBracketAtom(final String smiles, int i, final long[] mask) {
+
+		int length = smiles.length();
+		// isotope
+		while (i < length && smiles.charAt(i) >= '0' && smiles.charAt(i) <= '9') {
+			i++;
+		}
+		if (i >= length) {
+			return -1;
+		}
+
+		char first = smiles.charAt(i++);
+		char second = i < length ? smiles.charAt(i) : 0;
+		int number = 0;
+		if (first >= 'A' && first <= 'Z') {
+			if (second >= 'a' && second <= 'z') {
+				number = NUMBERS[(first - 'A') * 27 + second - 'a' + 1];
+				if (number > 0) {
+					i++;
+				}
+			}
+			if (number == 0) {
+				number = NUMBERS[(first - 'A') * 27];
+			}
+		} else if (first == 's' && second == 'e' || first == 'a' && second == 's' || first == 't' && second == 'e') {
+			number = NUMBERS[(first - 'a') * 27 + second - 'a' + 1];
+			i++;
+		} else if (first == 'b' || first == 'c' || first == 'n' || first == 'o' || first == 'p' || first == 's') {
+			number = NUMBERS[(first - 'a') * 27];
+		}
+		// unknown or longer symbols
+		if (number == 0 || i < length && smiles.charAt(i) >= 'a' && smiles.charAt(i) <= 'z') {
+			return -1;
+		}
+		set(mask, number);
+
+		while (i < length) {
+			if (smiles.charAt(i++) == ']') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static void set(final long[] mask, final int number) {
+		mask[number >> 6] |= 1L << (number & 63);
+	}
+
+	/**
+	 * Returns the table index of a one or two letter element symbol or -1 if the symbol cannot be indexed.
+	 */
+	private static int index(final String symbol) {
+
+		if (symbol == null || symbol.length() == 0 || symbol.length() > 2) {
+			return -1;
+		}
+		char first = symbol.charAt(0);
+		if (first < 'A' || first > 'Z') {
+			return -1;
+		}
+		int index = (first - 'A') * 27;
+		if (symbol.length() == 2) {
+			char second = symbol.charAt(1);
+			if (second < 'a' || second > 'z') {
+				return -1;
+			}
+			index += second - 'a' + 1;
+		}
+		return index;
+	}
+}
@@ -19,8 +19,10 @@ package org.openscience.cdk.knime.nodes.hydrogen;
 
 import java.util.concurrent.ExecutionException;
 
+import org.knime.core.data.DataCellTypeConverter;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
@@ -28,6 +30,15 @@ import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 import org.openscience.cdk.knime.core.CDKAdapterNodeModel;
 import org.openscience.cdk.knime.type.CDKAdapterCell;
 
@@ -116,6 +127,57 @@ public class HydrogenAdderNodeModel extends CDKAdapterNodeModel {
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+
+				RowInput in = (RowInput) inputs[0];
+				RowOutput out = (RowOutput) outputs[0];
+
+				DataCellTypeConverter converter = createConverter(in.getDataTableSpec());
+				HydrogenSuppressor suppressor = new HydrogenSuppressor(columnIndex,
+						settings(HydrogenAdderSettings.class));
+
+				DataRow row;
+				while ((row = in.poll()) != null) {
+					DataRow outRow = suppressor.process(convertRow(row, converter));
+					if (suppressor.accept(outRow)) {
+						out.push(outRow);
+					}
+					exec.checkCanceled();
+				}
+
+				in.close();
+				out.close();
+			}
+		};
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
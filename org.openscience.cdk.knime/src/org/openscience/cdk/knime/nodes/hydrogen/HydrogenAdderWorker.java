@@ -19,22 +19,11 @@ package org.openscience.cdk.knime.nodes.hydrogen;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 
-import org.knime.base.data.replace.ReplacedColumnsDataRow;
-import org.knime.core.data.AdapterValue;
-import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
-import org.knime.core.data.DataType;
-import org.knime.core.data.append.AppendedColumnRow;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.util.MultiThreadWorker;
-import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.knime.commons.CDKNodeUtils;
-import org.openscience.cdk.knime.type.CDKCell3;
-import org.openscience.cdk.knime.type.CDKValue;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
-import org.openscience.cdk.tools.manipulator.SmartAtomContainerManipulator;
 
 /**
  * Multi threaded worker implementation for the Hydrogen Adder Node.
@@ -44,9 +33,8 @@ import org.openscience.cdk.tools.manipulator.SmartAtomContainerManipulator;
 public class HydrogenAdderWorker extends MultiThreadWorker<DataRow, DataRow> {
 
 	private final ExecutionContext exec;
-	private final int columnIndex;
 	private final BufferedDataContainer bdc;
-	private final HydrogenAdderSettings settings;
+	private final HydrogenSuppressor suppressor;
 
 	public HydrogenAdderWorker(final int maxQueueSize, final int maxActiveInstanceSize, final int columnIndex,
 			final ExecutionContext exec, final BufferedDataContainer bdc, final HydrogenAdderSettings settings) {
@@ -54,42 +42,12 @@ public class HydrogenAdderWorker extends MultiThreadWorker<DataRow, DataRow> {
 		super(maxQueueSize, maxActiveInstanceSize);
 		this.exec = exec;
 		this.bdc = bdc;
-		this.settings = settings;
-		this.columnIndex = columnIndex;
+		this.suppressor = new HydrogenSuppressor(columnIndex, settings);
 	}
 
 	@Override
 	protected DataRow compute(DataRow row, long index) throws Exception {
-
-		DataCell outCell;
-		if (row.getCell(columnIndex).isMissing()
-				|| (((AdapterValue) row.getCell(columnIndex)).getAdapterError(CDKValue.class) != null)) {
-			outCell = DataType.getMissingCell();
-		} else {
-			try {
-				CDKValue cdkCell = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
-				IAtomContainer mol = cdkCell.getAtomContainer();
-
-				if (settings.excludeStereo()) {
-					mol = SmartAtomContainerManipulator.suppressNonChiralHydrogens(mol);
-				} else {
-					mol = AtomContainerManipulator.suppressHydrogens(mol);
-				}
-
-				CDKNodeUtils.getFullMolecule(mol);
-				outCell = CDKCell3.createCDKCell(mol);
-			} catch (Throwable t) {
-				outCell = DataType.getMissingCell();
-			}
-		}
-
-		if (settings.replaceColumn()) {
-			row = new ReplacedColumnsDataRow(row, outCell, columnIndex);
-		} else {
-			row = new AppendedColumnRow(row, outCell);
-		}
-		
-		return row;
+		return suppressor.process(row);
 	}
 
 	@Override
@@ -97,7 +55,7 @@ public class HydrogenAdderWorker extends MultiThreadWorker<DataRow, DataRow> {
 			InterruptedException {
 
 		DataRow append = task.get();
-		if (!append.getCell(columnIndex).isMissing()) {
+		if (suppressor.accept(append)) {
 			bdc.addRowToTable(append);
 		}
 
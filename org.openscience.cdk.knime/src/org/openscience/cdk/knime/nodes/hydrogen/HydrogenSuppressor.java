@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.hydrogen;
+
+import org.knime.base.data.replace.ReplacedColumnsDataRow;
+import org.knime.core.data.AdapterValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.knime.type.CDKAdapterCell;
+import org.openscience.cdk.knime.type.CDKCell3;
+import org.openscience.cdk.knime.type.CDKValue;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+import org.openscience.cdk.tools.manipulator.SmartAtomContainerManipulator;
+
+/**
+ * Suppresses the explicit hydrogens of the molecules in a row, shared by the parallel worker and the streaming
+ * operator of the Hydrogen Manipulator node.
+ * <p>
+ * Molecules are read with implicit hydrogen counts and perceived atom types, so removing explicit hydrogens only
+ * increments the hydrogen counts of their neighbours and does not require another perception pass. Molecules whose
+ * SMILES has no explicit hydrogen atoms are passed on without parsing the molecule or regenerating the SMILES.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class HydrogenSuppressor {
+
+	private final int columnIndex;
+	private final HydrogenAdderSettings settings;
+
+	/**
+	 * Constructs a new suppressor.
+	 *
+	 * @param columnIndex the index of the molecule column
+	 * @param settings the node settings
+	 */
+	HydrogenSuppressor(final int columnIndex, final HydrogenAdderSettings settings) {
+		this.columnIndex = columnIndex;
+		this.settings = settings;
+	}
+
+	/**
+	 * Creates the output row, replacing the molecule or appending the new molecule.
+	 *
+	 * @param row the input row
+	 * @return the output row
+	 */
+	DataRow process(final DataRow row) {
+
+		DataCell outCell;
+		if (row.getCell(columnIndex).isMissing()
+				|| (((AdapterValue) row.getCell(columnIndex)).getAdapterError(CDKValue.class) != null)) {
+			outCell = DataType.getMissingCell();
+		} else {
+			try {
+				CDKValue cdkCell = ((AdapterValue) row.getCell(columnIndex)).getAdapter(CDKValue.class);
+				outCell = suppress(cdkCell);
+			} catch (Throwable t) {
+				outCell = DataType.getMissingCell();
+			}
+		}
+
+		if (settings.replaceColumn()) {
+			return new ReplacedColumnsDataRow(row, outCell, columnIndex);
+		} else {
+			return new AppendedColumnRow(row, outCell);
+		}
+	}
+
+	/**
+	 * Returns whether the output row is kept, rows without a molecule are dropped.
+	 *
+	 * @param row the output row
+	 * @return if the row is kept
+	 */
+	boolean accept(final DataRow row) {
+		return !row.getCell(columnIndex).isMissing();
+	}
+
+	private DataCell suppress(final CDKValue cdkCell) {
+
+		boolean smilesCell = cdkCell instanceof CDKCell3;
+		if (smilesCell && !hasExplicitHydrogens(cdkCell.getSmilesValue())) {
+			return new CDKAdapterCell((CDKCell3) cdkCell);
+		}
+
+		IAtomContainer mol = cdkCell.getAtomContainer();
+		int atomCount = mol.getAtomCount();
+		// both edit the container in place
+		if (settings.excludeStereo()) {
+			mol = SmartAtomContainerManipulator.suppressNonChiralHydrogens(mol);
+		} else {
+			mol = AtomContainerManipulator.suppressHydrogens(mol);
+		}
+
+		if (smilesCell && mol.getAtomCount() == atomCount) {
+			// only hydrogens that cannot be suppressed
+			return new CDKAdapterCell((CDKCell3) cdkCell);
+		}
+		return CDKCell3.createCDKCell(mol);
+	}
+
+	/**
+	 * Checks the SMILES for hydrogen atoms, which are always written as bracket atoms, e.g. <code>[H]</code> or
+	 * <code>[2H]</code>.
+	 */
+	static boolean hasExplicitHydrogens(final String smiles) {
+
+		if (smiles == null) {
+			return true;
+		}
+		int length = smiles.length();
+		int i = smiles.indexOf('[');
+		while (i >= 0) {
+			i++;
+			// isotope
+			while (i < length && smiles.charAt(i) >= '0' && smiles.charAt(i) <= '9') {
+				i++;
+			}
+			if (i < length && smiles.charAt(i) == 'H'
+					&& (i + 1 == length || smiles.charAt(i + 1) < 'a' || smiles.charAt(i + 1) > 'z')) {
+				return true;
+			}
+			i = smiles.indexOf('[', i);
+		}
+		return false;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.masscalculator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Calculates the mass of sum formula strings.
+ * <p>
+ * Plain formulas such as <code>C6H12O6</code> are tokenized directly and summed from a primitive table of element
+ * masses indexed by the element symbol. Formulas the tokenizer does not cover (charges, brackets, dots, multipliers or
+ * unknown symbols) are parsed by the CDK and kept in a small LRU cache, since these are comparatively expensive to
+ * parse. Both paths use the masses of the CDK isotope factory.
+ * <p>
+ * Instances are not thread-safe; use one calculator per thread.
+ *
+ * @author Stephan Beisken
+ */
+public final class FormulaMassCalculator {
+
+	/** Number of formulas kept by the fallback cache. */
+	private static final int CACHE_SIZE = 1024;
+	/** Longest element count accepted by the tokenizer, keeps the count within an int. */
+	private static final int MAX_DIGITS = 9;
+
+	private static final double[] MAJOR_ISOTOPE_MASSES;
+	private static final double[] NATURAL_MASSES;
+
+	static {
+		MAJOR_ISOTOPE_MASSES = new double[26 * 27];
+		NATURAL_MASSES = new double[26 * 27];
+		Arrays.fill(MAJOR_ISOTOPE_MASSES, Double.NaN);
+		Arrays.fill(NATURAL_MASSES, Double.NaN);
+
+		try {
+			IsotopeFactory factory = Isotopes.getInstance();
+			for (Elements element : Elements.values()) {
+				String symbol = element.symbol();
+				int index = index(symbol);
+				if (index < 0) {
+					continue;
+				}
+				try {
+					IIsotope major = factory.getMajorIsotope(symbol);
+					if (major != null && major.getExactMass() != null) {
+						MAJOR_ISOTOPE_MASSES[index] = major.getExactMass();
+					}
+					NATURAL_MASSES[index] = factory.getNaturalMass(element.toIElement());
+				} catch (RuntimeException exception) {
+					// incomplete isotope data, formulas with this element take the CDK path
+					MAJOR_ISOTOPE_MASSES[index] = Double.NaN;
+					NATURAL_MASSES[index] = Double.NaN;
+				}
+			}
+		} catch (IOException exception) {
+			// empty table, every formula takes the CDK path
+		}
+	}
+
+	private final boolean majorIsotope;
+	private final double[] masses;
+	private final Map<String, Double> cache = new LinkedHashMap<String, Double>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Double> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Constructs a new calculator.
+	 *
+	 * @param majorIsotope whether to sum the major isotope masses (molecular weight) or the natural masses (molar
+	 *        weight)
+	 */
+	public FormulaMassCalculator(final boolean majorIsotope) {
+
+		this.majorIsotope = majorIsotope;
+		this.masses = majorIsotope ? MAJOR_ISOTOPE_MASSES : NATURAL_MASSES;
+	}
+
+	/**
+	 * Calculates the mass of the sum formula.
+	 *
+	 * @param formula the sum formula string
+	 * @return the mass
+	 * @throws IllegalArgumentException if the formula cannot be parsed
+	 */
+	public double getMass(final String formula) {
+
+		double mass = tokenize(formula);
+		if (!Double.isNaN(mass)) {
+			return mass;
+		}
+
+		Double cached = cache.get(formula);
+		if (cached == null) {
+			IMolecularFormula sumFormula = MolecularFormulaManipulator.getMolecularFormula(formula,
+					SilentChemObjectBuilder.getInstance());
+			if (sumFormula == null) {
+				throw new IllegalArgumentException("Invalid sum formula: " + formula);
+			}
+			if (majorIsotope) {
+				cached = MolecularFormulaManipulator.getMajorIsotopeMass(sumFormula);
+			} else {
+				cached = MolecularFormulaManipulator.getNaturalExactMass(sumFormula);
+			}
+			cache.put(formula, cached);
+		}
+		return cached;
+	}
+
+	/**
+	 * Sums the element masses of a plain formula, a sequence of element symbols each followed by an optional count.
+	 * As in the CDK, a count of zero is read as one.
+	 *
+	 * @return the mass or NaN if the formula is not a plain formula of known elements
+	 */
+	private double tokenize(final String formula) {
+
+		int length = formula.length();
+		if (length == 0) {
+			return Double.NaN;
+		}
+
+		double mass = 0;
+		int i = 0;
+		while (i < length) {
+			char first = formula.charAt(i++);
+			if (first < 'A' || first > 'Z') {
+				return Double.NaN;
+			}
+			int index = (first - 'A') * 27;
+			if (i < length) {
+				char second = formula.charAt(i);
+				if (second >= 'a' && second <= 'z') {
+					index += second - 'a' + 1;
+					i++;
+					// three letter symbols are not in the table
+					if (i < length && formula.charAt(i) >= 'a' && formula.charAt(i) <= 'z') {
+						return Double.NaN;
+					}
+				}
+			}
+
+			int start = i;
+			int count = 0;
+			while (i < length) {
+				char digit = formula.charAt(i);
+				if (digit < '0' || digit > '9') {
+					break;
+				}
+				count = count * 10 + (digit - '0');
+				i++;
+			}
+			if (i - start > MAX_DIGITS) {
+				return Double.NaN;
+			}
+			if (count == 0) {
+				count = 1;
+			}
+
+			double elementMass = masses[index];
+			if (Double.isNaN(elementMass)) {
+				return Double.NaN;
+			}
+			mass += elementMass * count;
+		}
+		return mass;
+	}
+
+	/**
+	 * Returns the table index of a one or two letter element symbol or -1 if the symbol cannot be indexed.
+	 */
+	private static int index(final String symbol) {
+
+		if (symbol.length() == 0 || symbol.length() > 2) {
+			return -1;
+		}
+		char first = symbol.charAt(0);
+		if (first < 'A' || first > 'Z') {
+			return -1;
+		}
+		int index = (first - 'A') * 27;
+		if (symbol.length() == 2) {
+			char second = symbol.charAt(1);
+			if (second < 'a' || second > 'z') {
+				return -1;
+			}
+			index += second - 'a' + 1;
+		}
+		return index;
+	}
+}
@@ -29,11 +29,8 @@ import org.knime.core.data.def.DoubleCell;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
-import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.knime.commons.CDKNodeUtils;
 import org.openscience.cdk.knime.core.CDKNodeModel;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
-import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 /**
  * This is the model implementation of MassCalculator. This node calculates the
@@ -130,6 +127,15 @@ public class MassCalculatorNodeModel extends CDKNodeModel {
 		DataColumnSpec appendSpec = new DataColumnSpecCreator(DataTableSpec.getUniqueColumnName(spec, massOption.name()
 				.toLowerCase()), DoubleCell.TYPE).createSpec();
 
+		final boolean majorIsotope = massOption == Mass.MOLECULAR_WEIGHT;
+		final ThreadLocal<FormulaMassCalculator> calculators = new ThreadLocal<FormulaMassCalculator>() {
+
+			@Override
+			protected FormulaMassCalculator initialValue() {
+				return new FormulaMassCalculator(majorIsotope);
+			}
+		};
+
 		SingleCellFactory cf = new SingleCellFactory(true, appendSpec) {
 
 			@Override
@@ -142,16 +148,7 @@ public class MassCalculatorNodeModel extends CDKNodeModel {
 
 				try {
 					String sumFormulaString = (String) ((StringValue) cell).getStringValue();
-					IMolecularFormula sumFormula = MolecularFormulaManipulator.getMolecularFormula(sumFormulaString,
-							SilentChemObjectBuilder.getInstance());
-					double mass;
-					if (massOption == Mass.MOLECULAR_WEIGHT) {
-						mass = MolecularFormulaManipulator.getMajorIsotopeMass(sumFormula);
-					} else {
-						mass = MolecularFormulaManipulator.getNaturalExactMass(sumFormula);
-					}
-
-					return new DoubleCell(mass);
+					return new DoubleCell(calculators.get().getMass(sumFormulaString));
 				} catch (Throwable t) {
 					return DataType.getMissingCell();
 				}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.sumformula;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+
+/**
+ * Scores candidate formulas against a measured isotope pattern.
+ * <p>
+ * Theoretical patterns are computed by convolution of the natural isotope distributions of the elements on primitive
+ * arrays. Element powers are built by repeated squaring. After every convolution, peaks closer than the mass tolerance
+ * are combined and peaks below the relative abundance threshold are dropped, so the arrays stay short. Patterns are
+ * cached per element composition.
+ * <p>
+ * Patterns are compared by the mass offsets of their peaks relative to the first peak, so measured ions can be matched
+ * against neutral formulas. The score is the cosine similarity of the matched intensities, where unmatched peaks of
+ * either pattern count against the score.
+ * <p>
+ * Instances are not thread-safe; use one scorer per thread.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class IsotopePatternScorer {
+
+	/** Peaks below this fraction of the most abundant peak are dropped. */
+	private static final double MIN_ABUNDANCE = 1e-4;
+	/** Number of patterns kept per scorer. */
+	private static final int CACHE_SIZE = 4096;
+
+	private static final double[][] EMPTY = new double[][] { { 0 }, { 1 } };
+
+	private final double tolerance;
+	private final IsotopeFactory factory;
+	private final Map<String, double[][]> elements = new HashMap<String, double[][]>();
+	private final Map<String, double[][]> patterns = new LinkedHashMap<String, double[][]>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, double[][]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	// convolution buffers, grown on demand
+	private double[] masses = new double[0];
+	private double[] abundances = new double[0];
+
+	/**
+	 * Constructs a new scorer.
+	 *
+	 * @param factory the isotope factory providing the natural abundances
+	 * @param tolerance the mass tolerance in amu used to merge and to match peaks
+	 */
+	public IsotopePatternScorer(final IsotopeFactory factory, final double tolerance) {
+		this.factory = factory;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Scores the formula against the measured pattern.
+	 *
+	 * @param formula the candidate formula
+	 * @param key a unique key of the element composition, e.g. the Hill formula
+	 * @param mz the measured m/z values in ascending order
+	 * @param intensities the measured intensities
+	 * @return the similarity between 0 and 1
+	 */
+	public double score(final IMolecularFormula formula, final String key, final double[] mz,
+			final double[] intensities) {
+
+		double[][] pattern = patterns.get(key);
+		if (pattern == null) {
+			pattern = getPattern(formula);
+			patterns.put(key, pattern);
+		}
+		return score(pattern[0], pattern[1], mz, intensities);
+	}
+
+	/**
+	 * Calculates the theoretical isotope pattern of the formula.
+	 *
+	 * @param formula the formula
+	 * @return the peak masses and abundances in ascending mass order
+	 */
+	public double[][] getPattern(final IMolecularFormula formula) {
+
+		double[][] pattern = EMPTY;
+		for (IIsotope isotope : formula.isotopes()) {
+			double[][] power = getPower(getElement(isotope.getSymbol()), formula.getIsotopeCount(isotope));
+			pattern = convolve(pattern, power);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Cosine similarity of the patterns after matching the peak offsets with a two-pointer merge.
+	 */
+	private double score(final double[] tm, final double[] ta, final double[] mm, final double[] ma) {
+
+		if (tm.length == 0 || mm.length == 0) {
+			return 0;
+		}
+
+		double dot = 0;
+		double tNorm = 0;
+		double mNorm = 0;
+		for (int i = 0; i < ta.length; i++) {
+			tNorm += ta[i] * ta[i];
+		}
+		for (int j = 0; j < ma.length; j++) {
+			mNorm += ma[j] * ma[j];
+		}
+		if (tNorm == 0 || mNorm == 0) {
+			return 0;
+		}
+
+		int i = 0;
+		int j = 0;
+		while (i < tm.length && j < mm.length) {
+			double diff = (tm[i] - tm[0]) - (mm[j] - mm[0]);
+			if (Math.abs(diff) <= tolerance) {
+				dot += ta[i] * ma[j];
+				i++;
+				j++;
+			} else if (diff < 0) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+
+		return dot / Math.sqrt(tNorm * mNorm);
+	}
+
+	/**
+	 * Returns the natural isotope distribution of the element.
+	 */
+	private double[][] getElement(final String symbol) {
+
+		double[][] distribution = elements.get(symbol);
+		if (distribution == null) {
+			IIsotope[] isotopes = factory.getIsotopes(symbol);
+			int n = 0;
+			double[] m = new double[isotopes.length];
+			double[] a = new double[isotopes.length];
+			for (IIsotope isotope : isotopes) {
+				Double abundance = isotope.getNaturalAbundance();
+				if (abundance != null && abundance > 0 && isotope.getExactMass() != null) {
+					m[n] = isotope.getExactMass();
+					a[n] = abundance;
+					n++;
+				}
+			}
+			distribution = normalise(m, a, n);
+			elements.put(symbol, distribution);
+		}
+		return distribution;
+	}
+
+	private double[][] getPower(double[][] base, int count) {
+
+		double[][] result = EMPTY;
+		while (count > 0) {
+			if ((count & 1) == 1) {
+				result = convolve(result, base);
+			}
+			count >>= 1;
+			if (count > 0) {
+				base = convolve(base, base);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Convolves two distributions, then merges close peaks and prunes peaks of low abundance.
+	 */
+	private double[][] convolve(final double[][] p, final double[][] q) {
+
+		double[] pm = p[0];
+		double[] pa = p[1];
+		double[] qm = q[0];
+		double[] qa = q[1];
+		int size = pm.length * qm.length;
+		if (masses.length < size) {
+			masses = new double[size];
+			abundances = new double[size];
+		}
+
+		// skip negligible products; both inputs are sorted, so each row of the product is a sorted run
+		double threshold = max(pa) * max(qa) * MIN_ABUNDANCE;
+		int n = 0;
+		for (int i = 0; i < pm.length; i++) {
+			for (int j = 0; j < qm.length; j++) {
+				double a = pa[i] * qa[j];
+				if (a >= threshold) {
+					masses[n] = pm[i] + qm[j];
+					abundances[n] = a;
+					n++;
+				}
+			}
+		}
+		sort(masses, abundances, n);
+
+		// merge peaks within the tolerance into their abundance-weighted mean
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (k > 0 && masses[i] - masses[k - 1] <= tolerance) {
+				double a = abundances[k - 1] + abundances[i];
+				masses[k - 1] = (masses[k - 1] * abundances[k - 1] + masses[i] * abundances[i]) / a;
+				abundances[k - 1] = a;
+			} else {
+				masses[k] = masses[i];
+				abundances[k] = abundances[i];
+				k++;
+			}
+		}
+		return normalise(masses, abundances, k);
+	}
+
+	/**
+	 * Copies the first n peaks that reach the threshold, scaled to a maximum of one.
+	 */
+	private static double[][] normalise(final double[] m, final double[] a, final int n) {
+
+		double top = 0;
+		for (int i = 0; i < n; i++) {
+			top = Math.max(top, a[i]);
+		}
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (a[i] >= top * MIN_ABUNDANCE) {
+				k++;
+			}
+		}
+		double[][] result = new double[2][k];
+		k = 0;
+		for (int i = 0; i < n; i++) {
+			if (a[i] >= top * MIN_ABUNDANCE) {
+				result[0][k] = m[i];
+				result[1][k] = a[i] / top;
+				k++;
+			}
+		}
+		return result;
+	}
+
+	private static double max(final double[] values) {
+
+		double max = 0;
+		for (double value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	/**
+	 * Insertion sort by mass; the product rows are sorted runs, so few elements move far.
+	 */
+	private static void sort(final double[] m, final double[] a, final int n) {
+
+		for (int i = 1; i < n; i++) {
+			double mi = m[i];
+			double ai = a[i];
+			int j = i - 1;
+			while (j >= 0 && m[j] > mi) {
+				m[j + 1] = m[j];
+				a[j + 1] = a[j];
+				j--;
+			}
+			m[j + 1] = mi;
+			a[j + 1] = ai;
+		}
+	}
+}
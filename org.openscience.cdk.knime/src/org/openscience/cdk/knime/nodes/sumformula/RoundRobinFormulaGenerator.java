@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.nodes.sumformula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.formula.rules.ElementRatioRule;
+import org.openscience.cdk.formula.rules.IRule;
+import org.openscience.cdk.formula.rules.MMElementRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.interfaces.IMolecularFormulaSet;
+
+/**
+ * Molecular formula generator based on the round-robin mass decomposition of B&ouml;cker and Lipt&aacute;k.
+ * <p>
+ * The element masses are discretised and an extended residue table is built once for the element alphabet. The table
+ * answers in constant time whether a residual integer mass can still be decomposed by the remaining elements, so
+ * branches that cannot reach the queried mass are cut before they are expanded. Element ranges, the maxima of the
+ * {@link MMElementRule} and the upper limits of the {@link ElementRatioRule} are applied as count bounds during the
+ * search. The nitrogen and element ratio rules are evaluated on the element counts of the candidates that match the
+ * mass, so only accepted formulas are ever built; any other rule is validated on the built formula.
+ * <p>
+ * B&ouml;cker, S., & Lipt&aacute;k, Z. (2007). A Fast and Simple Algorithm for the Money Changing Problem.
+ * Algorithmica, 48(4), 413-432. doi:10.1007/s00453-007-0162-8
+ * <p>
+ * Instances are not thread-safe; use one generator per thread.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+public final class RoundRobinFormulaGenerator {
+
+	/** Integer mass units per Dalton. */
+	private static final double BLOWUP = 1000;
+	private static final double EPSILON = 1e-9;
+	private static final long INFINITY = Long.MAX_VALUE;
+	private static final int BLOCK_BITS = 5;
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+	private final IChemObjectBuilder builder;
+	private final double tolerance;
+	// rules without an evaluation on element counts
+	private final List<IRule> rules = new ArrayList<IRule>();
+
+	// elements ordered by level: the lightest first, carbon last
+	private final IIsotope[] isotopes;
+	private final double[] masses;
+	private final long[] weights;
+	private final int[] minCounts;
+	private final int[] maxCounts;
+	private final int carbonLevel;
+	private final int hydrogenLevel;
+
+	// nitrogen rule: mass numbers and the elements counted as nitrogen
+	private boolean nitrogenRule;
+	private final int[] massNumbers;
+	private final boolean[] nitrogens;
+
+	// element ratio rule: limits per level, null for elements the rule does not restrict
+	private ElementRatioRule ratioRule;
+	private ElementRatioRule.RatioType ratioType;
+	private final double[][] ratioLimits;
+
+	// relative discretisation error bounds of the elements up to each level
+	private final double[] minErrors;
+	private final double[] maxErrors;
+
+	// extended residue table: smallest decomposable mass per level and residue
+	private final long[][] ert;
+	// minimum of (entry - residue) per block of residues
+	private final long[][] blockMins;
+	private final long modulus;
+
+	// search state
+	private final int[] counts;
+	private final int[] bounds;
+	private final double[] minRest;
+	private final double[] maxRest;
+	private final List<Hit> hits = new ArrayList<Hit>();
+	private double target;
+
+	/**
+	 * Constructs a new generator for the element ranges.
+	 *
+	 * @param range the element ranges of the major isotopes
+	 * @param tolerance the mass tolerance in amu
+	 * @param rules the rules each formula has to pass
+	 * @param builder the chem object builder
+	 */
+	public RoundRobinFormulaGenerator(final MolecularFormulaRange range, final double tolerance,
+			final List<IRule> rules, final IChemObjectBuilder builder) {
+
+		this.builder = builder;
+		this.tolerance = tolerance;
+
+		List<IIsotope> alphabet = new ArrayList<IIsotope>();
+		for (IIsotope isotope : range.isotopes()) {
+			alphabet.add(isotope);
+		}
+		Collections.sort(alphabet, new Comparator<IIsotope>() {
+
+			@Override
+			public int compare(final IIsotope o1, final IIsotope o2) {
+				return Double.compare(o1.getExactMass(), o2.getExactMass());
+			}
+		});
+		// carbon is decided first so that the ratio limits bound all other elements
+		for (int i = 1; i < alphabet.size(); i++) {
+			if ("C".equals(alphabet.get(i).getSymbol())) {
+				alphabet.add(alphabet.remove(i));
+				break;
+			}
+		}
+
+		int k = alphabet.size();
+		isotopes = alphabet.toArray(new IIsotope[k]);
+		masses = new double[k];
+		weights = new long[k];
+		minCounts = new int[k];
+		maxCounts = new int[k];
+		massNumbers = new int[k];
+		nitrogens = new boolean[k];
+		ratioLimits = new double[k][];
+		carbonLevel = k > 1 && "C".equals(isotopes[k - 1].getSymbol()) ? k - 1 : -1;
+		int hLevel = -1;
+
+		minErrors = new double[k];
+		maxErrors = new double[k];
+		double minErr = 0;
+		double maxErr = 0;
+		for (int i = 0; i < k; i++) {
+			masses[i] = isotopes[i].getExactMass();
+			weights[i] = Math.max(1, Math.round(masses[i] * BLOWUP));
+			minCounts[i] = range.getIsotopeCountMin(isotopes[i]);
+			maxCounts[i] = range.getIsotopeCountMax(isotopes[i]);
+			String symbol = isotopes[i].getSymbol();
+			if ("H".equals(symbol)) {
+				hLevel = i;
+			}
+			// as in the nitrogen rule, Co, Hg, Pt and As count as nitrogen
+			nitrogens[i] = "N".equals(symbol) || "Co".equals(symbol) || "Hg".equals(symbol) || "Pt".equals(symbol)
+					|| "As".equals(symbol);
+			double error = (weights[i] - masses[i] * BLOWUP) / (masses[i] * BLOWUP);
+			minErr = Math.min(minErr, error);
+			maxErr = Math.max(maxErr, error);
+			minErrors[i] = minErr;
+			maxErrors[i] = maxErr;
+		}
+		hydrogenLevel = hLevel;
+
+		if (rules != null) {
+			for (IRule rule : rules) {
+				if (rule instanceof MMElementRule) {
+					// the rule only limits single element counts, the bounds replace it completely
+					for (int i = 0; i < k; i++) {
+						maxCounts[i] = getMaxCount(rule, isotopes[i], maxCounts[i]);
+					}
+				} else if (rule instanceof NitrogenRule && !nitrogenRule && setMassNumbers()) {
+					nitrogenRule = true;
+				} else if (rule instanceof ElementRatioRule && ratioType == null && carbonLevel != -1) {
+					setRatioLimits((ElementRatioRule) rule);
+				} else {
+					this.rules.add(rule);
+				}
+			}
+		}
+
+		modulus = k == 0 ? 1 : weights[0];
+		ert = createResidueTable();
+		blockMins = createBlockMins();
+
+		counts = new int[k];
+		bounds = new int[k];
+		minRest = new double[k + 1];
+		maxRest = new double[k + 1];
+		for (int i = 0; i < k; i++) {
+			minRest[i + 1] = minRest[i] + minCounts[i] * masses[i];
+		}
+	}
+
+	private boolean setMassNumbers() {
+
+		for (int i = 0; i < isotopes.length; i++) {
+			Integer massNumber = isotopes[i].getMassNumber();
+			if (massNumber == null) {
+				return false;
+			}
+			massNumbers[i] = massNumber;
+		}
+		return true;
+	}
+
+	private void setRatioLimits(final ElementRatioRule rule) {
+
+		ratioRule = rule;
+		ratioType = (ElementRatioRule.RatioType) rule.getParameters()[0];
+		for (int i = 0; i < carbonLevel; i++) {
+			boolean hydrogen = i == hydrogenLevel;
+			if (ratioType == ElementRatioRule.RatioType.HYDROGEN_CARBON && !hydrogen
+					|| ratioType == ElementRatioRule.RatioType.HETERATOMS_CARBON && hydrogen) {
+				continue;
+			}
+			ratioLimits[i] = rule.getLimits(isotopes[i].getSymbol());
+		}
+	}
+
+	/**
+	 * Generates all formulas whose exact mass lies within the tolerance of the mass and which pass all rules.
+	 *
+	 * @param mass the major isotopic mass
+	 * @return the formulas ordered by ascending mass error
+	 */
+	public IMolecularFormulaSet generate(final double mass) {
+
+		IMolecularFormulaSet formulas = builder.newInstance(IMolecularFormulaSet.class);
+		int k = isotopes.length;
+		if (k == 0 || mass <= 0) {
+			return formulas;
+		}
+
+		target = mass;
+		hits.clear();
+		System.arraycopy(maxCounts, 0, bounds, 0, k);
+		updateMaxRest(k);
+
+		double lo = mass - tolerance;
+		double hi = mass + tolerance;
+		decompose(k - 1, lo, hi);
+
+		Collections.sort(hits, new Comparator<Hit>() {
+
+			@Override
+			public int compare(final Hit o1, final Hit o2) {
+				return Double.compare(o1.error, o2.error);
+			}
+		});
+		for (Hit hit : hits) {
+			formulas.addMolecularFormula(hit.formula);
+		}
+		hits.clear();
+
+		return formulas;
+	}
+
+	/**
+	 * Assigns the count of the element at the level and descends to the lighter elements.
+	 */
+	private void decompose(final int level, final double lo, final double hi) {
+
+		double mass = masses[level];
+		int from = Math.max(minCounts[level], (int) Math.ceil((lo - maxRest[level]) / mass - EPSILON));
+		int to = Math.min(bounds[level], (int) Math.floor((hi - minRest[level]) / mass + EPSILON));
+
+		for (int c = from; c <= to; c++) {
+			counts[level] = c;
+			if (level == 0) {
+				accept();
+				continue;
+			}
+			double residual = c * mass;
+			if (!isDecomposable(level - 1, lo - residual, hi - residual)) {
+				continue;
+			}
+			if (level == carbonLevel) {
+				applyRatioLimits(c);
+			}
+			decompose(level - 1, lo - residual, hi - residual);
+		}
+	}
+
+	/**
+	 * Checks whether any integer mass that a formula of the elements up to the level with a real mass in the interval
+	 * can have is decomposable by these elements.
+	 */
+	private boolean isDecomposable(final int level, final double lo, final double hi) {
+
+		if (hi < 0) {
+			return false;
+		}
+		// one unit of slack against rounding
+		long from = Math.max(0, (long) Math.floor(lo * BLOWUP * (1 + minErrors[level])) - 1);
+		long to = (long) Math.ceil(hi * BLOWUP * (1 + maxErrors[level])) + 1;
+		long block = to / modulus;
+		long base = block * modulus;
+		if (base >= from) {
+			// multiples of the lightest weight are always decomposable
+			return true;
+		}
+		// the interval lies within one block: some residue r needs ert[r] <= base + r
+		return getMinSlack(level, (int) (from - base), (int) (to - base)) <= base;
+	}
+
+	/**
+	 * Returns the minimum of (entry - residue) of the residue table at the level for the residues in the range.
+	 */
+	private long getMinSlack(final int level, int from, final int to) {
+
+		long[] residues = ert[level];
+		long[] blocks = blockMins[level];
+		long min = INFINITY;
+		while (from <= to && (from & (BLOCK_SIZE - 1)) != 0) {
+			min = Math.min(min, residues[from] - from);
+			from++;
+		}
+		while (from + BLOCK_SIZE - 1 <= to) {
+			min = Math.min(min, blocks[from >> BLOCK_BITS]);
+			from += BLOCK_SIZE;
+		}
+		while (from <= to) {
+			min = Math.min(min, residues[from] - from);
+			from++;
+		}
+		return min;
+	}
+
+	/**
+	 * Restricts the elements below carbon to the ratio limits for the carbon count.
+	 */
+	private void applyRatioLimits(final int carbons) {
+
+		for (int i = 0; i < carbonLevel; i++) {
+			bounds[i] = maxCounts[i];
+			if (carbons > 0 && ratioLimits[i] != null) {
+				// one above the upper limit keeps the bound safe against rounding, the exact check follows
+				double limit = Math.floor(ratioLimits[i][ratioLimits[i].length - 1] * carbons) + 1;
+				if (limit < bounds[i]) {
+					bounds[i] = (int) limit;
+				}
+			}
+		}
+		updateMaxRest(carbonLevel);
+	}
+
+	private void updateMaxRest(final int level) {
+
+		for (int i = 0; i < level; i++) {
+			maxRest[i + 1] = maxRest[i] + bounds[i] * masses[i];
+		}
+	}
+
+	/**
+	 * Checks the mass and the rules of the current counts and records the formula on success.
+	 */
+	private void accept() {
+
+		double mass = 0;
+		for (int i = 0; i < counts.length; i++) {
+			mass += counts[i] * masses[i];
+		}
+		double error = Math.abs(mass - target);
+		if (error >= tolerance || nitrogenRule && !isValidNitrogen() || ratioType != null && !isValidRatio()) {
+			return;
+		}
+
+		IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				formula.addIsotope(isotopes[i], counts[i]);
+			}
+		}
+		for (IRule rule : rules) {
+			try {
+				if (rule.validate(formula) != 1) {
+					return;
+				}
+			} catch (Exception exception) {
+				// rules that cannot judge the formula do not reject it
+			}
+		}
+		hits.add(new Hit(formula, error));
+	}
+
+	/**
+	 * Evaluates the {@link NitrogenRule} for uncharged formulas: the nominal mass and the nitrogen count share their
+	 * parity.
+	 */
+	private boolean isValidNitrogen() {
+
+		long massNumber = 0;
+		int nitrogenCount = 0;
+		for (int i = 0; i < counts.length; i++) {
+			massNumber += (long) counts[i] * massNumbers[i];
+			if (nitrogens[i]) {
+				nitrogenCount += counts[i];
+			}
+		}
+		return massNumber != 0 && massNumber % 2 == nitrogenCount % 2;
+	}
+
+	/**
+	 * Evaluates the {@link ElementRatioRule} on the element counts with the bounds of the rule.
+	 */
+	private boolean isValidRatio() {
+
+		double carbons = counts[carbonLevel];
+		if (carbons == 0) {
+			return true;
+		}
+		if (ratioType == ElementRatioRule.RatioType.HYDROGEN_CARBON) {
+			// hydrogen is checked even if the formula has none
+			double hydrogens = hydrogenLevel == -1 ? 0 : counts[hydrogenLevel];
+			return ratioRule.isWithin("H", hydrogens / carbons);
+		}
+		for (int i = 0; i < carbonLevel; i++) {
+			if (counts[i] != 0 && ratioLimits[i] != null
+					&& !ratioRule.isWithin(isotopes[i].getSymbol(), counts[i] / carbons)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the extended residue table with the round-robin algorithm. Entry [i][r] holds the smallest integer mass
+	 * congruent to r modulo the lightest weight that is decomposable by the elements 0 to i.
+	 */
+	private long[][] createResidueTable() {
+
+		int k = isotopes.length;
+		int a = (int) modulus;
+		long[][] table = new long[k][];
+		if (k == 0) {
+			return table;
+		}
+
+		table[0] = new long[a];
+		Arrays.fill(table[0], INFINITY);
+		table[0][0] = 0;
+		for (int i = 1; i < k; i++) {
+			long[] residues = table[i - 1].clone();
+			long w = weights[i];
+			int d = (int) gcd(a, w);
+			for (int p = 0; p < d; p++) {
+				// start the round at the smallest entry of the residue class
+				long n = INFINITY;
+				for (int q = p; q < a; q += d) {
+					n = Math.min(n, residues[q]);
+				}
+				if (n == INFINITY) {
+					continue;
+				}
+				for (int j = 1; j < a / d; j++) {
+					n += w;
+					int r = (int) (n % a);
+					n = Math.min(n, residues[r]);
+					residues[r] = n;
+				}
+			}
+			table[i] = residues;
+		}
+		return table;
+	}
+
+	private long[][] createBlockMins() {
+
+		int a = (int) modulus;
+		long[][] mins = new long[ert.length][];
+		for (int i = 0; i < ert.length; i++) {
+			mins[i] = new long[(a + BLOCK_SIZE - 1) >> BLOCK_BITS];
+			Arrays.fill(mins[i], INFINITY);
+			for (int r = 0; r < a; r++) {
+				int b = r >> BLOCK_BITS;
+				mins[i][b] = Math.min(mins[i][b], ert[i][r] - r);
+			}
+		}
+		return mins;
+	}
+
+	/**
+	 * Returns the largest count of the element up to the maximum that passes the rule on its own.
+	 */
+	private int getMaxCount(final IRule rule, final IIsotope isotope, final int max) {
+
+		try {
+			if (isValid(rule, isotope, max)) {
+				return max;
+			}
+			int lo = 0;
+			int hi = max - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (isValid(rule, isotope, mid)) {
+					lo = mid;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			return lo;
+		} catch (Exception exception) {
+			// the rule does not cover the element
+			return max;
+		}
+	}
+
+	private boolean isValid(final IRule rule, final IIsotope isotope, final int count) throws CDKException {
+
+		IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+		formula.addIsotope(isotope, count);
+		return rule.validate(formula) == 1;
+	}
+
+	private static long gcd(long a, long b) {
+
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private static final class Hit {
+
+		private final IMolecularFormula formula;
+		private final double error;
+
+		Hit(final IMolecularFormula formula, final double error) {
+			this.formula = formula;
+			this.error = error;
+		}
+	}
+}
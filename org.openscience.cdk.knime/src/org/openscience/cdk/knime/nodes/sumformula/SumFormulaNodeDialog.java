@@ -33,6 +33,7 @@ import javax.swing.event.ChangeListener;
 
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DoubleValue;
+import org.knime.core.data.collection.CollectionDataValue;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeSettingsRO;
@@ -50,6 +51,12 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 
 	@SuppressWarnings("unchecked")
 	private final ColumnSelectionComboxBox massColumn = new ColumnSelectionComboxBox((Border) null, DoubleValue.class);
+	@SuppressWarnings("unchecked")
+	private final ColumnSelectionComboxBox mzColumn = new ColumnSelectionComboxBox((Border) null,
+			CollectionDataValue.class);
+	@SuppressWarnings("unchecked")
+	private final ColumnSelectionComboxBox intensityColumn = new ColumnSelectionComboxBox((Border) null,
+			CollectionDataValue.class);
 
 	private final JRadioButton customRemoveButton;
 	private final JRadioButton customSetButton;
@@ -63,6 +70,7 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 	private final JCheckBox ratioRule = new JCheckBox("", true);
 	private final JCheckBox nitrogenRule = new JCheckBox("", true);
 	private final JCheckBox numberRule = new JCheckBox("", true);
+	private final JCheckBox roundRobin = new JCheckBox("", false);
 	
 	private final JComboBox<Object> ratioBoxRange = new JComboBox<Object>(new Object[] {
 			"Common Range", "Extended Range", "Extreme Range"
@@ -185,6 +193,12 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 		c.gridy++;
 		c.gridx = 0;
 		
+		panel.add(new JLabel("Round-robin decomposition  "), c);
+		c.gridx++;
+		panel.add(roundRobin, c);
+		c.gridy++;
+		c.gridx = 0;
+		
 		panel.add(new JLabel("Apply nitrogen rule   "), c);
 		c.gridx++;
 		panel.add(nitrogenRule, c);
@@ -233,6 +247,18 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 			}
 		});
 
+		panel.add(new JLabel("Pattern m/z column  "), c);
+		c.gridx++;
+		panel.add(mzColumn, c);
+		c.gridy++;
+		c.gridx = 0;
+
+		panel.add(new JLabel("Pattern intensity column  "), c);
+		c.gridx++;
+		panel.add(intensityColumn, c);
+		c.gridy++;
+		c.gridx = 0;
+
 		ButtonGroup bg = new ButtonGroup();
 		bg.add(allSetButton);
 		bg.add(customSetButton);
@@ -255,6 +281,18 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 		}
 
 		massColumn.update(specs[0], this.settings.targetColumn());
+		// the isotope pattern port is optional
+		boolean patternPort = specs.length > 1 && specs[1] != null;
+		if (patternPort) {
+			try {
+				mzColumn.update(specs[1], this.settings.mzColumn());
+				intensityColumn.update(specs[1], this.settings.intensityColumn());
+			} catch (NotConfigurableException exception) {
+				patternPort = false;
+			}
+		}
+		mzColumn.setEnabled(patternPort);
+		intensityColumn.setEnabled(patternPort);
 		elementField.setText(this.settings.elements());
 		cRangeField.setText(this.settings.getcRange()[0] + "-" + this.settings.getcRange()[1]);
 		hRangeField.setText(this.settings.gethRange()[0] + "-" + this.settings.gethRange()[1]);
@@ -267,6 +305,7 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 			customRemoveButton.setSelected(true);
 		}
 		toleranceField.setText(this.settings.tolerance() + "");
+		roundRobin.setSelected(this.settings.roundRobin());
 		nitrogenRule.setSelected(this.settings.isApplyNitrogenRule());
 		
 		if (!this.settings.isApplyRatioRule().isEmpty()) {
@@ -293,6 +332,10 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 	protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSettingsException {
 
 		this.settings.targetColumn(massColumn.getSelectedColumn());
+		if (mzColumn.isEnabled()) {
+			this.settings.mzColumn(mzColumn.getSelectedColumn());
+			this.settings.intensityColumn(intensityColumn.getSelectedColumn());
+		}
 		this.settings.elements(elementField.getText());
 		
 		int[] cRangeInt = null;
@@ -317,6 +360,7 @@ public class SumFormulaNodeDialog extends NodeDialogPane {
 		this.settings.incAll(allSetButton.isSelected());
 		this.settings.incSpec(customSetButton.isSelected());
 		this.settings.tolerance(Double.parseDouble(toleranceField.getText()));
+		this.settings.roundRobin(roundRobin.isSelected());
 		this.settings.setApplyNitrogenRule(nitrogenRule.isSelected());
 		this.settings.setApplyRatioRule(ratioRule.isSelected() ? ratioBoxType.getSelectedItem().toString() + 
 				"-" + ratioBoxRange.getSelectedItem().toString(): "");
@@ -19,8 +19,12 @@ package org.openscience.cdk.knime.nodes.sumformula;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.knime.core.data.DataCell;
@@ -30,13 +34,19 @@ import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
 import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.CollectionDataValue;
 import org.knime.core.data.collection.ListCell;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.port.PortType;
 import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.config.Isotopes;
@@ -65,14 +75,92 @@ import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
  */
 public class SumFormulaNodeModel extends CDKNodeModel {
 
+	/** Number of mass results kept per thread. */
+	private static final int CACHE_SIZE = 4096;
+
 	private List<IRule> rules;
+	private List<IRule> filters;
 	private MolecularFormulaChecker mfc;
+
+	// whether the optional isotope pattern port is connected
+	private boolean scoring;
+	// measured isotope patterns by row key, available during execution only
+	private Map<RowKey, double[][]> patterns;
 	
 	/**
 	 * Constructor for the node model.
 	 */
 	protected SumFormulaNodeModel() {
-		super(1, 1, new SumFormulaSettings());
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL },
+				new PortType[] { BufferedDataTable.TYPE }, new SumFormulaSettings());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+
+		scoring = inData[1] != null;
+		patterns = scoring ? getPatterns(inData[1]) : null;
+		try {
+			ColumnRearranger cr = createColumnRearranger(inData[0].getDataTableSpec());
+			return new BufferedDataTable[] { exec.createColumnRearrangeTable(inData[0], cr, exec) };
+		} finally {
+			patterns = null;
+		}
+	}
+
+	/**
+	 * Reads the measured isotope patterns sorted by m/z. Rows with missing lists are skipped.
+	 * 
+	 * @param table the isotope pattern table
+	 * @return the m/z values and intensities by row key
+	 */
+	private Map<RowKey, double[][]> getPatterns(final BufferedDataTable table) {
+
+		DataTableSpec spec = table.getDataTableSpec();
+		int mzIndex = spec.findColumnIndex(settings(SumFormulaSettings.class).mzColumn());
+		int intensityIndex = spec.findColumnIndex(settings(SumFormulaSettings.class).intensityColumn());
+
+		Map<RowKey, double[][]> measured = new HashMap<RowKey, double[][]>();
+		for (DataRow row : table) {
+			DataCell mzCell = row.getCell(mzIndex);
+			DataCell intensityCell = row.getCell(intensityIndex);
+			if (mzCell.isMissing() || intensityCell.isMissing()) {
+				continue;
+			}
+			double[] mz = toArray((CollectionDataValue) mzCell);
+			double[] intensities = toArray((CollectionDataValue) intensityCell);
+			int n = Math.min(mz.length, intensities.length);
+			// insertion sort by m/z, measured patterns are short and usually sorted
+			double[][] pattern = new double[][] { Arrays.copyOf(mz, n), Arrays.copyOf(intensities, n) };
+			for (int i = 1; i < n; i++) {
+				double m = pattern[0][i];
+				double a = pattern[1][i];
+				int j = i - 1;
+				while (j >= 0 && pattern[0][j] > m) {
+					pattern[0][j + 1] = pattern[0][j];
+					pattern[1][j + 1] = pattern[1][j];
+					j--;
+				}
+				pattern[0][j + 1] = m;
+				pattern[1][j + 1] = a;
+			}
+			measured.put(row.getKey(), pattern);
+		}
+		return measured;
+	}
+
+	private double[] toArray(final CollectionDataValue collection) {
+
+		double[] values = new double[collection.size()];
+		int i = 0;
+		for (DataCell cell : collection) {
+			values[i++] = cell.isMissing() ? 0 : ((DoubleValue) cell).getDoubleValue();
+		}
+		return values;
 	}
 
 	/**
@@ -85,15 +173,25 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 				DataTableSpec.getUniqueColumnName(spec, "Sum Formula"),
 				ListCell.getCollectionType(StringCell.TYPE));
 
-		DataColumnSpec[] appendSpec = new DataColumnSpec[] { crea1.createSpec() };
+		DataColumnSpec[] appendSpec;
+		if (scoring) {
+			DataColumnSpecCreator crea2 = new DataColumnSpecCreator(
+					DataTableSpec.getUniqueColumnName(spec, "Isotope Score"),
+					ListCell.getCollectionType(DoubleCell.TYPE));
+			appendSpec = new DataColumnSpec[] { crea1.createSpec(), crea2.createSpec() };
+		} else {
+			appendSpec = new DataColumnSpec[] { crea1.createSpec() };
+		}
 		columnIndex = spec.findColumnIndex(settings.targetColumn());
 		
 		// CUSTOM PARAMETERS
 		rules = new ArrayList<IRule>();
+		filters = new ArrayList<IRule>();
+		final MolecularFormulaRange mfRange = new MolecularFormulaRange();
+		IsotopeFactory ifac = null;
 		try {
 			// restriction for occurrence elements
-			IsotopeFactory ifac = Isotopes.getInstance();
-			MolecularFormulaRange mfRange = new MolecularFormulaRange();
+			ifac = Isotopes.getInstance();
 			if (settings(SumFormulaSettings.class).incSpec()) {
 				String[] els = settings(SumFormulaSettings.class).elements().split(",");
 				for (String el : els) {
@@ -159,21 +257,78 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 			rule3.setParameters(new Object[] { 0.0, settings(SumFormulaSettings.class).tolerance() });
 			rules.add(rule3);
 			// set options
-			mfc = new MolecularFormulaChecker(getRules());
+			filters = getRules();
+			mfc = new MolecularFormulaChecker(filters);
 		} catch (Exception e) {
 			e.printStackTrace();
 			setWarningMessage("Rule violation, falling back to default rules.");
 		}
 		
+		// the generator is configured once per thread and reused for all its rows
+		final ThreadLocal<MassToFormulaTool> generators = new ThreadLocal<MassToFormulaTool>() {
+
+			@Override
+			protected MassToFormulaTool initialValue() {
+				MassToFormulaTool mtft = new MassToFormulaTool(DefaultChemObjectBuilder.getInstance());
+				if (rules.size() == 3) {
+					try {
+						mtft.setRestrictions(rules);
+					} catch (CDKException e) {
+						setWarningMessage("Rule violation, falling back to default rules.");
+						mtft.setDefaultRestrictions();
+					}
+				}
+				return mtft;
+			}
+		};
+
+		// the round-robin generator applies the filter rules itself
+		final boolean roundRobin = settings(SumFormulaSettings.class).roundRobin();
+		final double tolerance = settings(SumFormulaSettings.class).tolerance();
+		final ThreadLocal<RoundRobinFormulaGenerator> decomposers = new ThreadLocal<RoundRobinFormulaGenerator>() {
+
+			@Override
+			protected RoundRobinFormulaGenerator initialValue() {
+				return new RoundRobinFormulaGenerator(mfRange, tolerance, filters,
+						DefaultChemObjectBuilder.getInstance());
+			}
+		};
+
+		// peak lists repeat masses, the least recently used results are evicted
+		final ThreadLocal<Map<Double, Candidates>> caches = new ThreadLocal<Map<Double, Candidates>>() {
+
+			@Override
+			protected Map<Double, Candidates> initialValue() {
+				return new LinkedHashMap<Double, Candidates>(16, 0.75f, true) {
+
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(final Map.Entry<Double, Candidates> eldest) {
+						return size() > CACHE_SIZE;
+					}
+				};
+			}
+		};
+
+		final IsotopeFactory factory = ifac;
+		final ThreadLocal<IsotopePatternScorer> scorers = new ThreadLocal<IsotopePatternScorer>() {
+
+			@Override
+			protected IsotopePatternScorer initialValue() {
+				return new IsotopePatternScorer(factory, tolerance);
+			}
+		};
+
 		AbstractCellFactory cf = new AbstractCellFactory(true, appendSpec) {
 
 			@Override
 			public DataCell[] getCells(final DataRow row) {
 
 				DataCell massCell = row.getCell(columnIndex);
-				DataCell[] newCells = new DataCell[1];
+				DataCell[] newCells = new DataCell[getColumnSpecs().length];
 				if (massCell.isMissing()) {
-					newCells[0] = DataType.getMissingCell();
+					Arrays.fill(newCells, DataType.getMissingCell());
 					return newCells;
 				}
 				if (!(massCell instanceof DoubleValue)) {
@@ -181,41 +336,24 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 							+ massCell.getClass().getName());
 				}
 
-				MassToFormulaTool mtft = new MassToFormulaTool(DefaultChemObjectBuilder.getInstance());
-				if (rules.size() == 3) {
-					try {
-						mtft.setRestrictions(rules);
-					} catch (CDKException e) {
-						setWarningMessage("Rule violation, falling back to default rules.");
-						mtft.setDefaultRestrictions();
-					}
-				}
 				double mass = ((DoubleValue) row.getCell(columnIndex)).getDoubleValue();
-				IMolecularFormulaSet mfSet = null;
-				mfSet = mtft.generate(mass);
-
-				if (mfSet == null || mfSet.size() == 0) {
-					newCells[0] = DataType.getMissingCell();
-					return newCells;
+				Map<Double, Candidates> cache = caches.get();
+				Candidates candidates = cache.get(mass);
+				if (candidates == null) {
+					candidates = roundRobin ? getCandidates(decomposers.get().generate(mass), false)
+							: getCandidates(generators.get().generate(mass), true);
+					cache.put(mass, candidates);
 				}
-				
-				Collection<StringCell> hillStrings = new ArrayList<StringCell>();
-				for (IMolecularFormula formula : mfSet.molecularFormulas()) {
-
-					try {
-						double validSum = mfc.isValidSum(formula);
-						if (validSum != 1) {
-							continue;
-						}
-						hillStrings.add(new StringCell(MolecularFormulaManipulator.getString(formula)));
-					} catch (Exception exception) {
-						exception.printStackTrace();
-						hillStrings.add(new StringCell(MolecularFormulaManipulator.getString(formula)));
+				newCells[0] = candidates.cell;
+				if (scoring) {
+					double[][] pattern = patterns == null ? null : patterns.get(row.getKey());
+					if (pattern == null || factory == null || candidates.formulas.length == 0) {
+						newCells[1] = DataType.getMissingCell();
+					} else {
+						rank(candidates, pattern, scorers.get(), newCells);
 					}
 				}
 
-				newCells[0] = CollectionCellFactory.createListCell(hillStrings);
-
 				return newCells;
 			}
 		};
@@ -226,6 +364,84 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 		return arranger;
 	}
 
+	/**
+	 * Collects the generated formulas and their list cell.
+	 * 
+	 * @param mfSet the generated formulas
+	 * @param check whether the formulas have to pass the formula checker
+	 * @return the candidates with a list cell of Hill formulas or a missing cell if no formula was found
+	 */
+	private Candidates getCandidates(final IMolecularFormulaSet mfSet, final boolean check) {
+
+		if (mfSet == null || mfSet.size() == 0) {
+			return new Candidates(new IMolecularFormula[0], new StringCell[0], DataType.getMissingCell());
+		}
+
+		List<IMolecularFormula> formulas = new ArrayList<IMolecularFormula>();
+		for (IMolecularFormula formula : mfSet.molecularFormulas()) {
+
+			if (!check) {
+				formulas.add(formula);
+				continue;
+			}
+			try {
+				double validSum = mfc.isValidSum(formula);
+				if (validSum != 1) {
+					continue;
+				}
+				formulas.add(formula);
+			} catch (Exception exception) {
+				exception.printStackTrace();
+				formulas.add(formula);
+			}
+		}
+
+		StringCell[] hillStrings = new StringCell[formulas.size()];
+		for (int i = 0; i < hillStrings.length; i++) {
+			hillStrings[i] = new StringCell(MolecularFormulaManipulator.getString(formulas.get(i)));
+		}
+		return new Candidates(formulas.toArray(new IMolecularFormula[hillStrings.length]), hillStrings,
+				CollectionCellFactory.createListCell(Arrays.asList(hillStrings)));
+	}
+
+	/**
+	 * Scores the candidates against the measured pattern and fills the formula and score cells in descending score
+	 * order. Candidates with equal scores keep their order.
+	 * 
+	 * @param candidates the candidates
+	 * @param pattern the measured m/z values and intensities
+	 * @param scorer the isotope pattern scorer of this thread
+	 * @param cells the cells to fill
+	 */
+	private void rank(final Candidates candidates, final double[][] pattern, final IsotopePatternScorer scorer,
+			final DataCell[] cells) {
+
+		int n = candidates.formulas.length;
+		final double[] scores = new double[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			scores[i] = scorer.score(candidates.formulas[i], candidates.hillStrings[i].getStringValue(), pattern[0],
+					pattern[1]);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(final Integer o1, final Integer o2) {
+				return Double.compare(scores[o2], scores[o1]);
+			}
+		});
+
+		Collection<StringCell> hillStrings = new ArrayList<StringCell>(n);
+		Collection<DoubleCell> scoreCells = new ArrayList<DoubleCell>(n);
+		for (int i : order) {
+			hillStrings.add(candidates.hillStrings[i]);
+			scoreCells.add(new DoubleCell(scores[i]));
+		}
+		cells[0] = CollectionCellFactory.createListCell(hillStrings);
+		cells[1] = CollectionCellFactory.createListCell(scoreCells);
+	}
+
 	private List<IRule> getRules() throws CDKException {
 
 		List<IRule> rules = new ArrayList<IRule>();
@@ -287,10 +503,58 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 
 		settings.targetColumn(CDKNodeUtils.autoConfigure(inSpecs[0], settings.targetColumn(), DoubleValue.class));
 
+		scoring = inSpecs[1] != null;
+		if (scoring) {
+			configurePatternColumns(inSpecs[1]);
+		}
+
 		ColumnRearranger arranger = createColumnRearranger(inSpecs[0]);
 		return new DataTableSpec[] { arranger.createSpec() };
 	}
 
+	/**
+	 * Auto-configures the m/z and intensity columns of the isotope pattern table. Without a selection the first two
+	 * double list columns are used.
+	 * 
+	 * @param spec the isotope pattern table specification
+	 * @throws InvalidSettingsException if the columns do not hold lists of doubles
+	 */
+	private void configurePatternColumns(final DataTableSpec spec) throws InvalidSettingsException {
+
+		SumFormulaSettings s = settings(SumFormulaSettings.class);
+		if (spec.findColumnIndex(s.mzColumn()) == -1 || spec.findColumnIndex(s.intensityColumn()) == -1) {
+			List<String> names = new ArrayList<String>();
+			for (DataColumnSpec columnSpec : spec) {
+				if (isDoubleList(columnSpec)) {
+					names.add(columnSpec.getName());
+				}
+			}
+			if (names.size() < 2) {
+				throw new InvalidSettingsException("Isotope pattern table needs m/z and intensity list columns");
+			}
+			s.mzColumn(names.get(0));
+			s.intensityColumn(names.get(1));
+			setWarningMessage("Auto configuration: Using isotope pattern columns \"" + names.get(0) + "\" and \""
+					+ names.get(1) + "\"");
+		}
+		if (!isDoubleList(spec.getColumnSpec(s.mzColumn())) || !isDoubleList(spec.getColumnSpec(s.intensityColumn()))) {
+			throw new InvalidSettingsException("Isotope pattern columns must contain lists of doubles");
+		}
+	}
+
+	private boolean isDoubleList(final DataColumnSpec spec) {
+		return spec.getType().isCollectionType()
+				&& spec.getType().getCollectionElementType().isCompatible(DoubleValue.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+		patterns = null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -303,4 +567,20 @@ public class SumFormulaNodeModel extends CDKNodeModel {
 			throw new InvalidSettingsException("No mass column chosen");
 		}
 	}
+
+	/**
+	 * Generated formulas of one mass with their Hill strings and the unscored list cell.
+	 */
+	private static final class Candidates {
+
+		private final IMolecularFormula[] formulas;
+		private final StringCell[] hillStrings;
+		private final DataCell cell;
+
+		Candidates(final IMolecularFormula[] formulas, final StringCell[] hillStrings, final DataCell cell) {
+			this.formulas = formulas;
+			this.hillStrings = hillStrings;
+			this.cell = cell;
+		}
+	}
 }
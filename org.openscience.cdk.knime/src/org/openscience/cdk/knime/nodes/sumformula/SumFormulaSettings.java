@@ -40,6 +40,9 @@ public class SumFormulaSettings implements CDKSettings {
 	private boolean applyNitrogenRule = true;
 	private String applyRatioRule = "HSiNOPSBrClF/C-Common Range";
 	private String applyNumberRule = "Wiley-500";
+	private boolean roundRobin = false;
+	private String mzColumn;
+	private String intensityColumn;
 	
 	protected String[] listElements = new String[]{
 		    "C", "H", "O", "N", "Si", "P", "S", "F", "Cl",
@@ -96,6 +99,60 @@ public class SumFormulaSettings implements CDKSettings {
 		this.applyNumberRule = applyNumberRule;
 	}
 	
+	/**
+	 * Whether formulas are generated by round-robin mass decomposition.
+	 * 
+	 * @return true if the round-robin generator is used
+	 */
+	public final boolean roundRobin() {
+		return roundRobin;
+	}
+
+	/**
+	 * Sets whether formulas are generated by round-robin mass decomposition.
+	 * 
+	 * @param roundRobin true to use the round-robin generator
+	 */
+	public final void roundRobin(final boolean roundRobin) {
+		this.roundRobin = roundRobin;
+	}
+
+	/**
+	 * Gets the name of the m/z list column of the optional isotope pattern table.
+	 * 
+	 * @return the m/z column
+	 */
+	public String mzColumn() {
+		return mzColumn;
+	}
+
+	/**
+	 * Sets the name of the m/z list column of the optional isotope pattern table.
+	 * 
+	 * @param mzColumn the m/z column to set
+	 */
+	public void mzColumn(final String mzColumn) {
+		this.mzColumn = mzColumn;
+	}
+
+	/**
+	 * Gets the name of the intensity list column of the optional isotope pattern table.
+	 * 
+	 * @return the intensity column
+	 */
+	public String intensityColumn() {
+		return intensityColumn;
+	}
+
+	/**
+	 * Sets the name of the intensity list column of the optional isotope pattern table.
+	 * 
+	 * @param intensityColumn the intensity column to set
+	 */
+	public void intensityColumn(final String intensityColumn) {
+		this.intensityColumn = intensityColumn;
+	}
+
 	public final int[] getcRange() {
 		return cRange;
 	}
@@ -138,6 +195,9 @@ public class SumFormulaSettings implements CDKSettings {
 		settings.addIntArray("crange", cRange);
 		settings.addIntArray("hrange", hRange);
 		settings.addIntArray("orange", oRange);
+		settings.addBoolean("roundRobin", roundRobin);
+		settings.addString("mzColumn", mzColumn);
+		settings.addString("intensityColumn", intensityColumn);
 	}
 
 	/**
@@ -159,6 +219,10 @@ public class SumFormulaSettings implements CDKSettings {
 		cRange = settings.getIntArray("crange");
 		hRange = settings.getIntArray("hrange");
 		oRange = settings.getIntArray("orange");
+		// the original generator stays the default, also for workflows created before the option
+		roundRobin = settings.getBoolean("roundRobin", false);
+		mzColumn = settings.getString("mzColumn", null);
+		intensityColumn = settings.getString("intensityColumn", null);
 	}
 	
 	public String elements() {
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2016, Stephan Beisken (sbeisken@gmail.com). All rights reserved.
+ *
+ * This file is part of the KNIME CDK plugin.
+ *
+ * The KNIME CDK plugin is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The KNIME CDK plugin is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with the plugin. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package org.openscience.cdk.knime.type;
+
+import java.awt.Component;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+
+import org.knime.core.node.NodeLogger;
+import org.openscience.cdk.knime.preferences.CDKPreferencePage.NUMBERING;
+
+/**
+ * Cache of rendered structures for the {@link CDKValueRenderer}.
+ * <p>
+ * Structures are rendered into bitmaps of the cell size on a background thread, so painting a table cell never parses
+ * or lays out a molecule on the event dispatch thread. Bitmaps are kept in an LRU bounded by their total size. Pending
+ * requests are served last in, first out, so the rows currently shown are rendered before rows that were scrolled
+ * past; the oldest requests are dropped if too many are pending.
+ *
+ * @author Stephan Beisken, European Bioinformatics Institute
+ */
+final class CDKRenderCache {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(CDKRenderCache.class);
+
+	/** Upper bound of the summed bitmap sizes in bytes. */
+	private static final long MAX_BYTES = 64L * 1024 * 1024;
+	/** Maximum number of pending render requests. */
+	private static final int MAX_PENDING = 512;
+
+	private static final Map<Key, Rendered> CACHE = new LinkedHashMap<Key, Rendered>(256, 0.75f, true);
+	private static long bytes = 0;
+
+	private static final Deque<Request> QUEUE = new ArrayDeque<Request>();
+	private static final Map<Key, Request> PENDING = new HashMap<Key, Request>();
+	private static Thread worker;
+
+	private CDKRenderCache() {
+		// utility class
+	}
+
+	/**
+	 * Returns the cached rendering.
+	 *
+	 * @param key the key of the rendering
+	 * @return the rendering or null if not rendered yet
+	 */
+	static Rendered get(final Key key) {
+
+		synchronized (CACHE) {
+			return CACHE.get(key);
+		}
+	}
+
+	/**
+	 * Adds a rendering to the cache.
+	 *
+	 * @param key the key of the rendering
+	 * @param rendered the rendering
+	 */
+	static void put(final Key key, final Rendered rendered) {
+
+		synchronized (CACHE) {
+			Rendered previous = CACHE.put(key, rendered);
+			if (previous != null) {
+				bytes -= previous.size();
+			}
+			bytes += rendered.size();
+
+			Iterator<Rendered> eldest = CACHE.values().iterator();
+			while (bytes > MAX_BYTES && eldest.hasNext()) {
+				bytes -= eldest.next().size();
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * Requests a rendering on the background thread, unless it is cached or already pending.
+	 *
+	 * @param key the key of the rendering
+	 * @param value the structure
+	 * @param repaint the component to repaint once rendered, may be null
+	 */
+	static void request(final Key key, final CDKValue value, final Component repaint) {
+
+		if (get(key) != null) {
+			return;
+		}
+
+		synchronized (QUEUE) {
+			Request request = PENDING.get(key);
+			if (request != null) {
+				// move to the front, it is wanted now
+				QUEUE.remove(request);
+				QUEUE.addLast(request);
+				return;
+			}
+
+			request = new Request(key, value, repaint);
+			PENDING.put(key, request);
+			QUEUE.addLast(request);
+			while (QUEUE.size() > MAX_PENDING) {
+				PENDING.remove(QUEUE.removeFirst().key);
+			}
+
+			if (worker == null) {
+				worker = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						work();
+					}
+				}, "CDK structure renderer");
+				worker.setDaemon(true);
+				worker.start();
+			}
+			QUEUE.notifyAll();
+		}
+	}
+
+	private static void work() {
+
+		while (true) {
+			Request request;
+			synchronized (QUEUE) {
+				while (QUEUE.isEmpty()) {
+					try {
+						QUEUE.wait();
+					} catch (InterruptedException exception) {
+						worker = null;
+						return;
+					}
+				}
+				request = QUEUE.removeLast();
+			}
+
+			try {
+				if (get(request.key) == null) {
+					put(request.key, CDKValueRenderer.render(request.value, request.key.width, request.key.height,
+							request.key.numbering));
+				}
+			} catch (Throwable throwable) {
+				// keep the thread alive, the cell shows the error
+				LOGGER.debug("Rendering failed: " + throwable.getMessage(), throwable);
+				put(request.key, new Rendered(null, "Rendering failed"));
+			} finally {
+				synchronized (QUEUE) {
+					PENDING.remove(request.key);
+				}
+			}
+
+			if (request.repaint != null) {
+				final Component component = request.repaint;
+				SwingUtilities.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+						component.repaint();
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Creates the key of a rendering. Only {@link CDKCell3}s are keyed, by their SMILES and coordinates, other values
+	 * are rendered directly.
+	 *
+	 * @param value the structure
+	 * @param width the width of the cell
+	 * @param height the height of the cell
+	 * @param numbering the atom numbering
+	 * @return the key or null if the value cannot be keyed
+	 */
+	static Key key(final CDKValue value, final int width, final int height, final NUMBERING numbering) {
+
+		if (!(value instanceof CDKCell3) || width <= 0 || height <= 0) {
+			return null;
+		}
+		CDKCell3 cell = (CDKCell3) value;
+		return new Key(cell.hashCode64(), cell.getSmilesValue(), cell.auxBytes(), width, height, numbering);
+	}
+
+	/**
+	 * Key of a rendering: the cell hash, SMILES and coordinates, the cell size and the numbering.
+	 */
+	static final class Key {
+
+		private final long hash;
+		private final String smiles;
+		private final byte[] coordinates;
+		private final int width;
+		private final int height;
+		private final NUMBERING numbering;
+
+		private Key(final long hash, final String smiles, final byte[] coordinates, final int width,
+				final int height, final NUMBERING numbering) {
+			this.hash = hash;
+			this.smiles = smiles;
+			this.coordinates = coordinates;
+			this.width = width;
+			this.height = height;
+			this.numbering = numbering;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((int) (hash ^ (hash >>> 32)) * 31 + width) * 31 + height;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && width == other.width && height == other.height
+					&& numbering == other.numbering && smiles.equals(other.smiles)
+					&& Arrays.equals(coordinates, other.coordinates);
+		}
+	}
+
+	/**
+	 * A rendered structure: the bitmap of the cell and an optional message painted on top.
+	 */
+	static final class Rendered {
+
+		final BufferedImage image;
+		final String message;
+
+		Rendered(final BufferedImage image, final String message) {
+			this.image = image;
+			this.message = message;
+		}
+
+		private long size() {
+			return image == null ? 64 : 4L * image.getWidth() * image.getHeight();
+		}
+	}
+
+	private static final class Request {
+
+		private final Key key;
+		private final CDKValue value;
+		private final Component repaint;
+
+		private Request(final Key key, final CDKValue value, final Component repaint) {
+			this.key = key;
+			this.value = value;
+			this.repaint = repaint;
+		}
+	}
+}
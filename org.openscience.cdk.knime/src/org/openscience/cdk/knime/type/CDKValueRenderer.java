@@ -18,15 +18,21 @@
 package org.openscience.cdk.knime.type;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 
+import javax.swing.JTable;
 import javax.vecmath.Point2d;
 import javax.vecmath.Point3d;
 
@@ -106,22 +112,68 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 
 	private static final NodeLogger LOGGER = NodeLogger.getLogger(CDKValueRenderer.class);
 
-	private static AtomContainerRenderer renderer;
-	
-	static {
-		try {
-			List<IGenerator<IAtomContainer>> generators = new ArrayList<IGenerator<IAtomContainer>>();
-			generators.add(new BasicSceneGenerator());
-			generators.add(new StandardGenerator(new Font("Verdana", Font.PLAIN, 18)));
-			renderer = new AtomContainerRenderer(generators, new AWTFontManager());
+	/** Maximum number of idle renderers kept in the pool. */
+	private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
 
-			setDefaultRendererProps(renderer.getRenderer2DModel());
+	/**
+	 * Idle renderers. An {@link AtomContainerRenderer} keeps state while painting and must not be used by two threads
+	 * at once, so every rendering borrows its own instance and returns it afterwards.
+	 */
+	private static final Deque<AtomContainerRenderer> RENDERERS = new ArrayDeque<AtomContainerRenderer>();
 
+	static {
+		try {
+			releaseRenderer(createRenderer());
 		} catch (Exception e) {
 			LOGGER.error("Error during renderer initialization!", e);
 		}
 	}
 
+	/**
+	 * Creates a renderer configured for table cells.
+	 *
+	 * @return the renderer
+	 */
+	static AtomContainerRenderer createRenderer() {
+
+		List<IGenerator<IAtomContainer>> generators = new ArrayList<IGenerator<IAtomContainer>>();
+		generators.add(new BasicSceneGenerator());
+		generators.add(new StandardGenerator(new Font("Verdana", Font.PLAIN, 18)));
+		AtomContainerRenderer renderer = new AtomContainerRenderer(generators, new AWTFontManager());
+		setDefaultRendererProps(renderer.getRenderer2DModel());
+		return renderer;
+	}
+
+	/**
+	 * Borrows a configured renderer from the pool, a new one is created if the pool is empty.
+	 *
+	 * @return the renderer
+	 */
+	private static AtomContainerRenderer acquireRenderer() {
+
+		synchronized (RENDERERS) {
+			AtomContainerRenderer renderer = RENDERERS.pollFirst();
+			if (renderer != null) {
+				return renderer;
+			}
+		}
+		return createRenderer();
+	}
+
+	/**
+	 * Returns a renderer to the pool, it is discarded if the pool is full.
+	 *
+	 * @param renderer the renderer
+	 */
+	private static void releaseRenderer(final AtomContainerRenderer renderer) {
+
+		synchronized (RENDERERS) {
+			if (RENDERERS.size() < MAX_POOLED) {
+				RENDERERS.addFirst(renderer);
+			}
+		}
+	}
+
 	private static void setDefaultRendererProps(final RendererModel renderer2dModel) {
 
 		renderer2dModel.set(BasicSceneGenerator.UseAntiAliasing.class, true);
@@ -133,6 +185,14 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 
 	private NUMBERING numbering;
 	private IAtomContainer m_mol;
+	private CDKValue m_value;
+
+	/** The table being painted, rendering is deferred to the background only for tables painted on screen. */
+	private JTable m_table;
+	private JTable m_prefetchTable;
+	private int m_prefetchColumn = -1;
+	private int m_prefetchFirst = -1;
+	private int m_prefetchLast = -1;
 
 	private static final Font NO_2D_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
 
@@ -148,31 +208,40 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 	 * @param con the new molecule to be rendered (<code>null</code> is ok)
 	 */
 	protected void setAtomContainer(final IAtomContainer con) {
+		m_value = null;
 		m_mol = con;
 		if (m_mol != null) {
-			try {
-				LayoutHelper.adjustStereo(m_mol);
-			} catch (IllegalArgumentException exception) {
-				m_mol = con;
-			}
-			
-			switch (numbering) {
-				case SEQUENTIAL:
-					int i = 1;
-					for (IAtom atom : con.atoms()) {
-					    String label = Integer.toString(i++);
-					    atom.setProperty(StandardGenerator.ANNOTATION_LABEL, label);
-					}
-					break;
-				case CANONICAL:
-					for (IAtom atom : con.atoms()) {
-					    String label = atom.getID();
-					    atom.setProperty(StandardGenerator.ANNOTATION_LABEL, label);
-					}
-					break;
-				case NONE:
-					break;
-			}
+			prepare(m_mol, numbering);
+		}
+	}
+
+	/**
+	 * Adjusts the wedges and sets the atom number labels.
+	 */
+	private static void prepare(final IAtomContainer con, final NUMBERING numbering) {
+
+		try {
+			LayoutHelper.adjustStereo(con);
+		} catch (IllegalArgumentException exception) {
+			// keep the wedges as they are
+		}
+
+		switch (numbering) {
+			case SEQUENTIAL:
+				int i = 1;
+				for (IAtom atom : con.atoms()) {
+				    String label = Integer.toString(i++);
+				    atom.setProperty(StandardGenerator.ANNOTATION_LABEL, label);
+				}
+				break;
+			case CANONICAL:
+				for (IAtom atom : con.atoms()) {
+				    String label = atom.getID();
+				    atom.setProperty(StandardGenerator.ANNOTATION_LABEL, label);
+				}
+				break;
+			case NONE:
+				break;
 		}
 	}
 
@@ -182,6 +251,13 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 	 * @return the current molecule
 	 */
 	protected IAtomContainer getAtomContainer() {
+
+		if (m_mol == null && m_value != null) {
+			m_mol = m_value.getAtomContainer();
+			if (m_mol != null) {
+				prepare(m_mol, numbering);
+			}
+		}
 		return m_mol;
 	}
 
@@ -196,13 +272,83 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 	@Override
 	protected void setValue(final Object value) {
 
+		// the molecule is parsed when painted and only if not cached
+		m_table = null;
+		m_mol = null;
+		m_value = cdkValue(value);
+	}
+
+	private static CDKValue cdkValue(final Object value) {
+
 		if (value instanceof CDKValue) { // when used directly on CDKCell
-			setAtomContainer(((CDKValue) value).getAtomContainer());
+			return (CDKValue) value;
 		} else if ((value instanceof AdapterValue) && ((AdapterValue) value).isAdaptable(CDKValue.class)
 				&& (((AdapterValue) value).getAdapterError(CDKValue.class) == null)) {
-			setAtomContainer(((AdapterValue) value).getAdapter(CDKValue.class).getAtomContainer());
-		} else {
-			setAtomContainer(null);
+			return ((AdapterValue) value).getAdapter(CDKValue.class);
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Component getTableCellRendererComponent(final JTable table, final Object value, final boolean isSelected,
+			final boolean hasFocus, final int row, final int column) {
+
+		Component component = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+		m_table = table;
+		if (table != null) {
+			prefetch(table, column);
+		}
+		return component;
+	}
+
+	/**
+	 * Requests the rendering of the visible rows and of one page above and below, the visible rows first.
+	 */
+	private void prefetch(final JTable table, final int column) {
+
+		Rectangle visible = table.getVisibleRect();
+		int first = table.rowAtPoint(visible.getLocation());
+		int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+		if (first < 0) {
+			return;
+		}
+		if (last < 0) {
+			last = table.getRowCount() - 1;
+		}
+		if (table == m_prefetchTable && column == m_prefetchColumn && first == m_prefetchFirst
+				&& last == m_prefetchLast) {
+			return;
+		}
+		m_prefetchTable = table;
+		m_prefetchColumn = column;
+		m_prefetchFirst = first;
+		m_prefetchLast = last;
+
+		// requests are served last in, first out
+		int margin = last - first + 1;
+		for (int row = Math.min(table.getRowCount() - 1, last + margin); row > last; row--) {
+			prefetch(table, row, column, null);
+		}
+		for (int row = Math.max(0, first - margin); row < first; row++) {
+			prefetch(table, row, column, null);
+		}
+		for (int row = last; row >= first; row--) {
+			prefetch(table, row, column, table);
+		}
+	}
+
+	private void prefetch(final JTable table, final int row, final int column, final Component repaint) {
+
+		CDKValue value = cdkValue(table.getValueAt(row, column));
+		if (value != null) {
+			Rectangle cell = table.getCellRect(row, column, false);
+			CDKRenderCache.Key key = CDKRenderCache.key(value, cell.width, cell.height, numbering);
+			if (key != null) {
+				CDKRenderCache.request(key, value, repaint);
+			}
 		}
 	}
 
@@ -216,47 +362,103 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 
 		g.setFont(NO_2D_FONT);
 
-		if (m_mol == null) {
-			g.drawString("Object missing ('?')", 2, 14);
-			return;
+		CDKRenderCache.Rendered rendered = null;
+		CDKRenderCache.Key key = m_value == null ? null : CDKRenderCache.key(m_value, getWidth(), getHeight(),
+				numbering);
+		if (key != null) {
+			rendered = CDKRenderCache.get(key);
+			if (rendered == null && isPaintingOnScreen()) {
+				CDKRenderCache.request(key, m_value, m_table);
+				g.drawString("Rendering...", 2, 14);
+				return;
+			}
+		}
+		if (rendered == null) {
+			IAtomContainer mol = getAtomContainer();
+			if (mol == null) {
+				g.drawString("Object missing ('?')", 2, 14);
+				return;
+			}
+			rendered = render(mol, getWidth(), getHeight());
+			if (key != null) {
+				CDKRenderCache.put(key, rendered);
+			}
+		}
+
+		if (rendered.message != null) {
+			g.drawString(rendered.message, 2, 14);
+		}
+		if (rendered.image != null) {
+			g.drawImage(rendered.image, 0, 0, null);
+		}
+	}
+
+	/**
+	 * Whether a live table on screen is painted, which is repainted once the structure is rendered. Tables that are
+	 * printed or painted off screen are painted once, so their structures are rendered synchronously.
+	 */
+	private boolean isPaintingOnScreen() {
+		return m_table != null && m_table.isShowing() && !m_table.isPaintingForPrint() && !isPaintingForPrint();
+	}
+
+	/**
+	 * Renders the structure into a bitmap of the given size.
+	 *
+	 * @param value the structure
+	 * @param width the width of the bitmap
+	 * @param height the height of the bitmap
+	 * @param numbering the atom numbering
+	 * @return the rendering
+	 */
+	static CDKRenderCache.Rendered render(final CDKValue value, final int width, final int height,
+			final NUMBERING numbering) {
+
+		IAtomContainer mol = value.getAtomContainer();
+		if (mol == null) {
+			return new CDKRenderCache.Rendered(null, "Object missing ('?')");
 		}
+		prepare(mol, numbering);
+		return render(mol, width, height);
+	}
 
+	private static CDKRenderCache.Rendered render(final IAtomContainer mol, final int width, final int height) {
+
+		String message = null;
 		boolean threeD = false;
-		if (!GeometryTools.has2DCoordinates(m_mol)) {
-			if (GeometryTools.has3DCoordinates(m_mol)) {
-				g.drawString("3D view not supported", 2, 14);
+		if (!GeometryTools.has2DCoordinates(mol)) {
+			if (GeometryTools.has3DCoordinates(mol)) {
+				message = "3D view not supported";
 				threeD = true;
 			} else {
-				g.drawString("No 2D coordinates", 2, 14);
-				return;
+				return new CDKRenderCache.Rendered(null, "No 2D coordinates");
 			}
 
 		}
 
 		boolean twoThreeD = false;
-		if (GeometryTools.has2DCoordinates(m_mol) && GeometryTools.has3DCoordinates(m_mol)) {
-			g.drawString("Using 2D coordinates", 2, 14);
+		if (GeometryTools.has2DCoordinates(mol) && GeometryTools.has3DCoordinates(mol)) {
+			message = "Using 2D coordinates";
 			twoThreeD = true;
 		}
 
 		int x = 0;
 		int y = 0;
-		int width = getWidth();
-		int height = getHeight();
-
-		Graphics2D g2 = (Graphics2D) g;
+		int h = height;
 
 		if (threeD || twoThreeD) {
 			y += 14;
-			height -= 14;
+			h -= 14;
+		}
+		if (width <= 0 || h <= 0) {
+			return new CDKRenderCache.Rendered(null, message);
 		}
 
 		IAtomContainer cont = new AtomContainer();
 
 		// if not connected, draw every compound in succession next to each other
-		if (!ConnectivityChecker.isConnected(m_mol)) {
+		if (!ConnectivityChecker.isConnected(mol)) {
 			double cumX = 0;
-			IAtomContainerSet molSet = ConnectivityChecker.partitionIntoMolecules(m_mol);
+			IAtomContainerSet molSet = ConnectivityChecker.partitionIntoMolecules(mol);
 
 			molSet.sortAtomContainers(new Comparator<IAtomContainer>() {
 
@@ -284,7 +486,7 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 				cont.add(curMol);
 			}
 		} else {
-			cont = m_mol;
+			cont = mol;
 		}
 
 		// flatten 3D mol
@@ -296,7 +498,16 @@ public class CDKValueRenderer extends AbstractPainterDataValueRenderer {
 			}
 		}
 
-		renderer.paint(cont, new AWTDrawVisitor(g2), new Rectangle(x, y, width, height), true);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = image.createGraphics();
+		AtomContainerRenderer renderer = acquireRenderer();
+		try {
+			renderer.paint(cont, new AWTDrawVisitor(g2), new Rectangle(x, y, width, h), true);
+		} finally {
+			releaseRenderer(renderer);
+			g2.dispose();
+		}
+		return new CDKRenderCache.Rendered(image, message);
 	}
 
 	/**
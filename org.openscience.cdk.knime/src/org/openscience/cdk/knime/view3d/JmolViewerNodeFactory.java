@@ -17,6 +17,8 @@
  */
 package org.openscience.cdk.knime.view3d;
 
+import javax.swing.JCheckBox;
+
 import org.knime.core.node.NodeDialogPane;
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeView;
@@ -60,6 +62,7 @@ public class JmolViewerNodeFactory extends NodeFactory<JmolViewerNodeModel> {
 		
 		CDKDialog dialog = new CDKDialog();
 		dialog.addColumnSelection("Molecule", CDKNodeUtils.ACCEPTED_VALUE_CLASSES);
+		dialog.addCustomOption("Simplified preview", new JCheckBox("", false));
 		
 		return dialog.build();
 	}
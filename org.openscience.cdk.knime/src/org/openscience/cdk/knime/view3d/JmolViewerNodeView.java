@@ -18,35 +18,72 @@
 package org.openscience.cdk.knime.view3d;
 
 import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JMenuBar;
 import javax.swing.JSplitPane;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import org.knime.core.data.DataCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeView;
 import org.knime.core.node.tableview.TableView;
+import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.knime.type.CDKValue;
 import org.openscience.cdk.silent.AtomContainerSet;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 /**
  * View that shows a table on top and the off structure at the bottom.
+ * <p>
+ * Selected structures are converted on a background thread and the converted models of recently viewed rows are
+ * cached, so browsing the table does not parse a structure again. Molecules with many atoms are optionally previewed
+ * with their heavy atoms only.
  * 
  * @author wiswedel, University of Konstanz
  * @author Stephan Beisken, EMBL-EBI
  */
 public class JmolViewerNodeView extends NodeView<JmolViewerNodeModel> {
 
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(JmolViewerNodeView.class);
+
+	/** Number of converted models kept for recently viewed rows. */
+	private static final int MODEL_CACHE_SIZE = 64;
+	/** Atom count from which a molecule is previewed with its heavy atoms only, if enabled. */
+	private static final int PREVIEW_ATOM_COUNT = 1000;
+
 	private final TableView tableView;
 	private final JmolViewerPanel panel;
 	
 	private final static IAtomContainer FAIL_STRUCTURE = SilentChemObjectBuilder.getInstance().newInstance(
 			IAtomContainer.class);
 
+	private final Map<RowKey, IAtomContainer> models = new LinkedHashMap<RowKey, IAtomContainer>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<RowKey, IAtomContainer> eldest) {
+			return size() > MODEL_CACHE_SIZE;
+		}
+	};
+
+	private ExecutorService loader;
+	/** Counts the selections, a conversion is only shown if no later selection was made. */
+	private volatile int selection = 0;
+
 	/**
 	 * Inits view.
 	 * 
@@ -62,6 +99,9 @@ public class JmolViewerNodeView extends NodeView<JmolViewerNodeModel> {
 
 			public void valueChanged(ListSelectionEvent e) {
 
+				if (e.getValueIsAdjusting()) {
+					return;
+				}
 				int[] indices = tableView.getContentTable().getSelectedRows();
 				setIndices(indices);
 			}
@@ -86,12 +126,23 @@ public class JmolViewerNodeView extends NodeView<JmolViewerNodeModel> {
 
 	@Override
 	protected void modelChanged() {
-		// nothing to do
+
+		// the rows may have changed with the table
+		synchronized (models) {
+			models.clear();
+		}
 	}
 
 	@Override
 	protected void onClose() {
-		// nothing to do
+
+		if (loader != null) {
+			loader.shutdownNow();
+			loader = null;
+		}
+		synchronized (models) {
+			models.clear();
+		}
 	}
 
 	@Override
@@ -101,8 +152,12 @@ public class JmolViewerNodeView extends NodeView<JmolViewerNodeModel> {
 
 	private void setIndices(final int[] indices) {
 
-		IAtomContainerSet molecules = new AtomContainerSet();
-		
+		final int current = ++selection;
+		final List<RowKey> keys = new ArrayList<RowKey>();
+		final List<DataCell> cells = new ArrayList<DataCell>();
+		final IAtomContainerSet molecules = new AtomContainerSet();
+		boolean cached = true;
+
 		if (indices.length > 0) {
 			JmolViewerNodeModel model = getNodeModel();
 
@@ -115,11 +170,114 @@ public class JmolViewerNodeView extends NodeView<JmolViewerNodeModel> {
 				DataCell cell = model.getContentModel().getValueAt(index, column);
 
 				if (cell instanceof CDKValue) {
-					molecules.addAtomContainer(cell.isMissing() ? FAIL_STRUCTURE : ((CDKValue) cell).getAtomContainer());
+					RowKey key = model.getContentModel().getRow(index).getKey();
+					keys.add(key);
+					cells.add(cell);
+
+					IAtomContainer molecule;
+					synchronized (models) {
+						molecule = models.get(key);
+					}
+					if (molecule == null) {
+						cached = false;
+					} else {
+						molecules.addAtomContainer(molecule);
+					}
 				}
 			}
 		}
-		
-		panel.setMolecules(molecules);
+
+		if (cached) {
+			panel.setMolecules(molecules);
+			return;
+		}
+
+		final boolean preview = getNodeModel().getSettings().preview();
+		if (loader == null) {
+			loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+
+					Thread thread = new Thread(runnable, "Jmol structure loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		loader.execute(new Runnable() {
+
+			@Override
+			public void run() {
+
+				final IAtomContainerSet loaded = new AtomContainerSet();
+				for (int i = 0; i < cells.size(); i++) {
+					if (current != selection) {
+						return;
+					}
+					loaded.addAtomContainer(convert(keys.get(i), cells.get(i), preview));
+				}
+
+				SwingUtilities.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+
+						if (current == selection) {
+							panel.setMolecules(loaded);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Converts the cell into the model shown by Jmol and caches it.
+	 */
+	private IAtomContainer convert(final RowKey key, final DataCell cell, final boolean preview) {
+
+		synchronized (models) {
+			IAtomContainer molecule = models.get(key);
+			if (molecule != null) {
+				return molecule;
+			}
+		}
+
+		IAtomContainer molecule;
+		try {
+			molecule = cell.isMissing() ? FAIL_STRUCTURE : ((CDKValue) cell).getAtomContainer();
+		} catch (Exception exception) {
+			LOGGER.debug("Structure could not be converted: " + key, exception);
+			molecule = FAIL_STRUCTURE;
+		}
+		if (preview && molecule.getAtomCount() >= PREVIEW_ATOM_COUNT) {
+			molecule = heavyAtoms(molecule);
+		}
+
+		synchronized (models) {
+			models.put(key, molecule);
+		}
+		return molecule;
+	}
+
+	/**
+	 * A view of the molecule without its hydrogens, the atoms and bonds are shared with the molecule.
+	 */
+	private static IAtomContainer heavyAtoms(final IAtomContainer molecule) {
+
+		IAtomContainer heavy = SilentChemObjectBuilder.getInstance().newInstance(IAtomContainer.class);
+		for (IAtom atom : molecule.atoms()) {
+			if (!"H".equals(atom.getSymbol())) {
+				heavy.addAtom(atom);
+			}
+		}
+		for (IBond bond : molecule.bonds()) {
+			if (!"H".equals(bond.getAtom(0).getSymbol()) && !"H".equals(bond.getAtom(1).getSymbol())) {
+				heavy.addBond(bond);
+			}
+		}
+		heavy.setProperties(molecule.getProperties());
+		return heavy;
 	}
 }
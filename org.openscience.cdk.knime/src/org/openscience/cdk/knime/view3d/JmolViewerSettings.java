@@ -24,6 +24,7 @@ import org.openscience.cdk.knime.core.CDKSettings;
 public class JmolViewerSettings implements CDKSettings {
 
 	private String molColumnName;
+	private boolean preview = false;
 
 	/**
 	 * Returns the name of the column containing the molecules.
@@ -45,6 +46,26 @@ public class JmolViewerSettings implements CDKSettings {
 		molColumnName = colName;
 	}
 	
+	/**
+	 * Returns whether large molecules are previewed with their heavy atoms only.
+	 * 
+	 * @return true if large molecules are simplified
+	 */
+	public boolean preview() {
+
+		return preview;
+	}
+
+	/**
+	 * Sets whether large molecules are previewed with their heavy atoms only.
+	 * 
+	 * @param preview true to simplify large molecules
+	 */
+	public void preview(final boolean preview) {
+
+		this.preview = preview;
+	}
+
 	/**
 	 * Saves the settings into the given node settings object.
 	 * 
@@ -53,6 +74,7 @@ public class JmolViewerSettings implements CDKSettings {
 	public void saveSettings(final NodeSettingsWO settings) {
 
 		settings.addString("Molecule", molColumnName);
+		settings.addBoolean("Simplified preview", preview);
 	}
 
 	/**
@@ -64,5 +86,7 @@ public class JmolViewerSettings implements CDKSettings {
 	public void loadSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
 
 		molColumnName = settings.getString("Molecule");
+		// added later, older workflows lack the option
+		preview = settings.getBoolean("Simplified preview", false);
 	}
 }
@@ -106,9 +106,6 @@ public class SmartRotatableBondsCountDescriptor extends AbstractMolecularDescrip
 	 *@return                   number of rotatable bonds
 	 */
     public DescriptorValue calculate(IAtomContainer ac) {
-		int rotatableBondsCount = 0;
-		int degree0;
-		int degree1;
         IRingSet ringSet;
         try {
             ringSet = new SpanningTree(ac).getBasicRings();
@@ -116,6 +113,21 @@ public class SmartRotatableBondsCountDescriptor extends AbstractMolecularDescrip
             return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
                 new IntegerResult((int) Double.NaN), getDescriptorNames(), e);
         }
+        return calculate(ac, ringSet);
+    }
+
+    /**
+	 *  Calculates the number of rotatable bonds using a precomputed ring set. Any
+	 *  cycle basis of the atom container (e.g. the SSSR) can be passed.
+	 *
+	 *@param  ac                AtomContainer
+	 *@param  ringSet           the rings of the atom container
+	 *@return                   number of rotatable bonds
+	 */
+    public DescriptorValue calculate(IAtomContainer ac, IRingSet ringSet) {
+		int rotatableBondsCount = 0;
+		int degree0;
+		int degree1;
         for (IBond bond : ac.bonds()) {
 			if (ringSet.getRings(bond).getAtomContainerCount() > 0) {
 				bond.setFlag(CDKConstants.ISINRING, true);
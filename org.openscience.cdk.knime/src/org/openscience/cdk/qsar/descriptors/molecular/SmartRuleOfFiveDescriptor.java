@@ -20,6 +20,7 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
@@ -27,11 +28,18 @@ import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
+import org.openscience.cdk.ringsearch.SSSRFinder;
 
 public class SmartRuleOfFiveDescriptor extends AbstractMolecularDescriptor implements IMolecularDescriptor {
 
 	private static final String[] names = { "LipinskiFailures" };
 
+	private final SmartXLogPDescriptor xlogP = new SmartXLogPDescriptor();
+	private final SmartHBondAcceptorCountDescriptor acc = new SmartHBondAcceptorCountDescriptor();
+	private final HBondDonorCountDescriptor don = new HBondDonorCountDescriptor();
+	private final WeightDescriptor mw = new WeightDescriptor();
+	private final SmartRotatableBondsCountDescriptor rotata = new SmartRotatableBondsCountDescriptor();
+
 	/**
 	 * Constructor for the RuleOfFiveDescriptor object.
 	 */
@@ -95,28 +103,36 @@ public class SmartRuleOfFiveDescriptor extends AbstractMolecularDescriptor imple
 	 * @return The number of failures of the Lipinski rule
 	 */
 	public DescriptorValue calculate(IAtomContainer mol) {
+		return calculate(mol, (IRingSet) new SSSRFinder(mol).findSSSR());
+	}
+
+	/**
+	 * Calculates the Lipinski failures using a precomputed smallest set of
+	 * smallest rings, which is shared by the xlogP and rotatable bonds
+	 * sub-descriptors.
+	 * 
+	 * @param mol AtomContainer for which this descriptor is to be calculated
+	 * @param ringSet the SSSR of the atom container
+	 * @return The number of failures of the Lipinski rule
+	 */
+	public DescriptorValue calculate(IAtomContainer mol, IRingSet ringSet) {
 
 		int lipinskifailures = 0;
-		IMolecularDescriptor xlogP = new SmartXLogPDescriptor();
 
 		try {
 			xlogP.setParameters(new Object[] {Boolean.FALSE});
-			double xlogPvalue = ((DoubleResult) xlogP.calculate(mol).getValue()).doubleValue();
+			double xlogPvalue = ((DoubleResult) xlogP.calculate(mol, ringSet).getValue()).doubleValue();
 
-			IMolecularDescriptor acc = new SmartHBondAcceptorCountDescriptor();
 			int acceptors = ((IntegerResult) acc.calculate(mol).getValue()).intValue();
 
-			IMolecularDescriptor don = new HBondDonorCountDescriptor();
 			int donors = ((IntegerResult) don.calculate(mol).getValue()).intValue();
 
-			IMolecularDescriptor mw = new WeightDescriptor();
 			//Object[] mwparams = { "" };
 			//mw.setParameters(mwparams);
 			double mwvalue = ((DoubleResult) mw.calculate(mol).getValue()).doubleValue();
 
-			IMolecularDescriptor rotata = new SmartRotatableBondsCountDescriptor();
 			rotata.setParameters(new Object[] {Boolean.FALSE});
-			int rotatablebonds = ((IntegerResult) rotata.calculate(mol).getValue()).intValue();
+			int rotatablebonds = ((IntegerResult) rotata.calculate(mol, ringSet).getValue()).intValue();
 			
 			if (xlogPvalue > 5.0) {
 				lipinskifailures += 1;
@@ -21,20 +21,21 @@
 package org.openscience.cdk.qsar.descriptors.molecular;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.Cycles;
-import org.openscience.cdk.graph.GraphUtil;
-import org.openscience.cdk.graph.ShortestPaths;
-import org.openscience.cdk.graph.ShortestPathsGraph;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomType.Hybridization;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IPseudoAtom;
 import org.openscience.cdk.interfaces.IRing;
 import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.isomorphism.Pattern;
@@ -54,13 +55,21 @@ import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.ringsearch.SSSRFinder;
-import org.openscience.cdk.tools.manipulator.RingSetManipulator;
 
 public class SmartXLogPDescriptor extends AbstractMolecularDescriptor implements IMolecularDescriptor {
 
 	private boolean salicylFlag = false;
 	private static final String[] names = { "XLogP" };
 
+	/** Element codes of the atom symbols distinguished by the atom type assignment. */
+	private static final int OTHER = 0, H = 1, C = 6, N = 7, O = 8, F = 9, P = 15, S = 16, CL = 17, BR = 35, I = 53;
+
+	// substructure patterns, created on first use and safely published to concurrent calculations
+	private volatile Pattern aaPattern;
+	private volatile Pattern paPattern;
+	private volatile Pattern saPattern;
+	private volatile Pattern orPattern;
+
 	/**
 	 * Constructor for the XLogPDescriptor object.
 	 */
@@ -124,752 +133,21 @@ public class SmartXLogPDescriptor extends AbstractMolecularDescriptor implements
 	 * @return XLogP is a double
 	 */
 	public DescriptorValue calculate(IAtomContainer ac) {
+		return calculate(ac, (IRingSet) new SSSRFinder(ac).findSSSR());
+	}
 
-		IRingSet rs = (IRingSet) new SSSRFinder(ac).findSSSR();
-		IRingSet atomRingSet = null;
-		double xlogP = 0;
-		String symbol = "";
-		int bondCount = 0;
-		int atomCount = ac.getAtomCount();
-		int hsCount = 0;
-		double xlogPOld = 0;
-		IBond.Order maxBondOrder = IBond.Order.SINGLE;
-		List<Integer> hBondAcceptors = new ArrayList<Integer>();
-		List<Integer> hBondDonors = new ArrayList<Integer>();
-		int checkAminoAcid = 1;// if 0 no check, if >1 check
-		IAtom atomi = null;
-		for (int i = 0; i < atomCount; i++) {
-			atomi = (IAtom) ac.getAtom(i);
-			// Problem fused ring systems
-			atomRingSet = rs.getRings(atomi);
-			atomi.setProperty("IS_IN_AROMATIC_RING", false);
-			atomi.setProperty(CDKConstants.PART_OF_RING_OF_SIZE, 0);
-			// logger.debug("atomRingSet.size "+atomRingSet.size());
-			if (atomRingSet.getAtomContainerCount() > 0) {
-				if (atomRingSet.getAtomContainerCount() > 1) {
-					Iterator<IAtomContainer> containers = RingSetManipulator.getAllAtomContainers(atomRingSet)
-							.iterator();
-					atomRingSet = rs.getBuilder().newInstance(IRingSet.class);
-					while (containers.hasNext()) {
-						atomRingSet.add(Cycles.mcb((IAtomContainer) containers.next()).toRingSet());
-					}
-					// logger.debug(" SSSRatomRingSet.size "+atomRingSet.size());
-				}
-				for (int j = 0; j < atomRingSet.getAtomContainerCount(); j++) {
-					if (j == 0) {
-						atomi.setProperty(CDKConstants.PART_OF_RING_OF_SIZE,
-								((IRing) atomRingSet.getAtomContainer(j)).getRingSize());
-					}
-
-					if (((IRing) atomRingSet.getAtomContainer(j)).contains(atomi)) {
-						if (((IRing) atomRingSet.getAtomContainer(j)).getRingSize() >= 6
-								&& atomi.getFlag(CDKConstants.ISAROMATIC)) {
-							atomi.setProperty("IS_IN_AROMATIC_RING", true);
-						}
-						if (((IRing) atomRingSet.getAtomContainer(j)).getRingSize() < (Integer) atomi
-								.getProperty(CDKConstants.PART_OF_RING_OF_SIZE)) {
-							atomi.setProperty(CDKConstants.PART_OF_RING_OF_SIZE,
-									((IRing) atomRingSet.getAtomContainer(j)).getRingSize());
-						}
-					}
-				}
-			}// else{
-				// logger.debug();
-				// }
-		}
-
-		for (int i = 0; i < atomCount; i++) {
-			atomi = (IAtom) ac.getAtom(i);
-			if (xlogPOld == xlogP & i > 0 & !symbol.equals("H")) {
-				// logger.debug("\nXlogPAssignmentError: Could not assign atom number:"+(i-1));
-			}
-
-			xlogPOld = xlogP;
-			symbol = atomi.getSymbol();
-			bondCount = ac.getConnectedBondsCount(atomi);
-			hsCount = getHydrogenCount(ac, atomi);
-			maxBondOrder = ac.getMaximumBondOrder(atomi);
-			if (!symbol.equals("H")) {
-				// logger.debug("i:"+i+" Symbol:"+symbol+" "+" bondC:"+bondCount+" Charge:"+atoms[i].getFormalCharge()+" hsC:"+hsCount+" maxBO:"+maxBondOrder+" Arom:"+atoms[i].getFlag(CDKConstants.ISAROMATIC)+" AtomTypeX:"+getAtomTypeXCount(ac,
-				// atoms[i])+" PiSys:"+getPiSystemsCount(ac,
-				// atoms[i])+" C=:"+getDoubleBondedCarbonsCount(ac,
-				// atoms[i])+" AromCc:"+getAromaticCarbonsCount(ac,atoms[i])+" RS:"+((Integer)atoms[i].getProperty(CDKConstants.PART_OF_RING_OF_SIZE)).intValue()+"\t");
-			}
-			if (symbol.equals("C")) {
-				if (bondCount == 2) {
-					// C sp
-					if (hsCount >= 1) {
-						xlogP += 0.209;
-						// logger.debug("XLOGP: 38		 0.209");
-					} else {
-						if (maxBondOrder == IBond.Order.DOUBLE) {
-							xlogP += 2.073;
-							// logger.debug("XLOGP: 40		 2.037");
-						} else if (maxBondOrder == IBond.Order.TRIPLE) {
-							xlogP += 0.33;
-							// logger.debug("XLOGP: 39		 0.33");
-						}
-					}
-				}
-				if (bondCount == 3) {
-					// C sp2
-					if ((Boolean) atomi.getProperty("IS_IN_AROMATIC_RING")) {
-						if (getAromaticCarbonsCount(ac, atomi) >= 2 && getAromaticNitrogensCount(ac, atomi) == 0) {
-							if (hsCount == 0) {
-								if (getAtomTypeXCount(ac, atomi) == 0) {
-									xlogP += 0.296;
-									// logger.debug("XLOGP: 34		 0.296");
-								} else {
-									xlogP -= 0.151;
-									// logger.debug("XLOGP: 35	C.ar.x	-0.151");
-								}
-							} else {
-								xlogP += 0.337;
-								// logger.debug("XLOGP: 32		 0.337");
-							}
-							// } else if (getAromaticCarbonsCount(ac,
-							// atoms[i]) < 2 &&
-							// getAromaticNitrogensCount(ac, atoms[i]) > 1)
-							// {
-						} else if (getAromaticNitrogensCount(ac, atomi) >= 1) {
-							if (hsCount == 0) {
-								if (getAtomTypeXCount(ac, atomi) == 0) {
-									xlogP += 0.174;
-									// logger.debug("XLOGP: 36	C.ar.(X)	 0.174");
-								} else {
-									xlogP += 0.366;
-									// logger.debug("XLOGP: 37		 0.366");
-								}
-							} else if (getHydrogenCount(ac, atomi) == 1) {
-								xlogP += 0.126;
-								// logger.debug("XLOGP: 33		 0.126");
-							}
-						}
-						// NOT aromatic, but sp2
-					} else {
-						if (hsCount == 0) {
-							if (getAtomTypeXCount(ac, atomi) == 0) {
-								if (getPiSystemsCount(ac, atomi) <= 1) {
-									xlogP += 0.05;
-									// logger.debug("XLOGP: 26		 0.05");
-								} else {
-									xlogP += 0.013;
-									// logger.debug("XLOGP: 27		 0.013");
-								}
-							} else if (getAtomTypeXCount(ac, atomi) == 1) {
-								if (getPiSystemsCount(ac, atomi) == 0) {
-									xlogP -= 0.03;
-									// logger.debug("XLOGP: 28		-0.03");
-								} else {
-									xlogP -= 0.027;
-									// logger.debug("XLOGP: 29		-0.027");
-								}
-							} else if (getAtomTypeXCount(ac, atomi) == 2) {
-								if (getPiSystemsCount(ac, atomi) == 0) {
-									xlogP += 0.005;
-									// logger.debug("XLOGP: 30		 0.005");
-								} else {
-									xlogP -= 0.315;
-									// logger.debug("XLOGP: 31		-0.315");
-								}
-							}
-						}
-						if (hsCount == 1) {
-							if (getAtomTypeXCount(ac, atomi) == 0) {
-								if (getPiSystemsCount(ac, atomi) == 0) {
-									xlogP += 0.466;
-									// logger.debug("XLOGP: 22		 0.466");
-								}
-								if (getPiSystemsCount(ac, atomi) == 1) {
-									xlogP += 0.136;
-									// logger.debug("XLOGP: 23		 0.136");
-								}
-							} else {
-								if (getPiSystemsCount(ac, atomi) == 0) {
-									xlogP += 0.001;
-									// logger.debug("XLOGP: 24		 0.001");
-								}
-								if (getPiSystemsCount(ac, atomi) == 1) {
-									xlogP -= 0.31;
-									// logger.debug("XLOGP: 25		-0.31");
-								}
-							}
-						}
-						if (hsCount == 2) {
-							xlogP += 0.42;
-							// logger.debug("XLOGP: 21		 0.42");
-						}
-						if (getIfCarbonIsHydrophobic(ac, atomi)) {
-							xlogP += 0.211;
-							// logger.debug("XLOGP: Hydrophobic Carbon	0.211");
-						}
-					}// sp2 NOT aromatic
-				}
-
-				if (bondCount == 4) {
-					// C sp3
-					if (hsCount == 0) {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP -= 0.006;
-								// logger.debug("XLOGP: 16		-0.006");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP -= 0.57;
-								// logger.debug("XLOGP: 17		-0.57");
-							}
-							if (getPiSystemsCount(ac, atomi) >= 2) {
-								xlogP -= 0.317;
-								// logger.debug("XLOGP: 18		-0.317");
-							}
-						} else {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP -= 0.316;
-								// logger.debug("XLOGP: 19		-0.316");
-							} else {
-								xlogP -= 0.723;
-								// logger.debug("XLOGP: 20		-0.723");
-							}
-						}
-					}
-					if (hsCount == 1) {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP += 0.127;
-								// logger.debug("XLOGP: 10		 0.127");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP -= 0.243;
-								// logger.debug("XLOGP: 11		-0.243");
-							}
-							if (getPiSystemsCount(ac, atomi) >= 2) {
-								xlogP -= 0.499;
-								// logger.debug("XLOGP: 12		-0.499");
-							}
-						} else {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP -= 0.205;
-								// logger.debug("XLOGP: 13		-0.205");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP -= 0.305;
-								// logger.debug("XLOGP: 14		-0.305");
-							}
-							if (getPiSystemsCount(ac, atomi) >= 2) {
-								xlogP -= 0.709;
-								// logger.debug("XLOGP: 15		-0.709");
-							}
-						}
-					}
-					if (hsCount == 2) {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP += 0.358;
-								// logger.debug("XLOGP:  4		 0.358");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP -= 0.008;
-								// logger.debug("XLOGP:  5		-0.008");
-							}
-							if (getPiSystemsCount(ac, atomi) == 2) {
-								xlogP -= 0.185;
-								// logger.debug("XLOGP:  6		-0.185");
-							}
-						} else {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP -= 0.137;
-								// logger.debug("XLOGP:  7		-0.137");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP -= 0.303;
-								// logger.debug("XLOGP:  8		-0.303");
-							}
-							if (getPiSystemsCount(ac, atomi) == 2) {
-								xlogP -= 0.815;
-								// logger.debug("XLOGP:  9		-0.815");
-							}
-						}
-					}
-					if (hsCount > 2) {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP += 0.528;
-								// logger.debug("XLOGP:  1		 0.528");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP += 0.267;
-								// logger.debug("XLOGP:  2		 0.267");
-							}
-						} else {
-							// if (getNitrogenOrOxygenCount(ac, atomi) == 1)
-							// {
-							xlogP -= 0.032;
-							// logger.debug("XLOGP:  3		-0.032");
-						}
-					}
-					if (getIfCarbonIsHydrophobic(ac, atomi)) {
-						xlogP += 0.211;
-						// logger.debug("XLOGP: Hydrophobic Carbon	0.211");
-					}
-				}// csp3
-
-			}// C
-
-			if (symbol.equals("N")) {
-				// NO2
-				if (ac.getBondOrderSum(atomi) >= 3.0 && getOxygenCount(ac, atomi) >= 2
-						&& maxBondOrder == IBond.Order.DOUBLE) {
-					xlogP += 1.178;
-					// logger.debug("XLOGP: 66		 1.178");
-				} else {
-					if (getPresenceOfCarbonil(ac, atomi) >= 1) {
-						// amidic nitrogen
-						if (hsCount == 0) {
-							if (getAtomTypeXCount(ac, atomi) == 0) {
-								xlogP += 0.078;
-								// logger.debug("XLOGP: 57		 0.078");
-							}
-							if (getAtomTypeXCount(ac, atomi) == 1) {
-								xlogP -= 0.118;
-								// logger.debug("XLOGP: 58		-0.118");
-							}
-						}
-						if (hsCount == 1) {
-							if (getAtomTypeXCount(ac, atomi) == 0) {
-								xlogP -= 0.096;
-								hBondDonors.add(i);
-								// logger.debug("XLOGP: 55		-0.096");
-							} else {
-								xlogP -= 0.044;
-								hBondDonors.add(i);
-								// logger.debug("XLOGP: 56		-0.044");
-							}
-						}
-						if (hsCount == 2) {
-							xlogP -= 0.646;
-							hBondDonors.add(i);
-							// logger.debug("XLOGP: 54		-0.646");
-						}
-					} else {// NO amidic nitrogen
-						if (bondCount == 1) {
-							// -C#N
-							if (getCarbonsCount(ac, atomi) == 1) {
-								xlogP -= 0.566;
-								// logger.debug("XLOGP: 68		-0.566");
-							}
-						} else if (bondCount == 2) {
-							// N sp2
-							if ((Boolean) atomi.getProperty("IS_IN_AROMATIC_RING")) {
-								xlogP -= 0.493;
-								// logger.debug("XLOGP: 67		-0.493");
-								if (checkAminoAcid != 0) {
-									checkAminoAcid += 1;
-								}
-							} else {
-								if (getDoubleBondedCarbonsCount(ac, atomi) == 0) {
-									if (getDoubleBondedNitrogenCount(ac, atomi) == 0) {
-										if (getDoubleBondedOxygenCount(ac, atomi) == 1) {
-											xlogP += 0.427;
-											// logger.debug("XLOGP: 65		 0.427");
-										}
-									}
-									if (getDoubleBondedNitrogenCount(ac, atomi) == 1) {
-										if (getAtomTypeXCount(ac, atomi) == 0) {
-											xlogP += 0.536;
-											// logger.debug("XLOGP: 63		 0.536");
-										}
-										if (getAtomTypeXCount(ac, atomi) == 1) {
-											xlogP -= 0.597;
-											// logger.debug("XLOGP: 64		-0.597");
-										}
-									}
-								} else if (getDoubleBondedCarbonsCount(ac, atomi) == 1) {
-									if (getAtomTypeXCount(ac, atomi) == 0) {
-										if (getPiSystemsCount(ac, atomi) == 0) {
-											xlogP += 0.007;
-											// logger.debug("XLOGP: 59		 0.007");
-										}
-										if (getPiSystemsCount(ac, atomi) == 1) {
-											xlogP -= 0.275;
-											// logger.debug("XLOGP: 60		-0.275");
-										}
-									} else if (getAtomTypeXCount(ac, atomi) == 1) {
-										if (getPiSystemsCount(ac, atomi) == 0) {
-											xlogP += 0.366;
-											// logger.debug("XLOGP: 61		 0.366");
-										}
-										if (getPiSystemsCount(ac, atomi) == 1) {
-											xlogP += 0.251;
-											// logger.debug("XLOGP: 62		 0.251");
-										}
-									}
-								}
-							}
-						} else if (bondCount == 3) {
-							// N sp3
-							if (hsCount == 0) {
-								// if (rs.contains(atomi)&&ringSize>3) {
-								if (atomi.getFlag(CDKConstants.ISAROMATIC)
-										|| (rs.contains(atomi)
-												&& (Integer) atomi.getProperty(CDKConstants.PART_OF_RING_OF_SIZE) > 3 && getPiSystemsCount(
-												ac, atomi) >= 1)) {
-									if (getAtomTypeXCount(ac, atomi) == 0) {
-										xlogP += 0.881;
-										// logger.debug("XLOGP: 51		 0.881");
-									} else {
-										xlogP -= 0.01;
-										// logger.debug("XLOGP: 53		-0.01");
-									}
-								} else {
-									if (getAtomTypeXCount(ac, atomi) == 0) {
-										if (getPiSystemsCount(ac, atomi) == 0) {
-											xlogP += 0.159;
-											// logger.debug("XLOGP: 49		 0.159");
-										}
-										if (getPiSystemsCount(ac, atomi) > 0) {
-											xlogP += 0.761;
-											// logger.debug("XLOGP: 50		 0.761");
-										}
-									} else {
-										xlogP -= 0.239;
-										// logger.debug("XLOGP: 52		-0.239");
-									}
-								}
-							} else if (hsCount == 1) {
-								if (getAtomTypeXCount(ac, atomi) == 0) {
-									// like pyrrole
-									if (atomi.getFlag(CDKConstants.ISAROMATIC)
-											|| (rs.contains(atomi)
-													&& (Integer) atomi.getProperty(CDKConstants.PART_OF_RING_OF_SIZE) > 3 && getPiSystemsCount(
-													ac, atomi) >= 2)) {
-										xlogP += 0.545;
-										hBondDonors.add(i);
-										// logger.debug("XLOGP: 46		 0.545");
-									} else {
-										if (getPiSystemsCount(ac, atomi) == 0) {
-											xlogP -= 0.112;
-											hBondDonors.add(i);
-											// logger.debug("XLOGP: 44		-0.112");
-										}
-										if (getPiSystemsCount(ac, atomi) > 0) {
-											xlogP += 0.166;
-											hBondDonors.add(i);
-											// logger.debug("XLOGP: 45		 0.166");
-										}
-									}
-								} else {
-									if (rs.contains(atomi)) {
-										xlogP += 0.153;
-										hBondDonors.add(i);
-										// logger.debug("XLOGP: 48		 0.153");
-									} else {
-										xlogP += 0.324;
-										hBondDonors.add(i);
-										// logger.debug("XLOGP: 47		 0.324");
-									}
-								}
-							} else if (hsCount == 2) {
-								if (getAtomTypeXCount(ac, atomi) == 0) {
-									if (getPiSystemsCount(ac, atomi) == 0) {
-										xlogP -= 0.534;
-										hBondDonors.add(i);
-										// logger.debug("XLOGP: 41		-0.534");
-									}
-									if (getPiSystemsCount(ac, atomi) == 1) {
-										xlogP -= 0.329;
-										hBondDonors.add(i);
-										// logger.debug("XLOGP: 42		-0.329");
-									}
-
-									if (checkAminoAcid != 0) {
-										checkAminoAcid += 1;
-									}
-								} else {
-									xlogP -= 1.082;
-									hBondDonors.add(i);
-									// logger.debug("XLOGP: 43		-1.082");
-								}
-							}
-						}
-					}
-				}
-			}
-			if (symbol.equals("O")) {
-				if (bondCount == 1 && maxBondOrder == IBond.Order.DOUBLE) {
-					xlogP -= 0.399;
-					if (!getPresenceOfHydroxy(ac, atomi)) {
-						hBondAcceptors.add(i);
-					}
-					// logger.debug("XLOGP: 75	A=O	-0.399");
-				} else if (bondCount == 1 && hsCount == 0
-						&& (getPresenceOfNitro(ac, atomi) || getPresenceOfCarbonil(ac, atomi) == 1)
-						|| getPresenceOfSulfat(ac, atomi)) {
-					xlogP -= 0.399;
-					if (!getPresenceOfHydroxy(ac, atomi)) {
-						hBondAcceptors.add(i);
-					}
-					// logger.debug("XLOGP: 75	A=O	-0.399");
-				} else if (bondCount >= 1) {
-					if (hsCount == 0 && bondCount == 2) {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP += 0.084;
-								// logger.debug("XLOGP: 72	R-O-R	 0.084");
-							}
-							if (getPiSystemsCount(ac, atomi) > 0) {
-								xlogP += 0.435;
-								// logger.debug("XLOGP: 73	R-O-R.1	 0.435");
-							}
-						} else if (getAtomTypeXCount(ac, atomi) == 1) {
-							xlogP += 0.105;
-							// logger.debug("XLOGP: 74	R-O-X	 0.105");
-						}
-					} else {
-						if (getAtomTypeXCount(ac, atomi) == 0) {
-							if (getPiSystemsCount(ac, atomi) == 0) {
-								xlogP -= 0.467;
-								hBondDonors.add(i);
-								hBondAcceptors.add(i);
-								// logger.debug("XLOGP: 69	R-OH	-0.467");
-							}
-							if (getPiSystemsCount(ac, atomi) == 1) {
-								xlogP += 0.082;
-								hBondDonors.add(i);
-								hBondAcceptors.add(i);
-								// logger.debug("XLOGP: 70	R-OH.1	 0.082");
-							}
-						} else if (getAtomTypeXCount(ac, atomi) == 1) {
-							xlogP -= 0.522;
-							hBondDonors.add(i);
-							hBondAcceptors.add(i);
-							// logger.debug("XLOGP: 71	X-OH	-0.522");
-						}
-					}
-				}
-			}
-			if (symbol.equals("S")) {
-				if ((bondCount == 1 && maxBondOrder == IBond.Order.DOUBLE)
-						|| (bondCount == 1 && atomi.getFormalCharge() == -1)) {
-					xlogP -= 0.148;
-					// logger.debug("XLOGP: 78	A=S	-0.148");
-				} else if (bondCount == 2) {
-					if (hsCount == 0) {
-						xlogP += 0.255;
-						// logger.debug("XLOGP: 77	A-S-A	 0.255");
-					} else {
-						xlogP += 0.419;
-						// logger.debug("XLOGP: 76	A-SH	 0.419");
-					}
-				} else if (bondCount == 3) {
-					if (getOxygenCount(ac, atomi) >= 1) {
-						xlogP -= 1.375;
-						// logger.debug("XLOGP: 79	A-SO-A	-1.375");
-					}
-				} else if (bondCount == 4) {
-					if (getDoubleBondedOxygenCount(ac, atomi) >= 2) {
-						xlogP -= 0.168;
-						// logger.debug("XLOGP: 80	A-SO2-A	-0.168");
-					}
-				}
-			}
-			if (symbol.equals("P")) {
-				if (getDoubleBondedSulfurCount(ac, atomi) >= 1 && bondCount >= 4) {
-					xlogP += 1.253;
-					// logger.debug("XLOGP: 82	S=PA3	 1.253");
-				} else if (getOxygenCount(ac, atomi) >= 1 || getDoubleBondedOxygenCount(ac, atomi) == 1
-						&& bondCount >= 4) {
-					xlogP -= 0.447;
-					// logger.debug("XLOGP: 81	O=PA3	-0.447");
-				}
-			}
-			if (symbol.equals("F")) {
-				if (getPiSystemsCount(ac, atomi) == 0) {
-					xlogP += 0.375;
-					// logger.debug("XLOGP: 83	F.0	 0.512");
-				} else if (getPiSystemsCount(ac, atomi) == 1) {
-					xlogP += 0.202;
-					// logger.debug("XLOGP: 84	F.1	 0.202");
-				}
-			}
-			if (symbol.equals("Cl")) {
-				if (getPiSystemsCount(ac, atomi) == 0) {
-					xlogP += 0.512;
-					// logger.debug("XLOGP: 85	Cl.0	 0.512");
-				} else if (getPiSystemsCount(ac, atomi) >= 1) {
-					xlogP += 0.663;
-					// logger.debug("XLOGP: 86	Cl.1	 0.663");
-				}
-			}
-			if (symbol.equals("Br")) {
-				if (getPiSystemsCount(ac, atomi) == 0) {
-					xlogP += 0.85;
-					// logger.debug("XLOGP: 87	Br.0	 0.85");
-				} else if (getPiSystemsCount(ac, atomi) == 1) {
-					xlogP += 0.839;
-					// logger.debug("XLOGP: 88	Br.1	 0.839");
-				}
-			}
-			if (symbol.equals("I")) {
-				if (getPiSystemsCount(ac, atomi) == 0) {
-					xlogP += 1.05;
-					// logger.debug("XLOGP: 89	I.0	 1.05");
-				} else if (getPiSystemsCount(ac, atomi) == 1) {
-					xlogP += 1.109;
-					// logger.debug("XLOGP: 90	I.1	 1.109");
-				}
-			}
-
-			// Halogen pair 1-3
-			int halcount = getHalogenCount(ac, atomi);
-			if (halcount == 2) {
-				xlogP += 0.137;
-				// logger.debug("XLOGP: Halogen 1-3 pair	 0.137");
-			} else if (halcount == 3) {
-				xlogP += (3 * 0.137);
-				// logger.debug("XLOGP: Halogen 1-3 pair	 0.411");
-			} else if (halcount == 4) {
-				xlogP += (6 * 0.137);
-				// logger.debug("XLOGP: Halogen 1-3 pair	 1.902");
-			}
-
-			// sp2 Oxygen 1-5 pair
-			if (getPresenceOfCarbonil(ac, atomi) == 2) {// sp2 oxygen 1-5
-														// pair
-				if (!rs.contains(atomi)) {
-					xlogP += 0.580;
-					// logger.debug("XLOGP: sp2 Oxygen 1-5 pair	 0.580");
-				}
-			}
-		}
-		// logger.debug("XLOGP: Before Correction:"+xlogP);
-		int[][] pairCheck = null;
-		// //logger.debug("Acceptors:"+hBondAcceptors.size()+" Donors:"+hBondDonors.size());
-		if (hBondAcceptors.size() > 0 && hBondDonors.size() > 0) {
-			// moleculeGraph = MoleculeGraphs.getMoleculeGraph(ac);
-			pairCheck = initializeHydrogenPairCheck(new int[atomCount][atomCount]);
-		}
-
-		int[][] graph = GraphUtil.toAdjList(ac);
-
-		for (int i = 0; i < hBondAcceptors.size(); i++) {
-			ShortestPaths path = ShortestPathsGraph.paths(graph, ac.getAtom(hBondAcceptors.get(i)), ac);
-			for (int j = 0; j < hBondDonors.size(); j++) {
-				if (checkRingLink(rs, ac, ac.getAtom(hBondAcceptors.get(i)))
-						|| checkRingLink(rs, ac, ac.getAtom(hBondDonors.get(j).intValue()))) {
-					int distance = path.distanceTo(ac.getAtom((Integer) hBondDonors.get(j)));
-					// //logger.debug(" Acc:"+checkRingLink(rs,ac,atoms[((Integer)hBondAcceptors.get(i)).intValue()])
-					// +" S:"+atoms[((Integer)hBondAcceptors.get(i)).intValue()].getSymbol()
-					// +" Nr:"+((Integer)hBondAcceptors.get(i)).intValue()
-					// +" Don:"+checkRingLink(rs,ac,atoms[((Integer)hBondDonors.get(j)).intValue()])
-					// +" S:"+atoms[((Integer)hBondDonors.get(j)).intValue()].getSymbol()
-					// +" Nr:"+((Integer)hBondDonors.get(j)).intValue()
-					// +" i:"+i+" j:"+j+" path:"+path.size());
-					if (checkRingLink(rs, ac, ac.getAtom(hBondAcceptors.get(i)))
-							&& checkRingLink(rs, ac, ac.getAtom(hBondDonors.get(j).intValue()))) {
-						if (distance == 3 && pairCheck[hBondAcceptors.get(i)][hBondDonors.get(j)] == 0) {
-							xlogP += 0.429;
-							pairCheck[hBondAcceptors.get(i)][hBondDonors.get(j)] = 1;
-							pairCheck[hBondDonors.get(j)][hBondAcceptors.get(i)] = 1;
-							// logger.debug("XLOGP: Internal HBonds 1-4	 0.429");
-						}
-					} else {
-						if (distance == 4 && pairCheck[hBondAcceptors.get(i)][hBondDonors.get(j)] == 0) {
-							xlogP += 0.429;
-							pairCheck[hBondAcceptors.get(i)][hBondDonors.get(j)] = 1;
-							pairCheck[hBondDonors.get(j)][hBondAcceptors.get(i)] = 1;
-							// logger.debug("XLOGP: Internal HBonds 1-5	 0.429");
-						}
-					}
-				}
-			}
-		}
-
-		if (checkAminoAcid > 1) {
-			// alpha amino acid
-			QueryAtomContainer aminoAcid = QueryAtomContainerCreator.createBasicQueryContainer(createAminoAcid(ac
-					.getBuilder()));
-
-			Iterator<IBond> bonds = aminoAcid.bonds().iterator();
-			IAtom bondAtom0 = null;
-			IAtom bondAtom1 = null;
-			while (bonds.hasNext()) {
-				IBond bond = (IBond) bonds.next();
-				bondAtom0 = bond.getAtom(0);
-				bondAtom1 = bond.getAtom(1);
-				if ((bondAtom0.getSymbol().equals("C") && bondAtom1.getSymbol().equals("N"))
-						|| (bondAtom0.getSymbol().equals("N") && bondAtom1.getSymbol().equals("C"))
-						&& bond.getOrder() == IBond.Order.SINGLE) {
-					aminoAcid.removeBond(bondAtom0, bondAtom1);
-					aminoAcid.addBond(new AnyOrderQueryBond((IQueryAtom) bondAtom0, (IQueryAtom) bondAtom1,
-							IBond.Order.SINGLE, ac.getBuilder()));
-					break;
-				}
-			}
-
-			// AtomContainer aminoacid = sp.parseSmiles("NCC(=O)O");
-			Pattern aaPattern = VentoFoggia.findSubstructure(aminoAcid);
-			if (aaPattern.matches(ac)) {
-				int[] match = aaPattern.match(ac);
-				for (int j = 0; j < match.length; j++) {
-					IAtom atom1 = ac.getAtom(match[j]);
-					if (atom1.getSymbol().equals("O") && ac.getMaximumBondOrder(atom1) == IBond.Order.SINGLE) {
-						if (ac.getConnectedBondsCount(atom1) == 2 && getHydrogenCount(ac, atom1) == 0) {} else {
-							xlogP -= 2.166;
-							// logger.debug("XLOGP: alpha amino acid	-2.166");
-							break;
-						}
-					}
-				}
-			}
-		}
-
-		IAtomContainer paba = createPaba(ac.getBuilder());
-		// p-amino sulphonic acid
-		Pattern paPattern = VentoFoggia.findSubstructure(paba);
-		if (paPattern.matches(ac)) {
-			xlogP -= 0.501;
-			// logger.debug("XLOGP: p-amino sulphonic acid	-0.501");
-		}
-
-		// salicylic acid
-		if (salicylFlag) {
-			IAtomContainer salicilic = createSalicylicAcid(ac.getBuilder());
-			Pattern saPattern = VentoFoggia.findSubstructure(salicilic);
-			if (saPattern.matches(ac)) {
-				xlogP += 0.554;
-				// logger.debug("XLOGP: salicylic acid	 0.554");
-			}
-		}
-
-		// ortho oxygen pair
-		// AtomContainer orthopair = sp.parseSmiles("OCCO");
-		QueryAtomContainer orthopair = new QueryAtomContainer(ac.getBuilder());
-		AromaticAtom atom1 = new AromaticAtom(ac.getBuilder());
-		atom1.setSymbol("C");
-		AromaticAtom atom2 = new AromaticAtom(ac.getBuilder());
-		atom2.setSymbol("C");
-		SymbolQueryAtom atom3 = new SymbolQueryAtom(ac.getBuilder());
-		atom3.setSymbol("O");
-		SymbolQueryAtom atom4 = new SymbolQueryAtom(ac.getBuilder());
-		atom4.setSymbol("O");
-
-		orthopair.addAtom(atom1);
-		orthopair.addAtom(atom2);
-		orthopair.addAtom(atom3);
-		orthopair.addAtom(atom4);
-
-		orthopair.addBond(new AromaticQueryBond(atom1, atom2, IBond.Order.SINGLE, ac.getBuilder()));
-		orthopair.addBond(new OrderQueryBond(atom1, atom3, IBond.Order.SINGLE, ac.getBuilder()));
-		orthopair.addBond(new OrderQueryBond(atom2, atom4, IBond.Order.SINGLE, ac.getBuilder()));
-
-		Pattern orPattern = VentoFoggia.findSubstructure(orthopair);
-		if (orPattern.matches(ac)) {
-			xlogP -= 0.268;
-			// logger.debug("XLOGP: Ortho oxygen pair	-0.268");
-		}
-
-		return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(), new DoubleResult(xlogP),
-				getDescriptorNames());
+	/**
+	 * Calculates the xlogP for an atom container using a precomputed smallest
+	 * set of smallest rings. Allows callers to share ring perception across
+	 * several descriptors.
+	 * 
+	 * @param ac AtomContainer
+	 * @param rs the SSSR of the atom container
+	 * @return XLogP is a double
+	 */
+	public DescriptorValue calculate(IAtomContainer ac, IRingSet rs) {
+		return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
+				new DoubleResult(new Calculation(ac, rs).xlogP()), getDescriptorNames());
 	}
 
 	/**
@@ -889,507 +167,101 @@ public class SmartXLogPDescriptor extends AbstractMolecularDescriptor implements
 	}
 
 	/**
-	 * Method initialise the HydrogenpairCheck with a value
+	 * Maps the atom symbol to the element code used by the atom type assignment.
 	 * 
-	 * @param pairCheck value
-	 * @return void
+	 * @param symbol the atom symbol
+	 * @return the element code
 	 */
-	private int[][] initializeHydrogenPairCheck(int[][] pairCheck) {
-		for (int i = 0; i < pairCheck.length; i++) {
-			for (int j = 0; j < pairCheck[0].length; j++) {
-				pairCheck[i][j] = 0;
-			}
+	private static int getElement(String symbol) {
+		switch (symbol) {
+		case "H":
+			return H;
+		case "C":
+			return C;
+		case "N":
+			return N;
+		case "O":
+			return O;
+		case "F":
+			return F;
+		case "P":
+			return P;
+		case "S":
+			return S;
+		case "Cl":
+			return CL;
+		case "Br":
+			return BR;
+		case "I":
+			return I;
+		default:
+			return OTHER;
 		}
-		return pairCheck;
 	}
 
 	/**
-	 * Check if atom or neighbour atom is part of a ring
+	 * Gets the parameterNames attribute of the XLogPDescriptor object.
 	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The hydrogenCount value
+	 * @return The parameterNames value
 	 */
-	private boolean checkRingLink(IRingSet ringSet, IAtomContainer ac, IAtom atom) {
-		List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		if (ringSet.contains(atom)) {
-			return true;
-		}
-		for (IAtom neighbour : neighbours) {
-			if (ringSet.contains(neighbour)) {
-				return true;
-			}
-		}
-		return false;
+	public String[] getParameterNames() {
+		String[] params = new String[1];
+		params[0] = "salicylFlag";
+		return params;
 	}
 
 	/**
-	 * Gets the hydrogenCount attribute of the XLogPDescriptor object.
+	 * Gets the parameterType attribute of the XLogPDescriptor object.
 	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The hydrogenCount value
+	 * @param name Description of the Parameter
+	 * @return The parameterType value
 	 */
-	private int getHydrogenCount(IAtomContainer ac, IAtom atom) {
-		List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int hcounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("H")) {
-				hcounter += 1;
-			}
-		}
-		return hcounter;
+	public Object getParameterType(String name) {
+		return true;
 	}
 
-	/**
-	 * Gets the HalogenCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The alogenCount value
-	 */
-	private int getHalogenCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int acounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("F") || neighbour.getSymbol().equals("I")
-					|| neighbour.getSymbol().equals("Cl") || neighbour.getSymbol().equals("Br")) {
-				acounter += 1;
+	private Pattern createAminoAcidPattern(IChemObjectBuilder builder) {
+		QueryAtomContainer aminoAcid = QueryAtomContainerCreator.createBasicQueryContainer(createAminoAcid(builder));
+
+		Iterator<IBond> bonds = aminoAcid.bonds().iterator();
+		IAtom bondAtom0 = null;
+		IAtom bondAtom1 = null;
+		while (bonds.hasNext()) {
+			IBond bond = (IBond) bonds.next();
+			bondAtom0 = bond.getAtom(0);
+			bondAtom1 = bond.getAtom(1);
+			if ((bondAtom0.getSymbol().equals("C") && bondAtom1.getSymbol().equals("N"))
+					|| (bondAtom0.getSymbol().equals("N") && bondAtom1.getSymbol().equals("C"))
+					&& bond.getOrder() == IBond.Order.SINGLE) {
+				aminoAcid.removeBond(bondAtom0, bondAtom1);
+				aminoAcid.addBond(new AnyOrderQueryBond((IQueryAtom) bondAtom0, (IQueryAtom) bondAtom1,
+						IBond.Order.SINGLE, builder));
+				break;
 			}
 		}
-		return acounter;
+		return VentoFoggia.findSubstructure(aminoAcid);
 	}
 
-	/**
-	 * Gets the atomType X Count attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The nitrogenOrOxygenCount value
-	 */
-	private int getAtomTypeXCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int nocounter = 0;
-		IBond bond;
-		for (IAtom neighbour : neighbours) {
-			if ((neighbour.getSymbol().equals("N") || neighbour.getSymbol().equals("O"))
-					&& !(Boolean) neighbour.getProperty("IS_IN_AROMATIC_RING")) {
-				// if (ac.getMaximumBondOrder(neighbours[i]) == 1.0) {
-				bond = ac.getBond(neighbour, atom);
-				if (bond.getOrder() != IBond.Order.DOUBLE) {
-					nocounter += 1;
-				}
-			}
-		}
-		return nocounter;
-	}
-
-	/**
-	 * Gets the aromaticCarbonsCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The aromaticCarbonsCount value
-	 */
-	private int getAromaticCarbonsCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int carocounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("C") && neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-				carocounter += 1;
-			}
-		}
-		return carocounter;
-	}
-
-	/**
-	 * Gets the carbonsCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The carbonsCount value
-	 */
-	private int getCarbonsCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int ccounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("C")) {
-				if (!neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-					ccounter += 1;
-				}
-			}
-		}
-		return ccounter;
-	}
-
-	/**
-	 * Gets the oxygenCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The carbonsCount value
-	 */
-	private int getOxygenCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int ocounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("O")) {
-				if (!neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-					ocounter += 1;
-				}
-			}
-		}
-		return ocounter;
-	}
-
-	/**
-	 * Gets the doubleBondedCarbonsCount attribute of the XLogPDescriptor
-	 * object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The doubleBondedCarbonsCount value
-	 */
-	private int getDoubleBondedCarbonsCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		IBond bond;
-		int cdbcounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("C")) {
-				bond = ac.getBond(neighbour, atom);
-				if (bond.getOrder() == IBond.Order.DOUBLE) {
-					cdbcounter += 1;
-				}
-			}
-		}
-		return cdbcounter;
-	}
-
-	/**
-	 * Gets the doubleBondedOxygenCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The doubleBondedOxygenCount value
-	 */
-	private int getDoubleBondedOxygenCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		IBond bond;
-		int odbcounter = 0;
-		boolean chargeFlag = false;
-		if (atom.getFormalCharge() >= 1) {
-			chargeFlag = true;
-		}
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("O")) {
-				bond = ac.getBond(neighbour, atom);
-				if (chargeFlag && neighbour.getFormalCharge() == -1 && bond.getOrder() == IBond.Order.SINGLE) {
-					odbcounter += 1;
-				}
-				if (!neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-					if (bond.getOrder() == IBond.Order.DOUBLE) {
-						odbcounter += 1;
-					}
-				}
-			}
-		}
-		return odbcounter;
-	}
-
-	/**
-	 * Gets the doubleBondedSulfurCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The doubleBondedSulfurCount value
-	 */
-	private int getDoubleBondedSulfurCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		IBond bond;
-		int sdbcounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("S")) {
-				if (atom.getFormalCharge() == 1 && neighbour.getFormalCharge() == -1) {
-					sdbcounter += 1;
-				}
-				bond = ac.getBond(neighbour, atom);
-				if (!neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-					if (bond.getOrder() == IBond.Order.DOUBLE) {
-						sdbcounter += 1;
-					}
-				}
-			}
-		}
-		return sdbcounter;
-	}
-
-	/**
-	 * Gets the doubleBondedNitrogenCount attribute of the XLogPDescriptor
-	 * object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The doubleBondedNitrogenCount value
-	 */
-	private int getDoubleBondedNitrogenCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		IBond bond;
-		int ndbcounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("N")) {
-				bond = ac.getBond(neighbour, atom);
-				if (!neighbour.getFlag(CDKConstants.ISAROMATIC)) {
-					if (bond.getOrder() == IBond.Order.DOUBLE) {
-						ndbcounter += 1;
-					}
-				}
-			}
-		}
-		return ndbcounter;
-	}
-
-	/**
-	 * Gets the aromaticNitrogensCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The aromaticNitrogensCount value
-	 */
-	private int getAromaticNitrogensCount(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int narocounter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("N") && (Boolean) neighbour.getProperty("IS_IN_AROMATIC_RING")) {
-				narocounter += 1;
-			}
-		}
-		return narocounter;
-	}
-
-	// a piSystem is a double or triple or aromatic bond:
-	/**
-	 * Gets the piSystemsCount attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The piSystemsCount value
-	 */
-	private int getPiSystemsCount(IAtomContainer ac, IAtom atom) {
-		List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		int picounter = 0;
-		List<IBond> bonds = null;
-		for (int i = 0; i < neighbours.size(); i++) {
-			IAtom neighbour = (IAtom) neighbours.get(i);
-			bonds = ac.getConnectedBondsList(neighbour);
-			for (int j = 0; j < bonds.size(); j++) {
-				IBond bond = (IBond) bonds.get(j);
-				if (bond.getOrder() != IBond.Order.SINGLE && bond.getConnectedAtom(neighbour) != atom
-						&& !neighbour.getSymbol().equals("P") && !neighbour.getSymbol().equals("S")) {
-					picounter += 1;
-				}/*
-				 * else if (bonds[j].getConnectedAtom(neighbours[i])!=atom &&
-				 * !neighbours[i].getSymbol().equals("P") &&
-				 * !neighbours[i].getSymbol().equals("S") &&
-				 * bonds[j].getConnectedAtom
-				 * (neighbours[i]).getFlag(CDKConstants.ISAROMATIC)){ picounter
-				 * += 1; }
-				 */
-			}
-		}
-		return picounter;
-	}
-
-	/**
-	 * Gets the presenceOf Hydroxy group attribute of the XLogPDescriptor
-	 * object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The presenceOfCarbonil value
-	 */
-	private boolean getPresenceOfHydroxy(IAtomContainer ac, IAtom atom) {
-		IAtom neighbour0 = (IAtom) ac.getConnectedAtomsList(atom).get(0);
-		List<IAtom> first = null;
-		if (neighbour0.getSymbol().equals("C")) {
-			first = ac.getConnectedAtomsList(neighbour0);
-			for (int i = 0; i < first.size(); i++) {
-				IAtom conAtom = (IAtom) first.get(i);
-				if (conAtom.getSymbol().equals("O")) {
-					if (ac.getBond(neighbour0, conAtom).getOrder() == IBond.Order.SINGLE) {
-						if (ac.getConnectedBondsCount(conAtom) > 1 && getHydrogenCount(ac, conAtom) == 0) {
-							return false;
-						} else {
-							return true;
-						}
-					}
-				}
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Gets the presenceOfN=O attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The presenceOfNitor [boolean]
-	 */
-	private boolean getPresenceOfNitro(IAtomContainer ac, IAtom atom) {
-		List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		List<IAtom> second = null;
-		IBond bond = null;
-		// int counter = 0;
-		for (int i = 0; i < neighbours.size(); i++) {
-			IAtom neighbour = (IAtom) neighbours.get(i);
-			if (neighbour.getSymbol().equals("N")) {
-				second = ac.getConnectedAtomsList(neighbour);
-				for (int b = 0; b < second.size(); b++) {
-					IAtom conAtom = (IAtom) second.get(b);
-					if (conAtom.getSymbol().equals("O")) {
-						bond = ac.getBond(neighbour, conAtom);
-						if (bond.getOrder() == IBond.Order.DOUBLE) {
-							return true;
-						}
-					}
-				}
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Gets the presenceOfSulfat A-S(O2)-A attribute of the XLogPDescriptor
-	 * object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The presenceOfSulfat [boolean]
-	 */
-	private boolean getPresenceOfSulfat(IAtomContainer ac, IAtom atom) {
-		java.util.List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		// org.openscience.cdk.interfaces.IAtom[] second = null;
-		// IBond bond = null;
-		// int counter = 0;
-		for (IAtom neighbour : neighbours) {
-			if (neighbour.getSymbol().equals("S") && getOxygenCount(ac, neighbour) >= 2
-					&& ac.getConnectedBondsCount(neighbour) == 4) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Gets the presenceOfCarbonil attribute of the XLogPDescriptor object.
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The presenceOfCarbonil value
-	 */
-	private int getPresenceOfCarbonil(IAtomContainer ac, IAtom atom) {
-		List<IAtom> neighbours = ac.getConnectedAtomsList(atom);
-		List<IAtom> second = null;
-		IBond bond = null;
-		int counter = 0;
-		for (int i = 0; i < neighbours.size(); i++) {
-			IAtom neighbour = (IAtom) neighbours.get(i);
-			if (neighbour.getSymbol().equals("C")) {
-				second = ac.getConnectedAtomsList(neighbour);
-				for (int b = 0; b < second.size(); b++) {
-					IAtom conAtom = (IAtom) second.get(b);
-					if (conAtom.getSymbol().equals("O")) {
-						bond = ac.getBond(neighbour, conAtom);
-						if (bond.getOrder() == IBond.Order.DOUBLE) {
-							counter += 1;
-						}
-					}
-				}
-			}
-		}
-		return counter;
-	}
-
-	/**
-	 * Gets the ifCarbonIsHydrophobic attribute of the XLogPDescriptor object. C
-	 * must be sp2 or sp3 and, for all distances C-1-2-3 only C atoms are
-	 * permitted
-	 * 
-	 * @param ac Description of the Parameter
-	 * @param atom Description of the Parameter
-	 * @return The ifCarbonIsHydrophobic value
-	 */
-	private boolean getIfCarbonIsHydrophobic(IAtomContainer ac, IAtom atom) {
-		List<IAtom> first = ac.getConnectedAtomsList(atom);
-		List<IAtom> second = null;
-		List<IAtom> third = null;
-		// org.openscience.cdk.interfaces.IAtom[] fourth = null;
-		if (first.size() > 0) {
-			for (int i = 0; i < first.size(); i++) {
-				IAtom firstAtom = (IAtom) first.get(i);
-				if (firstAtom.getSymbol().equals("C") || firstAtom.getSymbol().equals("H")) {} else {
-					return false;
-				}
-				second = ac.getConnectedAtomsList(firstAtom);
-				if (second.size() > 0) {
-					for (int b = 0; b < second.size(); b++) {
-						IAtom secondAtom = (IAtom) second.get(b);
-						if (secondAtom.getSymbol().equals("C") || secondAtom.getSymbol().equals("H")) {} else {
-							return false;
-						}
-						third = ac.getConnectedAtomsList(secondAtom);
-						if (third.size() > 0) {
-							for (int c = 0; c < third.size(); c++) {
-								IAtom thirdAtom = (IAtom) third.get(c);
-								if (thirdAtom.getSymbol().equals("C") || thirdAtom.getSymbol().equals("H")) {} else {
-									return false;
-								}
-								// fourth = ac.getConnectedAtoms(third[c]);
-								// if (fourth.length > 0) {
-								// for (int d = 0; d < fourth.length; d++) {
-								// if (fourth[d].getSymbol().equals("C") ||
-								// fourth[d].getSymbol().equals("H")) {
-								// } else {
-								// return false;
-								// }
-								// }
-								// } else {
-								// return false;
-								// }
-							}
-						} else {
-							return false;
-						}
-					}
-				} else {
-					return false;
-				}
-			}
-		} else {
-			return false;
-		}
-		return true;
-	}
+	private Pattern createOrthoPairPattern(IChemObjectBuilder builder) {
+		QueryAtomContainer orthopair = new QueryAtomContainer(builder);
+		AromaticAtom atom1 = new AromaticAtom(builder);
+		atom1.setSymbol("C");
+		AromaticAtom atom2 = new AromaticAtom(builder);
+		atom2.setSymbol("C");
+		SymbolQueryAtom atom3 = new SymbolQueryAtom(builder);
+		atom3.setSymbol("O");
+		SymbolQueryAtom atom4 = new SymbolQueryAtom(builder);
+		atom4.setSymbol("O");
 
-	/**
-	 * Gets the parameterNames attribute of the XLogPDescriptor object.
-	 * 
-	 * @return The parameterNames value
-	 */
-	public String[] getParameterNames() {
-		String[] params = new String[1];
-		params[0] = "salicylFlag";
-		return params;
-	}
+		orthopair.addAtom(atom1);
+		orthopair.addAtom(atom2);
+		orthopair.addAtom(atom3);
+		orthopair.addAtom(atom4);
 
-	/**
-	 * Gets the parameterType attribute of the XLogPDescriptor object.
-	 * 
-	 * @param name Description of the Parameter
-	 * @return The parameterType value
-	 */
-	public Object getParameterType(String name) {
-		return true;
+		orthopair.addBond(new AromaticQueryBond(atom1, atom2, IBond.Order.SINGLE, builder));
+		orthopair.addBond(new OrderQueryBond(atom1, atom3, IBond.Order.SINGLE, builder));
+		orthopair.addBond(new OrderQueryBond(atom2, atom4, IBond.Order.SINGLE, builder));
+		return VentoFoggia.findSubstructure(orthopair);
 	}
 
 	private IAtomContainer createPaba(IChemObjectBuilder builder) {
@@ -1533,4 +405,1173 @@ public class SmartXLogPDescriptor extends AbstractMolecularDescriptor implements
 
 		return container;
 	}
+
+	/**
+	 * The atom-indexed tables of one molecule and the XLogP calculation on them. Every call creates its own instance,
+	 * so a descriptor can be shared between threads.
+	 */
+	private final class Calculation {
+
+		private final IAtomContainer ac;
+		private IAtom[] atoms;
+		private int[] elements;
+		private int[][] neighbours;
+		private IBond.Order[][] orders;
+		private boolean[] aromatic;
+		private boolean[] inRing;
+		private boolean[] inAromaticRing;
+		private boolean[] ringLink;
+		private int[] ringSize;
+		private int[] hydrogenCount;
+		private IBond.Order[] maxBondOrders;
+		private int[] atomTypeXCount;
+		private int[] piSystemsCount;
+		private int[] symbolCount;
+		private int[] elementCount;
+		private boolean elementCountComplete;
+
+		/**
+		 * Indexes the atom container: neighbour and bond order arrays in bond order, ring membership and smallest ring
+		 * size from a single pass over the ring set, and the per-atom counts queried for nearly every atom.
+		 * 
+		 * @param ac AtomContainer
+		 * @param rs the SSSR of the atom container
+		 */
+		Calculation(IAtomContainer ac, IRingSet rs) {
+
+			this.ac = ac;
+
+			int atomCount = ac.getAtomCount();
+			atoms = new IAtom[atomCount];
+			elements = new int[atomCount];
+			aromatic = new boolean[atomCount];
+			symbolCount = new int[I + 1];
+			elementCount = new int[I + 1];
+			elementCountComplete = true;
+			Map<IAtom, Integer> atomIndex = new IdentityHashMap<IAtom, Integer>(2 * atomCount);
+			for (int i = 0; i < atomCount; i++) {
+				IAtom atom = ac.getAtom(i);
+				atoms[i] = atom;
+				elements[i] = getElement(atom.getSymbol());
+				aromatic[i] = atom.getFlag(CDKConstants.ISAROMATIC);
+				symbolCount[elements[i]]++;
+				Integer number = atom.getAtomicNumber();
+				if (number == null) {
+					elementCountComplete &= atom instanceof IPseudoAtom;
+				} else if (number >= 0 && number < elementCount.length) {
+					elementCount[number]++;
+				}
+				atomIndex.put(atom, i);
+			}
+
+			int[] degree = new int[atomCount];
+			int[][] bondAtoms = new int[ac.getBondCount()][];
+			int bondIndex = 0;
+			for (IBond bond : ac.bonds()) {
+				Integer u = atomIndex.get(bond.getAtom(0));
+				Integer v = atomIndex.get(bond.getAtom(1));
+				if (u != null && v != null) {
+					bondAtoms[bondIndex] = new int[] { u, v };
+					degree[u]++;
+					degree[v]++;
+				}
+				bondIndex++;
+			}
+			neighbours = new int[atomCount][];
+			orders = new IBond.Order[atomCount][];
+			for (int i = 0; i < atomCount; i++) {
+				neighbours[i] = new int[degree[i]];
+				orders[i] = new IBond.Order[degree[i]];
+				degree[i] = 0;
+			}
+			bondIndex = 0;
+			for (IBond bond : ac.bonds()) {
+				int[] pair = bondAtoms[bondIndex++];
+				if (pair != null) {
+					int u = pair[0];
+					int v = pair[1];
+					neighbours[u][degree[u]] = v;
+					orders[u][degree[u]++] = bond.getOrder();
+					neighbours[v][degree[v]] = u;
+					orders[v][degree[v]++] = bond.getOrder();
+				}
+			}
+
+			// every SSSR ring is a simple cycle, so a single pass over the rings assigns the smallest ring size of each
+			// atom
+			inRing = new boolean[atomCount];
+			inAromaticRing = new boolean[atomCount];
+			ringSize = new int[atomCount];
+			for (IAtomContainer container : rs.atomContainers()) {
+				int size = ((IRing) container).getRingSize();
+				for (IAtom atom : container.atoms()) {
+					Integer i = atomIndex.get(atom);
+					if (i == null) {
+						continue;
+					}
+					inRing[i] = true;
+					if (size >= 6 && aromatic[i]) {
+						inAromaticRing[i] = true;
+					}
+					if (ringSize[i] == 0 || size < ringSize[i]) {
+						ringSize[i] = size;
+					}
+				}
+			}
+
+			hydrogenCount = new int[atomCount];
+			maxBondOrders = new IBond.Order[atomCount];
+			ringLink = new boolean[atomCount];
+			for (int i = 0; i < atomCount; i++) {
+				IBond.Order max = IBond.Order.SINGLE;
+				ringLink[i] = inRing[i];
+				for (int k = 0; k < neighbours[i].length; k++) {
+					int neighbour = neighbours[i][k];
+					if (elements[neighbour] == H) {
+						hydrogenCount[i]++;
+					}
+					if (orders[i][k].numeric() > max.numeric()) {
+						max = orders[i][k];
+					}
+					ringLink[i] |= inRing[neighbour];
+				}
+				maxBondOrders[i] = max;
+			}
+
+			atomTypeXCount = new int[atomCount];
+			piSystemsCount = new int[atomCount];
+			for (int i = 0; i < atomCount; i++) {
+				atomTypeXCount[i] = getAtomTypeXCount(i);
+				piSystemsCount[i] = getPiSystemsCount(i);
+			}
+		}
+
+		/**
+		 * Calculates the XLogP from the tables.
+		 *
+		 * @return the XLogP
+		 */
+		double xlogP() {
+
+			double xlogP = 0;
+			int bondCount = 0;
+			int atomCount = atoms.length;
+			int hsCount = 0;
+			int element = 0;
+			IBond.Order maxBondOrder = IBond.Order.SINGLE;
+			List<Integer> hBondAcceptors = new ArrayList<Integer>();
+			List<Integer> hBondDonors = new ArrayList<Integer>();
+			int checkAminoAcid = 1;// if 0 no check, if >1 check
+
+			for (int i = 0; i < atomCount; i++) {
+				element = elements[i];
+				bondCount = neighbours[i].length;
+				hsCount = hydrogenCount[i];
+				maxBondOrder = maxBondOrders[i];
+				if (element == C) {
+					if (bondCount == 2) {
+						// C sp
+						if (hsCount >= 1) {
+							xlogP += 0.209;
+							// logger.debug("XLOGP: 38		 0.209");
+						} else {
+							if (maxBondOrder == IBond.Order.DOUBLE) {
+								xlogP += 2.073;
+								// logger.debug("XLOGP: 40		 2.037");
+							} else if (maxBondOrder == IBond.Order.TRIPLE) {
+								xlogP += 0.33;
+								// logger.debug("XLOGP: 39		 0.33");
+							}
+						}
+					}
+					if (bondCount == 3) {
+						// C sp2
+						if (inAromaticRing[i]) {
+							if (getAromaticCarbonsCount(i) >= 2 && getAromaticNitrogensCount(i) == 0) {
+								if (hsCount == 0) {
+									if (atomTypeXCount[i] == 0) {
+										xlogP += 0.296;
+										// logger.debug("XLOGP: 34		 0.296");
+									} else {
+										xlogP -= 0.151;
+										// logger.debug("XLOGP: 35	C.ar.x	-0.151");
+									}
+								} else {
+									xlogP += 0.337;
+									// logger.debug("XLOGP: 32		 0.337");
+								}
+								// } else if (getAromaticCarbonsCount(ac,
+								// atoms[i]) < 2 &&
+								// getAromaticNitrogensCount(ac, atoms[i]) > 1)
+								// {
+							} else if (getAromaticNitrogensCount(i) >= 1) {
+								if (hsCount == 0) {
+									if (atomTypeXCount[i] == 0) {
+										xlogP += 0.174;
+										// logger.debug("XLOGP: 36	C.ar.(X)	 0.174");
+									} else {
+										xlogP += 0.366;
+										// logger.debug("XLOGP: 37		 0.366");
+									}
+								} else if (hydrogenCount[i] == 1) {
+									xlogP += 0.126;
+									// logger.debug("XLOGP: 33		 0.126");
+								}
+							}
+							// NOT aromatic, but sp2
+						} else {
+							if (hsCount == 0) {
+								if (atomTypeXCount[i] == 0) {
+									if (piSystemsCount[i] <= 1) {
+										xlogP += 0.05;
+										// logger.debug("XLOGP: 26		 0.05");
+									} else {
+										xlogP += 0.013;
+										// logger.debug("XLOGP: 27		 0.013");
+									}
+								} else if (atomTypeXCount[i] == 1) {
+									if (piSystemsCount[i] == 0) {
+										xlogP -= 0.03;
+										// logger.debug("XLOGP: 28		-0.03");
+									} else {
+										xlogP -= 0.027;
+										// logger.debug("XLOGP: 29		-0.027");
+									}
+								} else if (atomTypeXCount[i] == 2) {
+									if (piSystemsCount[i] == 0) {
+										xlogP += 0.005;
+										// logger.debug("XLOGP: 30		 0.005");
+									} else {
+										xlogP -= 0.315;
+										// logger.debug("XLOGP: 31		-0.315");
+									}
+								}
+							}
+							if (hsCount == 1) {
+								if (atomTypeXCount[i] == 0) {
+									if (piSystemsCount[i] == 0) {
+										xlogP += 0.466;
+										// logger.debug("XLOGP: 22		 0.466");
+									}
+									if (piSystemsCount[i] == 1) {
+										xlogP += 0.136;
+										// logger.debug("XLOGP: 23		 0.136");
+									}
+								} else {
+									if (piSystemsCount[i] == 0) {
+										xlogP += 0.001;
+										// logger.debug("XLOGP: 24		 0.001");
+									}
+									if (piSystemsCount[i] == 1) {
+										xlogP -= 0.31;
+										// logger.debug("XLOGP: 25		-0.31");
+									}
+								}
+							}
+							if (hsCount == 2) {
+								xlogP += 0.42;
+								// logger.debug("XLOGP: 21		 0.42");
+							}
+							if (getIfCarbonIsHydrophobic(i)) {
+								xlogP += 0.211;
+								// logger.debug("XLOGP: Hydrophobic Carbon	0.211");
+							}
+						}// sp2 NOT aromatic
+					}
+
+					if (bondCount == 4) {
+						// C sp3
+						if (hsCount == 0) {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP -= 0.006;
+									// logger.debug("XLOGP: 16		-0.006");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP -= 0.57;
+									// logger.debug("XLOGP: 17		-0.57");
+								}
+								if (piSystemsCount[i] >= 2) {
+									xlogP -= 0.317;
+									// logger.debug("XLOGP: 18		-0.317");
+								}
+							} else {
+								if (piSystemsCount[i] == 0) {
+									xlogP -= 0.316;
+									// logger.debug("XLOGP: 19		-0.316");
+								} else {
+									xlogP -= 0.723;
+									// logger.debug("XLOGP: 20		-0.723");
+								}
+							}
+						}
+						if (hsCount == 1) {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP += 0.127;
+									// logger.debug("XLOGP: 10		 0.127");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP -= 0.243;
+									// logger.debug("XLOGP: 11		-0.243");
+								}
+								if (piSystemsCount[i] >= 2) {
+									xlogP -= 0.499;
+									// logger.debug("XLOGP: 12		-0.499");
+								}
+							} else {
+								if (piSystemsCount[i] == 0) {
+									xlogP -= 0.205;
+									// logger.debug("XLOGP: 13		-0.205");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP -= 0.305;
+									// logger.debug("XLOGP: 14		-0.305");
+								}
+								if (piSystemsCount[i] >= 2) {
+									xlogP -= 0.709;
+									// logger.debug("XLOGP: 15		-0.709");
+								}
+							}
+						}
+						if (hsCount == 2) {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP += 0.358;
+									// logger.debug("XLOGP:  4		 0.358");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP -= 0.008;
+									// logger.debug("XLOGP:  5		-0.008");
+								}
+								if (piSystemsCount[i] == 2) {
+									xlogP -= 0.185;
+									// logger.debug("XLOGP:  6		-0.185");
+								}
+							} else {
+								if (piSystemsCount[i] == 0) {
+									xlogP -= 0.137;
+									// logger.debug("XLOGP:  7		-0.137");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP -= 0.303;
+									// logger.debug("XLOGP:  8		-0.303");
+								}
+								if (piSystemsCount[i] == 2) {
+									xlogP -= 0.815;
+									// logger.debug("XLOGP:  9		-0.815");
+								}
+							}
+						}
+						if (hsCount > 2) {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP += 0.528;
+									// logger.debug("XLOGP:  1		 0.528");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP += 0.267;
+									// logger.debug("XLOGP:  2		 0.267");
+								}
+							} else {
+								// if (getNitrogenOrOxygenCount(i) == 1)
+								// {
+								xlogP -= 0.032;
+								// logger.debug("XLOGP:  3		-0.032");
+							}
+						}
+						if (getIfCarbonIsHydrophobic(i)) {
+							xlogP += 0.211;
+							// logger.debug("XLOGP: Hydrophobic Carbon	0.211");
+						}
+					}// csp3
+
+				}// C
+
+				if (element == N) {
+					// NO2
+					if (getBondOrderSum(i) >= 3.0 && getOxygenCount(i) >= 2
+							&& maxBondOrder == IBond.Order.DOUBLE) {
+						xlogP += 1.178;
+						// logger.debug("XLOGP: 66		 1.178");
+					} else {
+						if (getPresenceOfCarbonil(i) >= 1) {
+							// amidic nitrogen
+							if (hsCount == 0) {
+								if (atomTypeXCount[i] == 0) {
+									xlogP += 0.078;
+									// logger.debug("XLOGP: 57		 0.078");
+								}
+								if (atomTypeXCount[i] == 1) {
+									xlogP -= 0.118;
+									// logger.debug("XLOGP: 58		-0.118");
+								}
+							}
+							if (hsCount == 1) {
+								if (atomTypeXCount[i] == 0) {
+									xlogP -= 0.096;
+									hBondDonors.add(i);
+									// logger.debug("XLOGP: 55		-0.096");
+								} else {
+									xlogP -= 0.044;
+									hBondDonors.add(i);
+									// logger.debug("XLOGP: 56		-0.044");
+								}
+							}
+							if (hsCount == 2) {
+								xlogP -= 0.646;
+								hBondDonors.add(i);
+								// logger.debug("XLOGP: 54		-0.646");
+							}
+						} else {// NO amidic nitrogen
+							if (bondCount == 1) {
+								// -C#N
+								if (getCarbonsCount(i) == 1) {
+									xlogP -= 0.566;
+									// logger.debug("XLOGP: 68		-0.566");
+								}
+							} else if (bondCount == 2) {
+								// N sp2
+								if (inAromaticRing[i]) {
+									xlogP -= 0.493;
+									// logger.debug("XLOGP: 67		-0.493");
+									if (checkAminoAcid != 0) {
+										checkAminoAcid += 1;
+									}
+								} else {
+									if (getDoubleBondedCarbonsCount(i) == 0) {
+										if (getDoubleBondedNitrogenCount(i) == 0) {
+											if (getDoubleBondedOxygenCount(i) == 1) {
+												xlogP += 0.427;
+												// logger.debug("XLOGP: 65		 0.427");
+											}
+										}
+										if (getDoubleBondedNitrogenCount(i) == 1) {
+											if (atomTypeXCount[i] == 0) {
+												xlogP += 0.536;
+												// logger.debug("XLOGP: 63		 0.536");
+											}
+											if (atomTypeXCount[i] == 1) {
+												xlogP -= 0.597;
+												// logger.debug("XLOGP: 64		-0.597");
+											}
+										}
+									} else if (getDoubleBondedCarbonsCount(i) == 1) {
+										if (atomTypeXCount[i] == 0) {
+											if (piSystemsCount[i] == 0) {
+												xlogP += 0.007;
+												// logger.debug("XLOGP: 59		 0.007");
+											}
+											if (piSystemsCount[i] == 1) {
+												xlogP -= 0.275;
+												// logger.debug("XLOGP: 60		-0.275");
+											}
+										} else if (atomTypeXCount[i] == 1) {
+											if (piSystemsCount[i] == 0) {
+												xlogP += 0.366;
+												// logger.debug("XLOGP: 61		 0.366");
+											}
+											if (piSystemsCount[i] == 1) {
+												xlogP += 0.251;
+												// logger.debug("XLOGP: 62		 0.251");
+											}
+										}
+									}
+								}
+							} else if (bondCount == 3) {
+								// N sp3
+								if (hsCount == 0) {
+									// if (inRing[i]&&ringSize>3) {
+									if (aromatic[i]
+											|| (inRing[i]
+													&& ringSize[i] > 3 && piSystemsCount[i] >= 1)) {
+										if (atomTypeXCount[i] == 0) {
+											xlogP += 0.881;
+											// logger.debug("XLOGP: 51		 0.881");
+										} else {
+											xlogP -= 0.01;
+											// logger.debug("XLOGP: 53		-0.01");
+										}
+									} else {
+										if (atomTypeXCount[i] == 0) {
+											if (piSystemsCount[i] == 0) {
+												xlogP += 0.159;
+												// logger.debug("XLOGP: 49		 0.159");
+											}
+											if (piSystemsCount[i] > 0) {
+												xlogP += 0.761;
+												// logger.debug("XLOGP: 50		 0.761");
+											}
+										} else {
+											xlogP -= 0.239;
+											// logger.debug("XLOGP: 52		-0.239");
+										}
+									}
+								} else if (hsCount == 1) {
+									if (atomTypeXCount[i] == 0) {
+										// like pyrrole
+										if (aromatic[i]
+												|| (inRing[i]
+														&& ringSize[i] > 3 && piSystemsCount[i] >= 2)) {
+											xlogP += 0.545;
+											hBondDonors.add(i);
+											// logger.debug("XLOGP: 46		 0.545");
+										} else {
+											if (piSystemsCount[i] == 0) {
+												xlogP -= 0.112;
+												hBondDonors.add(i);
+												// logger.debug("XLOGP: 44		-0.112");
+											}
+											if (piSystemsCount[i] > 0) {
+												xlogP += 0.166;
+												hBondDonors.add(i);
+												// logger.debug("XLOGP: 45		 0.166");
+											}
+										}
+									} else {
+										if (inRing[i]) {
+											xlogP += 0.153;
+											hBondDonors.add(i);
+											// logger.debug("XLOGP: 48		 0.153");
+										} else {
+											xlogP += 0.324;
+											hBondDonors.add(i);
+											// logger.debug("XLOGP: 47		 0.324");
+										}
+									}
+								} else if (hsCount == 2) {
+									if (atomTypeXCount[i] == 0) {
+										if (piSystemsCount[i] == 0) {
+											xlogP -= 0.534;
+											hBondDonors.add(i);
+											// logger.debug("XLOGP: 41		-0.534");
+										}
+										if (piSystemsCount[i] == 1) {
+											xlogP -= 0.329;
+											hBondDonors.add(i);
+											// logger.debug("XLOGP: 42		-0.329");
+										}
+
+										if (checkAminoAcid != 0) {
+											checkAminoAcid += 1;
+										}
+									} else {
+										xlogP -= 1.082;
+										hBondDonors.add(i);
+										// logger.debug("XLOGP: 43		-1.082");
+									}
+								}
+							}
+						}
+					}
+				}
+				if (element == O) {
+					if (bondCount == 1 && maxBondOrder == IBond.Order.DOUBLE) {
+						xlogP -= 0.399;
+						if (!getPresenceOfHydroxy(i)) {
+							hBondAcceptors.add(i);
+						}
+						// logger.debug("XLOGP: 75	A=O	-0.399");
+					} else if (bondCount == 1 && hsCount == 0
+							&& (getPresenceOfNitro(i) || getPresenceOfCarbonil(i) == 1)
+							|| getPresenceOfSulfat(i)) {
+						xlogP -= 0.399;
+						if (!getPresenceOfHydroxy(i)) {
+							hBondAcceptors.add(i);
+						}
+						// logger.debug("XLOGP: 75	A=O	-0.399");
+					} else if (bondCount >= 1) {
+						if (hsCount == 0 && bondCount == 2) {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP += 0.084;
+									// logger.debug("XLOGP: 72	R-O-R	 0.084");
+								}
+								if (piSystemsCount[i] > 0) {
+									xlogP += 0.435;
+									// logger.debug("XLOGP: 73	R-O-R.1	 0.435");
+								}
+							} else if (atomTypeXCount[i] == 1) {
+								xlogP += 0.105;
+								// logger.debug("XLOGP: 74	R-O-X	 0.105");
+							}
+						} else {
+							if (atomTypeXCount[i] == 0) {
+								if (piSystemsCount[i] == 0) {
+									xlogP -= 0.467;
+									hBondDonors.add(i);
+									hBondAcceptors.add(i);
+									// logger.debug("XLOGP: 69	R-OH	-0.467");
+								}
+								if (piSystemsCount[i] == 1) {
+									xlogP += 0.082;
+									hBondDonors.add(i);
+									hBondAcceptors.add(i);
+									// logger.debug("XLOGP: 70	R-OH.1	 0.082");
+								}
+							} else if (atomTypeXCount[i] == 1) {
+								xlogP -= 0.522;
+								hBondDonors.add(i);
+								hBondAcceptors.add(i);
+								// logger.debug("XLOGP: 71	X-OH	-0.522");
+							}
+						}
+					}
+				}
+				if (element == S) {
+					if ((bondCount == 1 && maxBondOrder == IBond.Order.DOUBLE)
+							|| (bondCount == 1 && atoms[i].getFormalCharge() == -1)) {
+						xlogP -= 0.148;
+						// logger.debug("XLOGP: 78	A=S	-0.148");
+					} else if (bondCount == 2) {
+						if (hsCount == 0) {
+							xlogP += 0.255;
+							// logger.debug("XLOGP: 77	A-S-A	 0.255");
+						} else {
+							xlogP += 0.419;
+							// logger.debug("XLOGP: 76	A-SH	 0.419");
+						}
+					} else if (bondCount == 3) {
+						if (getOxygenCount(i) >= 1) {
+							xlogP -= 1.375;
+							// logger.debug("XLOGP: 79	A-SO-A	-1.375");
+						}
+					} else if (bondCount == 4) {
+						if (getDoubleBondedOxygenCount(i) >= 2) {
+							xlogP -= 0.168;
+							// logger.debug("XLOGP: 80	A-SO2-A	-0.168");
+						}
+					}
+				}
+				if (element == P) {
+					if (getDoubleBondedSulfurCount(i) >= 1 && bondCount >= 4) {
+						xlogP += 1.253;
+						// logger.debug("XLOGP: 82	S=PA3	 1.253");
+					} else if (getOxygenCount(i) >= 1 || getDoubleBondedOxygenCount(i) == 1
+							&& bondCount >= 4) {
+						xlogP -= 0.447;
+						// logger.debug("XLOGP: 81	O=PA3	-0.447");
+					}
+				}
+				if (element == F) {
+					if (piSystemsCount[i] == 0) {
+						xlogP += 0.375;
+						// logger.debug("XLOGP: 83	F.0	 0.512");
+					} else if (piSystemsCount[i] == 1) {
+						xlogP += 0.202;
+						// logger.debug("XLOGP: 84	F.1	 0.202");
+					}
+				}
+				if (element == CL) {
+					if (piSystemsCount[i] == 0) {
+						xlogP += 0.512;
+						// logger.debug("XLOGP: 85	Cl.0	 0.512");
+					} else if (piSystemsCount[i] >= 1) {
+						xlogP += 0.663;
+						// logger.debug("XLOGP: 86	Cl.1	 0.663");
+					}
+				}
+				if (element == BR) {
+					if (piSystemsCount[i] == 0) {
+						xlogP += 0.85;
+						// logger.debug("XLOGP: 87	Br.0	 0.85");
+					} else if (piSystemsCount[i] == 1) {
+						xlogP += 0.839;
+						// logger.debug("XLOGP: 88	Br.1	 0.839");
+					}
+				}
+				if (element == I) {
+					if (piSystemsCount[i] == 0) {
+						xlogP += 1.05;
+						// logger.debug("XLOGP: 89	I.0	 1.05");
+					} else if (piSystemsCount[i] == 1) {
+						xlogP += 1.109;
+						// logger.debug("XLOGP: 90	I.1	 1.109");
+					}
+				}
+
+				// Halogen pair 1-3
+				int halcount = getHalogenCount(i);
+				if (halcount == 2) {
+					xlogP += 0.137;
+					// logger.debug("XLOGP: Halogen 1-3 pair	 0.137");
+				} else if (halcount == 3) {
+					xlogP += (3 * 0.137);
+					// logger.debug("XLOGP: Halogen 1-3 pair	 0.411");
+				} else if (halcount == 4) {
+					xlogP += (6 * 0.137);
+					// logger.debug("XLOGP: Halogen 1-3 pair	 1.902");
+				}
+
+				// sp2 Oxygen 1-5 pair
+				if (getPresenceOfCarbonil(i) == 2) {// sp2 oxygen 1-5
+															// pair
+					if (!inRing[i]) {
+						xlogP += 0.580;
+						// logger.debug("XLOGP: sp2 Oxygen 1-5 pair	 0.580");
+					}
+				}
+			}
+			// logger.debug("XLOGP: Before Correction:"+xlogP);
+			BitSet pairCheck = null;
+			// //logger.debug("Acceptors:"+hBondAcceptors.size()+" Donors:"+hBondDonors.size());
+			if (hBondAcceptors.size() > 0 && hBondDonors.size() > 0) {
+				pairCheck = new BitSet();
+			}
+
+			for (int i = 0; i < hBondAcceptors.size(); i++) {
+				int acceptor = hBondAcceptors.get(i);
+				int[] distances = null;
+				for (int j = 0; j < hBondDonors.size(); j++) {
+					int donor = hBondDonors.get(j);
+					if (ringLink[acceptor] || ringLink[donor]) {
+						if (distances == null) {
+							distances = getDistances(acceptor);
+						}
+						int distance = distances[donor];
+						if (ringLink[acceptor] && ringLink[donor]) {
+							if (distance == 3 && !pairCheck.get(acceptor * atomCount + donor)) {
+								xlogP += 0.429;
+								pairCheck.set(acceptor * atomCount + donor);
+								pairCheck.set(donor * atomCount + acceptor);
+								// logger.debug("XLOGP: Internal HBonds 1-4	 0.429");
+							}
+						} else {
+							if (distance == 4 && !pairCheck.get(acceptor * atomCount + donor)) {
+								xlogP += 0.429;
+								pairCheck.set(acceptor * atomCount + donor);
+								pairCheck.set(donor * atomCount + acceptor);
+								// logger.debug("XLOGP: Internal HBonds 1-5	 0.429");
+							}
+						}
+					}
+				}
+			}
+
+			// the symbol counts are necessary conditions of the substructure queries and skip hopeless matches
+			if (checkAminoAcid > 1 && symbolCount[N] >= 1 && symbolCount[O] >= 2) {
+				// alpha amino acid
+				// AtomContainer aminoacid = sp.parseSmiles("NCC(=O)O");
+				if (aaPattern == null) {
+					aaPattern = createAminoAcidPattern(ac.getBuilder());
+				}
+				if (aaPattern.matches(ac)) {
+					int[] match = aaPattern.match(ac);
+					for (int j = 0; j < match.length; j++) {
+						int atom1 = match[j];
+						if (elements[atom1] == O && maxBondOrders[atom1] == IBond.Order.SINGLE) {
+							if (neighbours[atom1].length == 2 && hydrogenCount[atom1] == 0) {} else {
+								xlogP -= 2.166;
+								// logger.debug("XLOGP: alpha amino acid	-2.166");
+								break;
+							}
+						}
+					}
+				}
+			}
+
+			// p-amino sulphonic acid
+			if (!elementCountComplete || elementCount[S] >= 1 && elementCount[N] >= 1 && elementCount[O] >= 2) {
+				if (paPattern == null) {
+					paPattern = VentoFoggia.findSubstructure(createPaba(ac.getBuilder()));
+				}
+				if (paPattern.matches(ac)) {
+					xlogP -= 0.501;
+					// logger.debug("XLOGP: p-amino sulphonic acid	-0.501");
+				}
+			}
+
+			// salicylic acid
+			if (salicylFlag && (!elementCountComplete || elementCount[O] >= 3)) {
+				if (saPattern == null) {
+					saPattern = VentoFoggia.findSubstructure(createSalicylicAcid(ac.getBuilder()));
+				}
+				if (saPattern.matches(ac)) {
+					xlogP += 0.554;
+					// logger.debug("XLOGP: salicylic acid	 0.554");
+				}
+			}
+
+			// ortho oxygen pair
+			// AtomContainer orthopair = sp.parseSmiles("OCCO");
+			if (symbolCount[O] >= 2) {
+				if (orPattern == null) {
+					orPattern = createOrthoPairPattern(ac.getBuilder());
+				}
+				if (orPattern.matches(ac)) {
+					xlogP -= 0.268;
+					// logger.debug("XLOGP: Ortho oxygen pair	-0.268");
+				}
+			}
+
+			return xlogP;
+		}
+
+		/**
+		 * Gets the topological distances from the atom to all other atoms by breadth-first search.
+		 * 
+		 * @param atom the start atom
+		 * @return the distances, {@link Integer#MAX_VALUE} for unreachable atoms
+		 */
+		private int[] getDistances(int atom) {
+			int[] distances = new int[atoms.length];
+			Arrays.fill(distances, Integer.MAX_VALUE);
+			int[] queue = new int[atoms.length];
+			int head = 0;
+			int tail = 0;
+			distances[atom] = 0;
+			queue[tail++] = atom;
+			while (head < tail) {
+				int current = queue[head++];
+				for (int neighbour : neighbours[current]) {
+					if (distances[neighbour] == Integer.MAX_VALUE) {
+						distances[neighbour] = distances[current] + 1;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+			return distances;
+		}
+
+		/**
+		 * Gets the bond order sum of the atom.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The bond order sum
+		 */
+		private double getBondOrderSum(int atom) {
+			double count = 0;
+			for (IBond.Order order : orders[atom]) {
+				if (order != null) {
+					count += order.numeric();
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Gets the HalogenCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The alogenCount value
+		 */
+		private int getHalogenCount(int atom) {
+			int acounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				int element = elements[neighbour];
+				if (element == F || element == I || element == CL || element == BR) {
+					acounter += 1;
+				}
+			}
+			return acounter;
+		}
+
+		/**
+		 * Gets the atomType X Count attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The nitrogenOrOxygenCount value
+		 */
+		private int getAtomTypeXCount(int atom) {
+			int nocounter = 0;
+			for (int k = 0; k < neighbours[atom].length; k++) {
+				int neighbour = neighbours[atom][k];
+				if ((elements[neighbour] == N || elements[neighbour] == O) && !inAromaticRing[neighbour]) {
+					if (orders[atom][k] != IBond.Order.DOUBLE) {
+						nocounter += 1;
+					}
+				}
+			}
+			return nocounter;
+		}
+
+		/**
+		 * Gets the aromaticCarbonsCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The aromaticCarbonsCount value
+		 */
+		private int getAromaticCarbonsCount(int atom) {
+			int carocounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == C && aromatic[neighbour]) {
+					carocounter += 1;
+				}
+			}
+			return carocounter;
+		}
+
+		/**
+		 * Gets the carbonsCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The carbonsCount value
+		 */
+		private int getCarbonsCount(int atom) {
+			int ccounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == C && !aromatic[neighbour]) {
+					ccounter += 1;
+				}
+			}
+			return ccounter;
+		}
+
+		/**
+		 * Gets the oxygenCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The carbonsCount value
+		 */
+		private int getOxygenCount(int atom) {
+			int ocounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == O && !aromatic[neighbour]) {
+					ocounter += 1;
+				}
+			}
+			return ocounter;
+		}
+
+		/**
+		 * Gets the doubleBondedCarbonsCount attribute of the XLogPDescriptor
+		 * object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The doubleBondedCarbonsCount value
+		 */
+		private int getDoubleBondedCarbonsCount(int atom) {
+			int cdbcounter = 0;
+			for (int k = 0; k < neighbours[atom].length; k++) {
+				if (elements[neighbours[atom][k]] == C && orders[atom][k] == IBond.Order.DOUBLE) {
+					cdbcounter += 1;
+				}
+			}
+			return cdbcounter;
+		}
+
+		/**
+		 * Gets the doubleBondedOxygenCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The doubleBondedOxygenCount value
+		 */
+		private int getDoubleBondedOxygenCount(int atom) {
+			int odbcounter = 0;
+			boolean chargeFlag = false;
+			if (atoms[atom].getFormalCharge() >= 1) {
+				chargeFlag = true;
+			}
+			for (int k = 0; k < neighbours[atom].length; k++) {
+				int neighbour = neighbours[atom][k];
+				if (elements[neighbour] == O) {
+					if (chargeFlag && atoms[neighbour].getFormalCharge() == -1
+							&& orders[atom][k] == IBond.Order.SINGLE) {
+						odbcounter += 1;
+					}
+					if (!aromatic[neighbour]) {
+						if (orders[atom][k] == IBond.Order.DOUBLE) {
+							odbcounter += 1;
+						}
+					}
+				}
+			}
+			return odbcounter;
+		}
+
+		/**
+		 * Gets the doubleBondedSulfurCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The doubleBondedSulfurCount value
+		 */
+		private int getDoubleBondedSulfurCount(int atom) {
+			int sdbcounter = 0;
+			for (int k = 0; k < neighbours[atom].length; k++) {
+				int neighbour = neighbours[atom][k];
+				if (elements[neighbour] == S) {
+					if (atoms[atom].getFormalCharge() == 1 && atoms[neighbour].getFormalCharge() == -1) {
+						sdbcounter += 1;
+					}
+					if (!aromatic[neighbour]) {
+						if (orders[atom][k] == IBond.Order.DOUBLE) {
+							sdbcounter += 1;
+						}
+					}
+				}
+			}
+			return sdbcounter;
+		}
+
+		/**
+		 * Gets the doubleBondedNitrogenCount attribute of the XLogPDescriptor
+		 * object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The doubleBondedNitrogenCount value
+		 */
+		private int getDoubleBondedNitrogenCount(int atom) {
+			int ndbcounter = 0;
+			for (int k = 0; k < neighbours[atom].length; k++) {
+				int neighbour = neighbours[atom][k];
+				if (elements[neighbour] == N && !aromatic[neighbour] && orders[atom][k] == IBond.Order.DOUBLE) {
+					ndbcounter += 1;
+				}
+			}
+			return ndbcounter;
+		}
+
+		/**
+		 * Gets the aromaticNitrogensCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The aromaticNitrogensCount value
+		 */
+		private int getAromaticNitrogensCount(int atom) {
+			int narocounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == N && inAromaticRing[neighbour]) {
+					narocounter += 1;
+				}
+			}
+			return narocounter;
+		}
+
+		// a piSystem is a double or triple or aromatic bond:
+		/**
+		 * Gets the piSystemsCount attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The piSystemsCount value
+		 */
+		private int getPiSystemsCount(int atom) {
+			int picounter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == P || elements[neighbour] == S) {
+					continue;
+				}
+				for (int k = 0; k < neighbours[neighbour].length; k++) {
+					if (orders[neighbour][k] != IBond.Order.SINGLE && neighbours[neighbour][k] != atom) {
+						picounter += 1;
+					}
+				}
+			}
+			return picounter;
+		}
+
+		/**
+		 * Gets the presenceOf Hydroxy group attribute of the XLogPDescriptor
+		 * object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The presenceOfCarbonil value
+		 */
+		private boolean getPresenceOfHydroxy(int atom) {
+			int neighbour0 = neighbours[atom][0];
+			if (elements[neighbour0] == C) {
+				for (int k = 0; k < neighbours[neighbour0].length; k++) {
+					int conAtom = neighbours[neighbour0][k];
+					if (elements[conAtom] == O) {
+						if (orders[neighbour0][k] == IBond.Order.SINGLE) {
+							if (neighbours[conAtom].length > 1 && hydrogenCount[conAtom] == 0) {
+								return false;
+							} else {
+								return true;
+							}
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the presenceOfN=O attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The presenceOfNitor [boolean]
+		 */
+		private boolean getPresenceOfNitro(int atom) {
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == N) {
+					for (int k = 0; k < neighbours[neighbour].length; k++) {
+						if (elements[neighbours[neighbour][k]] == O && orders[neighbour][k] == IBond.Order.DOUBLE) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the presenceOfSulfat A-S(O2)-A attribute of the XLogPDescriptor
+		 * object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The presenceOfSulfat [boolean]
+		 */
+		private boolean getPresenceOfSulfat(int atom) {
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == S && getOxygenCount(neighbour) >= 2 && neighbours[neighbour].length == 4) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the presenceOfCarbonil attribute of the XLogPDescriptor object.
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The presenceOfCarbonil value
+		 */
+		private int getPresenceOfCarbonil(int atom) {
+			int counter = 0;
+			for (int neighbour : neighbours[atom]) {
+				if (elements[neighbour] == C) {
+					for (int k = 0; k < neighbours[neighbour].length; k++) {
+						if (elements[neighbours[neighbour][k]] == O && orders[neighbour][k] == IBond.Order.DOUBLE) {
+							counter += 1;
+						}
+					}
+				}
+			}
+			return counter;
+		}
+
+		/**
+		 * Gets the ifCarbonIsHydrophobic attribute of the XLogPDescriptor object. C
+		 * must be sp2 or sp3 and, for all distances C-1-2-3 only C atoms are
+		 * permitted
+		 * 
+		 * @param atom Description of the Parameter
+		 * @return The ifCarbonIsHydrophobic value
+		 */
+		private boolean getIfCarbonIsHydrophobic(int atom) {
+			if (neighbours[atom].length == 0) {
+				return false;
+			}
+			for (int firstAtom : neighbours[atom]) {
+				if (!isCarbonOrHydrogen(firstAtom) || neighbours[firstAtom].length == 0) {
+					return false;
+				}
+				for (int secondAtom : neighbours[firstAtom]) {
+					if (!isCarbonOrHydrogen(secondAtom) || neighbours[secondAtom].length == 0) {
+						return false;
+					}
+					for (int thirdAtom : neighbours[secondAtom]) {
+						if (!isCarbonOrHydrogen(thirdAtom)) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		private boolean isCarbonOrHydrogen(int atom) {
+			return elements[atom] == C || elements[atom] == H;
+		}
+	}
 }